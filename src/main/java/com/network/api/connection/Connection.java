@@ -1,5 +1,8 @@
 package com.network.api.connection;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.Map;
@@ -102,6 +105,111 @@ public interface Connection extends AutoCloseable {
         return future;
     }
     
+    /**
+     * Sends the remaining bytes of a buffer over this connection.
+     * 
+     * <p>The default implementation copies the buffer into a byte array.
+     * Implementations backed by a channel should write the buffer directly.
+     * 
+     * @param data the data to send; its position is advanced past the bytes sent
+     * @throws ConnectionException if an error occurs
+     */
+    default void send(ByteBuffer data) throws ConnectionException {
+        byte[] bytes = new byte[data.remaining()];
+        data.get(bytes);
+        send(bytes);
+    }
+    
+    /**
+     * Sends the remaining bytes of a buffer over this connection asynchronously.
+     * 
+     * @param data the data to send
+     * @return a CompletableFuture that completes when the data is sent
+     */
+    default CompletableFuture<Void> sendAsync(ByteBuffer data) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        try {
+            send(data);
+            future.complete(null);
+        } catch (Exception e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+    
+    /**
+     * Sends a region of a file over this connection.
+     * 
+     * <p>The default implementation reads the file through a small heap buffer.
+     * Implementations backed by a socket channel should override this method to
+     * use {@link FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)},
+     * which lets the operating system copy the file to the socket (sendfile)
+     * without the bytes ever entering the Java heap.
+     * 
+     * @param source the file to send
+     * @param position the file position to start at
+     * @param count the number of bytes to send
+     * @return the number of bytes sent
+     * @throws IOException if the file cannot be read
+     * @throws ConnectionException if an error occurs on the connection
+     */
+    default long transferFrom(FileChannel source, long position, long count) throws IOException, ConnectionException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(count, 64 * 1024));
+        long sent = 0;
+        while (sent < count) {
+            buffer.clear();
+            buffer.limit((int) Math.min(buffer.capacity(), count - sent));
+            int read = source.read(buffer, position + sent);
+            if (read < 0) {
+                break;
+            }
+            buffer.flip();
+            send(buffer);
+            sent += read;
+        }
+        return sent;
+    }
+    
+    /**
+     * Sends a region of a file over this connection asynchronously.
+     * 
+     * @param source the file to send
+     * @param position the file position to start at
+     * @param count the number of bytes to send
+     * @return a CompletableFuture that completes with the number of bytes sent
+     * @see #transferFrom(FileChannel, long, long)
+     */
+    default CompletableFuture<Long> transferFromAsync(FileChannel source, long position, long count) {
+        CompletableFuture<Long> future = new CompletableFuture<>();
+        try {
+            future.complete(transferFrom(source, position, count));
+        } catch (Exception e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+    
+    /**
+     * Stops reading from this connection until {@link #resumeReads()} is called.
+     * 
+     * <p>Used to apply backpressure when the consumer of incoming data is
+     * slower than the peer. The default implementation does nothing.
+     * 
+     * @return this connection for chaining
+     */
+    default Connection suspendReads() {
+        return this;
+    }
+    
+    /**
+     * Resumes reading from this connection after {@link #suspendReads()}.
+     * 
+     * @return this connection for chaining
+     */
+    default Connection resumeReads() {
+        return this;
+    }
+    
     /**
      * Closes this connection asynchronously.
      * 
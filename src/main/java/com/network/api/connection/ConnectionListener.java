@@ -1,5 +1,7 @@
 package com.network.api.connection;
 
+import java.nio.ByteBuffer;
+
 /**
  * Listener for connection events.
  */
@@ -39,6 +41,25 @@ public interface ConnectionListener {
         // Default implementation does nothing
     }
     
+    /**
+     * Called when data is received on a connection, with the data in a buffer.
+     * 
+     * <p>The buffer is owned by the connection, which typically takes it from a
+     * {@link com.network.buffer.BufferPool} and reuses it after this method
+     * returns. It is only valid during the call, and its bytes must be copied
+     * to be retained. The default implementation copies them into an array and
+     * calls {@link #onDataReceived(Connection, byte[])}; listeners that can
+     * consume a buffer should override this method to avoid the copy.
+     * 
+     * @param connection the connection
+     * @param data the received data, from its position to its limit
+     */
+    default void onDataReceived(Connection connection, ByteBuffer data) {
+        byte[] bytes = new byte[data.remaining()];
+        data.get(bytes);
+        onDataReceived(connection, bytes);
+    }
+    
     /**
      * Called when data is sent on a connection.
      * 
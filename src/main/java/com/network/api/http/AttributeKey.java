@@ -0,0 +1,192 @@
+package com.network.api.http;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Typed key of an attribute in an {@link HttpRequestContext}.
+ *
+ * <p>Keys are meant to be created once and kept in static fields. Each key is
+ * assigned a slot when it is created, so a context stores its attributes in
+ * a small array indexed by slot rather than in a hash map, and reads them
+ * back without casts. {@link IntKey}s and {@link LongKey}s have slots of
+ * their own in primitive arrays, so counters and timestamps are not boxed.
+ *
+ * <p>Names are unique: creating a key with the name of an existing key
+ * returns that key if the type matches. Attributes set by name through
+ * {@link HttpRequestContext#setAttribute(String, Object)} end up in the slot
+ * of the key with that name, if there is one and the value has its type.
+ *
+ * @param <T> the type of the attribute value
+ */
+public class AttributeKey<T> {
+
+    static final int OBJECT = 0;
+    static final int INT = 1;
+    static final int LONG = 2;
+
+    private static final Map<String, AttributeKey<?>> KEYS = new ConcurrentHashMap<>();
+    @SuppressWarnings("unchecked")
+    private static final List<AttributeKey<?>>[] SLOTS =
+        (List<AttributeKey<?>>[]) new List<?>[] {new ArrayList<>(), new ArrayList<>(), new ArrayList<>()};
+
+    private final String name;
+    private final Class<T> type;
+    final int kind;
+    final int slot;
+
+    AttributeKey(String name, Class<T> type, int kind) {
+        this.name = name;
+        this.type = type;
+        this.kind = kind;
+        this.slot = SLOTS[kind].size();
+    }
+
+    /**
+     * Gets or creates the key of an attribute.
+     *
+     * @param <T>  the type of the attribute value
+     * @param name the attribute name
+     * @param type the type of the attribute value
+     * @return the key
+     * @throws IllegalArgumentException if a key with that name but another type exists
+     */
+    public static <T> AttributeKey<T> of(String name, Class<T> type) {
+        if (type == null) {
+            throw new IllegalArgumentException("Attribute type must not be null");
+        }
+        return register(name, type, OBJECT, () -> new AttributeKey<>(name, type, OBJECT));
+    }
+
+    /**
+     * Gets or creates the key of an {@code int} attribute.
+     *
+     * @param name the attribute name
+     * @return the key
+     * @throws IllegalArgumentException if a key with that name but another type exists
+     */
+    public static IntKey intKey(String name) {
+        return register(name, Integer.class, INT, () -> new IntKey(name));
+    }
+
+    /**
+     * Gets or creates the key of a {@code long} attribute.
+     *
+     * @param name the attribute name
+     * @return the key
+     * @throws IllegalArgumentException if a key with that name but another type exists
+     */
+    public static LongKey longKey(String name) {
+        return register(name, Long.class, LONG, () -> new LongKey(name));
+    }
+
+    /**
+     * Gets the key with a name.
+     *
+     * @param name the attribute name
+     * @return the key, or null if there is none
+     */
+    static AttributeKey<?> forName(String name) {
+        return KEYS.get(name);
+    }
+
+    /**
+     * Gets the key of a slot.
+     *
+     * @param kind the kind of slot
+     * @param slot the slot
+     * @return the key
+     */
+    static synchronized AttributeKey<?> forSlot(int kind, int slot) {
+        return SLOTS[kind].get(slot);
+    }
+
+    /**
+     * Gets the number of slots of a kind that have been assigned so far.
+     *
+     * @param kind the kind of slot
+     * @return the number of slots
+     */
+    static synchronized int slotCount(int kind) {
+        return SLOTS[kind].size();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static synchronized <K extends AttributeKey<?>> K register(String name, Class<?> type, int kind,
+                                                                       Supplier<K> factory) {
+        if (name == null) {
+            throw new IllegalArgumentException("Attribute name must not be null");
+        }
+        AttributeKey<?> existing = KEYS.get(name);
+        if (existing != null) {
+            if (existing.kind != kind || existing.type != type) {
+                throw new IllegalArgumentException("Attribute " + name + " is already registered with type " +
+                                                   existing.type.getName());
+            }
+            return (K) existing;
+        }
+        K key = factory.get();
+        SLOTS[kind].add(key);
+        KEYS.put(name, key);
+        return key;
+    }
+
+    /**
+     * Gets the name of the attribute.
+     *
+     * @return the name
+     */
+    public String name() {
+        return name;
+    }
+
+    /**
+     * Gets the type of the attribute value.
+     *
+     * @return the type
+     */
+    public Class<T> type() {
+        return type;
+    }
+
+    /**
+     * Checks the type of a value before it is stored.
+     *
+     * @param value the value
+     * @return the value
+     * @throws IllegalArgumentException if the value is not of the attribute type
+     */
+    T cast(Object value) {
+        if (value != null && !type.isInstance(value)) {
+            throw new IllegalArgumentException("Attribute " + name + " must be of type " + type.getName() +
+                                               ", not " + value.getClass().getName());
+        }
+        return type.cast(value);
+    }
+
+    @Override
+    public String toString() {
+        return "AttributeKey[" + name + ": " + type.getSimpleName() + "]";
+    }
+
+    /**
+     * Key of an {@code int} attribute, stored without boxing.
+     */
+    public static final class IntKey extends AttributeKey<Integer> {
+        IntKey(String name) {
+            super(name, Integer.class, INT);
+        }
+    }
+
+    /**
+     * Key of a {@code long} attribute, stored without boxing.
+     */
+    public static final class LongKey extends AttributeKey<Long> {
+        LongKey(String name) {
+            super(name, Long.class, LONG);
+        }
+    }
+}
@@ -0,0 +1,502 @@
+package com.network.api.http;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * Case-insensitive collection of HTTP headers shared by requests and responses.
+ *
+ * <p>Header lines are kept in insertion order in flat arrays, together with an
+ * open-addressed hash index over the case-folded header names. Names are folded
+ * while hashing and comparing, so lookups do not allocate. A header may occur
+ * several times; {@link #get(String)} returns the first value and
+ * {@link #getAll(String)} returns all of them.
+ *
+ * <p>{@link #snapshot()} returns an immutable view that shares the arrays with
+ * this instance; the arrays are only copied if this instance is modified
+ * afterwards. Instances are not thread-safe while being modified, but snapshots
+ * can be shared freely.
+ */
+public final class HttpHeaders {
+
+    private static final HttpHeaders EMPTY = new HttpHeaders(0).snapshot();
+
+    private String[] names;
+    private String[] values;
+    /** Index table: entry index + 1 per slot, 0 for an empty slot. */
+    private int[] table;
+    private int size;
+    private int removed;
+    private boolean shared;
+    private final boolean immutable;
+    private Map<String, String> mapView;
+
+    /**
+     * Creates a new, empty, mutable header collection.
+     */
+    public HttpHeaders() {
+        this(8);
+    }
+
+    private HttpHeaders(int expected) {
+        int capacity = Math.max(4, expected);
+        this.names = new String[capacity];
+        this.values = new String[capacity];
+        this.table = new int[tableSizeFor(capacity)];
+        this.immutable = false;
+    }
+
+    private HttpHeaders(HttpHeaders source) {
+        this.names = source.names;
+        this.values = source.values;
+        this.table = source.table;
+        this.size = source.size;
+        this.removed = source.removed;
+        this.shared = true;
+        this.immutable = true;
+    }
+
+    /**
+     * Gets an empty, immutable header collection.
+     *
+     * @return the empty headers
+     */
+    public static HttpHeaders empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Creates a mutable header collection holding the entries of a map.
+     *
+     * <p>If the map is the {@link #asMap()} view of another header collection,
+     * this shares that collection's storage instead of copying it.
+     *
+     * @param headers the headers to copy
+     * @return the header collection
+     */
+    public static HttpHeaders copyOf(Map<String, String> headers) {
+        if (headers instanceof MapView) {
+            return ((MapView) headers).owner().copy();
+        }
+        HttpHeaders result = new HttpHeaders(headers.size());
+        for (Map.Entry<String, String> entry : headers.entrySet()) {
+            result.add(entry.getKey(), entry.getValue());
+        }
+        return result;
+    }
+
+    /**
+     * Creates a mutable copy of these headers. The copy shares storage with
+     * this collection until either of them is modified.
+     *
+     * @return the copy
+     */
+    public HttpHeaders copy() {
+        shared = true;
+        HttpHeaders copy = new HttpHeaders(0);
+        copy.names = names;
+        copy.values = values;
+        copy.table = table;
+        copy.size = size;
+        copy.removed = removed;
+        copy.shared = true;
+        return copy;
+    }
+
+    /**
+     * Adds a header, keeping existing headers with the same name.
+     *
+     * @param name the header name
+     * @param value the header value
+     * @return this header collection
+     * @throws UnsupportedOperationException if this collection is immutable
+     */
+    public HttpHeaders add(String name, String value) {
+        checkName(name);
+        if (value == null) {
+            throw new IllegalArgumentException("Header value must not be null");
+        }
+        prepareWrite();
+        if (size == names.length) {
+            int live = size - removed;
+            if (removed > 0 && live < names.length / 2) {
+                compact(names.length);
+            } else {
+                compact(names.length * 2);
+            }
+        }
+        names[size] = name;
+        values[size] = value;
+        size++;
+        insertIndex(size - 1);
+        return this;
+    }
+
+    /**
+     * Sets a header, replacing all existing headers with the same name.
+     *
+     * @param name the header name
+     * @param value the header value
+     * @return this header collection
+     * @throws UnsupportedOperationException if this collection is immutable
+     */
+    public HttpHeaders set(String name, String value) {
+        remove(name);
+        return add(name, value);
+    }
+
+    /**
+     * Removes all headers with a name.
+     *
+     * @param name the header name
+     * @return true if a header was removed
+     * @throws UnsupportedOperationException if this collection is immutable
+     */
+    public boolean remove(String name) {
+        checkName(name);
+        if (indexOf(name) < 0) {
+            return false;
+        }
+        prepareWrite();
+        for (int i = 0; i < size; i++) {
+            if (names[i] != null && names[i].equalsIgnoreCase(name)) {
+                names[i] = null;
+                values[i] = null;
+                removed++;
+            }
+        }
+        rebuildIndex();
+        return true;
+    }
+
+    /**
+     * Gets the first value of a header.
+     *
+     * @param name the header name, matched case-insensitively
+     * @return the value, or null if the header is not present
+     */
+    public String get(String name) {
+        int index = indexOf(name);
+        return index < 0 ? null : values[index];
+    }
+
+    /**
+     * Gets all values of a header, in the order they were added.
+     *
+     * @param name the header name, matched case-insensitively
+     * @return the values, empty if the header is not present
+     */
+    public List<String> getAll(String name) {
+        int first = indexOf(name);
+        if (first < 0) {
+            return Collections.emptyList();
+        }
+        List<String> result = new ArrayList<>(2);
+        for (int i = first; i < size; i++) {
+            if (names[i] != null && names[i].equalsIgnoreCase(name)) {
+                result.add(values[i]);
+            }
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    /**
+     * Gets all values of a header joined with {@code ", "}, as allowed for
+     * list-valued headers.
+     *
+     * @param name the header name, matched case-insensitively
+     * @return the combined value, or null if the header is not present
+     */
+    public String getCombined(String name) {
+        int first = indexOf(name);
+        if (first < 0) {
+            return null;
+        }
+        String result = values[first];
+        for (int i = first + 1; i < size; i++) {
+            if (names[i] != null && names[i].equalsIgnoreCase(name)) {
+                result = result + ", " + values[i];
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Checks if a header is present.
+     *
+     * @param name the header name, matched case-insensitively
+     * @return true if the header is present
+     */
+    public boolean contains(String name) {
+        return indexOf(name) >= 0;
+    }
+
+    /**
+     * Gets the number of header lines, counting repeated headers once per value.
+     *
+     * @return the number of header lines
+     */
+    public int size() {
+        return size - removed;
+    }
+
+    /**
+     * Checks if there are no headers.
+     *
+     * @return true if there are no headers
+     */
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Checks if this collection rejects modifications.
+     *
+     * @return true if this collection is immutable
+     */
+    public boolean isImmutable() {
+        return immutable;
+    }
+
+    /**
+     * Calls an action for every header line in insertion order.
+     *
+     * @param action the action, called with name and value
+     */
+    public void forEach(BiConsumer<String, String> action) {
+        for (int i = 0; i < size; i++) {
+            if (names[i] != null) {
+                action.accept(names[i], values[i]);
+            }
+        }
+    }
+
+    /**
+     * Gets an immutable snapshot of these headers. The snapshot shares storage
+     * with this collection until this collection is modified.
+     *
+     * @return the snapshot
+     */
+    public HttpHeaders snapshot() {
+        if (immutable) {
+            return this;
+        }
+        shared = true;
+        return new HttpHeaders(this);
+    }
+
+    /**
+     * Gets a read-only map view of these headers. Lookups through the view are
+     * case-insensitive, and repeated headers appear once with their values
+     * joined by {@code ", "}. The view is created once and reflects later changes.
+     *
+     * @return the map view
+     */
+    public Map<String, String> asMap() {
+        Map<String, String> view = mapView;
+        if (view == null) {
+            view = new MapView();
+            mapView = view;
+        }
+        return view;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("{");
+        forEach((name, value) -> {
+            if (sb.length() > 1) {
+                sb.append(", ");
+            }
+            sb.append(name).append(": ").append(value);
+        });
+        return sb.append('}').toString();
+    }
+
+    private int indexOf(String name) {
+        if (name == null || size == removed) {
+            return -1;
+        }
+        int mask = table.length - 1;
+        for (int slot = foldedHash(name) & mask; ; slot = (slot + 1) & mask) {
+            int entry = table[slot];
+            if (entry == 0) {
+                return -1;
+            }
+            String candidate = names[entry - 1];
+            if (candidate != null && candidate.equalsIgnoreCase(name)) {
+                return entry - 1;
+            }
+        }
+    }
+
+    /**
+     * Indexes an entry unless an earlier entry with the same name is already
+     * indexed; lookups always resolve to the first occurrence.
+     */
+    private void insertIndex(int index) {
+        String name = names[index];
+        int mask = table.length - 1;
+        for (int slot = foldedHash(name) & mask; ; slot = (slot + 1) & mask) {
+            int entry = table[slot];
+            if (entry == 0) {
+                table[slot] = index + 1;
+                return;
+            }
+            String existing = names[entry - 1];
+            if (existing != null && existing.equalsIgnoreCase(name)) {
+                return;
+            }
+        }
+    }
+
+    private void rebuildIndex() {
+        Arrays.fill(table, 0);
+        for (int i = 0; i < size; i++) {
+            if (names[i] != null) {
+                insertIndex(i);
+            }
+        }
+    }
+
+    /**
+     * Copies the live entries into fresh arrays of the given capacity,
+     * dropping removed entries.
+     */
+    private void compact(int capacity) {
+        String[] newNames = new String[capacity];
+        String[] newValues = new String[capacity];
+        int n = 0;
+        for (int i = 0; i < size; i++) {
+            if (names[i] != null) {
+                newNames[n] = names[i];
+                newValues[n] = values[i];
+                n++;
+            }
+        }
+        names = newNames;
+        values = newValues;
+        size = n;
+        removed = 0;
+        table = new int[tableSizeFor(capacity)];
+        rebuildIndex();
+    }
+
+    /**
+     * Ensures the storage can be modified, copying it if a snapshot shares it.
+     */
+    private void prepareWrite() {
+        if (immutable) {
+            throw new UnsupportedOperationException("Headers are immutable");
+        }
+        if (shared) {
+            names = names.clone();
+            values = values.clone();
+            table = table.clone();
+            shared = false;
+        }
+    }
+
+    private static void checkName(String name) {
+        if (name == null || name.isEmpty()) {
+            throw new IllegalArgumentException("Header name must not be empty");
+        }
+    }
+
+    /**
+     * Hashes a name as if it were lower-cased, without allocating.
+     */
+    private static int foldedHash(String name) {
+        int h = 0;
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (c >= 'A' && c <= 'Z') {
+                c += 32;
+            }
+            h = 31 * h + c;
+        }
+        return h ^ (h >>> 16);
+    }
+
+    private static int tableSizeFor(int capacity) {
+        // Keep the load factor at or below one half
+        return Integer.highestOneBit(Math.max(4, capacity) * 4 - 1);
+    }
+
+    /**
+     * Read-only map view over the headers.
+     */
+    private final class MapView extends AbstractMap<String, String> {
+
+        HttpHeaders owner() {
+            return HttpHeaders.this;
+        }
+
+        @Override
+        public String get(Object key) {
+            return key instanceof String ? getCombined((String) key) : null;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return key instanceof String && contains((String) key);
+        }
+
+        @Override
+        public Set<Entry<String, String>> entrySet() {
+            return new AbstractSet<Entry<String, String>>() {
+                @Override
+                public Iterator<Entry<String, String>> iterator() {
+                    return new Iterator<Entry<String, String>>() {
+                        private int next = advance(0);
+
+                        private int advance(int from) {
+                            for (int i = from; i < size; i++) {
+                                // Only the first occurrence of a name is an entry
+                                if (names[i] != null && indexOf(names[i]) == i) {
+                                    return i;
+                                }
+                            }
+                            return size;
+                        }
+
+                        @Override
+                        public boolean hasNext() {
+                            return next < size;
+                        }
+
+                        @Override
+                        public Entry<String, String> next() {
+                            if (next >= size) {
+                                throw new NoSuchElementException();
+                            }
+                            String name = names[next];
+                            next = advance(next + 1);
+                            return new SimpleImmutableEntry<>(name, getCombined(name));
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    int distinct = 0;
+                    for (int i = 0; i < HttpHeaders.this.size; i++) {
+                        if (names[i] != null && indexOf(names[i]) == i) {
+                            distinct++;
+                        }
+                    }
+                    return distinct;
+                }
+            };
+        }
+    }
+}
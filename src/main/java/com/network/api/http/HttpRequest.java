@@ -1,6 +1,7 @@
 package com.network.api.http;
 
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.util.Map;
 import java.util.Optional;
@@ -35,6 +36,16 @@ public interface HttpRequest {
      */
     Map<String, String> getHeaders();
     
+    /**
+     * Gets all headers for this request as an immutable snapshot. Lookups are
+     * case-insensitive and repeated headers keep all their values.
+     * 
+     * @return the headers
+     */
+    default HttpHeaders getHttpHeaders() {
+        return HttpHeaders.copyOf(getHeaders()).snapshot();
+    }
+    
     /**
      * Gets a specific header value.
      * 
@@ -61,18 +72,30 @@ public interface HttpRequest {
     /**
      * Gets the body of the request.
      * 
+     * <p>For bodies that are not backed by a byte array, such as file or
+     * streaming bodies, this copies the whole content into the heap. Transports
+     * should use {@link #getRequestBody()} instead.
+     * 
      * @return the body, or null if there is no body
      */
     byte[] getBody();
     
+    /**
+     * Gets the body of the request without materializing it.
+     * 
+     * @return the body, never null
+     */
+    default HttpRequestBody getRequestBody() {
+        return HttpRequestBody.ofBytes(getBody());
+    }
+    
     /**
      * Checks if the request has a body.
      * 
      * @return true if the request has a body, false otherwise
      */
     default boolean hasBody() {
-        byte[] body = getBody();
-        return body != null && body.length > 0;
+        return getRequestBody().contentLength() != 0;
     }
     
     /**
@@ -82,7 +105,32 @@ public interface HttpRequest {
      */
     default String getBodyAsString() {
         byte[] body = getBody();
-        return body != null ? new String(body) : "";
+        return body != null ? new String(body, StandardCharsets.UTF_8) : "";
+    }
+    
+    /**
+     * Creates a copy of this request with a header set to a value, replacing
+     * any existing values of that header. The copy shares the body and the
+     * context of this request, which is left unchanged.
+     * 
+     * @param name the header name
+     * @param value the header value
+     * @return the new request
+     */
+    default HttpRequest withHeader(String name, String value) {
+        return new OverlayRequest(this, getHttpHeaders().copy().set(name, value).snapshot(), null);
+    }
+    
+    /**
+     * Creates a copy of this request with a different body. The copy shares
+     * the headers and the context of this request, which is left unchanged.
+     * The transport derives Content-Length from the new body.
+     * 
+     * @param body the new body
+     * @return the new request
+     */
+    default HttpRequest withBody(HttpRequestBody body) {
+        return new OverlayRequest(this, null, body);
     }
     
     /**
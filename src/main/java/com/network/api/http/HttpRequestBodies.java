@@ -0,0 +1,344 @@
+package com.network.api.http;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.network.api.connection.Connection;
+
+/**
+ * Implementations of {@link HttpRequestBody}.
+ */
+final class HttpRequestBodies {
+
+    static final HttpRequestBody EMPTY = new BytesBody(new byte[0]);
+
+    private static final int FILE_CHUNK_SIZE = 64 * 1024;
+
+    private HttpRequestBodies() {
+        // Utility class
+    }
+
+    /**
+     * Body backed by a byte array.
+     */
+    static final class BytesBody implements HttpRequestBody {
+        private final byte[] bytes;
+
+        BytesBody(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        @Override
+        public long contentLength() {
+            return bytes.length;
+        }
+
+        @Override
+        public boolean isRepeatable() {
+            return true;
+        }
+
+        @Override
+        public Flow.Publisher<ByteBuffer> asPublisher() {
+            return subscriber -> {
+                ByteBuffer[] remaining = {ByteBuffer.wrap(bytes).asReadOnlyBuffer()};
+                subscriber.onSubscribe(new SourceSubscription(subscriber, () -> {
+                    ByteBuffer next = remaining[0];
+                    remaining[0] = null;
+                    return next != null && next.hasRemaining() ? next : null;
+                }));
+            };
+        }
+
+        @Override
+        public CompletableFuture<Void> writeTo(Connection connection) {
+            return bytes.length == 0 ? CompletableFuture.completedFuture(null) : connection.sendAsync(bytes);
+        }
+
+        @Override
+        public byte[] toByteArray() {
+            return bytes;
+        }
+    }
+
+    /**
+     * Body backed by a sequence of byte buffers.
+     */
+    static final class BufferBody implements HttpRequestBody {
+        private final ByteBuffer[] buffers;
+        private final long length;
+
+        BufferBody(ByteBuffer[] buffers) {
+            this.buffers = buffers;
+            long total = 0;
+            for (ByteBuffer buffer : buffers) {
+                total += buffer.remaining();
+            }
+            this.length = total;
+        }
+
+        @Override
+        public long contentLength() {
+            return length;
+        }
+
+        @Override
+        public boolean isRepeatable() {
+            return true;
+        }
+
+        @Override
+        public Flow.Publisher<ByteBuffer> asPublisher() {
+            return subscriber -> {
+                int[] index = {0};
+                subscriber.onSubscribe(new SourceSubscription(subscriber, () -> {
+                    while (index[0] < buffers.length) {
+                        ByteBuffer next = buffers[index[0]++];
+                        if (next.hasRemaining()) {
+                            return next.asReadOnlyBuffer();
+                        }
+                    }
+                    return null;
+                }));
+            };
+        }
+    }
+
+    /**
+     * Body backed by a region of a file.
+     */
+    static final class FileBody implements HttpRequestBody {
+        private final Path file;
+        private final long position;
+        private final long count;
+
+        FileBody(Path file, long position, long count) {
+            this.file = file;
+            this.position = position;
+            this.count = count;
+        }
+
+        @Override
+        public long contentLength() {
+            return count;
+        }
+
+        @Override
+        public boolean isRepeatable() {
+            return true;
+        }
+
+        @Override
+        public Flow.Publisher<ByteBuffer> asPublisher() {
+            return subscriber -> {
+                FileChannel channel;
+                try {
+                    channel = FileChannel.open(file, StandardOpenOption.READ);
+                } catch (IOException e) {
+                    subscriber.onSubscribe(new SourceSubscription(subscriber, () -> null));
+                    subscriber.onError(e);
+                    return;
+                }
+                long[] offset = {0};
+                subscriber.onSubscribe(new SourceSubscription(subscriber, new ChunkSource() {
+                    @Override
+                    public ByteBuffer next() throws IOException {
+                        if (offset[0] >= count) {
+                            return null;
+                        }
+                        ByteBuffer chunk = ByteBuffer.allocate((int) Math.min(FILE_CHUNK_SIZE, count - offset[0]));
+                        while (chunk.hasRemaining()) {
+                            int read = channel.read(chunk, position + offset[0] + chunk.position());
+                            if (read < 0) {
+                                throw new IOException("File is shorter than expected: " + file);
+                            }
+                        }
+                        offset[0] += chunk.capacity();
+                        return chunk.flip();
+                    }
+
+                    @Override
+                    public void close() throws IOException {
+                        channel.close();
+                    }
+                }));
+            };
+        }
+
+        @Override
+        public CompletableFuture<Void> writeTo(Connection connection) {
+            FileChannel channel;
+            try {
+                channel = FileChannel.open(file, StandardOpenOption.READ);
+            } catch (IOException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+            return connection.transferFromAsync(channel, position, count)
+                .handle((sent, error) -> {
+                    try {
+                        channel.close();
+                    } catch (IOException e) {
+                        // The transfer result is what matters
+                    }
+                    if (error != null) {
+                        throw error instanceof CompletionException
+                            ? (CompletionException) error
+                            : new CompletionException(error);
+                    }
+                    if (sent < count) {
+                        throw new UncheckedIOException(new IOException("File is shorter than expected: " + file));
+                    }
+                    return null;
+                });
+        }
+    }
+
+    /**
+     * Body whose content is produced by a publisher.
+     */
+    static final class PublisherBody implements HttpRequestBody {
+        private final Flow.Publisher<ByteBuffer> publisher;
+        private final long length;
+        private final AtomicBoolean subscribed = new AtomicBoolean();
+
+        PublisherBody(Flow.Publisher<ByteBuffer> publisher, long length) {
+            this.publisher = publisher;
+            this.length = length < 0 ? -1 : length;
+        }
+
+        @Override
+        public long contentLength() {
+            return length;
+        }
+
+        @Override
+        public boolean isRepeatable() {
+            return false;
+        }
+
+        @Override
+        public Flow.Publisher<ByteBuffer> asPublisher() {
+            return subscriber -> {
+                if (!subscribed.compareAndSet(false, true)) {
+                    subscriber.onSubscribe(new SourceSubscription(subscriber, () -> null));
+                    subscriber.onError(new IllegalStateException("Request body has already been sent"));
+                    return;
+                }
+                publisher.subscribe(subscriber);
+            };
+        }
+    }
+
+    /**
+     * Produces the chunks of a body one at a time.
+     */
+    interface ChunkSource {
+
+        /**
+         * Gets the next chunk.
+         *
+         * @return the next chunk, or null at the end of the body
+         * @throws IOException if the chunk cannot be read
+         */
+        ByteBuffer next() throws IOException;
+
+        /**
+         * Releases the resources of this source.
+         *
+         * @throws IOException if an error occurs
+         */
+        default void close() throws IOException {
+            // Nothing to release by default
+        }
+    }
+
+    /**
+     * Subscription that pulls chunks from a source on demand. Emission is
+     * serialized, so re-entrant calls to {@link #request(long)} from
+     * {@code onNext} do not recurse.
+     */
+    static final class SourceSubscription implements Flow.Subscription {
+        private final Flow.Subscriber<? super ByteBuffer> subscriber;
+        private final ChunkSource source;
+        private final AtomicLong demand = new AtomicLong();
+        private final AtomicInteger wip = new AtomicInteger();
+        private volatile boolean cancelled;
+        private boolean done;
+
+        SourceSubscription(Flow.Subscriber<? super ByteBuffer> subscriber, ChunkSource source) {
+            this.subscriber = subscriber;
+            this.source = source;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                cancel();
+                subscriber.onError(new IllegalArgumentException("Demand must be positive: " + n));
+                return;
+            }
+            demand.getAndUpdate(current -> current + n < 0 ? Long.MAX_VALUE : current + n);
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            drain();
+        }
+
+        private void drain() {
+            if (wip.getAndIncrement() != 0) {
+                return;
+            }
+            int missed = 1;
+            for (;;) {
+                if (!done && cancelled) {
+                    done = true;
+                    closeQuietly();
+                }
+                while (!done && !cancelled && demand.get() > 0) {
+                    ByteBuffer next;
+                    try {
+                        next = source.next();
+                    } catch (IOException | RuntimeException e) {
+                        done = true;
+                        closeQuietly();
+                        subscriber.onError(e);
+                        break;
+                    }
+                    if (next == null) {
+                        done = true;
+                        closeQuietly();
+                        subscriber.onComplete();
+                        break;
+                    }
+                    demand.decrementAndGet();
+                    subscriber.onNext(next);
+                }
+                missed = wip.addAndGet(-missed);
+                if (missed == 0) {
+                    return;
+                }
+            }
+        }
+
+        private void closeQuietly() {
+            try {
+                source.close();
+            } catch (IOException e) {
+                // Nothing left to report to
+            }
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package com.network.api.http;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Flow;
+
+import com.network.api.connection.Connection;
+
+/**
+ * Body of an {@link HttpRequest}.
+ *
+ * <p>Unlike {@link HttpRequest#getBody()}, a request body does not have to be
+ * held in a single heap array. It can be backed by {@link ByteBuffer}s, by a
+ * {@link Flow.Publisher} producing the content incrementally, or by a file.
+ * File bodies are written with {@link Connection#transferFrom(FileChannel, long, long)},
+ * which lets socket-backed connections hand the file to the operating system
+ * (sendfile) so that its content never enters the Java heap.
+ */
+public interface HttpRequestBody {
+
+    /**
+     * Gets the length of this body in bytes.
+     *
+     * @return the content length, or -1 if it is not known in advance
+     */
+    long contentLength();
+
+    /**
+     * Checks if this body can be sent more than once, e.g. when a request is
+     * retried or replayed on another connection.
+     *
+     * @return true if the body is repeatable, false otherwise
+     */
+    boolean isRepeatable();
+
+    /**
+     * Gets a publisher that emits the content of this body.
+     *
+     * <p>For repeatable bodies every subscription starts from the beginning.
+     *
+     * @return the publisher
+     */
+    Flow.Publisher<ByteBuffer> asPublisher();
+
+    /**
+     * Writes this body to a connection.
+     *
+     * <p>The default implementation sends the buffers emitted by
+     * {@link #asPublisher()} one at a time, requesting the next buffer only
+     * after the previous one has been sent.
+     *
+     * @param connection the connection
+     * @return a CompletableFuture that completes when the whole body is written
+     */
+    default CompletableFuture<Void> writeTo(Connection connection) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        asPublisher().subscribe(new Flow.Subscriber<ByteBuffer>() {
+            private Flow.Subscription subscription;
+
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                this.subscription = subscription;
+                subscription.request(1);
+            }
+
+            @Override
+            public void onNext(ByteBuffer item) {
+                connection.sendAsync(item).whenComplete((ignored, error) -> {
+                    if (error != null) {
+                        subscription.cancel();
+                        future.completeExceptionally(error);
+                    } else {
+                        subscription.request(1);
+                    }
+                });
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                future.completeExceptionally(throwable);
+            }
+
+            @Override
+            public void onComplete() {
+                future.complete(null);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Copies the content of this body into a byte array.
+     *
+     * <p>This is provided for compatibility with {@link HttpRequest#getBody()}
+     * and loads the whole body into the heap.
+     *
+     * @return the content
+     */
+    default byte[] toByteArray() {
+        CompletableFuture<byte[]> future = new CompletableFuture<>();
+        asPublisher().subscribe(new Flow.Subscriber<ByteBuffer>() {
+            private final ByteArrayOutputStream out = new ByteArrayOutputStream(
+                (int) Math.max(32, Math.min(contentLength(), Integer.MAX_VALUE - 8)));
+
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                subscription.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(ByteBuffer item) {
+                if (item.hasArray()) {
+                    out.write(item.array(), item.arrayOffset() + item.position(), item.remaining());
+                } else {
+                    byte[] bytes = new byte[item.remaining()];
+                    item.get(bytes);
+                    out.write(bytes, 0, bytes.length);
+                }
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                future.completeExceptionally(throwable);
+            }
+
+            @Override
+            public void onComplete() {
+                future.complete(out.toByteArray());
+            }
+        });
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw new UncheckedIOException((IOException) e.getCause());
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Gets an empty body.
+     *
+     * @return the empty body
+     */
+    static HttpRequestBody empty() {
+        return HttpRequestBodies.EMPTY;
+    }
+
+    /**
+     * Creates a body backed by a byte array. The array is not copied.
+     *
+     * @param bytes the content
+     * @return the body
+     */
+    static HttpRequestBody ofBytes(byte[] bytes) {
+        return bytes == null || bytes.length == 0 ? empty() : new HttpRequestBodies.BytesBody(bytes);
+    }
+
+    /**
+     * Creates a body backed by byte buffers. The buffers are not copied and
+     * their positions are not modified.
+     *
+     * @param buffers the content
+     * @return the body
+     */
+    static HttpRequestBody ofByteBuffers(ByteBuffer... buffers) {
+        return new HttpRequestBodies.BufferBody(buffers.clone());
+    }
+
+    /**
+     * Creates a body backed by a file.
+     *
+     * @param file the file
+     * @return the body
+     * @throws UncheckedIOException if the size of the file cannot be determined
+     */
+    static HttpRequestBody ofFile(Path file) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return ofFile(file, 0, channel.size());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Creates a body backed by a region of a file.
+     *
+     * @param file the file
+     * @param position the position of the first byte to send
+     * @param count the number of bytes to send
+     * @return the body
+     */
+    static HttpRequestBody ofFile(Path file, long position, long count) {
+        if (position < 0 || count < 0) {
+            throw new IllegalArgumentException("File region must not be negative");
+        }
+        return new HttpRequestBodies.FileBody(file, position, count);
+    }
+
+    /**
+     * Creates a body whose content is produced by a publisher. The body can
+     * only be sent once.
+     *
+     * @param publisher the publisher
+     * @param contentLength the content length, or -1 if unknown
+     * @return the body
+     */
+    static HttpRequestBody ofPublisher(Flow.Publisher<ByteBuffer> publisher, long contentLength) {
+        return new HttpRequestBodies.PublisherBody(publisher, contentLength);
+    }
+}
@@ -1,5 +1,8 @@
 package com.network.api.http;
 
+import com.network.serialization.Serializer;
+
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
@@ -10,10 +13,42 @@ import java.util.Optional;
  * <p>This class provides a way to store and retrieve arbitrary data associated
  * with an HTTP request. It can be used by middleware and other components to
  * share data during request processing.
+ * 
+ * <p>Attributes with an {@link AttributeKey} are kept in arrays indexed by
+ * the slot of the key, with separate primitive arrays for {@code int} and
+ * {@code long} attributes; they are the cheap way to share data on the
+ * request path. Attributes with other names are kept in a map that is only
+ * created when first used.
  */
 public class HttpRequestContext {
     
-    private final Map<String, Object> attributes = new HashMap<>();
+    /**
+     * The class to decode the body of the response to. When it is set, the
+     * typed body returned by {@link HttpResponse#getBodyAs()} is decoded once,
+     * as soon as a successful response has arrived.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public static final AttributeKey<Class<?>> RESPONSE_TYPE = (AttributeKey) AttributeKey.of("response.type", Class.class);
+    
+    /**
+     * The serializer of the client that sends the request. It is set when the
+     * request enters the middleware chain, so that responses that middleware
+     * creates, such as cached ones, decode their bodies like the responses of
+     * the transport do.
+     */
+    public static final AttributeKey<Serializer> SERIALIZER = AttributeKey.of("serializer", Serializer.class);
+    
+    private static final Object[] NO_VALUES = new Object[0];
+    private static final int[] NO_INTS = new int[0];
+    private static final long[] NO_LONGS = new long[0];
+    
+    private Map<String, Object> attributes;
+    private Object[] values = NO_VALUES;
+    private int[] ints = NO_INTS;
+    private long[] longs = NO_LONGS;
+    /** Which int and long slots are set, as bit sets. */
+    private long[] intsSet = NO_LONGS;
+    private long[] longsSet = NO_LONGS;
     private HttpRequest request;
     private HttpClient client;
     
@@ -74,6 +109,12 @@ public class HttpRequestContext {
     /**
      * Sets an attribute in this context.
      * 
+     * <p>If an {@link AttributeKey} with the name exists and the value has its
+     * type, the value is stored in the slot of the key. A value of another
+     * type is kept by name only, as before typed keys existed: it is returned
+     * by {@link #getAttribute(String)} while the key has no value, but not by
+     * {@link #get(AttributeKey)}.
+     * 
      * @param key the attribute key
      * @param value the attribute value
      * @return this context for method chaining
@@ -83,6 +124,24 @@ public class HttpRequestContext {
         if (key == null) {
             throw new IllegalArgumentException("Attribute key must not be null");
         }
+        AttributeKey<?> typed = AttributeKey.forName(key);
+        if (typed != null) {
+            if (value == null || typed.type().isInstance(value)) {
+                if (attributes != null) {
+                    attributes.remove(key);
+                }
+                if (value == null) {
+                    remove(typed);
+                } else {
+                    setTyped(typed, value);
+                }
+                return this;
+            }
+            remove(typed);
+        }
+        if (attributes == null) {
+            attributes = new HashMap<>();
+        }
         attributes.put(key, value);
         return this;
     }
@@ -101,7 +160,7 @@ public class HttpRequestContext {
             return Optional.empty();
         }
         
-        Object value = attributes.get(key);
+        Object value = getAttribute(key);
         if (value == null) {
             return Optional.empty();
         }
@@ -120,7 +179,11 @@ public class HttpRequestContext {
      * @return the attribute value, or null if not found
      */
     public Object getAttribute(String key) {
-        return attributes.get(key);
+        AttributeKey<?> typed = AttributeKey.forName(key);
+        if (typed != null && has(typed)) {
+            return get(typed);
+        }
+        return attributes != null ? attributes.get(key) : null;
     }
     
     /**
@@ -130,7 +193,10 @@ public class HttpRequestContext {
      * @return the previous value of the attribute, or null if not found
      */
     public Object removeAttribute(String key) {
-        return attributes.remove(key);
+        AttributeKey<?> typed = AttributeKey.forName(key);
+        Object previous = typed != null ? remove(typed) : null;
+        Object untyped = attributes != null ? attributes.remove(key) : null;
+        return previous != null ? previous : untyped;
     }
     
     /**
@@ -140,22 +206,210 @@ public class HttpRequestContext {
      * @return true if the attribute exists, false otherwise
      */
     public boolean hasAttribute(String key) {
-        return attributes.containsKey(key);
+        AttributeKey<?> typed = AttributeKey.forName(key);
+        if (typed != null && has(typed)) {
+            return true;
+        }
+        return attributes != null && attributes.containsKey(key);
     }
     
     /**
-     * Gets all attributes in this context.
+     * Gets all attributes in this context, including those set with an
+     * {@link AttributeKey}, by name.
      * 
-     * @return an unmodifiable view of the attributes
+     * @return an unmodifiable copy of the attributes
      */
     public Map<String, Object> getAttributes() {
-        return Map.copyOf(attributes);
+        Map<String, Object> all = attributes != null ? new HashMap<>(attributes) : new HashMap<>();
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != null) {
+                all.put(AttributeKey.forSlot(AttributeKey.OBJECT, i).name(), values[i]);
+            }
+        }
+        for (int i = 0; i < ints.length; i++) {
+            if (isSet(intsSet, i)) {
+                all.put(AttributeKey.forSlot(AttributeKey.INT, i).name(), ints[i]);
+            }
+        }
+        for (int i = 0; i < longs.length; i++) {
+            if (isSet(longsSet, i)) {
+                all.put(AttributeKey.forSlot(AttributeKey.LONG, i).name(), longs[i]);
+            }
+        }
+        return Map.copyOf(all);
+    }
+    
+    /**
+     * Gets an attribute.
+     * 
+     * @param <T> the type of the attribute value
+     * @param key the attribute key
+     * @return the attribute value, or null if not set
+     */
+    public <T> T get(AttributeKey<T> key) {
+        switch (key.kind) {
+            case AttributeKey.INT:
+                return isSet(intsSet, key.slot) ? key.type().cast(ints[key.slot]) : null;
+            case AttributeKey.LONG:
+                return isSet(longsSet, key.slot) ? key.type().cast(longs[key.slot]) : null;
+            default:
+                // The value was type-checked when it was set
+                @SuppressWarnings("unchecked")
+                T value = key.slot < values.length ? (T) values[key.slot] : null;
+                return value;
+        }
+    }
+    
+    /**
+     * Sets an attribute.
+     * 
+     * @param <T> the type of the attribute value
+     * @param key the attribute key
+     * @param value the attribute value, or null to remove the attribute
+     * @return this context for method chaining
+     */
+    public <T> HttpRequestContext set(AttributeKey<T> key, T value) {
+        if (value == null) {
+            remove(key);
+        } else {
+            setTyped(key, value);
+        }
+        return this;
+    }
+    
+    /**
+     * Gets an {@code int} attribute.
+     * 
+     * @param key the attribute key
+     * @return the attribute value, or 0 if not set
+     */
+    public int getInt(AttributeKey.IntKey key) {
+        return key.slot < ints.length ? ints[key.slot] : 0;
+    }
+    
+    /**
+     * Sets an {@code int} attribute.
+     * 
+     * @param key the attribute key
+     * @param value the attribute value
+     * @return this context for method chaining
+     */
+    public HttpRequestContext setInt(AttributeKey.IntKey key, int value) {
+        if (key.slot >= ints.length) {
+            int slots = AttributeKey.slotCount(AttributeKey.INT);
+            ints = Arrays.copyOf(ints, slots);
+            intsSet = Arrays.copyOf(intsSet, (slots + 63) >>> 6);
+        }
+        ints[key.slot] = value;
+        intsSet[key.slot >>> 6] |= 1L << key.slot;
+        return this;
+    }
+    
+    /**
+     * Gets a {@code long} attribute.
+     * 
+     * @param key the attribute key
+     * @return the attribute value, or 0 if not set
+     */
+    public long getLong(AttributeKey.LongKey key) {
+        return key.slot < longs.length ? longs[key.slot] : 0;
+    }
+    
+    /**
+     * Sets a {@code long} attribute.
+     * 
+     * @param key the attribute key
+     * @param value the attribute value
+     * @return this context for method chaining
+     */
+    public HttpRequestContext setLong(AttributeKey.LongKey key, long value) {
+        if (key.slot >= longs.length) {
+            int slots = AttributeKey.slotCount(AttributeKey.LONG);
+            longs = Arrays.copyOf(longs, slots);
+            longsSet = Arrays.copyOf(longsSet, (slots + 63) >>> 6);
+        }
+        longs[key.slot] = value;
+        longsSet[key.slot >>> 6] |= 1L << key.slot;
+        return this;
+    }
+    
+    /**
+     * Checks if an attribute is set.
+     * 
+     * @param key the attribute key
+     * @return true if the attribute is set
+     */
+    public boolean has(AttributeKey<?> key) {
+        switch (key.kind) {
+            case AttributeKey.INT:
+                return isSet(intsSet, key.slot);
+            case AttributeKey.LONG:
+                return isSet(longsSet, key.slot);
+            default:
+                return key.slot < values.length && values[key.slot] != null;
+        }
+    }
+    
+    /**
+     * Removes an attribute.
+     * 
+     * @param <T> the type of the attribute value
+     * @param key the attribute key
+     * @return the previous value of the attribute, or null if not set
+     */
+    public <T> T remove(AttributeKey<T> key) {
+        T previous = get(key);
+        if (previous != null) {
+            switch (key.kind) {
+                case AttributeKey.INT:
+                    ints[key.slot] = 0;
+                    intsSet[key.slot >>> 6] &= ~(1L << key.slot);
+                    break;
+                case AttributeKey.LONG:
+                    longs[key.slot] = 0;
+                    longsSet[key.slot >>> 6] &= ~(1L << key.slot);
+                    break;
+                default:
+                    values[key.slot] = null;
+                    break;
+            }
+        }
+        return previous;
     }
     
     /**
      * Clears all attributes from this context.
      */
     public void clear() {
-        attributes.clear();
+        if (attributes != null) {
+            attributes.clear();
+        }
+        Arrays.fill(values, null);
+        Arrays.fill(ints, 0);
+        Arrays.fill(longs, 0);
+        Arrays.fill(intsSet, 0);
+        Arrays.fill(longsSet, 0);
+    }
+    
+    private void setTyped(AttributeKey<?> key, Object value) {
+        switch (key.kind) {
+            case AttributeKey.INT:
+                setInt((AttributeKey.IntKey) key, (Integer) key.cast(value));
+                break;
+            case AttributeKey.LONG:
+                setLong((AttributeKey.LongKey) key, (Long) key.cast(value));
+                break;
+            default:
+                Object checked = key.cast(value);
+                if (key.slot >= values.length) {
+                    values = Arrays.copyOf(values, AttributeKey.slotCount(AttributeKey.OBJECT));
+                }
+                values[key.slot] = checked;
+                break;
+        }
+    }
+    
+    private static boolean isSet(long[] bits, int slot) {
+        return (slot >>> 6) < bits.length && (bits[slot >>> 6] & (1L << slot)) != 0;
     }
 }
\ No newline at end of file
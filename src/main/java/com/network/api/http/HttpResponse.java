@@ -1,7 +1,20 @@
 package com.network.api.http;
 
+import com.network.serialization.ContentNegotiatingSerializer;
+import com.network.serialization.ElementIterator;
+import com.network.serialization.Serializer;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
 import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+import java.util.stream.Stream;
 
 /**
  * HTTP response returned from an {@link HttpClient}.
@@ -77,6 +90,33 @@ public interface HttpResponse<T> {
      */
     byte[] getBody();
     
+    /**
+     * Gets the body of the response as a publisher of byte buffers.
+     * 
+     * <p>For streaming responses the buffers are emitted as they arrive from
+     * the connection, and reading from the connection is paused while the
+     * subscriber does not request more. The body can only be consumed once,
+     * either through this publisher, {@link #getBodyAsStream()} or {@link #getBody()}.
+     * 
+     * @return the body publisher
+     */
+    default Flow.Publisher<ByteBuffer> getBodyPublisher() {
+        return HttpRequestBody.ofBytes(getBody()).asPublisher();
+    }
+    
+    /**
+     * Gets the body of the response as an input stream.
+     * 
+     * <p>For streaming responses, reads block until the next part of the body
+     * has arrived. Closing the stream early discards the rest of the body.
+     * 
+     * @return the body input stream
+     */
+    default InputStream getBodyAsStream() {
+        byte[] body = getBody();
+        return new ByteArrayInputStream(body != null ? body : new byte[0]);
+    }
+    
     /**
      * Gets the typed body of the response.
      * 
@@ -94,11 +134,90 @@ public interface HttpResponse<T> {
     /**
      * Deserializes the body to the specified type.
      * 
+     * <p>The default implementation decodes {@link #getBody()} with the
+     * {@link #getSerializer() serializer} of the response.
+     * 
      * @param <R> the target type
      * @param type the class of the target type
-     * @return the deserialized body
+     * @return the deserialized body, or null if the body is empty
+     * @throws IllegalStateException if the response has no serializer
      */
-    <R> R getBodyAs(Class<R> type);
+    default <R> R getBodyAs(Class<R> type) {
+        byte[] body = getBody();
+        if (body == null || body.length == 0) {
+            return null;
+        }
+        return ContentNegotiatingSerializer.select(requireSerializer(), getContentType()).deserialize(body, type);
+    }
+    
+    /**
+     * Deserializes the body to the specified type without blocking the
+     * calling thread.
+     * 
+     * @param <R> the target type
+     * @param type the class of the target type
+     * @return a future that completes with the deserialized body
+     */
+    default <R> CompletableFuture<R> getBodyAsAsync(Class<R> type) {
+        return CompletableFuture.supplyAsync(() -> getBodyAs(type));
+    }
+    
+    /**
+     * Decodes a body that is an array into a lazily pulled stream of its
+     * elements, with the serializer of the Content-Type of the response.
+     * 
+     * <p>With a streaming serializer each element is decoded when the stream
+     * pulls it, reading only as much of the body as that needs, so the body
+     * and the decoded elements are never held in memory as a whole. For
+     * streaming responses elements are decoded as the body arrives from the
+     * connection. The stream should be closed if it may not be consumed to
+     * the end; closing it discards the rest of the body.
+     * 
+     * @param <E> the element type
+     * @param elementType the class of the elements
+     * @return the stream of elements
+     */
+    default <E> Stream<E> getBodyAsElements(Class<E> elementType) {
+        return getBodyAsIterator(elementType).stream();
+    }
+    
+    /**
+     * Decodes a body that is an array into a lazily pulled iterator over its
+     * elements, as {@link #getBodyAsElements(Class)} does.
+     * 
+     * <p>The default implementation decodes {@link #getBodyAsStream()} with
+     * the {@link #getSerializer() serializer} of the response.
+     * 
+     * @param <E> the element type
+     * @param elementType the class of the elements
+     * @return the iterator, which should be closed if it may not be consumed to the end
+     * @throws IllegalStateException if the response has no serializer
+     */
+    default <E> ElementIterator<E> getBodyAsIterator(Class<E> elementType) {
+        return ContentNegotiatingSerializer.deserializeElements(requireSerializer(), getContentType(),
+                                                                getBodyAsStream(), elementType);
+    }
+    
+    /**
+     * Gets the serializer that decodes the body. For the Content-Type of the
+     * response it may hand over to a more specific serializer.
+     * 
+     * <p>The default implementation returns the
+     * {@link HttpRequestContext#SERIALIZER serializer} of the client that sent
+     * the request.
+     * 
+     * @return the serializer, or empty if there is none
+     */
+    default Optional<Serializer> getSerializer() {
+        HttpRequest request = getRequest();
+        return request != null
+            ? Optional.ofNullable(request.getContext().get(HttpRequestContext.SERIALIZER))
+            : Optional.empty();
+    }
+    
+    private Serializer requireSerializer() {
+        return getSerializer().orElseThrow(() -> new IllegalStateException("No serializer configured"));
+    }
     
     /**
      * Gets a header value.
@@ -115,6 +234,16 @@ public interface HttpResponse<T> {
      */
     Map<String, String> getHeaders();
     
+    /**
+     * Gets all headers as an immutable snapshot. Lookups are case-insensitive
+     * and repeated headers keep all their values.
+     * 
+     * @return the headers
+     */
+    default HttpHeaders getHttpHeaders() {
+        return HttpHeaders.copyOf(getHeaders()).snapshot();
+    }
+    
     /**
      * Gets the Content-Type header.
      * 
@@ -122,6 +251,31 @@ public interface HttpResponse<T> {
      */
     String getContentType();
     
+    /**
+     * Gets the charset of the body, from the charset parameter of the
+     * Content-Type header.
+     * 
+     * @return the charset, or UTF-8 if none is declared or it is not supported
+     */
+    default Charset getCharset() {
+        String contentType = getContentType();
+        if (contentType != null) {
+            for (String parameter : contentType.split(";")) {
+                int eq = parameter.indexOf('=');
+                if (eq > 0 && "charset".equalsIgnoreCase(parameter.substring(0, eq).trim())) {
+                    String name = parameter.substring(eq + 1).trim().replace("\"", "");
+                    try {
+                        return Charset.forName(name);
+                    } catch (IllegalArgumentException e) {
+                        // Unknown or malformed charset names fall back to the default
+                        break;
+                    }
+                }
+            }
+        }
+        return StandardCharsets.UTF_8;
+    }
+    
     /**
      * Throws an exception if the response is not successful.
      * 
@@ -0,0 +1,112 @@
+package com.network.api.http;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Request that replaces the headers or the body of another request and
+ * delegates everything else to it.
+ */
+final class OverlayRequest implements HttpRequest {
+
+    private final HttpRequest delegate;
+    private final HttpHeaders headers;
+    private volatile HttpRequestBody body;
+
+    /**
+     * Creates a new overlay. Overlays of overlays are flattened.
+     *
+     * @param delegate the request to delegate to
+     * @param headers  the headers of the new request, or null to keep them
+     * @param body     the body of the new request, or null to keep it
+     */
+    OverlayRequest(HttpRequest delegate, HttpHeaders headers, HttpRequestBody body) {
+        if (delegate instanceof OverlayRequest) {
+            OverlayRequest overlay = (OverlayRequest) delegate;
+            this.delegate = overlay.delegate;
+            this.headers = headers != null ? headers : overlay.headers;
+            this.body = body != null ? body : overlay.body;
+        } else {
+            this.delegate = delegate;
+            this.headers = headers != null ? headers : delegate.getHttpHeaders().snapshot();
+            this.body = body;
+        }
+    }
+
+    @Override
+    public URI getUri() {
+        return delegate.getUri();
+    }
+
+    @Override
+    public HttpMethod getMethod() {
+        return delegate.getMethod();
+    }
+
+    @Override
+    public Map<String, String> getHeaders() {
+        return headers.asMap();
+    }
+
+    @Override
+    public HttpHeaders getHttpHeaders() {
+        return headers;
+    }
+
+    @Override
+    public String getHeader(String name) {
+        return headers.getCombined(name);
+    }
+
+    @Override
+    public boolean hasHeader(String name) {
+        return headers.contains(name);
+    }
+
+    @Override
+    public Duration getTimeout() {
+        return delegate.getTimeout();
+    }
+
+    @Override
+    public byte[] getBody() {
+        HttpRequestBody current = body;
+        if (current == null) {
+            return delegate.getBody();
+        }
+        if (current.contentLength() == 0) {
+            return null;
+        }
+        if (!current.isRepeatable()) {
+            // Keep the content readable for the transport once it is buffered
+            synchronized (this) {
+                if (!body.isRepeatable()) {
+                    body = HttpRequestBody.ofBytes(body.toByteArray());
+                }
+                current = body;
+            }
+        }
+        return current.toByteArray();
+    }
+
+    @Override
+    public HttpRequestBody getRequestBody() {
+        return body != null ? body : delegate.getRequestBody();
+    }
+
+    @Override
+    public boolean hasBody() {
+        return body != null ? body.contentLength() != 0 : delegate.hasBody();
+    }
+
+    @Override
+    public HttpRequestContext getContext() {
+        return delegate.getContext();
+    }
+
+    @Override
+    public String toString() {
+        return delegate.getMethod() + " " + delegate.getUri() + ", headers: " + headers.size();
+    }
+}
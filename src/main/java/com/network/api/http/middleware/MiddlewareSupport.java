@@ -0,0 +1,60 @@
+package com.network.api.http.middleware;
+
+import com.network.api.http.HttpResponse;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+
+/**
+ * Helpers for middleware that work on the responses of the rest of the chain.
+ */
+public final class MiddlewareSupport {
+
+    private MiddlewareSupport() {
+    }
+
+    /**
+     * Makes cancelling a derived future cancel the future it was derived from.
+     *
+     * <p>A stage created with {@code thenApply} or {@code thenCompose}
+     * completes when its source does, but cancelling it leaves the source
+     * running. A middleware that returns such a stage passes cancellation on
+     * with this method, so that a caller that gives up on a request, such as
+     * a hedged request that lost, stops the exchange underneath.
+     *
+     * @param <T>     the type of the result
+     * @param derived the future returned to the caller
+     * @param source  the future it was derived from
+     * @return the derived future
+     */
+    public static <T> CompletableFuture<T> forwardCancellation(CompletableFuture<T> derived, Future<?> source) {
+        derived.whenComplete((result, error) -> {
+            if (derived.isCancelled()) {
+                source.cancel(true);
+            }
+        });
+        return derived;
+    }
+
+    /**
+     * Releases a response that the middleware drops, such as a response
+     * replaced by a retry or one that lost a race. Closing the body stream
+     * cancels the rest of a streamed body, so the response does not hold on
+     * to its connection.
+     *
+     * @param response the response, or null
+     */
+    public static void discard(HttpResponse<?> response) {
+        if (response == null) {
+            return;
+        }
+        try {
+            InputStream body = response.getBodyAsStream();
+            body.close();
+        } catch (IOException | RuntimeException e) {
+            // The response is discarded anyway
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.network.buffer;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Growable sequence of pooled buffers that bytes are written into.
+ *
+ * <p>Content of unknown length is written into buffers taken from a
+ * {@link BufferPool}, starting small and doubling up to the largest pooled
+ * size, so nothing is copied when the content grows. The content can then be
+ * read back as {@link #toBuffers() buffers} without copying, or copied once
+ * into an array of the exact size. The chain must be {@link #release()
+ * released} when its content is no longer needed; buffers obtained from it
+ * become invalid then.
+ *
+ * <p>A chain is not thread-safe.
+ */
+public final class BufferChain implements AutoCloseable {
+
+    private static final int FIRST_SEGMENT = 1024;
+
+    private final BufferPool pool;
+    private final List<PooledBuffer> segments = new ArrayList<>();
+    private ByteBuffer current;
+    private long size;
+    private boolean released;
+
+    /**
+     * Creates a new, empty chain.
+     *
+     * @param pool the pool to take buffers from
+     */
+    public BufferChain(BufferPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Writes a byte.
+     *
+     * @param b the byte
+     */
+    public void write(int b) {
+        writable(1).put((byte) b);
+        size++;
+    }
+
+    /**
+     * Writes bytes from an array.
+     *
+     * @param bytes  the array
+     * @param offset the offset of the first byte
+     * @param length the number of bytes
+     */
+    public void write(byte[] bytes, int offset, int length) {
+        while (length > 0) {
+            ByteBuffer buffer = writable(1);
+            int count = Math.min(length, buffer.remaining());
+            buffer.put(bytes, offset, count);
+            offset += count;
+            length -= count;
+            size += count;
+        }
+    }
+
+    /**
+     * Gets the buffer to write to, with at least the given number of bytes
+     * left if that is no more than the largest pooled size. Bytes put into it
+     * directly must be reported with {@link #advance(int)}.
+     *
+     * @param minRemaining the number of bytes needed
+     * @return the buffer, positioned after the content
+     * @throws IllegalStateException if the chain has been released
+     */
+    public ByteBuffer writable(int minRemaining) {
+        if (released) {
+            throw new IllegalStateException("Buffer chain has been released");
+        }
+        if (current == null || current.remaining() < minRemaining) {
+            int next = current == null ? FIRST_SEGMENT : Math.min(current.capacity() * 2, pool.getMaxBufferSize());
+            PooledBuffer segment = pool.acquire(Math.max(next, minRemaining));
+            segments.add(segment);
+            current = segment.buffer();
+        }
+        return current;
+    }
+
+    /**
+     * Records bytes that were put into the buffer returned by
+     * {@link #writable(int)} directly.
+     *
+     * @param count the number of bytes
+     */
+    public void advance(int count) {
+        size += count;
+    }
+
+    /**
+     * Gets the number of bytes written.
+     *
+     * @return the size
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Gets the content as read-only buffers, without copying. The buffers are
+     * only valid until the chain is released.
+     *
+     * @return the buffers
+     */
+    public ByteBuffer[] toBuffers() {
+        ByteBuffer[] buffers = new ByteBuffer[segments.size()];
+        for (int i = 0; i < buffers.length; i++) {
+            ByteBuffer content = segments.get(i).buffer().duplicate();
+            content.flip();
+            buffers[i] = content.asReadOnlyBuffer();
+        }
+        return buffers;
+    }
+
+    /**
+     * Copies the content into an array.
+     *
+     * @return the content
+     * @throws IllegalStateException if the content is larger than an array can be
+     */
+    public byte[] toByteArray() {
+        if (size > Integer.MAX_VALUE - 8) {
+            throw new IllegalStateException("Content too large for an array: " + size + " bytes");
+        }
+        byte[] bytes = new byte[(int) size];
+        int offset = 0;
+        for (ByteBuffer buffer : toBuffers()) {
+            int count = buffer.remaining();
+            buffer.get(bytes, offset, count);
+            offset += count;
+        }
+        return bytes;
+    }
+
+    /**
+     * Returns the buffers to the pool. Releasing a chain twice has no effect.
+     */
+    public void release() {
+        if (!released) {
+            released = true;
+            for (PooledBuffer segment : segments) {
+                segment.release();
+            }
+            segments.clear();
+            current = null;
+        }
+    }
+
+    /**
+     * Releases the chain.
+     *
+     * @see #release()
+     */
+    @Override
+    public void close() {
+        release();
+    }
+}
@@ -0,0 +1,390 @@
+package com.network.buffer;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Pool of heap and direct {@link ByteBuffer}s in power-of-two size classes.
+ *
+ * <p>Requests are rounded up to the next size class, from 256 bytes up to the
+ * maximum buffer size (64 KB by default); larger buffers are allocated and
+ * dropped as usual. Each thread keeps a few buffers of each size class for
+ * itself, so that the common acquire-use-release cycle on an I/O thread does
+ * not touch shared state. Beyond that, released buffers go to a shared pool
+ * that holds up to a configurable number of bytes per kind, heap or direct.
+ *
+ * <p>Buffers must be {@link PooledBuffer#release() released} when they are no
+ * longer used. To find code that forgets to, {@link LeakDetection leak
+ * detection} tracks a sample of the buffers and reports those that are
+ * garbage collected without having been released, together with the stack
+ * trace of their acquisition. The level of the {@link #shared() shared} pool
+ * is read from the {@code com.network.buffer.leakDetection} system property
+ * and is {@link LeakDetection#SAMPLED} by default.
+ */
+public final class BufferPool {
+
+    /**
+     * How buffers are checked for leaks.
+     */
+    public enum LeakDetection {
+        /** No buffers are tracked. */
+        DISABLED,
+        /** One in {@link Builder#sampleInterval(int) sampleInterval} buffers is tracked. */
+        SAMPLED,
+        /** Every pooled buffer is tracked; only meant for tests, as it is slow. */
+        ALL
+    }
+
+    private static final int MIN_SHIFT = 8;
+    private static final int MIN_SIZE = 1 << MIN_SHIFT;
+    private static final int UNPOOLED = -1;
+
+    private static final String LEAK_DETECTION_PROPERTY = "com.network.buffer.leakDetection";
+
+    private static final BufferPool SHARED = builder()
+        .leakDetection(leakDetectionProperty())
+        .build();
+
+    private final int maxBufferSize;
+    private final int classCount;
+    private final int threadCacheSize;
+    private final Arena heap;
+    private final Arena direct;
+    private final ThreadLocal<ThreadCache> caches;
+    private final LeakDetector detector;
+
+    private BufferPool(Builder builder) {
+        this.maxBufferSize = builder.maxBufferSize;
+        this.classCount = sizeClass(builder.maxBufferSize) + 1;
+        this.threadCacheSize = builder.threadCacheSize;
+        this.heap = new Arena(classCount, builder.maxPooledBytes);
+        this.direct = new Arena(classCount, builder.maxPooledBytes);
+        this.caches = ThreadLocal.withInitial(() -> new ThreadCache(classCount, threadCacheSize));
+        this.detector = new LeakDetector(builder.leakDetection, builder.sampleInterval, builder.leakListener);
+    }
+
+    /**
+     * Reads the leak detection level of the shared pool. An unknown level is
+     * logged and replaced by the default, as failing here would make the
+     * class unusable.
+     */
+    private static LeakDetection leakDetectionProperty() {
+        String value = System.getProperty(LEAK_DETECTION_PROPERTY);
+        if (value == null) {
+            return LeakDetection.SAMPLED;
+        }
+        try {
+            return LeakDetection.valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            System.getLogger(BufferPool.class.getName()).log(System.Logger.Level.WARNING,
+                "Unknown value \"" + value + "\" of " + LEAK_DETECTION_PROPERTY + ", using SAMPLED");
+            return LeakDetection.SAMPLED;
+        }
+    }
+
+    /**
+     * Gets the pool shared by all clients that do not configure their own.
+     *
+     * @return the shared pool
+     */
+    public static BufferPool shared() {
+        return SHARED;
+    }
+
+    /**
+     * Acquires a heap buffer, which is backed by an accessible array.
+     *
+     * @param capacity the minimum capacity
+     * @return the buffer, cleared and with its limit set to the requested capacity
+     * @throws IllegalArgumentException if capacity is negative
+     */
+    public PooledBuffer acquire(int capacity) {
+        return acquire(capacity, false);
+    }
+
+    /**
+     * Acquires a direct buffer. Direct buffers avoid a copy when they are
+     * written to or read from a channel, but are expensive to allocate, which
+     * makes pooling them worthwhile in particular.
+     *
+     * @param capacity the minimum capacity
+     * @return the buffer, cleared and with its limit set to the requested capacity
+     * @throws IllegalArgumentException if capacity is negative
+     */
+    public PooledBuffer acquireDirect(int capacity) {
+        return acquire(capacity, true);
+    }
+
+    /**
+     * Gets the largest buffer size that is pooled.
+     *
+     * @return the size in bytes
+     */
+    public int getMaxBufferSize() {
+        return maxBufferSize;
+    }
+
+    /**
+     * Gets the number of bytes held by the shared pool, not counting the
+     * buffers cached by threads.
+     *
+     * @return the number of idle bytes
+     */
+    public long getPooledBytes() {
+        return heap.pooledBytes.get() + direct.pooledBytes.get();
+    }
+
+    /**
+     * Gets the number of leaked buffers reported so far.
+     *
+     * @return the number of leaks
+     */
+    public long getLeakCount() {
+        return detector.getLeakCount();
+    }
+
+    private PooledBuffer acquire(int capacity, boolean isDirect) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Capacity must not be negative");
+        }
+        if (capacity > maxBufferSize) {
+            ByteBuffer buffer = isDirect ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+            return new PooledBuffer(this, buffer, UNPOOLED, null);
+        }
+        int sizeClass = sizeClass(capacity);
+        ThreadCache cache = caches.get();
+        ByteBuffer buffer = cache.poll(isDirect, sizeClass);
+        if (buffer == null) {
+            buffer = (isDirect ? direct : heap).poll(sizeClass);
+        }
+        if (buffer == null) {
+            int size = MIN_SIZE << sizeClass;
+            buffer = isDirect ? ByteBuffer.allocateDirect(size) : ByteBuffer.allocate(size);
+        }
+        buffer.clear().limit(capacity);
+        return new PooledBuffer(this, buffer, sizeClass, detector.sample() ? detector : null);
+    }
+
+    /**
+     * Takes back a released buffer.
+     */
+    void recycle(ByteBuffer buffer, int sizeClass) {
+        if (sizeClass == UNPOOLED) {
+            return;
+        }
+        buffer.clear().order(ByteOrder.BIG_ENDIAN);
+        boolean isDirect = buffer.isDirect();
+        if (!caches.get().offer(isDirect, sizeClass, buffer)) {
+            (isDirect ? direct : heap).offer(sizeClass, buffer);
+        }
+    }
+
+    /**
+     * Gets the size class of a capacity: 0 for up to 256 bytes, 1 for up to 512, and so on.
+     */
+    private static int sizeClass(int capacity) {
+        return 32 - Integer.numberOfLeadingZeros(Math.max(capacity, MIN_SIZE) - 1) - MIN_SHIFT;
+    }
+
+    /**
+     * The shared idle buffers of one kind, heap or direct.
+     */
+    private static final class Arena {
+        private final ConcurrentLinkedQueue<ByteBuffer>[] idle;
+        private final long maxPooledBytes;
+        private final AtomicLong pooledBytes = new AtomicLong();
+
+        @SuppressWarnings("unchecked")
+        Arena(int classCount, long maxPooledBytes) {
+            this.idle = (ConcurrentLinkedQueue<ByteBuffer>[]) new ConcurrentLinkedQueue<?>[classCount];
+            for (int i = 0; i < classCount; i++) {
+                idle[i] = new ConcurrentLinkedQueue<>();
+            }
+            this.maxPooledBytes = maxPooledBytes;
+        }
+
+        ByteBuffer poll(int sizeClass) {
+            ByteBuffer buffer = idle[sizeClass].poll();
+            if (buffer != null) {
+                pooledBytes.addAndGet(-buffer.capacity());
+            }
+            return buffer;
+        }
+
+        void offer(int sizeClass, ByteBuffer buffer) {
+            int size = buffer.capacity();
+            if (pooledBytes.addAndGet(size) > maxPooledBytes) {
+                // Over budget; the garbage collector frees the buffer
+                pooledBytes.addAndGet(-size);
+                return;
+            }
+            idle[sizeClass].offer(buffer);
+        }
+    }
+
+    /**
+     * The buffers kept by one thread, as a small stack per kind and size class.
+     */
+    private static final class ThreadCache {
+        private final ByteBuffer[][] heap;
+        private final ByteBuffer[][] direct;
+        private final int[] heapCount;
+        private final int[] directCount;
+
+        ThreadCache(int classCount, int size) {
+            this.heap = new ByteBuffer[classCount][size];
+            this.direct = new ByteBuffer[classCount][size];
+            this.heapCount = new int[classCount];
+            this.directCount = new int[classCount];
+        }
+
+        ByteBuffer poll(boolean isDirect, int sizeClass) {
+            int[] counts = isDirect ? directCount : heapCount;
+            int count = counts[sizeClass];
+            if (count == 0) {
+                return null;
+            }
+            ByteBuffer[] stack = (isDirect ? direct : heap)[sizeClass];
+            counts[sizeClass] = --count;
+            ByteBuffer buffer = stack[count];
+            stack[count] = null;
+            return buffer;
+        }
+
+        boolean offer(boolean isDirect, int sizeClass, ByteBuffer buffer) {
+            int[] counts = isDirect ? directCount : heapCount;
+            ByteBuffer[] stack = (isDirect ? direct : heap)[sizeClass];
+            int count = counts[sizeClass];
+            if (count == stack.length) {
+                return false;
+            }
+            stack[count] = buffer;
+            counts[sizeClass] = count + 1;
+            return true;
+        }
+    }
+
+    /**
+     * Builder for creating {@link BufferPool} instances.
+     */
+    public static class Builder {
+        private int maxBufferSize = 64 * 1024;
+        private long maxPooledBytes = 32L * 1024 * 1024;
+        private int threadCacheSize = 4;
+        private LeakDetection leakDetection = LeakDetection.SAMPLED;
+        private int sampleInterval = 128;
+        private Consumer<Throwable> leakListener = trace ->
+            System.getLogger(BufferPool.class.getName()).log(System.Logger.Level.WARNING, trace.getMessage(), trace);
+
+        /**
+         * Sets the largest buffer size that is pooled; it is rounded up to a
+         * power of two. Defaults to 64 KB.
+         *
+         * @param bytes the maximum buffer size
+         * @return this builder
+         * @throws IllegalArgumentException if bytes is not positive or larger than 1 GB
+         */
+        public Builder maxBufferSize(int bytes) {
+            if (bytes <= 0 || bytes > 1 << 30) {
+                throw new IllegalArgumentException("Maximum buffer size must be between 1 byte and 1 GB");
+            }
+            this.maxBufferSize = MIN_SIZE << sizeClass(bytes);
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of bytes held by the shared pool, for heap
+         * and direct buffers each. Defaults to 32 MB.
+         *
+         * @param bytes the maximum number of idle bytes
+         * @return this builder
+         * @throws IllegalArgumentException if bytes is negative
+         */
+        public Builder maxPooledBytes(long bytes) {
+            if (bytes < 0) {
+                throw new IllegalArgumentException("Maximum pooled bytes must not be negative");
+            }
+            this.maxPooledBytes = bytes;
+            return this;
+        }
+
+        /**
+         * Sets the number of buffers of each kind and size class that a thread
+         * keeps for itself. Defaults to 4; 0 disables the thread caches.
+         *
+         * @param buffers the number of buffers
+         * @return this builder
+         * @throws IllegalArgumentException if buffers is negative
+         */
+        public Builder threadCacheSize(int buffers) {
+            if (buffers < 0) {
+                throw new IllegalArgumentException("Thread cache size must not be negative");
+            }
+            this.threadCacheSize = buffers;
+            return this;
+        }
+
+        /**
+         * Sets how buffers are checked for leaks. Defaults to
+         * {@link LeakDetection#SAMPLED}.
+         *
+         * @param leakDetection the leak detection level
+         * @return this builder
+         */
+        public Builder leakDetection(LeakDetection leakDetection) {
+            this.leakDetection = leakDetection;
+            return this;
+        }
+
+        /**
+         * Sets how many buffers are acquired per tracked buffer when leak
+         * detection is {@link LeakDetection#SAMPLED}. Defaults to 128.
+         *
+         * @param interval the sample interval
+         * @return this builder
+         * @throws IllegalArgumentException if interval is not positive
+         */
+        public Builder sampleInterval(int interval) {
+            if (interval <= 0) {
+                throw new IllegalArgumentException("Sample interval must be positive");
+            }
+            this.sampleInterval = interval;
+            return this;
+        }
+
+        /**
+         * Sets the listener for leaked buffers. It receives a throwable whose
+         * stack trace is where the buffer was acquired. By default leaks are
+         * logged as warnings through {@link System.Logger}.
+         *
+         * @param listener the leak listener
+         * @return this builder
+         */
+        public Builder leakListener(Consumer<Throwable> listener) {
+            this.leakListener = listener;
+            return this;
+        }
+
+        /**
+         * Builds a new {@link BufferPool} with the current settings.
+         *
+         * @return a new buffer pool
+         */
+        public BufferPool build() {
+            return new BufferPool(this);
+        }
+    }
+
+    /**
+     * Creates a new builder for {@link BufferPool}.
+     *
+     * @return a new builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+}
@@ -0,0 +1,129 @@
+package com.network.buffer;
+
+import java.lang.ref.PhantomReference;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Tracks pooled buffers to find those that are garbage collected without
+ * being released.
+ *
+ * <p>A tracked buffer gets a phantom reference that remembers the stack
+ * trace of its acquisition. Releasing the buffer clears the reference; if the
+ * reference is enqueued instead, the buffer became unreachable while still
+ * acquired and the trace is reported. The queue is polled on every
+ * acquisition, so no extra thread is needed. Capturing a stack trace is
+ * expensive, which is why usually only a sample of the buffers is tracked.
+ */
+final class LeakDetector {
+
+    private final BufferPool.LeakDetection level;
+    private final int sampleInterval;
+    private final Consumer<Throwable> listener;
+    private final ReferenceQueue<PooledBuffer> queue = new ReferenceQueue<>();
+    /** Keeps the references reachable until their buffer is released or collected. */
+    private final Set<Leak> live = ConcurrentHashMap.newKeySet();
+    private final AtomicLong leaks = new AtomicLong();
+
+    LeakDetector(BufferPool.LeakDetection level, int sampleInterval, Consumer<Throwable> listener) {
+        this.level = level;
+        this.sampleInterval = sampleInterval;
+        this.listener = listener;
+    }
+
+    /**
+     * Decides whether the next buffer is tracked, and reports the leaks found so far.
+     *
+     * @return true if the buffer should be tracked
+     */
+    boolean sample() {
+        if (level == BufferPool.LeakDetection.DISABLED) {
+            return false;
+        }
+        reportLeaks();
+        return level == BufferPool.LeakDetection.ALL || ThreadLocalRandom.current().nextInt(sampleInterval) == 0;
+    }
+
+    /**
+     * Starts tracking a buffer.
+     *
+     * @param buffer the buffer, which must not have been handed out yet
+     * @param trace  the stack trace of the acquisition
+     * @return the tracking reference
+     */
+    Leak track(PooledBuffer buffer, Throwable trace) {
+        Leak leak = new Leak(buffer, queue, trace);
+        live.add(leak);
+        return leak;
+    }
+
+    /**
+     * Gets the number of leaks reported so far.
+     *
+     * @return the number of leaks
+     */
+    long getLeakCount() {
+        return leaks.get();
+    }
+
+    private void reportLeaks() {
+        Reference<? extends PooledBuffer> reference;
+        while ((reference = queue.poll()) != null) {
+            Leak leak = (Leak) reference;
+            if (live.remove(leak)) {
+                leaks.incrementAndGet();
+                try {
+                    listener.accept(leak.trace);
+                } catch (RuntimeException e) {
+                    // A failing listener must not break the allocation
+                }
+            }
+        }
+    }
+
+    /**
+     * Records where a tracked buffer was acquired.
+     */
+    static final class AcquisitionTrace extends Throwable {
+        private static final long serialVersionUID = 1L;
+        private static final String PACKAGE = LeakDetector.class.getPackage().getName() + ".";
+
+        AcquisitionTrace(int capacity, boolean direct) {
+            super((direct ? "Direct" : "Heap") + " buffer of " + capacity +
+                  " bytes was garbage collected without being released; it was acquired here");
+            // Start the trace at the caller of the pool
+            StackTraceElement[] frames = getStackTrace();
+            int first = 0;
+            while (first < frames.length - 1 && frames[first].getClassName().startsWith(PACKAGE)) {
+                first++;
+            }
+            setStackTrace(Arrays.copyOfRange(frames, first, frames.length));
+        }
+    }
+
+    /**
+     * Phantom reference to a tracked buffer.
+     */
+    final class Leak extends PhantomReference<PooledBuffer> {
+        private final Throwable trace;
+
+        Leak(PooledBuffer buffer, ReferenceQueue<PooledBuffer> queue, Throwable trace) {
+            super(buffer, queue);
+            this.trace = trace;
+        }
+
+        /**
+         * Stops tracking after the buffer has been released.
+         */
+        void close() {
+            live.remove(this);
+            clear();
+        }
+    }
+}
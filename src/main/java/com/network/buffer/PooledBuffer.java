@@ -0,0 +1,137 @@
+package com.network.buffer;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * A buffer borrowed from a {@link BufferPool}.
+ *
+ * <p>The buffer is reference counted: it starts with one reference, each
+ * {@link #retain()} adds one and each {@link #release()} removes one. When
+ * the last reference is released the memory goes back to the pool, and the
+ * buffer must no longer be used. A buffer that is never released is not a
+ * memory leak, as the garbage collector reclaims it, but its memory is lost
+ * to the pool; {@link BufferPool.LeakDetection leak detection} reports where
+ * such buffers were acquired.
+ *
+ * <p>The reference count is thread-safe; the buffer itself is not.
+ */
+public final class PooledBuffer implements AutoCloseable {
+
+    private static final AtomicIntegerFieldUpdater<PooledBuffer> REF_COUNT =
+        AtomicIntegerFieldUpdater.newUpdater(PooledBuffer.class, "refCount");
+
+    private final BufferPool pool;
+    private final ByteBuffer buffer;
+    private final int sizeClass;
+    private final LeakDetector.Leak leak;
+    private volatile int refCount = 1;
+
+    PooledBuffer(BufferPool pool, ByteBuffer buffer, int sizeClass, LeakDetector detector) {
+        this.pool = pool;
+        this.buffer = buffer;
+        this.sizeClass = sizeClass;
+        this.leak = detector != null
+            ? detector.track(this, new LeakDetector.AcquisitionTrace(buffer.capacity(), buffer.isDirect()))
+            : null;
+    }
+
+    /**
+     * Gets the underlying buffer. When acquired, its position is 0 and its
+     * limit is the requested capacity; the actual capacity may be larger.
+     *
+     * @return the buffer
+     * @throws IllegalStateException if the buffer has been released
+     */
+    public ByteBuffer buffer() {
+        if (refCount <= 0) {
+            throw new IllegalStateException("Buffer has been released");
+        }
+        return buffer;
+    }
+
+    /**
+     * Gets the capacity of the buffer.
+     *
+     * @return the capacity in bytes
+     */
+    public int capacity() {
+        return buffer.capacity();
+    }
+
+    /**
+     * Checks if the buffer is allocated outside the Java heap.
+     *
+     * @return true for a direct buffer
+     */
+    public boolean isDirect() {
+        return buffer.isDirect();
+    }
+
+    /**
+     * Gets the number of references to the buffer.
+     *
+     * @return the reference count, 0 once released
+     */
+    public int refCount() {
+        return refCount;
+    }
+
+    /**
+     * Adds a reference to the buffer.
+     *
+     * @return this buffer
+     * @throws IllegalStateException if the buffer has been released
+     */
+    public PooledBuffer retain() {
+        int current;
+        do {
+            current = refCount;
+            if (current <= 0) {
+                throw new IllegalStateException("Buffer has been released");
+            }
+        } while (!REF_COUNT.compareAndSet(this, current, current + 1));
+        return this;
+    }
+
+    /**
+     * Removes a reference to the buffer, returning it to the pool when it was
+     * the last one.
+     *
+     * @return true if the buffer was returned to the pool
+     * @throws IllegalStateException if the buffer has already been released
+     */
+    public boolean release() {
+        int current;
+        do {
+            current = refCount;
+            if (current <= 0) {
+                throw new IllegalStateException("Buffer has already been released");
+            }
+        } while (!REF_COUNT.compareAndSet(this, current, current - 1));
+        if (current > 1) {
+            return false;
+        }
+        if (leak != null) {
+            leak.close();
+        }
+        pool.recycle(buffer, sizeClass);
+        return true;
+    }
+
+    /**
+     * Releases a reference to the buffer.
+     *
+     * @see #release()
+     */
+    @Override
+    public void close() {
+        release();
+    }
+
+    @Override
+    public String toString() {
+        return "PooledBuffer[" + (isDirect() ? "direct" : "heap") + ", capacity=" + capacity() +
+               ", refCount=" + refCount + "]";
+    }
+}
@@ -0,0 +1,37 @@
+package com.network.dns;
+
+import java.net.InetAddress;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Resolves host names to IP addresses without blocking the caller.
+ *
+ * <p>Connections may be opened from I/O threads, so implementations must
+ * not block the calling thread; lookups that block, such as
+ * {@link InetAddress#getAllByName(String)}, run on an executor of their own.
+ * IP literals resolve to themselves without a lookup.
+ */
+@FunctionalInterface
+public interface AddressResolver {
+
+    /**
+     * Resolves a host name.
+     *
+     * @param host the host name or IP literal
+     * @return a future that completes with the addresses of the host, never
+     *         empty, or fails with an {@link java.net.UnknownHostException}
+     */
+    CompletableFuture<List<InetAddress>> resolve(String host);
+
+    /**
+     * Gets the resolver of the operating system, which runs
+     * {@link InetAddress#getAllByName(String)} on a small pool of daemon
+     * threads.
+     *
+     * @return the shared system resolver
+     */
+    static AddressResolver system() {
+        return SystemAddressResolver.SHARED;
+    }
+}
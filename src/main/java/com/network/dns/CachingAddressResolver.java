@@ -0,0 +1,317 @@
+package com.network.dns;
+
+import java.net.InetAddress;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Resolver that caches the results of another resolver.
+ *
+ * <p>Addresses are kept for a time to live, failures for a shorter negative
+ * time to live. Concurrent lookups of the same host share one lookup. Hot
+ * entries, i.e. entries that are used after the refresh-ahead share of
+ * their time to live has passed, are looked up again in the background
+ * while the cached addresses keep being returned, so a host that is in use
+ * is never waited for. Entries that are not used simply expire.
+ *
+ * <p>If a lookup fails after an entry expired, the previous addresses are
+ * returned for up to the maximum staleness, and the lookup is retried after
+ * the negative time to live. A short outage of the DNS server therefore does
+ * not fail requests to hosts that were resolved before.
+ *
+ * <p>{@link InetAddress} does not expose the time to live of DNS records, so
+ * the time to live is configured here; it should not exceed the TTL of the
+ * records of the hosts that are used.
+ */
+public class CachingAddressResolver implements AddressResolver {
+
+    /** Lifetime of an entry whose lookup is in flight; callers share the lookup until it completes. */
+    private static final long PENDING_NANOS = TimeUnit.DAYS.toNanos(365);
+
+    private final AddressResolver delegate;
+    private final long ttlNanos;
+    private final long negativeTtlNanos;
+    private final long refreshNanos;
+    private final long maxStaleNanos;
+    private final int maxEntries;
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+    private CachingAddressResolver(Builder builder) {
+        this.delegate = builder.delegate;
+        this.ttlNanos = builder.ttl.toNanos();
+        this.negativeTtlNanos = builder.negativeTtl.toNanos();
+        this.refreshNanos = (long) (ttlNanos * builder.refreshAhead);
+        this.maxStaleNanos = builder.maxStale.toNanos();
+        this.maxEntries = builder.maxEntries;
+    }
+
+    /**
+     * Creates a new builder.
+     *
+     * @return the builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    @Override
+    public CompletableFuture<List<InetAddress>> resolve(String host) {
+        String key = host.toLowerCase(Locale.ROOT);
+        long now = System.nanoTime();
+        Entry entry = entries.get(key);
+        if (entry != null && now - entry.expiresAt < 0) {
+            if (entry.addresses != null && now - entry.refreshAt >= 0 && entry.refreshing.compareAndSet(false, true)) {
+                refresh(key, entry);
+            }
+            return entry.future;
+        }
+        return lookup(key, entry);
+    }
+
+    /**
+     * Removes the cached addresses of a host, e.g. after connecting to all
+     * of them failed.
+     *
+     * @param host the host name
+     */
+    public void invalidate(String host) {
+        entries.remove(host.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Removes all cached addresses.
+     */
+    public void invalidateAll() {
+        entries.clear();
+    }
+
+    /**
+     * Gets the number of cached hosts, including failed and pending lookups.
+     *
+     * @return the number of entries
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Looks a host up in the foreground, sharing the lookup with concurrent callers.
+     *
+     * @param key     the lower-cased host
+     * @param expired the expired entry of the host, or null
+     * @return the future of the addresses
+     */
+    private CompletableFuture<List<InetAddress>> lookup(String key, Entry expired) {
+        long expiresAt = System.nanoTime() + PENDING_NANOS;
+        Entry pending = expired != null
+            ? new Entry(new CompletableFuture<>(), null, 0, expiresAt, expired.fallback, expired.fallbackUntil)
+            : new Entry(new CompletableFuture<>(), null, 0, expiresAt, null, 0);
+        boolean won = expired != null ? entries.replace(key, expired, pending) : entries.putIfAbsent(key, pending) == null;
+        if (!won) {
+            // Another caller started a lookup or stored a result in the meantime
+            Entry current = entries.get(key);
+            return current != null ? current.future : resolve(key);
+        }
+        if (expired == null && entries.size() > maxEntries) {
+            evict();
+        }
+        resolveWith(key).whenComplete((addresses, error) -> {
+            long now = System.nanoTime();
+            if (error == null) {
+                entries.replace(key, pending, resolved(addresses, now));
+                pending.future.complete(addresses);
+            } else if (pending.fallback != null && now - pending.fallbackUntil < 0) {
+                entries.replace(key, pending, new Entry(CompletableFuture.completedFuture(pending.fallback), null,
+                    0, now + negativeTtlNanos, pending.fallback, pending.fallbackUntil));
+                pending.future.complete(pending.fallback);
+            } else {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                entries.replace(key, pending, new Entry(CompletableFuture.failedFuture(cause), null,
+                    0, now + negativeTtlNanos, null, 0));
+                pending.future.completeExceptionally(cause);
+            }
+        });
+        return pending.future;
+    }
+
+    /**
+     * Looks a hot host up in the background; the entry keeps being returned
+     * until the new addresses arrive. A failed refresh leaves the entry to
+     * expire normally.
+     */
+    private void refresh(String key, Entry entry) {
+        resolveWith(key).thenAccept(addresses -> entries.replace(key, entry, resolved(addresses, System.nanoTime())));
+    }
+
+    private CompletableFuture<List<InetAddress>> resolveWith(String key) {
+        try {
+            return delegate.resolve(key);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private Entry resolved(List<InetAddress> addresses, long now) {
+        long expiresAt = now + ttlNanos;
+        return new Entry(CompletableFuture.completedFuture(addresses), addresses,
+            now + refreshNanos, expiresAt, addresses, expiresAt + maxStaleNanos);
+    }
+
+    /**
+     * Removes expired entries, then arbitrary ones until the cache fits.
+     */
+    private void evict() {
+        long now = System.nanoTime();
+        entries.values().removeIf(entry -> now - entry.expiresAt >= 0);
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (entries.size() > maxEntries && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    /**
+     * Cached result of one lookup. Entries are immutable apart from the
+     * refresh flag and are replaced as a whole, so readers need no locks.
+     */
+    private static final class Entry {
+        final CompletableFuture<List<InetAddress>> future;
+        /** The looked up addresses, or null for a pending, failed or stale entry, which is not refreshed. */
+        final List<InetAddress> addresses;
+        final long refreshAt;
+        final long expiresAt;
+        /** The addresses to return if a lookup fails, and until when. */
+        final List<InetAddress> fallback;
+        final long fallbackUntil;
+        final AtomicBoolean refreshing = new AtomicBoolean();
+
+        Entry(CompletableFuture<List<InetAddress>> future, List<InetAddress> addresses, long refreshAt,
+              long expiresAt, List<InetAddress> fallback, long fallbackUntil) {
+            this.future = future;
+            this.addresses = addresses;
+            this.refreshAt = refreshAt;
+            this.expiresAt = expiresAt;
+            this.fallback = fallback;
+            this.fallbackUntil = fallbackUntil;
+        }
+    }
+
+    /**
+     * Builder of {@link CachingAddressResolver} instances.
+     */
+    public static final class Builder {
+        private AddressResolver delegate = AddressResolver.system();
+        private Duration ttl = Duration.ofSeconds(60);
+        private Duration negativeTtl = Duration.ofSeconds(5);
+        private double refreshAhead = 0.8;
+        private Duration maxStale = Duration.ofMinutes(5);
+        private int maxEntries = 4096;
+
+        private Builder() {
+        }
+
+        /**
+         * Sets the resolver whose results are cached. Defaults to
+         * {@link AddressResolver#system()}.
+         *
+         * @param delegate the resolver
+         * @return this builder
+         */
+        public Builder withDelegate(AddressResolver delegate) {
+            if (delegate == null) {
+                throw new IllegalArgumentException("Delegate must not be null");
+            }
+            this.delegate = delegate;
+            return this;
+        }
+
+        /**
+         * Sets how long addresses are cached. Defaults to 60 seconds.
+         *
+         * @param ttl the time to live
+         * @return this builder
+         */
+        public Builder withTtl(Duration ttl) {
+            if (ttl == null || ttl.isNegative() || ttl.isZero()) {
+                throw new IllegalArgumentException("TTL must be positive");
+            }
+            this.ttl = ttl;
+            return this;
+        }
+
+        /**
+         * Sets how long failed lookups are cached. Defaults to 5 seconds.
+         *
+         * @param negativeTtl the time to live of failures
+         * @return this builder
+         */
+        public Builder withNegativeTtl(Duration negativeTtl) {
+            if (negativeTtl == null || negativeTtl.isNegative()) {
+                throw new IllegalArgumentException("Negative TTL must not be negative");
+            }
+            this.negativeTtl = negativeTtl;
+            return this;
+        }
+
+        /**
+         * Sets the share of the time to live after which a used entry is
+         * refreshed in the background. Defaults to 0.8; 1 disables refreshing.
+         *
+         * @param refreshAhead the share, greater than 0 and at most 1
+         * @return this builder
+         */
+        public Builder withRefreshAhead(double refreshAhead) {
+            if (!(refreshAhead > 0 && refreshAhead <= 1)) {
+                throw new IllegalArgumentException("Refresh-ahead share must be in (0, 1]");
+            }
+            this.refreshAhead = refreshAhead;
+            return this;
+        }
+
+        /**
+         * Sets how long after expiry addresses are still used while lookups
+         * of the host fail. Defaults to 5 minutes; zero disables it.
+         *
+         * @param maxStale the maximum staleness
+         * @return this builder
+         */
+        public Builder withMaxStale(Duration maxStale) {
+            if (maxStale == null || maxStale.isNegative()) {
+                throw new IllegalArgumentException("Maximum staleness must not be negative");
+            }
+            this.maxStale = maxStale;
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of cached hosts. Defaults to 4096.
+         *
+         * @param maxEntries the maximum number of entries
+         * @return this builder
+         */
+        public Builder withMaxEntries(int maxEntries) {
+            if (maxEntries <= 0) {
+                throw new IllegalArgumentException("Maximum entries must be positive");
+            }
+            this.maxEntries = maxEntries;
+            return this;
+        }
+
+        /**
+         * Builds the resolver.
+         *
+         * @return the resolver
+         */
+        public CachingAddressResolver build() {
+            return new CachingAddressResolver(this);
+        }
+    }
+}
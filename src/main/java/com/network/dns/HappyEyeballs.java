@@ -0,0 +1,199 @@
+package com.network.dns;
+
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Connection racing over the addresses of a host, as in Happy Eyeballs
+ * version 2 (RFC 8305).
+ *
+ * <p>Addresses are ordered so that the address families alternate, starting
+ * with IPv6 if the host has IPv6 addresses. Connection attempts are started
+ * one after the other: the next attempt starts when the previous one fails,
+ * or when it has not succeeded within the attempt delay, while the earlier
+ * attempts keep running. The first connection to succeed is returned and
+ * every connection that succeeds later is closed. A dual-stack host with a
+ * broken IPv6 path therefore costs one attempt delay instead of a connect
+ * timeout.
+ *
+ * <p>The resolution delay of the RFC does not apply, as the
+ * {@link AddressResolver} returns both families at once.
+ */
+public final class HappyEyeballs {
+
+    /** The connection attempt delay recommended by RFC 8305. */
+    public static final Duration DEFAULT_ATTEMPT_DELAY = Duration.ofMillis(250);
+
+    private HappyEyeballs() {
+    }
+
+    /**
+     * Resolves a host and connects to one of its addresses.
+     *
+     * @param <C>          the type of the connections
+     * @param resolver     the resolver of the host
+     * @param host         the host name or IP literal
+     * @param port         the port
+     * @param attemptDelay how long an attempt runs alone before the next one starts
+     * @param connector    opens a connection to an address
+     * @return a future that completes with the first connection, or fails with
+     *         the error of the first attempt if all of them fail
+     */
+    public static <C extends AutoCloseable> CompletableFuture<C> connect(AddressResolver resolver, String host, int port,
+                                                                        Duration attemptDelay,
+                                                                        Function<InetSocketAddress, CompletableFuture<C>> connector) {
+        return resolver.resolve(host).thenCompose(addresses -> connect(addresses, port, attemptDelay, connector));
+    }
+
+    /**
+     * Connects to one of the addresses of a host.
+     *
+     * @param <C>          the type of the connections
+     * @param addresses    the addresses, in the order of the resolver
+     * @param port         the port
+     * @param attemptDelay how long an attempt runs alone before the next one starts
+     * @param connector    opens a connection to an address
+     * @return a future that completes with the first connection, or fails with
+     *         the error of the first attempt if all of them fail
+     */
+    public static <C extends AutoCloseable> CompletableFuture<C> connect(List<InetAddress> addresses, int port,
+                                                                        Duration attemptDelay,
+                                                                        Function<InetSocketAddress, CompletableFuture<C>> connector) {
+        if (addresses.isEmpty()) {
+            return CompletableFuture.failedFuture(new UnknownHostException("No addresses to connect to"));
+        }
+        List<InetAddress> ordered = interleave(addresses);
+        InetSocketAddress[] targets = new InetSocketAddress[ordered.size()];
+        for (int i = 0; i < targets.length; i++) {
+            targets[i] = new InetSocketAddress(ordered.get(i), port);
+        }
+        Race<C> race = new Race<>(targets, connector,
+            CompletableFuture.delayedExecutor(attemptDelay.toNanos(), TimeUnit.NANOSECONDS));
+        race.startNext();
+        return race.result;
+    }
+
+    /**
+     * Orders addresses so that the families alternate, starting with IPv6.
+     * The order within each family is kept.
+     *
+     * @param addresses the addresses
+     * @return the ordered addresses
+     */
+    public static List<InetAddress> interleave(List<InetAddress> addresses) {
+        List<InetAddress> v6 = new ArrayList<>();
+        List<InetAddress> v4 = new ArrayList<>();
+        for (InetAddress address : addresses) {
+            (address instanceof Inet6Address ? v6 : v4).add(address);
+        }
+        if (v6.isEmpty() || v4.isEmpty()) {
+            return addresses;
+        }
+        List<InetAddress> ordered = new ArrayList<>(addresses.size());
+        for (int i = 0; i < Math.max(v6.size(), v4.size()); i++) {
+            if (i < v6.size()) {
+                ordered.add(v6.get(i));
+            }
+            if (i < v4.size()) {
+                ordered.add(v4.get(i));
+            }
+        }
+        return ordered;
+    }
+
+    /**
+     * The attempts of one connect call.
+     */
+    private static final class Race<C extends AutoCloseable> {
+        private final InetSocketAddress[] targets;
+        private final Function<InetSocketAddress, CompletableFuture<C>> connector;
+        private final Executor delayed;
+        final CompletableFuture<C> result = new CompletableFuture<>();
+        /** Guarded by this. */
+        private int next;
+        private int running;
+        private Throwable failure;
+
+        Race(InetSocketAddress[] targets, Function<InetSocketAddress, CompletableFuture<C>> connector, Executor delayed) {
+            this.targets = targets;
+            this.connector = connector;
+            this.delayed = delayed;
+        }
+
+        /**
+         * Starts the next attempt, unless the race is over or no addresses are left.
+         */
+        void startNext() {
+            int index;
+            synchronized (this) {
+                if (result.isDone() || next == targets.length) {
+                    return;
+                }
+                index = next++;
+                running++;
+            }
+            CompletableFuture<C> attempt;
+            try {
+                attempt = connector.apply(targets[index]);
+            } catch (RuntimeException e) {
+                attempt = CompletableFuture.failedFuture(e);
+            }
+            if (index + 1 < targets.length) {
+                CompletableFuture<C> started = attempt;
+                // A failed attempt has started the next one already
+                delayed.execute(() -> {
+                    if (!started.isDone()) {
+                        startNext();
+                    }
+                });
+            }
+            attempt.whenComplete(this::finished);
+        }
+
+        private void finished(C connection, Throwable error) {
+            if (error == null) {
+                synchronized (this) {
+                    running--;
+                }
+                if (!result.complete(connection)) {
+                    closeQuietly(connection);
+                }
+                return;
+            }
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            boolean exhausted;
+            synchronized (this) {
+                running--;
+                if (failure == null) {
+                    failure = cause;
+                } else if (failure != cause) {
+                    failure.addSuppressed(cause);
+                }
+                exhausted = next == targets.length && running == 0;
+            }
+            if (exhausted) {
+                result.completeExceptionally(failure);
+            } else {
+                startNext();
+            }
+        }
+
+        private static void closeQuietly(AutoCloseable connection) {
+            try {
+                connection.close();
+            } catch (Exception e) {
+                // The losing connection was never used
+            }
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.network.dns;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Resolver with a fixed table of hosts, e.g. to point a client at local
+ * servers in tests. Hosts that are not in the table are passed to a
+ * fallback resolver, or fail if there is none.
+ */
+public class StaticAddressResolver implements AddressResolver {
+
+    private final Map<String, List<InetAddress>> hosts;
+    private final AddressResolver fallback;
+
+    private StaticAddressResolver(Builder builder) {
+        this.hosts = new HashMap<>();
+        builder.hosts.forEach((host, addresses) ->
+            hosts.put(host, List.copyOf(addresses)));
+        this.fallback = builder.fallback;
+    }
+
+    /**
+     * Creates a new builder.
+     *
+     * @return the builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    @Override
+    public CompletableFuture<List<InetAddress>> resolve(String host) {
+        List<InetAddress> addresses = hosts.get(host.toLowerCase(Locale.ROOT));
+        if (addresses != null) {
+            return CompletableFuture.completedFuture(addresses);
+        }
+        if (fallback != null) {
+            return fallback.resolve(host);
+        }
+        try {
+            InetAddress literal = SystemAddressResolver.literal(host);
+            if (literal != null) {
+                return CompletableFuture.completedFuture(List.of(literal));
+            }
+            return CompletableFuture.failedFuture(new UnknownHostException(host + ": not a static host"));
+        } catch (UnknownHostException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Builder of {@link StaticAddressResolver} instances.
+     */
+    public static final class Builder {
+        private final Map<String, List<InetAddress>> hosts = new HashMap<>();
+        private AddressResolver fallback;
+
+        private Builder() {
+        }
+
+        /**
+         * Adds addresses of a host, after any added before.
+         *
+         * @param host      the host name
+         * @param addresses the IP literals of the host
+         * @return this builder
+         * @throws IllegalArgumentException if an address is not an IP literal
+         */
+        public Builder withHost(String host, String... addresses) {
+            List<InetAddress> parsed = new ArrayList<>(addresses.length);
+            for (String address : addresses) {
+                try {
+                    InetAddress literal = SystemAddressResolver.literal(address);
+                    if (literal == null) {
+                        throw new IllegalArgumentException("Not an IP address: " + address);
+                    }
+                    parsed.add(literal);
+                } catch (UnknownHostException e) {
+                    throw new IllegalArgumentException("Not an IP address: " + address, e);
+                }
+            }
+            return withHost(host, parsed);
+        }
+
+        /**
+         * Adds addresses of a host, after any added before.
+         *
+         * @param host      the host name
+         * @param addresses the addresses of the host
+         * @return this builder
+         */
+        public Builder withHost(String host, List<InetAddress> addresses) {
+            if (addresses.isEmpty()) {
+                throw new IllegalArgumentException("Host " + host + " needs at least one address");
+            }
+            hosts.computeIfAbsent(host.toLowerCase(Locale.ROOT), key -> new ArrayList<>()).addAll(addresses);
+            return this;
+        }
+
+        /**
+         * Sets the resolver of hosts that are not in the table.
+         *
+         * @param fallback the resolver, or null to fail for unknown hosts
+         * @return this builder
+         */
+        public Builder withFallback(AddressResolver fallback) {
+            this.fallback = fallback;
+            return this;
+        }
+
+        /**
+         * Builds the resolver.
+         *
+         * @return the resolver
+         */
+        public StaticAddressResolver build() {
+            return new StaticAddressResolver(this);
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.network.dns;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Resolver that looks host names up with {@link InetAddress#getAllByName(String)},
+ * so it honours the hosts file and search domains of the operating system.
+ *
+ * <p>Lookups block, so they run on an executor: by default a pool of at most
+ * {@value #DEFAULT_THREADS} daemon threads that exit when idle. The JDK keeps
+ * its own cache below this resolver, which {@link CachingAddressResolver}
+ * does not replace but avoids reaching for hot hosts.
+ */
+public class SystemAddressResolver implements AddressResolver {
+
+    static final SystemAddressResolver SHARED = new SystemAddressResolver();
+
+    private static final int DEFAULT_THREADS = 8;
+
+    private final Executor executor;
+
+    /**
+     * Creates a new resolver on a pool of daemon threads.
+     */
+    public SystemAddressResolver() {
+        this(newDefaultExecutor());
+    }
+
+    /**
+     * Creates a new resolver.
+     *
+     * @param executor runs the blocking lookups; must not be an I/O thread
+     */
+    public SystemAddressResolver(Executor executor) {
+        if (executor == null) {
+            throw new IllegalArgumentException("Executor must not be null");
+        }
+        this.executor = executor;
+    }
+
+    @Override
+    public CompletableFuture<List<InetAddress>> resolve(String host) {
+        CompletableFuture<List<InetAddress>> result = new CompletableFuture<>();
+        try {
+            InetAddress literal = literal(host);
+            if (literal != null) {
+                result.complete(List.of(literal));
+                return result;
+            }
+            executor.execute(() -> {
+                try {
+                    result.complete(List.of(InetAddress.getAllByName(host)));
+                } catch (UnknownHostException | RuntimeException e) {
+                    result.completeExceptionally(e);
+                }
+            });
+        } catch (UnknownHostException | RejectedExecutionException e) {
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    /**
+     * Parses an IP literal without a lookup.
+     *
+     * @param host the host, with or without brackets around an IPv6 literal
+     * @return the address, or null if the host is not an IP literal
+     * @throws UnknownHostException if the host is a malformed IPv6 literal
+     */
+    static InetAddress literal(String host) throws UnknownHostException {
+        if (host.indexOf(':') >= 0) {
+            // Brackets make the JDK reject a malformed literal instead of looking it up
+            return InetAddress.getByName(host.startsWith("[") ? host : "[" + host + "]");
+        }
+        byte[] bytes = new byte[4];
+        int part = 0;
+        int value = -1;
+        for (int i = 0; i < host.length(); i++) {
+            char c = host.charAt(i);
+            if (c >= '0' && c <= '9') {
+                value = (value < 0 ? 0 : value * 10) + (c - '0');
+                if (value > 255) {
+                    return null;
+                }
+            } else if (c == '.' && value >= 0 && part < 3) {
+                bytes[part++] = (byte) value;
+                value = -1;
+            } else {
+                return null;
+            }
+        }
+        if (part != 3 || value < 0) {
+            return null;
+        }
+        bytes[3] = (byte) value;
+        return InetAddress.getByAddress(host, bytes);
+    }
+
+    private static Executor newDefaultExecutor() {
+        AtomicInteger count = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(DEFAULT_THREADS, DEFAULT_THREADS, 30, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(), runnable -> {
+                Thread thread = new Thread(runnable, "dns-resolver-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+}
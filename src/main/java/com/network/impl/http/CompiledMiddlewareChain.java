@@ -0,0 +1,224 @@
+package com.network.impl.http;
+
+import com.network.api.http.HttpRequest;
+import com.network.api.http.HttpRequestContext;
+import com.network.api.http.HttpResponse;
+import com.network.api.http.middleware.HttpAsyncMiddlewareChain;
+import com.network.api.http.middleware.HttpMiddleware;
+import com.network.api.http.middleware.HttpMiddlewareChain;
+import com.network.api.http.middleware.MiddlewareSupport;
+import com.network.serialization.Serializer;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Middleware chain that is sorted and analysed once, when the client
+ * configuration is built.
+ *
+ * <p>Middlewares are ordered by {@link HttpMiddleware#getOrder()}, keeping the
+ * order in which they were added for equal values. Middlewares that keep the
+ * default {@code process}/{@code processAsync} implementation only contribute
+ * {@code beforeRequest}/{@code afterResponse} callbacks, so consecutive runs of
+ * them are executed as plain loops: the asynchronous chain adds a single
+ * future stage per run instead of one per middleware. Middlewares that
+ * override {@code process} or {@code processAsync} are invoked as usual with
+ * the rest of the chain.
+ *
+ * <p>{@link #bind(HttpMiddlewareChain)} and {@link #bindAsync(HttpAsyncMiddlewareChain)}
+ * link the chain to the transport once; the returned chains are stateless
+ * and are reused for every request. They put the serializer of the client
+ * into the {@link HttpRequestContext#SERIALIZER} attribute of each request
+ * that does not have one yet.
+ */
+final class CompiledMiddlewareChain {
+
+    private static final Comparator<HttpMiddleware> BY_ORDER = Comparator.comparingInt(HttpMiddleware::getOrder);
+
+    private final HttpMiddleware[] middlewares;
+    private final boolean[] customProcess;
+    private final boolean[] customProcessAsync;
+    private final Serializer serializer;
+
+    /**
+     * Compiles a list of middlewares.
+     *
+     * @param middlewares the middlewares in the order they were added
+     * @param serializer  the serializer of the client, or null
+     */
+    CompiledMiddlewareChain(List<HttpMiddleware> middlewares, Serializer serializer) {
+        HttpMiddleware[] sorted = middlewares.toArray(new HttpMiddleware[0]);
+        // Object arrays are sorted stably, so equal orders keep their insertion order
+        Arrays.sort(sorted, BY_ORDER);
+        this.middlewares = sorted;
+        this.customProcess = new boolean[sorted.length];
+        this.customProcessAsync = new boolean[sorted.length];
+        this.serializer = serializer;
+        for (int i = 0; i < sorted.length; i++) {
+            Class<?> type = sorted[i].getClass();
+            customProcess[i] = overrides(type, "process", HttpMiddlewareChain.class);
+            customProcessAsync[i] = overrides(type, "processAsync", HttpAsyncMiddlewareChain.class);
+        }
+    }
+
+    /**
+     * Gets the middlewares in execution order.
+     *
+     * @return the sorted middlewares
+     */
+    List<HttpMiddleware> getMiddlewares() {
+        return Collections.unmodifiableList(Arrays.asList(middlewares));
+    }
+
+    /**
+     * Links this chain to the transport for blocking execution.
+     *
+     * @param terminal the chain that sends the request
+     * @return the chain that runs all middlewares and then the terminal chain
+     */
+    HttpMiddlewareChain bind(HttpMiddlewareChain terminal) {
+        HttpMiddlewareChain next = terminal;
+        HttpMiddleware around = null;
+        int to = middlewares.length;
+        for (int i = middlewares.length - 1; i >= 0; i--) {
+            if (customProcess[i]) {
+                if (i + 1 < to || around != null) {
+                    next = new Node(i + 1, to, around, next);
+                }
+                around = middlewares[i];
+                to = i;
+            }
+        }
+        HttpMiddlewareChain chain = to == 0 && around == null ? next : new Node(0, to, around, next);
+        if (serializer == null) {
+            return chain;
+        }
+        return request -> {
+            setSerializer(request);
+            return chain.next(request);
+        };
+    }
+
+    /**
+     * Links this chain to the transport for asynchronous execution.
+     *
+     * @param terminal the chain that sends the request
+     * @return the chain that runs all middlewares and then the terminal chain
+     */
+    HttpAsyncMiddlewareChain bindAsync(HttpAsyncMiddlewareChain terminal) {
+        HttpAsyncMiddlewareChain next = terminal;
+        HttpMiddleware around = null;
+        int to = middlewares.length;
+        for (int i = middlewares.length - 1; i >= 0; i--) {
+            if (customProcessAsync[i]) {
+                if (i + 1 < to || around != null) {
+                    next = new AsyncNode(i + 1, to, around, next);
+                }
+                around = middlewares[i];
+                to = i;
+            }
+        }
+        HttpAsyncMiddlewareChain chain = to == 0 && around == null ? next : new AsyncNode(0, to, around, next);
+        if (serializer == null) {
+            return chain;
+        }
+        return request -> {
+            setSerializer(request);
+            return chain.next(request);
+        };
+    }
+
+    private void setSerializer(HttpRequest request) {
+        HttpRequestContext context = request.getContext();
+        if (!context.has(HttpRequestContext.SERIALIZER)) {
+            context.set(HttpRequestContext.SERIALIZER, serializer);
+        }
+    }
+
+    /**
+     * Checks if a middleware class replaces a default method of {@link HttpMiddleware}.
+     */
+    private static boolean overrides(Class<?> type, String name, Class<?> chainType) {
+        try {
+            return type.getMethod(name, HttpRequest.class, chainType).getDeclaringClass() != HttpMiddleware.class;
+        } catch (NoSuchMethodException e) {
+            // Cannot happen for an HttpMiddleware; treat it as custom to be safe
+            return true;
+        }
+    }
+
+    /**
+     * Runs the callback-only middlewares {@code [from, to)} around either the
+     * middleware at {@code to} or, at the end of the chain, the terminal chain.
+     */
+    private final class Node implements HttpMiddlewareChain {
+        private final int from;
+        private final int to;
+        private final HttpMiddleware around;
+        private final HttpMiddlewareChain next;
+
+        Node(int from, int to, HttpMiddleware around, HttpMiddlewareChain next) {
+            this.from = from;
+            this.to = to;
+            this.around = around;
+            this.next = next;
+        }
+
+        @Override
+        public HttpResponse<?> next(HttpRequest request) {
+            if (from == to) {
+                return around.process(request, next);
+            }
+            HttpRequestContext context = request.getContext();
+            for (int i = from; i < to; i++) {
+                middlewares[i].beforeRequest(context);
+            }
+            HttpResponse<?> response = around != null ? around.process(request, next) : next.next(request);
+            for (int i = to - 1; i >= from; i--) {
+                middlewares[i].afterResponse(context, response);
+            }
+            return response;
+        }
+    }
+
+    /**
+     * Asynchronous counterpart of {@link Node}; the response callbacks of the
+     * whole run share one future stage.
+     */
+    private final class AsyncNode implements HttpAsyncMiddlewareChain {
+        private final int from;
+        private final int to;
+        private final HttpMiddleware around;
+        private final HttpAsyncMiddlewareChain next;
+
+        AsyncNode(int from, int to, HttpMiddleware around, HttpAsyncMiddlewareChain next) {
+            this.from = from;
+            this.to = to;
+            this.around = around;
+            this.next = next;
+        }
+
+        @Override
+        public CompletableFuture<HttpResponse<?>> next(HttpRequest request) {
+            if (from == to) {
+                return around.processAsync(request, next);
+            }
+            HttpRequestContext context = request.getContext();
+            for (int i = from; i < to; i++) {
+                middlewares[i].beforeRequest(context);
+            }
+            CompletableFuture<HttpResponse<?>> response = around != null
+                ? around.processAsync(request, next)
+                : next.next(request);
+            return MiddlewareSupport.forwardCancellation(response.thenApply(result -> {
+                for (int i = to - 1; i >= from; i--) {
+                    middlewares[i].afterResponse(context, result);
+                }
+                return result;
+            }), response);
+        }
+    }
+}
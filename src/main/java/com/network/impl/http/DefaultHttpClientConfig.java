@@ -3,6 +3,9 @@ package com.network.impl.http;
 import com.network.api.http.HttpClientBuilder;
 import com.network.api.http.HttpClientConfig;
 import com.network.api.http.middleware.HttpMiddleware;
+import com.network.buffer.BufferPool;
+import com.network.dns.AddressResolver;
+import com.network.dns.CachingAddressResolver;
 import com.network.serialization.JsonSerializer;
 import com.network.serialization.Serializer;
 
@@ -26,12 +29,22 @@ public class DefaultHttpClientConfig implements HttpClientConfig {
     private final URL baseUrl;
     private final Map<String, String> defaultHeaders;
     private final List<HttpMiddleware> middlewares;
+    private final CompiledMiddlewareChain middlewareChain;
     private final Duration connectTimeout;
     private final Duration requestTimeout;
     private final boolean followRedirects;
     private final ProxySelector proxy;
     private final Executor executor;
     private final Serializer serializer;
+    private final int maxConnectionsPerRoute;
+    private final int maxTotalConnections;
+    private final Duration connectionTimeToLive;
+    private final boolean http2Enabled;
+    private final boolean pipeliningEnabled;
+    private final int maxPipelineDepth;
+    private final boolean responseStreamingEnabled;
+    private final BufferPool bufferPool;
+    private final AddressResolver addressResolver;
     
     /**
      * Creates a new instance of DefaultHttpClientConfig.
@@ -42,12 +55,23 @@ public class DefaultHttpClientConfig implements HttpClientConfig {
         this.baseUrl = builder.baseUrl;
         this.defaultHeaders = new ConcurrentHashMap<>(builder.defaultHeaders);
         this.middlewares = new ArrayList<>(builder.middlewares);
+        this.middlewareChain = new CompiledMiddlewareChain(this.middlewares, builder.serializer);
         this.connectTimeout = builder.connectTimeout;
         this.requestTimeout = builder.requestTimeout;
         this.followRedirects = builder.followRedirects;
         this.proxy = builder.proxy;
         this.executor = builder.executor;
         this.serializer = builder.serializer;
+        this.maxConnectionsPerRoute = builder.maxConnectionsPerRoute;
+        this.maxTotalConnections = builder.maxTotalConnections;
+        this.connectionTimeToLive = builder.connectionTimeToLive;
+        this.http2Enabled = builder.http2Enabled;
+        this.pipeliningEnabled = builder.pipeliningEnabled;
+        this.maxPipelineDepth = builder.maxPipelineDepth;
+        this.responseStreamingEnabled = builder.responseStreamingEnabled;
+        this.bufferPool = builder.bufferPool;
+        this.addressResolver = builder.addressResolver != null
+            ? builder.addressResolver : CachingAddressResolver.builder().build();
     }
     
     @Override
@@ -97,17 +121,17 @@ public class DefaultHttpClientConfig implements HttpClientConfig {
 
     @Override
     public int getMaxConnectionsPerRoute() {
-        return 20; // Default value
+        return maxConnectionsPerRoute;
     }
 
     @Override
     public int getMaxTotalConnections() {
-        return 100; // Default value
+        return maxTotalConnections;
     }
 
     @Override
     public Duration getConnectionTimeToLive() {
-        return Duration.ofMinutes(5); // Default value
+        return connectionTimeToLive;
     }
     
     /**
@@ -119,6 +143,15 @@ public class DefaultHttpClientConfig implements HttpClientConfig {
         return Collections.unmodifiableList(middlewares);
     }
     
+    /**
+     * Gets the middlewares compiled into a chain, sorted by their order.
+     * 
+     * @return the compiled middleware chain
+     */
+    CompiledMiddlewareChain getMiddlewareChain() {
+        return middlewareChain;
+    }
+    
     /**
      * Gets the connection timeout.
      * 
@@ -146,6 +179,63 @@ public class DefaultHttpClientConfig implements HttpClientConfig {
         return proxy;
     }
     
+    /**
+     * Checks if requests are sent over HTTP/2 where the server supports it.
+     * 
+     * @return true if HTTP/2 is enabled, false for HTTP/1.1 only
+     */
+    public boolean isHttp2Enabled() {
+        return http2Enabled;
+    }
+    
+    /**
+     * Checks if idempotent requests (GET, HEAD and OPTIONS) are pipelined on
+     * HTTP/1.1 connections.
+     * 
+     * @return true if pipelining is enabled, false otherwise
+     */
+    public boolean isPipeliningEnabled() {
+        return pipeliningEnabled;
+    }
+    
+    /**
+     * Gets the maximum number of requests in flight on a pipelined connection.
+     * 
+     * @return the maximum pipeline depth
+     */
+    public int getMaxPipelineDepth() {
+        return maxPipelineDepth;
+    }
+    
+    /**
+     * Checks if responses are returned as soon as their headers arrive, with
+     * the body streamed to the caller as it is received.
+     * 
+     * @return true if response streaming is enabled, false otherwise
+     */
+    public boolean isResponseStreamingEnabled() {
+        return responseStreamingEnabled;
+    }
+    
+    /**
+     * Gets the pool of the buffers used for connection I/O and response assembly.
+     * 
+     * @return the buffer pool
+     */
+    public BufferPool getBufferPool() {
+        return bufferPool;
+    }
+    
+    /**
+     * Gets the resolver of the host names that HTTP/1.1 connections are
+     * opened to.
+     * 
+     * @return the address resolver
+     */
+    public AddressResolver getAddressResolver() {
+        return addressResolver;
+    }
+    
     /**
      * Gets the executor service used for asynchronous operations.
      * 
@@ -202,6 +292,15 @@ public class DefaultHttpClientConfig implements HttpClientConfig {
         private ProxySelector proxy;
         private Executor executor;
         private Serializer serializer = new JsonSerializer();
+        private int maxConnectionsPerRoute = 20;
+        private int maxTotalConnections = 100;
+        private Duration connectionTimeToLive = Duration.ofMinutes(5);
+        private boolean http2Enabled;
+        private boolean pipeliningEnabled;
+        private int maxPipelineDepth = 16;
+        private boolean responseStreamingEnabled;
+        private BufferPool bufferPool = BufferPool.shared();
+        private AddressResolver addressResolver;
         
         public Builder() {
             // Default constructor
@@ -212,6 +311,19 @@ public class DefaultHttpClientConfig implements HttpClientConfig {
             this.defaultHeaders.putAll(config.getDefaultHeaders());
             this.middlewares.addAll(config.getMiddleware());
             this.followRedirects = config.isFollowRedirects();
+            this.maxConnectionsPerRoute = config.getMaxConnectionsPerRoute();
+            this.maxTotalConnections = config.getMaxTotalConnections();
+            this.connectionTimeToLive = config.getConnectionTimeToLive();
+            if (config instanceof DefaultHttpClientConfig) {
+                DefaultHttpClientConfig defaults = (DefaultHttpClientConfig) config;
+                this.http2Enabled = defaults.isHttp2Enabled();
+                this.pipeliningEnabled = defaults.isPipeliningEnabled();
+                this.maxPipelineDepth = defaults.getMaxPipelineDepth();
+                this.responseStreamingEnabled = defaults.isResponseStreamingEnabled();
+                this.bufferPool = defaults.getBufferPool();
+                // Sharing the resolver keeps its cache of resolved addresses
+                this.addressResolver = defaults.getAddressResolver();
+            }
             // Other properties would be copied here
         }
 
@@ -316,19 +428,28 @@ public class DefaultHttpClientConfig implements HttpClientConfig {
 
         @Override
         public HttpClientBuilder withMaxConnectionsPerRoute(int maxConnections) {
-            // Implement in actual code
+            if (maxConnections <= 0) {
+                throw new IllegalArgumentException("Max connections per route must be positive");
+            }
+            this.maxConnectionsPerRoute = maxConnections;
             return this;
         }
 
         @Override
         public HttpClientBuilder withMaxTotalConnections(int maxConnections) {
-            // Implement in actual code
+            if (maxConnections <= 0) {
+                throw new IllegalArgumentException("Max total connections must be positive");
+            }
+            this.maxTotalConnections = maxConnections;
             return this;
         }
 
         @Override
         public HttpClientBuilder withConnectionTimeToLive(Duration ttl) {
-            // Implement in actual code
+            if (ttl != null && ttl.isNegative()) {
+                throw new IllegalArgumentException("Connection time-to-live must not be negative");
+            }
+            this.connectionTimeToLive = ttl;
             return this;
         }
         
@@ -372,6 +493,98 @@ public class DefaultHttpClientConfig implements HttpClientConfig {
             return this;
         }
         
+        /**
+         * Enables HTTP/2 for https origins. Concurrent requests to the same
+         * origin are then multiplexed as streams over a shared connection,
+         * negotiated via ALPN and falling back to HTTP/1.1 for servers that do
+         * not support it. Cleartext http requests are still sent over HTTP/1.1,
+         * as h2c with prior knowledge is not supported.
+         * 
+         * @param enabled true to enable HTTP/2
+         * @return this builder instance
+         */
+        public Builder withHttp2(boolean enabled) {
+            this.http2Enabled = enabled;
+            return this;
+        }
+        
+        /**
+         * Enables pipelining of idempotent requests (GET, HEAD and OPTIONS) on
+         * HTTP/1.1 connections. Responses are matched to requests in order, and
+         * unanswered requests are replayed on a fresh connection if the
+         * connection fails.
+         * 
+         * @param enabled true to enable pipelining
+         * @return this builder instance
+         */
+        public Builder withPipelining(boolean enabled) {
+            this.pipeliningEnabled = enabled;
+            return this;
+        }
+        
+        /**
+         * Sets the maximum number of requests in flight on a pipelined connection.
+         * 
+         * @param depth the maximum pipeline depth
+         * @return this builder instance
+         */
+        public Builder withMaxPipelineDepth(int depth) {
+            if (depth <= 0) {
+                throw new IllegalArgumentException("Pipeline depth must be positive");
+            }
+            this.maxPipelineDepth = depth;
+            return this;
+        }
+        
+        /**
+         * Enables streaming responses. Responses are then completed as soon as
+         * their headers arrive, and the body is read through
+         * {@link com.network.api.http.HttpResponse#getBodyPublisher()} or
+         * {@link com.network.api.http.HttpResponse#getBodyAsStream()} while it
+         * is still being received. Reading from the connection pauses while the
+         * consumer does not keep up.
+         * 
+         * @param enabled true to enable response streaming
+         * @return this builder instance
+         */
+        public Builder withResponseStreaming(boolean enabled) {
+            this.responseStreamingEnabled = enabled;
+            return this;
+        }
+        
+        /**
+         * Sets the pool of the buffers used for connection I/O and response
+         * assembly. Defaults to {@link BufferPool#shared()}.
+         * 
+         * @param bufferPool the buffer pool
+         * @return this builder instance
+         */
+        public Builder withBufferPool(BufferPool bufferPool) {
+            if (bufferPool == null) {
+                throw new IllegalArgumentException("Buffer pool must not be null");
+            }
+            this.bufferPool = bufferPool;
+            return this;
+        }
+        
+        /**
+         * Sets the resolver of the host names that HTTP/1.1 connections are
+         * opened to. Defaults to a {@link CachingAddressResolver} over
+         * {@link AddressResolver#system()}, created for each configuration.
+         * HTTP/2 connections are opened by the JDK client, which resolves
+         * hosts itself.
+         * 
+         * @param addressResolver the address resolver
+         * @return this builder instance
+         */
+        public Builder withAddressResolver(AddressResolver addressResolver) {
+            if (addressResolver == null) {
+                throw new IllegalArgumentException("Address resolver must not be null");
+            }
+            this.addressResolver = addressResolver;
+            return this;
+        }
+        
         /**
          * Sets the executor service.
          * 
@@ -1,13 +1,13 @@
 package com.network.impl.http;
 
+import com.network.api.http.HttpHeaders;
 import com.network.api.http.HttpMethod;
 import com.network.api.http.HttpRequest;
+import com.network.api.http.HttpRequestBody;
 import com.network.api.http.HttpRequestContext;
 
 import java.net.URI;
 import java.time.Duration;
-import java.util.Collections;
-import java.util.HashMap;
 import java.util.Map;
 
 /**
@@ -17,8 +17,8 @@ class DefaultHttpRequest implements HttpRequest, MutableHttpRequest {
 
     private final URI uri;
     private final HttpMethod method;
-    private final Map<String, String> headers;
-    private final byte[] body;
+    private final HttpHeaders headers;
+    private volatile HttpRequestBody body;
     private final Duration timeout;
     private final HttpRequestContext context;
     
@@ -32,22 +32,33 @@ class DefaultHttpRequest implements HttpRequest, MutableHttpRequest {
      * @param timeout the request timeout
      */
     DefaultHttpRequest(URI uri, HttpMethod method, Map<String, String> headers, byte[] body, Duration timeout) {
+        this(uri, method, headers, timeout, HttpRequestBody.ofBytes(body));
+    }
+    
+    private DefaultHttpRequest(URI uri, HttpMethod method, Map<String, String> headers, Duration timeout, HttpRequestBody body) {
         this.uri = uri;
         this.method = method;
-        this.headers = new HashMap<>(headers);
-        this.body = body;
+        // Headers taken from another request or response share its storage until modified
+        this.headers = HttpHeaders.copyOf(headers);
+        this.body = body != null ? body : HttpRequestBody.empty();
         this.timeout = timeout;
         this.context = new HttpRequestContext();
     }
 
     /**
-     * Gets the client that created this request.
+     * Creates a new DefaultHttpRequest whose body is not held in a byte array,
+     * such as a file or streaming body.
      * 
-     * @return the client
+     * @param uri     the request URI
+     * @param method  the HTTP method
+     * @param headers the request headers
+     * @param body    the request body
+     * @param timeout the request timeout
+     * @return the request
      */
-    DefaultHttpClient getClient() {
-        // This is just a stub for compilation
-        return null;
+    static DefaultHttpRequest withBody(URI uri, HttpMethod method, Map<String, String> headers,
+                                       HttpRequestBody body, Duration timeout) {
+        return new DefaultHttpRequest(uri, method, headers, timeout, body);
     }
 
     @Override
@@ -62,17 +73,22 @@ class DefaultHttpRequest implements HttpRequest, MutableHttpRequest {
 
     @Override
     public Map<String, String> getHeaders() {
-        return Collections.unmodifiableMap(headers);
+        return headers.asMap();
+    }
+
+    @Override
+    public HttpHeaders getHttpHeaders() {
+        return headers.snapshot();
     }
 
     @Override
     public String getHeader(String name) {
-        return headers.get(name);
+        return headers.getCombined(name);
     }
 
     @Override
     public boolean hasHeader(String name) {
-        return headers.containsKey(name);
+        return headers.contains(name);
     }
 
     @Override
@@ -80,11 +96,40 @@ class DefaultHttpRequest implements HttpRequest, MutableHttpRequest {
         return timeout;
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * <p>A body that can only be sent once is read into memory on the first
+     * call and replaced by the buffered copy, so the request can still be sent
+     * afterwards.
+     */
     @Override
     public byte[] getBody() {
+        HttpRequestBody current = body;
+        if (current.contentLength() == 0) {
+            return null;
+        }
+        if (!current.isRepeatable()) {
+            synchronized (this) {
+                if (!body.isRepeatable()) {
+                    body = HttpRequestBody.ofBytes(body.toByteArray());
+                }
+                current = body;
+            }
+        }
+        return current.toByteArray();
+    }
+
+    @Override
+    public HttpRequestBody getRequestBody() {
         return body;
     }
 
+    @Override
+    public boolean hasBody() {
+        return body.contentLength() != 0;
+    }
+
     @Override
     public HttpRequestContext getContext() {
         return context;
@@ -92,13 +137,13 @@ class DefaultHttpRequest implements HttpRequest, MutableHttpRequest {
 
     @Override
     public void addHeader(String name, String value) {
-        this.headers.put(name, value);
+        this.headers.set(name, value);
     }
 
     @Override
     public String toString() {
         return method + " " + uri + ", headers: " + headers.size() + 
-               ", body: " + (body == null ? "null" : body.length + " bytes");
+               ", body: " + (body.contentLength() < 0 ? "streaming" : body.contentLength() + " bytes");
     }
 }
 
@@ -1,26 +1,53 @@
 package com.network.impl.http;
 
+import com.network.api.http.HttpHeaders;
 import com.network.api.http.HttpRequest;
+import com.network.api.http.HttpRequestContext;
 import com.network.api.http.HttpResponse;
 import com.network.api.http.HttpResponseException;
+import com.network.api.http.HttpStatusCodes;
+import com.network.serialization.ContentNegotiatingSerializer;
 import com.network.serialization.Serializer;
 
+import java.io.InputStream;
 import java.net.URI;
-import java.util.Collections;
-import java.util.HashMap;
+import java.nio.ByteBuffer;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * Default implementation of the {@link HttpResponse} interface.
+ *
+ * <p>Bodies are deserialized at most once per target type; later calls of
+ * {@link #getBodyAs(Class)}, e.g. by middleware and then by the caller,
+ * return the same object. If the request declared its target type with
+ * {@link HttpRequestContext#RESPONSE_TYPE}, the typed body is decoded as soon
+ * as a successful response has arrived, on the client's executor if it has
+ * one.
  */
 class DefaultHttpResponse<T> implements HttpResponse<T>, MutableHttpResponse {
 
+    /** Stands for a body that was deserialized to null, as the cache cannot hold null. */
+    private static final Object NULL = new Object();
+
     private final int statusCode;
-    private final byte[] body;
-    private final Map<String, String> headers;
+    private volatile byte[] body;
+    private final StreamingResponseBody stream;
+    private final HttpHeaderBlock headerBlock;
+    private volatile HttpHeaders headers;
     private final URI uri;
     private final HttpRequest request;
-    private final T typedBody;
+    private final Serializer serializer;
+    private final Executor executor;
+    private final Class<?> declaredType;
+    private volatile T typedBody;
+    private volatile Map<Class<?>, Object> decoded;
     
     /**
      * Creates a new DefaultHttpResponse.
@@ -32,7 +59,24 @@ class DefaultHttpResponse<T> implements HttpResponse<T>, MutableHttpResponse {
      * @param request    the original request
      */
     DefaultHttpResponse(int statusCode, byte[] body, Map<String, String> headers, URI uri, HttpRequest request) {
-        this(statusCode, body, headers, uri, request, null);
+        this(statusCode, body, null, headers, uri, request, null, null, null);
+    }
+    
+    /**
+     * Creates a new DefaultHttpResponse that deserializes its body with the
+     * client's serializer.
+     * 
+     * @param statusCode the HTTP status code
+     * @param body       the response body
+     * @param headers    the response headers
+     * @param uri        the request URI
+     * @param request    the original request
+     * @param serializer the serializer of typed bodies, or null
+     * @param executor   the executor to decode typed bodies on, or null
+     */
+    DefaultHttpResponse(int statusCode, byte[] body, Map<String, String> headers, URI uri, HttpRequest request,
+                        Serializer serializer, Executor executor) {
+        this(statusCode, body, null, headers, uri, request, null, serializer, executor);
     }
     
     /**
@@ -46,12 +90,46 @@ class DefaultHttpResponse<T> implements HttpResponse<T>, MutableHttpResponse {
      * @param typedBody  the typed body
      */
     DefaultHttpResponse(int statusCode, byte[] body, Map<String, String> headers, URI uri, HttpRequest request, T typedBody) {
+        this(statusCode, body, null, headers, uri, request, typedBody, null, null);
+    }
+    
+    private DefaultHttpResponse(int statusCode, byte[] body, StreamingResponseBody stream, Map<String, String> headers,
+                                URI uri, HttpRequest request, T typedBody, Serializer serializer, Executor executor) {
         this.statusCode = statusCode;
         this.body = body;
-        this.headers = new HashMap<>(headers);
+        this.stream = stream;
+        // Parsed header blocks are immutable and indexed lazily, so they are only
+        // converted if the headers are modified or requested as HttpHeaders
+        if (headers instanceof HttpHeaderBlock) {
+            this.headerBlock = (HttpHeaderBlock) headers;
+        } else {
+            this.headerBlock = null;
+            this.headers = HttpHeaders.copyOf(headers).snapshot();
+        }
         this.uri = uri;
         this.request = request;
         this.typedBody = typedBody;
+        this.serializer = serializer;
+        this.executor = executor;
+        this.declaredType = request != null ? request.getContext().get(HttpRequestContext.RESPONSE_TYPE) : null;
+    }
+
+    /**
+     * Creates a response whose body is still arriving from the connection.
+     * 
+     * @param <T>        the type of the response body
+     * @param statusCode the HTTP status code
+     * @param stream     the response body
+     * @param headers    the response headers
+     * @param uri        the request URI
+     * @param request    the original request
+     * @param serializer the serializer of typed bodies, or null
+     * @param executor   the executor to decode typed bodies on, or null
+     * @return the response
+     */
+    static <T> DefaultHttpResponse<T> streaming(int statusCode, StreamingResponseBody stream, Map<String, String> headers,
+                                                URI uri, HttpRequest request, Serializer serializer, Executor executor) {
+        return new DefaultHttpResponse<>(statusCode, null, stream, headers, uri, request, null, serializer, executor);
     }
 
     @Override
@@ -79,56 +157,202 @@ class DefaultHttpResponse<T> implements HttpResponse<T>, MutableHttpResponse {
         return statusCode >= 400;
     }
 
+    /**
+     * {@inheritDoc}
+     * 
+     * <p>For streaming responses this blocks until the whole body has arrived.
+     */
     @Override
     public byte[] getBody() {
-        return body;
+        byte[] result = body;
+        if (result == null && stream != null) {
+            synchronized (this) {
+                result = body;
+                if (result == null) {
+                    result = stream.aggregate();
+                    body = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Flow.Publisher<ByteBuffer> getBodyPublisher() {
+        return stream != null && body == null ? stream : HttpResponse.super.getBodyPublisher();
+    }
+
+    @Override
+    public InputStream getBodyAsStream() {
+        return stream != null && body == null ? stream.asInputStream() : HttpResponse.super.getBodyAsStream();
+    }
+
+    /**
+     * Checks if the body of this response is delivered incrementally.
+     * 
+     * @return true if the body is streamed from the connection
+     */
+    boolean isStreaming() {
+        return stream != null;
     }
 
     @Override
     public String getBodyAsString() {
-        return body == null ? "" : new String(body);
+        byte[] bytes = getBody();
+        return bytes == null ? "" : new String(bytes, getCharset());
     }
 
+    /**
+     * {@inheritDoc}
+     * 
+     * <p>If the request declared its target type, the body is deserialized to
+     * it, once.
+     */
     @Override
+    @SuppressWarnings("unchecked")
     public T getBodyAs() {
-        return typedBody;
+        T result = typedBody;
+        if (result == null && declaredType != null) {
+            result = (T) getBodyAs(declaredType);
+            typedBody = result;
+        }
+        return result;
     }
 
     @Override
     @SuppressWarnings("unchecked")
     public <R> R getBodyAs(Class<R> type) {
-        if (body == null || body.length == 0) {
+        byte[] bytes = getBody();
+        if (bytes == null || bytes.length == 0) {
             return null;
         }
-        
-        // Use the client's serializer if the request came from our client
-        if (request instanceof DefaultHttpRequest && 
-            ((DefaultHttpRequest) request).getClient() instanceof DefaultHttpClient) {
-            
-            DefaultHttpClient client = (DefaultHttpClient) ((DefaultHttpRequest) request).getClient();
-            Serializer serializer = client.getSerializer();
-            
-            if (serializer != null) {
-                return serializer.deserialize(body, type);
+        if (serializer == null) {
+            throw new IllegalStateException("No serializer configured");
+        }
+        Object value = decodedBodies().computeIfAbsent(type, key -> {
+            Object result = ContentNegotiatingSerializer.select(serializer, getContentType()).deserialize(bytes, key);
+            return result != null ? result : NULL;
+        });
+        return value != NULL ? (R) value : null;
+    }
+
+    @Override
+    public Optional<Serializer> getSerializer() {
+        return Optional.ofNullable(serializer);
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * <p>The body is deserialized on the client's executor, or on the common
+     * pool if it has none, unless it has been deserialized to the type before.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public <R> CompletableFuture<R> getBodyAsAsync(Class<R> type) {
+        Map<Class<?>, Object> current = decoded;
+        Object value = current != null ? current.get(type) : null;
+        if (value != null) {
+            return CompletableFuture.completedFuture(value != NULL ? (R) value : null);
+        }
+        return CompletableFuture.supplyAsync(() -> getBodyAs(type), executor != null ? executor : ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Decodes the typed body the request declared, if any, so that
+     * {@link #getBodyAs()} returns it right away. A failure is not thrown
+     * here but when the caller asks for the typed body.
+     */
+    void decodeDeclaredBody() {
+        if (hasUndecodedBody()) {
+            try {
+                getBodyAs();
+            } catch (RuntimeException e) {
+                // Thrown again when the caller asks for the typed body
             }
         }
-        
-        throw new IllegalStateException("No serializer configured");
+    }
+
+    /**
+     * Completes a future with this response once the typed body the request
+     * declared has been decoded. Decoding runs on the client's executor if it
+     * has one, so that it does not hold up the thread reading the connection.
+     * 
+     * @param future the future to complete
+     */
+    void complete(CompletableFuture<? super DefaultHttpResponse<T>> future) {
+        if (!hasUndecodedBody()) {
+            future.complete(this);
+            return;
+        }
+        Runnable decodeAndComplete = () -> {
+            decodeDeclaredBody();
+            future.complete(this);
+        };
+        if (executor == null) {
+            decodeAndComplete.run();
+            return;
+        }
+        try {
+            executor.execute(decodeAndComplete);
+        } catch (RejectedExecutionException e) {
+            decodeAndComplete.run();
+        }
+    }
+
+    /**
+     * Checks if the request declared a typed body that can be decoded now.
+     * Streaming bodies are decoded when they are asked for, and error
+     * responses rarely have the declared type.
+     */
+    private boolean hasUndecodedBody() {
+        return declaredType != null && typedBody == null && stream == null && serializer != null && isSuccessful();
+    }
+
+    private Map<Class<?>, Object> decodedBodies() {
+        Map<Class<?>, Object> current = decoded;
+        if (current == null) {
+            synchronized (this) {
+                current = decoded;
+                if (current == null) {
+                    current = new ConcurrentHashMap<>(4);
+                    decoded = current;
+                }
+            }
+        }
+        return current;
     }
 
     @Override
     public Map<String, String> getHeaders() {
-        return Collections.unmodifiableMap(headers);
+        HttpHeaders current = headers;
+        return current != null ? current.asMap() : headerBlock;
+    }
+
+    @Override
+    public HttpHeaders getHttpHeaders() {
+        HttpHeaders current = headers;
+        if (current == null) {
+            synchronized (this) {
+                current = headers;
+                if (current == null) {
+                    current = headerBlock.toHttpHeaders();
+                    headers = current;
+                }
+            }
+        }
+        return current;
     }
 
     @Override
     public String getHeader(String name) {
-        return headers.get(name);
+        HttpHeaders current = headers;
+        return current != null ? current.getCombined(name) : headerBlock.get(name);
     }
 
     @Override
     public String getContentType() {
-        return headers.get("Content-Type");
+        return getHeader("Content-Type");
     }
 
     @Override
@@ -155,106 +379,16 @@ class DefaultHttpResponse<T> implements HttpResponse<T>, MutableHttpResponse {
     }
 
     @Override
-    public void addHeader(String name, String value) {
-        this.headers.put(name, value);
+    public synchronized void addHeader(String name, String value) {
+        // Copy on write, so readers always see an immutable snapshot
+        headers = getHttpHeaders().copy().set(name, value).snapshot();
     }
 
     @Override
     public String toString() {
         return "HTTP " + statusCode + " " + getStatusMessage() + ", " +
-               "headers: " + headers.size() + ", " +
-               "body: " + (body == null ? "null" : body.length + " bytes");
-    }
-    
-    /**
-     * Utility class for HTTP status code messages.
-     */
-    private static class HttpStatusCodes {
-        private static final Map<Integer, String> STATUS_MESSAGES = new HashMap<>();
-        
-        static {
-            // 1xx Informational
-            STATUS_MESSAGES.put(100, "Continue");
-            STATUS_MESSAGES.put(101, "Switching Protocols");
-            STATUS_MESSAGES.put(102, "Processing");
-            STATUS_MESSAGES.put(103, "Early Hints");
-            
-            // 2xx Success
-            STATUS_MESSAGES.put(200, "OK");
-            STATUS_MESSAGES.put(201, "Created");
-            STATUS_MESSAGES.put(202, "Accepted");
-            STATUS_MESSAGES.put(203, "Non-Authoritative Information");
-            STATUS_MESSAGES.put(204, "No Content");
-            STATUS_MESSAGES.put(205, "Reset Content");
-            STATUS_MESSAGES.put(206, "Partial Content");
-            STATUS_MESSAGES.put(207, "Multi-Status");
-            STATUS_MESSAGES.put(208, "Already Reported");
-            STATUS_MESSAGES.put(226, "IM Used");
-            
-            // 3xx Redirection
-            STATUS_MESSAGES.put(300, "Multiple Choices");
-            STATUS_MESSAGES.put(301, "Moved Permanently");
-            STATUS_MESSAGES.put(302, "Found");
-            STATUS_MESSAGES.put(303, "See Other");
-            STATUS_MESSAGES.put(304, "Not Modified");
-            STATUS_MESSAGES.put(305, "Use Proxy");
-            STATUS_MESSAGES.put(307, "Temporary Redirect");
-            STATUS_MESSAGES.put(308, "Permanent Redirect");
-            
-            // 4xx Client Errors
-            STATUS_MESSAGES.put(400, "Bad Request");
-            STATUS_MESSAGES.put(401, "Unauthorized");
-            STATUS_MESSAGES.put(402, "Payment Required");
-            STATUS_MESSAGES.put(403, "Forbidden");
-            STATUS_MESSAGES.put(404, "Not Found");
-            STATUS_MESSAGES.put(405, "Method Not Allowed");
-            STATUS_MESSAGES.put(406, "Not Acceptable");
-            STATUS_MESSAGES.put(407, "Proxy Authentication Required");
-            STATUS_MESSAGES.put(408, "Request Timeout");
-            STATUS_MESSAGES.put(409, "Conflict");
-            STATUS_MESSAGES.put(410, "Gone");
-            STATUS_MESSAGES.put(411, "Length Required");
-            STATUS_MESSAGES.put(412, "Precondition Failed");
-            STATUS_MESSAGES.put(413, "Payload Too Large");
-            STATUS_MESSAGES.put(414, "URI Too Long");
-            STATUS_MESSAGES.put(415, "Unsupported Media Type");
-            STATUS_MESSAGES.put(416, "Range Not Satisfiable");
-            STATUS_MESSAGES.put(417, "Expectation Failed");
-            STATUS_MESSAGES.put(418, "I'm a teapot");
-            STATUS_MESSAGES.put(421, "Misdirected Request");
-            STATUS_MESSAGES.put(422, "Unprocessable Entity");
-            STATUS_MESSAGES.put(423, "Locked");
-            STATUS_MESSAGES.put(424, "Failed Dependency");
-            STATUS_MESSAGES.put(425, "Too Early");
-            STATUS_MESSAGES.put(426, "Upgrade Required");
-            STATUS_MESSAGES.put(428, "Precondition Required");
-            STATUS_MESSAGES.put(429, "Too Many Requests");
-            STATUS_MESSAGES.put(431, "Request Header Fields Too Large");
-            STATUS_MESSAGES.put(451, "Unavailable For Legal Reasons");
-            
-            // 5xx Server Errors
-            STATUS_MESSAGES.put(500, "Internal Server Error");
-            STATUS_MESSAGES.put(501, "Not Implemented");
-            STATUS_MESSAGES.put(502, "Bad Gateway");
-            STATUS_MESSAGES.put(503, "Service Unavailable");
-            STATUS_MESSAGES.put(504, "Gateway Timeout");
-            STATUS_MESSAGES.put(505, "HTTP Version Not Supported");
-            STATUS_MESSAGES.put(506, "Variant Also Negotiates");
-            STATUS_MESSAGES.put(507, "Insufficient Storage");
-            STATUS_MESSAGES.put(508, "Loop Detected");
-            STATUS_MESSAGES.put(510, "Not Extended");
-            STATUS_MESSAGES.put(511, "Network Authentication Required");
-        }
-        
-        /**
-         * Gets the message for the specified status code.
-         * 
-         * @param statusCode the status code
-         * @return the message, or "Unknown" if not found
-         */
-        static String getMessage(int statusCode) {
-            return STATUS_MESSAGES.getOrDefault(statusCode, "Unknown");
-        }
+               "headers: " + getHeaders().size() + ", " +
+               "body: " + (body == null ? (stream != null ? "streaming" : "null") : body.length + " bytes");
     }
 }
 
@@ -0,0 +1,242 @@
+package com.network.impl.http;
+
+import com.network.api.connection.Connection;
+import com.network.api.connection.Protocol;
+import com.network.api.http.HttpRequest;
+import com.network.api.http.HttpRequestBody;
+import com.network.buffer.BufferPool;
+import com.network.buffer.PooledBuffer;
+import com.network.exception.ConnectionException;
+
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Serializes requests into HTTP/1.1 wire format.
+ *
+ * <p>Only the request head is encoded into a buffer, which is taken from a
+ * {@link BufferPool} and returned once it has been sent. The body is written
+ * straight from its {@link HttpRequestBody}, so file bodies can be handed to
+ * the connection without being copied into the heap. Bodies of unknown length
+ * are sent with chunked transfer coding.
+ */
+final class Http1RequestEncoder {
+
+    private static final byte[] CRLF = {'\r', '\n'};
+    private static final byte[] LAST_CHUNK = {'0', '\r', '\n', '\r', '\n'};
+
+    private Http1RequestEncoder() {
+        // Utility class
+    }
+
+    /**
+     * Writes a request, including its body, to a connection.
+     *
+     * @param connection the connection
+     * @param request    the request
+     * @param pool       the pool of the head buffer
+     * @return a CompletableFuture that completes when the request has been written
+     */
+    static CompletableFuture<Void> write(Connection connection, HttpRequest request, BufferPool pool) {
+        HttpRequestBody body = request.getRequestBody();
+        long length = body.contentLength();
+        PooledBuffer encoded = encodeHead(pool, request, length);
+        CompletableFuture<Void> head;
+        try {
+            head = connection.sendAsync(encoded.buffer());
+        } catch (RuntimeException e) {
+            encoded.release();
+            throw e;
+        }
+        head.whenComplete((ignored, error) -> encoded.release());
+        if (length == 0) {
+            return head;
+        }
+        if (length > 0) {
+            return head.thenCompose(ignored -> body.writeTo(connection));
+        }
+        return head
+            .thenCompose(ignored -> body.writeTo(new ChunkedConnection(connection)))
+            .thenCompose(ignored -> connection.sendAsync(LAST_CHUNK));
+    }
+
+    /**
+     * Encodes the request line and headers.
+     *
+     * @param pool          the pool to take the buffer from
+     * @param request       the request
+     * @param contentLength the body length, 0 for no body or -1 if unknown
+     * @return the encoded head, flipped for reading; the caller must release it
+     */
+    static PooledBuffer encodeHead(BufferPool pool, HttpRequest request, long contentLength) {
+        HeadWriter out = new HeadWriter(pool);
+
+        URI uri = request.getUri();
+        writeAscii(out, request.getMethod().name());
+        out.write(' ');
+        writeAscii(out, requestTarget(uri));
+        writeAscii(out, " HTTP/1.1");
+        out.write(CRLF, 0, CRLF.length);
+
+        if (!request.hasHeader("Host")) {
+            writeHeader(out, "Host", hostHeader(uri));
+        }
+        // Repeated headers are written as separate lines
+        request.getHttpHeaders().forEach((name, value) -> {
+            if (!"Content-Length".equalsIgnoreCase(name) && !"Transfer-Encoding".equalsIgnoreCase(name)) {
+                writeHeader(out, name, value);
+            }
+        });
+        if (contentLength > 0) {
+            writeHeader(out, "Content-Length", Long.toString(contentLength));
+        } else if (contentLength < 0) {
+            writeHeader(out, "Transfer-Encoding", "chunked");
+        }
+        out.write(CRLF, 0, CRLF.length);
+        return out.finish();
+    }
+
+    /**
+     * Builds the origin-form request target, e.g. {@code /path?query}.
+     */
+    private static String requestTarget(URI uri) {
+        String path = uri.getRawPath();
+        if (path == null || path.isEmpty()) {
+            path = "/";
+        }
+        String query = uri.getRawQuery();
+        return query == null ? path : path + "?" + query;
+    }
+
+    /**
+     * Builds the Host header value, omitting the port if it is the default.
+     */
+    private static String hostHeader(URI uri) {
+        int port = uri.getPort();
+        boolean defaultPort = port == -1
+            || ("http".equalsIgnoreCase(uri.getScheme()) && port == 80)
+            || ("https".equalsIgnoreCase(uri.getScheme()) && port == 443);
+        return defaultPort ? uri.getHost() : uri.getHost() + ":" + port;
+    }
+
+    private static void writeHeader(HeadWriter out, String name, String value) {
+        writeAscii(out, name);
+        out.write(':');
+        out.write(' ');
+        byte[] bytes = value.getBytes(StandardCharsets.ISO_8859_1);
+        out.write(bytes, 0, bytes.length);
+        out.write(CRLF, 0, CRLF.length);
+    }
+
+    private static void writeAscii(HeadWriter out, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            out.write(value.charAt(i));
+        }
+    }
+
+    private static byte[] chunkHeader(int size) {
+        return (Integer.toHexString(size) + "\r\n").getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Writes bytes into a pooled buffer, moving to a larger one when it is full.
+     */
+    private static final class HeadWriter {
+        private final BufferPool pool;
+        private PooledBuffer pooled;
+        private ByteBuffer buffer;
+
+        HeadWriter(BufferPool pool) {
+            this.pool = pool;
+            this.pooled = pool.acquire(512);
+            this.buffer = pooled.buffer();
+        }
+
+        void write(int b) {
+            ensure(1);
+            buffer.put((byte) b);
+        }
+
+        void write(byte[] bytes, int offset, int length) {
+            ensure(length);
+            buffer.put(bytes, offset, length);
+        }
+
+        PooledBuffer finish() {
+            buffer.flip();
+            return pooled;
+        }
+
+        private void ensure(int count) {
+            if (buffer.remaining() < count) {
+                PooledBuffer larger = pool.acquire(Math.max(buffer.capacity() * 2, buffer.position() + count));
+                buffer.flip();
+                larger.buffer().put(buffer);
+                pooled.release();
+                pooled = larger;
+                buffer = larger.buffer();
+            }
+        }
+    }
+
+    /**
+     * Frames everything sent through it as one HTTP/1.1 chunk per write.
+     */
+    private static final class ChunkedConnection implements Connection {
+        private final Connection delegate;
+
+        ChunkedConnection(Connection delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void send(byte[] data) throws ConnectionException {
+            if (data.length > 0) {
+                delegate.send(chunkHeader(data.length));
+                delegate.send(data);
+                delegate.send(CRLF);
+            }
+        }
+
+        @Override
+        public void send(ByteBuffer data) throws ConnectionException {
+            if (data.hasRemaining()) {
+                delegate.send(chunkHeader(data.remaining()));
+                delegate.send(data);
+                delegate.send(CRLF);
+            }
+        }
+
+        @Override
+        public CompletableFuture<Void> sendAsync(ByteBuffer data) {
+            if (!data.hasRemaining()) {
+                return CompletableFuture.completedFuture(null);
+            }
+            return delegate.sendAsync(chunkHeader(data.remaining()))
+                .thenCompose(ignored -> delegate.sendAsync(data))
+                .thenCompose(ignored -> delegate.sendAsync(CRLF));
+        }
+
+        @Override
+        public CompletableFuture<Void> sendAsync(byte[] data) {
+            return sendAsync(ByteBuffer.wrap(data));
+        }
+
+        @Override
+        public boolean isConnected() {
+            return delegate.isConnected();
+        }
+
+        @Override
+        public Protocol getProtocol() {
+            return delegate.getProtocol();
+        }
+
+        @Override
+        public void close() {
+            delegate.close();
+        }
+    }
+}
@@ -0,0 +1,328 @@
+package com.network.impl.http;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Incremental, byte-level parser for HTTP/1.1 responses.
+ *
+ * <p>Data is fed in {@link ByteBuffer}s of arbitrary size as it arrives from
+ * the connection. The parser is a state machine that looks at each byte at
+ * most once. The head of each response is reported to the {@link Listener} as
+ * a {@link HttpHeaderBlock} over the raw header bytes, and body parts are
+ * reported as slices of the input buffer, so the body is never copied by the
+ * parser. Several responses may be completed by a single buffer when requests
+ * are pipelined. Interim {@code 1xx} responses are consumed silently.
+ */
+final class Http1ResponseParser {
+
+    /**
+     * Receives the responses decoded by a parser.
+     */
+    interface Listener {
+
+        /**
+         * Checks if the response currently being parsed may have a body, which
+         * is not the case for responses to {@code HEAD} requests.
+         *
+         * @return true if a body is expected
+         */
+        boolean expectsBody();
+
+        /**
+         * Called when the status line and headers of a final response have been parsed.
+         *
+         * @param statusCode the status code
+         * @param headers    the response headers
+         */
+        void onHead(int statusCode, HttpHeaderBlock headers);
+
+        /**
+         * Called for each part of the response body as it arrives. The buffer
+         * is a read-only slice of the parser input and is only valid during the
+         * call; it must be copied to be retained.
+         *
+         * @param chunk the body part
+         */
+        void onBody(ByteBuffer chunk);
+
+        /**
+         * Called when the response is complete.
+         */
+        void onComplete();
+    }
+
+    /**
+     * Exception thrown when the peer sends malformed data.
+     */
+    static final class ParseException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        ParseException(String message) {
+            super(message);
+        }
+    }
+
+    private enum State {
+        HEAD, FIXED_BODY, CHUNK_SIZE, CHUNK_EXTENSION, CHUNK_DATA, CHUNK_DATA_END, TRAILERS, UNTIL_CLOSE
+    }
+
+    private static final int MAX_HEAD_SIZE = 64 * 1024;
+
+    private final Listener listener;
+    private State state = State.HEAD;
+
+    /** Accumulates the response head, which may span several input buffers. */
+    private byte[] head = new byte[1024];
+    private int headLength;
+    private int lineLength;
+
+    private long remaining;
+    private int chunkDigits;
+
+    Http1ResponseParser(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Feeds received data to the parser. The buffer is consumed completely.
+     *
+     * @param in the received data
+     * @throws ParseException if the data is not a valid HTTP/1.1 response stream
+     */
+    void feed(ByteBuffer in) {
+        while (in.hasRemaining()) {
+            switch (state) {
+                case HEAD:
+                    parseHead(in);
+                    break;
+                case FIXED_BODY:
+                    emitBody(in, remaining);
+                    if (remaining == 0) {
+                        complete();
+                    }
+                    break;
+                case CHUNK_SIZE:
+                    parseChunkSize(in.get());
+                    break;
+                case CHUNK_EXTENSION:
+                    if (in.get() == '\n') {
+                        endChunkSize();
+                    }
+                    break;
+                case CHUNK_DATA:
+                    emitBody(in, remaining);
+                    if (remaining == 0) {
+                        state = State.CHUNK_DATA_END;
+                    }
+                    break;
+                case CHUNK_DATA_END: {
+                    byte b = in.get();
+                    if (b == '\n') {
+                        state = State.CHUNK_SIZE;
+                    } else if (b != '\r') {
+                        throw new ParseException("Missing CRLF after chunk data");
+                    }
+                    break;
+                }
+                case TRAILERS:
+                    parseTrailer(in.get());
+                    break;
+                case UNTIL_CLOSE:
+                    emitBody(in, Long.MAX_VALUE);
+                    break;
+                default:
+                    throw new IllegalStateException("Unexpected state " + state);
+            }
+        }
+    }
+
+    /**
+     * Feeds received data to the parser.
+     *
+     * @param data the received data
+     * @throws ParseException if the data is not a valid HTTP/1.1 response stream
+     */
+    void feed(byte[] data) {
+        feed(ByteBuffer.wrap(data));
+    }
+
+    /**
+     * Signals that the peer closed the connection. Completes a response whose
+     * body is delimited by the end of the connection.
+     *
+     * @return true if the parser was between responses or completed one
+     */
+    boolean endOfInput() {
+        if (state == State.UNTIL_CLOSE) {
+            complete();
+            return true;
+        }
+        return isIdle();
+    }
+
+    /**
+     * Checks if the parser is between two responses.
+     *
+     * @return true if no response is partially parsed
+     */
+    boolean isIdle() {
+        return state == State.HEAD && headLength == 0;
+    }
+
+    private void parseHead(ByteBuffer in) {
+        while (in.hasRemaining()) {
+            byte b = in.get();
+            if (headLength == head.length) {
+                if (headLength >= MAX_HEAD_SIZE) {
+                    throw new ParseException("Response header block too large");
+                }
+                head = Arrays.copyOf(head, Math.min(head.length * 2, MAX_HEAD_SIZE));
+            }
+            head[headLength++] = b;
+
+            if (b == '\n') {
+                if (lineLength == 0) {
+                    onHeadComplete();
+                    return;
+                }
+                lineLength = 0;
+            } else if (b != '\r') {
+                lineLength++;
+            }
+        }
+    }
+
+    private void onHeadComplete() {
+        int length = headLength;
+        headLength = 0;
+        lineLength = 0;
+
+        int statusLineEnd = 0;
+        while (head[statusLineEnd] != '\n') {
+            statusLineEnd++;
+        }
+        if (statusLineEnd == length - 1) {
+            // Blank lines before the status line are tolerated
+            return;
+        }
+        int statusCode = parseStatusLine(statusLineEnd);
+        if (statusCode >= 100 && statusCode < 200) {
+            // Interim response; the final response follows
+            return;
+        }
+
+        // The header lines are copied once; the block indexes them lazily
+        int headersStart = statusLineEnd + 1;
+        HttpHeaderBlock headers = new HttpHeaderBlock(Arrays.copyOfRange(head, headersStart, length),
+                                                      0, length - headersStart);
+        boolean expectsBody = listener.expectsBody();
+        // The framing is worked out before the head is reported, so that a malformed
+        // Content-Length fails the parse instead of reaching the listener
+        State next;
+        long bodyLength = 0;
+        if (!expectsBody || statusCode == 204 || statusCode == 304) {
+            next = null;
+        } else if (headers.containsToken("Transfer-Encoding", "chunked")) {
+            next = State.CHUNK_SIZE;
+        } else if (headers.containsKey("Content-Length")) {
+            try {
+                bodyLength = headers.getLong("Content-Length", 0);
+            } catch (NumberFormatException e) {
+                throw new ParseException(e.getMessage());
+            }
+            next = bodyLength == 0 ? null : State.FIXED_BODY;
+        } else {
+            next = State.UNTIL_CLOSE;
+        }
+        listener.onHead(statusCode, headers);
+
+        if (next == null) {
+            complete();
+        } else {
+            remaining = bodyLength;
+            chunkDigits = 0;
+            state = next;
+        }
+    }
+
+    /**
+     * Parses {@code HTTP/1.x SSS reason} without allocating.
+     */
+    private int parseStatusLine(int end) {
+        if (end < 12 || head[0] != 'H' || head[1] != 'T' || head[2] != 'T' || head[3] != 'P'
+            || head[4] != '/' || head[5] != '1' || head[6] != '.' || head[8] != ' ') {
+            throw new ParseException("Invalid status line");
+        }
+        int statusCode = 0;
+        for (int i = 9; i < 12; i++) {
+            int digit = head[i] - '0';
+            if (digit < 0 || digit > 9) {
+                throw new ParseException("Invalid status code");
+            }
+            statusCode = statusCode * 10 + digit;
+        }
+        return statusCode;
+    }
+
+    private void parseChunkSize(byte b) {
+        int digit = Character.digit(b, 16);
+        if (digit >= 0) {
+            if (++chunkDigits > 15) {
+                throw new ParseException("Chunk size too large");
+            }
+            remaining = remaining * 16 + digit;
+        } else if (b == ';' || b == ' ' || b == '\t') {
+            state = State.CHUNK_EXTENSION;
+        } else if (b == '\n') {
+            endChunkSize();
+        } else if (b != '\r') {
+            throw new ParseException("Invalid chunk size");
+        }
+    }
+
+    private void endChunkSize() {
+        if (chunkDigits == 0) {
+            throw new ParseException("Missing chunk size");
+        }
+        chunkDigits = 0;
+        if (remaining == 0) {
+            lineLength = 0;
+            state = State.TRAILERS;
+        } else {
+            state = State.CHUNK_DATA;
+        }
+    }
+
+    private void parseTrailer(byte b) {
+        // Trailer fields are not exposed; only the terminating blank line matters
+        if (b == '\n') {
+            if (lineLength == 0) {
+                complete();
+            }
+            lineLength = 0;
+        } else if (b != '\r') {
+            lineLength++;
+        }
+    }
+
+    private void emitBody(ByteBuffer in, long max) {
+        int length = (int) Math.min(max, in.remaining());
+        if (length > 0) {
+            ByteBuffer chunk = in.slice();
+            chunk.limit(length);
+            in.position(in.position() + length);
+            if (max != Long.MAX_VALUE) {
+                remaining -= length;
+            }
+            listener.onBody(chunk.asReadOnlyBuffer());
+        }
+    }
+
+    private void complete() {
+        state = State.HEAD;
+        remaining = 0;
+        lineLength = 0;
+        listener.onComplete();
+    }
+}
@@ -0,0 +1,563 @@
+package com.network.impl.http;
+
+import com.network.api.connection.Connection;
+import com.network.api.connection.ConnectionListener;
+import com.network.api.http.HttpMethod;
+import com.network.api.http.HttpRequest;
+import com.network.api.http.HttpResponse;
+import com.network.buffer.BufferPool;
+import com.network.dns.AddressResolver;
+import com.network.dns.HappyEyeballs;
+import com.network.serialization.Serializer;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * HTTP/1.1 transport over pooled {@link Connection}s.
+ *
+ * <p>By default each connection carries one request at a time. When pipelining
+ * is enabled, idempotent requests ({@code GET}, {@code HEAD} and {@code OPTIONS})
+ * to the same route are written back-to-back on a shared connection without
+ * waiting for the previous response. Responses arrive in request order and are
+ * matched to their futures by position. If a pipelined connection fails, the
+ * requests that have not been answered yet are replayed on a fresh connection.
+ *
+ * <p>With response streaming enabled, each response is handed to the caller as
+ * soon as its head has been parsed and the body follows through a
+ * {@link StreamingResponseBody}. Reading from the connection is suspended while
+ * the consumer is not keeping up.
+ *
+ * <p>Request heads are encoded into pooled buffers, and bodies that are not
+ * streamed are assembled in pooled buffers too, so that neither grows a
+ * temporary array per response.
+ */
+final class Http1Transport implements HttpTransport, ConnectionListener {
+
+    /**
+     * Methods that are safe to pipeline and to replay after a connection failure.
+     */
+    static final Set<HttpMethod> PIPELINEABLE_METHODS = EnumSet.of(HttpMethod.GET, HttpMethod.HEAD, HttpMethod.OPTIONS);
+
+    /**
+     * How many times an unanswered pipelined request is replayed before giving up.
+     */
+    private static final int MAX_REPLAYS = 3;
+
+    /**
+     * Opens connections that report their events to a listener.
+     */
+    interface Connector {
+
+        /**
+         * Opens a connection to a route.
+         *
+         * @param route    the route
+         * @param listener the listener that receives the connection's events
+         * @return a future that completes with the connected connection
+         */
+        CompletableFuture<Connection> connect(HttpRoute route, ConnectionListener listener);
+
+        /**
+         * Creates a connector that resolves the host of a route and races
+         * connections to its addresses with {@link HappyEyeballs}.
+         *
+         * @param resolver  the resolver of the hosts
+         * @param connector opens a connection to one address
+         * @return the connector
+         */
+        static Connector resolving(AddressResolver resolver, AddressConnector connector) {
+            return (route, listener) -> HappyEyeballs.connect(resolver, route.getHost(), route.getPort(),
+                HappyEyeballs.DEFAULT_ATTEMPT_DELAY, address -> connector.connect(route, address, listener));
+        }
+    }
+
+    /**
+     * Opens connections to resolved addresses.
+     */
+    interface AddressConnector {
+
+        /**
+         * Opens a connection to one address of a route. The host of the
+         * route is still the one to verify TLS certificates against.
+         *
+         * @param route    the route
+         * @param address  the resolved address to connect to
+         * @param listener the listener that receives the connection's events
+         * @return a future that completes with the connected connection
+         */
+        CompletableFuture<Connection> connect(HttpRoute route, InetSocketAddress address, ConnectionListener listener);
+    }
+
+    private final HttpConnectionPool pool;
+    private final boolean pipelining;
+    private final int maxPipelineDepth;
+    private final boolean streaming;
+    private final BufferPool buffers;
+    private final Serializer serializer;
+    private final Executor executor;
+    private final Duration requestTimeout;
+    private final Map<Connection, Pipeline> pipelines = new ConcurrentHashMap<>();
+    private final Map<HttpRoute, Pipeline> openPipelines = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a new HTTP/1.1 transport that resolves hosts with the
+     * {@link DefaultHttpClientConfig#getAddressResolver() resolver} of the
+     * configuration.
+     *
+     * @param connector opens connections to resolved addresses
+     * @param config    the client configuration
+     */
+    Http1Transport(AddressConnector connector, DefaultHttpClientConfig config) {
+        this(Connector.resolving(config.getAddressResolver(), connector), config);
+    }
+
+    /**
+     * Creates a new HTTP/1.1 transport.
+     *
+     * @param connector opens new connections
+     * @param config    the client configuration
+     */
+    Http1Transport(Connector connector, DefaultHttpClientConfig config) {
+        Duration connectTimeout = config.getConnectTimeout();
+        this.pool = new HttpConnectionPool(route -> connect(connector, route, connectTimeout), config);
+        this.pipelining = config.isPipeliningEnabled();
+        this.maxPipelineDepth = config.getMaxPipelineDepth();
+        this.streaming = config.isResponseStreamingEnabled();
+        this.buffers = config.getBufferPool();
+        this.serializer = config.getSerializer().orElse(null);
+        this.executor = config.getExecutor();
+        this.requestTimeout = config.getRequestTimeout();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>The timeout of the request, or the request timeout of the
+     * configuration, bounds the time until the response is complete, or
+     * until its head arrives if the body is streamed. The connection of a
+     * request that times out is closed; requests pipelined behind it are
+     * replayed on another connection.
+     */
+    @Override
+    public CompletableFuture<HttpResponse<?>> execute(HttpRequest request) {
+        Exchange exchange = new Exchange(request);
+        Duration timeout = request.getTimeout() != null ? request.getTimeout() : requestTimeout;
+        if (timeout != null) {
+            exchange.future.orTimeout(timeout.toNanos(), TimeUnit.NANOSECONDS);
+        }
+        dispatch(exchange);
+        return exchange.future;
+    }
+
+    /**
+     * Opens a connection for the pool, failing the attempt after the connect timeout.
+     */
+    private CompletableFuture<Connection> connect(Connector connector, HttpRoute route, Duration timeout) {
+        CompletableFuture<Connection> attempt = connector.connect(route, this);
+        if (timeout == null) {
+            return attempt;
+        }
+        CompletableFuture<Connection> bounded = new CompletableFuture<Connection>()
+            .orTimeout(timeout.toNanos(), TimeUnit.NANOSECONDS);
+        attempt.whenComplete((connection, error) -> {
+            if (error != null) {
+                bounded.completeExceptionally(error);
+            } else if (!bounded.complete(connection)) {
+                // A connection that is established after the timeout is not used
+                connection.close();
+            }
+        });
+        return bounded;
+    }
+
+    /**
+     * Sends an exchange, joining an open pipeline for its route if possible.
+     */
+    private void dispatch(Exchange exchange) {
+        if (exchange.future.isDone()) {
+            // Cancelled before it was sent, e.g. a hedged copy that lost
+            return;
+        }
+        HttpRoute route = HttpRoute.of(exchange.request.getUri());
+        boolean pipelineable = pipelining && PIPELINEABLE_METHODS.contains(exchange.request.getMethod());
+
+        if (pipelineable) {
+            Pipeline open = openPipelines.get(route);
+            if (open != null && open.offer(exchange)) {
+                watch(open, exchange);
+                return;
+            }
+        }
+
+        CompletableFuture<Connection> lease = pool.acquire(route);
+        lease.whenComplete((connection, error) -> {
+            if (error != null) {
+                exchange.future.completeExceptionally(error);
+                return;
+            }
+            if (exchange.future.isDone()) {
+                pool.release(connection, true);
+                return;
+            }
+            Pipeline pipeline = new Pipeline(route, connection, pipelineable);
+            pipelines.put(connection, pipeline);
+            if (pipelineable) {
+                openPipelines.put(route, pipeline);
+            }
+            if (pipeline.offer(exchange)) {
+                watch(pipeline, exchange);
+            } else {
+                // The connection failed before the first request could be written
+                dispatch(exchange);
+            }
+        });
+        // A caller that gives up while waiting for a connection leaves the queue of the pool
+        exchange.future.whenComplete((response, failure) -> lease.cancel(false));
+    }
+
+    /**
+     * Gives up the connection of an exchange that times out, or that is
+     * cancelled while it has the connection to itself, if the exchange is
+     * still waiting for its response.
+     */
+    private static void watch(Pipeline pipeline, Exchange exchange) {
+        exchange.future.whenComplete((response, failure) -> {
+            if (failure instanceof TimeoutException
+                || (exchange.future.isCancelled() && !pipeline.shared)) {
+                pipeline.abort(exchange, failure);
+            }
+        });
+    }
+
+    @Override
+    public void onConnect(Connection connection) {
+        // Pipelines are created when the pool hands out the connection
+    }
+
+    @Override
+    public void onDataReceived(Connection connection, byte[] data) {
+        onDataReceived(connection, ByteBuffer.wrap(data));
+    }
+
+    @Override
+    public void onDataReceived(Connection connection, ByteBuffer data) {
+        // The parser copies what it keeps, so the connection may reuse the buffer afterwards
+        Pipeline pipeline = pipelines.get(connection);
+        if (pipeline != null) {
+            pipeline.onData(data);
+        }
+    }
+
+    @Override
+    public void onDisconnect(Connection connection) {
+        Pipeline pipeline = pipelines.get(connection);
+        if (pipeline != null) {
+            pipeline.onClosed(new IOException("Connection closed by peer"));
+        }
+    }
+
+    @Override
+    public void onError(Connection connection, Throwable throwable) {
+        Pipeline pipeline = connection != null ? pipelines.get(connection) : null;
+        if (pipeline != null) {
+            pipeline.onClosed(throwable);
+        }
+    }
+
+    @Override
+    public void close() {
+        pool.close();
+    }
+
+    /**
+     * A request waiting for its response.
+     */
+    private static final class Exchange {
+        final HttpRequest request;
+        final CompletableFuture<HttpResponse<?>> future = new CompletableFuture<>();
+        int replays;
+
+        Exchange(HttpRequest request) {
+            this.request = request;
+        }
+    }
+
+    /**
+     * The in-flight requests on one leased connection, in the order they were written.
+     */
+    private final class Pipeline implements Http1ResponseParser.Listener {
+        private final HttpRoute route;
+        private final Connection connection;
+        private final boolean shared;
+        private final ArrayDeque<Exchange> inFlight = new ArrayDeque<>();
+        private final Http1ResponseParser parser = new Http1ResponseParser(this);
+        private List<Runnable> pending;
+        private CompletableFuture<Void> lastWrite = CompletableFuture.completedFuture(null);
+        private Exchange current;
+        private int currentStatus;
+        private HttpHeaderBlock currentHeaders;
+        private ResponseBodyBuffer currentBody;
+        private StreamingResponseBody currentStream;
+        private boolean accepting = true;
+        private boolean closeRequested;
+        private boolean finished;
+
+        Pipeline(HttpRoute route, Connection connection, boolean shared) {
+            this.route = route;
+            this.connection = connection;
+            this.shared = shared;
+        }
+
+        /**
+         * Writes a request on this connection if it can still take one.
+         */
+        synchronized boolean offer(Exchange exchange) {
+            if (!accepting || finished) {
+                return false;
+            }
+            inFlight.addLast(exchange);
+            if (!shared || inFlight.size() >= maxPipelineDepth) {
+                stopAccepting();
+            }
+            // Each write starts after the previous one so that wire order matches queue order
+            lastWrite = lastWrite.thenCompose(ignored -> Http1RequestEncoder.write(connection, exchange.request, buffers));
+            lastWrite.whenComplete((ignored, error) -> {
+                if (error != null) {
+                    onClosed(error);
+                }
+            });
+            return true;
+        }
+
+        void onData(ByteBuffer data) {
+            List<Runnable> completions = new ArrayList<>();
+            Throwable failure = null;
+            Exchange malformed = null;
+            boolean drained = false;
+            synchronized (this) {
+                if (finished) {
+                    return;
+                }
+                pending = completions;
+                try {
+                    parser.feed(data);
+                } catch (Http1ResponseParser.ParseException e) {
+                    failure = e;
+                    // The server answered this request with garbage; it fails instead of being replayed
+                    if (current == null) {
+                        malformed = inFlight.pollFirst();
+                    } else if (currentStream == null) {
+                        malformed = current;
+                        currentBody.release();
+                        current = null;
+                        currentBody = null;
+                        currentHeaders = null;
+                    }
+                } finally {
+                    pending = null;
+                }
+                if (failure == null && inFlight.isEmpty() && parser.isIdle()) {
+                    finish();
+                    drained = true;
+                }
+            }
+            if (drained) {
+                pool.release(connection, !closeRequested);
+            }
+            completions.forEach(Runnable::run);
+            if (malformed != null) {
+                malformed.future.completeExceptionally(failure);
+            }
+            if (failure != null) {
+                onClosed(failure);
+            }
+        }
+
+        @Override
+        public boolean expectsBody() {
+            Exchange head = inFlight.peekFirst();
+            return head == null || head.request.getMethod() != HttpMethod.HEAD;
+        }
+
+        @Override
+        public void onHead(int statusCode, HttpHeaderBlock headers) {
+            Exchange exchange = inFlight.pollFirst();
+            if (exchange == null) {
+                throw new Http1ResponseParser.ParseException("Unsolicited response");
+            }
+            if (headers.containsToken("Connection", "close")) {
+                // Requests written after this one will not be answered on this connection
+                closeRequested = true;
+                stopAccepting();
+                List<Exchange> orphans = new ArrayList<>(inFlight);
+                inFlight.clear();
+                pending.add(() -> replay(orphans, new IOException("Connection closed by server")));
+            }
+
+            current = exchange;
+            currentStatus = statusCode;
+            currentHeaders = headers;
+            if (streaming) {
+                StreamingResponseBody stream = new StreamingResponseBody();
+                stream.onDemand(connection::resumeReads);
+                currentStream = stream;
+                HttpResponse<?> response = DefaultHttpResponse.streaming(statusCode, stream, headers,
+                                                                         exchange.request.getUri(), exchange.request,
+                                                                         serializer, executor);
+                // Hand the response out now; the body follows as it arrives. If the caller
+                // cancelled the request the body is drained so the connection can be reused.
+                pending.add(() -> {
+                    if (!exchange.future.complete(response)) {
+                        stream.cancel();
+                    }
+                });
+            } else {
+                currentBody = new ResponseBodyBuffer(buffers, announcedLength(exchange, statusCode, headers));
+            }
+        }
+
+        /**
+         * Gets the body length announced by a response head. The parser has
+         * already rejected malformed Content-Length values of bodies it reads.
+         */
+        private long announcedLength(Exchange exchange, int statusCode, HttpHeaderBlock headers) {
+            // Content-Length of a bodiless response describes the resource, not this message
+            if (exchange.request.getMethod() == HttpMethod.HEAD || statusCode == 204 || statusCode == 304) {
+                return 0;
+            }
+            if (headers.containsToken("Transfer-Encoding", "chunked") || !headers.containsKey("Content-Length")) {
+                return -1;
+            }
+            return headers.getLong("Content-Length", -1);
+        }
+
+        @Override
+        public void onBody(ByteBuffer chunk) {
+            if (currentStream != null) {
+                ByteBuffer copy = ByteBuffer.allocate(chunk.remaining()).put(chunk).flip();
+                if (!currentStream.offer(copy)) {
+                    connection.suspendReads();
+                }
+            } else {
+                currentBody.append(chunk);
+            }
+        }
+
+        @Override
+        public void onComplete() {
+            Exchange exchange = current;
+            if (currentStream != null) {
+                currentStream.complete();
+            } else {
+                DefaultHttpResponse<Object> response = new DefaultHttpResponse<>(currentStatus, currentBody.toByteArray(),
+                                                                                 currentHeaders, exchange.request.getUri(),
+                                                                                 exchange.request, serializer, executor);
+                pending.add(() -> response.complete(exchange.future));
+            }
+            current = null;
+            currentStream = null;
+            currentBody = null;
+            currentHeaders = null;
+        }
+
+        /**
+         * Closes the connection if an exchange is still waiting for its
+         * response on it, rather than reading a response nobody wants.
+         *
+         * @param cause why the exchange was given up
+         */
+        void abort(Exchange exchange, Throwable cause) {
+            synchronized (this) {
+                if (finished || (current != exchange && !inFlight.contains(exchange))) {
+                    return;
+                }
+            }
+            onClosed(cause);
+        }
+
+        /**
+         * Fails over the unanswered requests after a connection failure.
+         */
+        void onClosed(Throwable cause) {
+            List<Runnable> completions = new ArrayList<>();
+            List<Exchange> orphans;
+            synchronized (this) {
+                if (finished) {
+                    return;
+                }
+                pending = completions;
+                try {
+                    parser.endOfInput();
+                } catch (Http1ResponseParser.ParseException e) {
+                    // The partial response is discarded and its request replayed
+                } finally {
+                    pending = null;
+                }
+                orphans = new ArrayList<>(inFlight);
+                inFlight.clear();
+                if (currentStream != null) {
+                    // The response was already handed out; only its body can fail
+                    StreamingResponseBody stream = currentStream;
+                    completions.add(() -> stream.fail(cause));
+                } else if (current != null) {
+                    orphans.add(0, current);
+                }
+                if (currentBody != null) {
+                    currentBody.release();
+                }
+                current = null;
+                currentStream = null;
+                currentBody = null;
+                finish();
+            }
+            pool.release(connection, false);
+            completions.forEach(Runnable::run);
+            replay(orphans, cause);
+        }
+
+        private void replay(List<Exchange> orphans, Throwable cause) {
+            for (Exchange exchange : orphans) {
+                if (exchange.future.isDone()) {
+                    continue;
+                }
+                if (PIPELINEABLE_METHODS.contains(exchange.request.getMethod())
+                    && exchange.request.getRequestBody().isRepeatable()
+                    && exchange.replays < MAX_REPLAYS) {
+                    exchange.replays++;
+                    dispatch(exchange);
+                } else {
+                    exchange.future.completeExceptionally(cause);
+                }
+            }
+        }
+
+        private void stopAccepting() {
+            accepting = false;
+            openPipelines.remove(route, this);
+        }
+
+        /**
+         * Detaches this pipeline from its connection once no more responses are
+         * expected. The caller returns the connection to the pool outside the lock.
+         */
+        private void finish() {
+            finished = true;
+            stopAccepting();
+            pipelines.remove(connection, this);
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package com.network.impl.http;
+
+import com.network.api.http.HttpHeaders;
+import com.network.api.http.HttpRequest;
+import com.network.api.http.HttpRequestBody;
+import com.network.api.http.HttpResponse;
+import com.network.api.http.middleware.MiddlewareSupport;
+import com.network.serialization.Serializer;
+
+import java.net.http.HttpClient.Redirect;
+import java.net.http.HttpClient.Version;
+import java.net.http.HttpRequest.BodyPublishers;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+
+/**
+ * HTTP/2 transport that multiplexes concurrent requests to the same origin
+ * as streams over a single connection.
+ *
+ * <p>The framing layer, HPACK header compression and stream/connection flow
+ * control are provided by the JDK's {@code java.net.http} client, which
+ * negotiates h2 via ALPN for {@code https} origins and transparently falls
+ * back to HTTP/1.1 for servers that do not support it. Those connections are
+ * managed by the JDK client, so they do not go through the connection pool,
+ * the buffer pool or the address resolver of the configuration.
+ *
+ * <p>The JDK client cannot speak prior-knowledge h2c; it would only offer h2c
+ * through an {@code Upgrade} on the first request. Cleartext {@code http}
+ * requests are therefore sent by the HTTP/1.1 transport given to this one,
+ * and redirects from {@code https} to {@code http} are not followed here.
+ */
+final class Http2Transport implements HttpTransport {
+
+    /**
+     * Headers that are managed by the HTTP/2 layer and must not be set by callers.
+     */
+    private static final Set<String> RESTRICTED_HEADERS = Set.of(
+        "connection", "content-length", "expect", "host", "upgrade",
+        "keep-alive", "proxy-connection", "transfer-encoding", "te");
+
+    private final java.net.http.HttpClient client;
+    private final HttpTransport cleartext;
+    private final Set<CompletableFuture<HttpResponse<?>>> inFlight = ConcurrentHashMap.newKeySet();
+    private volatile boolean closed;
+    private final Duration requestTimeout;
+    private final boolean streaming;
+    private final Serializer serializer;
+    private final Executor executor;
+
+    /**
+     * Creates a new HTTP/2 transport for a client configuration.
+     *
+     * @param config    the client configuration
+     * @param cleartext the transport for {@code http} requests
+     */
+    Http2Transport(DefaultHttpClientConfig config, HttpTransport cleartext) {
+        java.net.http.HttpClient.Builder builder = java.net.http.HttpClient.newBuilder()
+            .version(Version.HTTP_2)
+            .followRedirects(config.isFollowRedirects() ? Redirect.NORMAL : Redirect.NEVER);
+
+        if (config.getConnectTimeout() != null) {
+            builder.connectTimeout(config.getConnectTimeout());
+        }
+        if (config.getProxy() != null) {
+            builder.proxy(config.getProxy());
+        }
+        if (config.getExecutor() != null) {
+            builder.executor(config.getExecutor());
+        }
+        config.getSslContext().ifPresent(builder::sslContext);
+
+        this.client = builder.build();
+        this.cleartext = cleartext;
+        this.requestTimeout = config.getRequestTimeout();
+        this.streaming = config.isResponseStreamingEnabled();
+        this.serializer = config.getSerializer().orElse(null);
+        this.executor = config.getExecutor();
+    }
+
+    @Override
+    public CompletableFuture<HttpResponse<?>> execute(HttpRequest request) {
+        if (closed) {
+            return CompletableFuture.failedFuture(new IllegalStateException("Transport is closed"));
+        }
+        if ("http".equalsIgnoreCase(request.getUri().getScheme())) {
+            return cleartext.execute(request);
+        }
+        java.net.http.HttpRequest.Builder builder = java.net.http.HttpRequest.newBuilder(request.getUri())
+            .method(request.getMethod().name(), toBodyPublisher(request.getRequestBody()));
+
+        request.getHttpHeaders().forEach((name, value) -> {
+            if (!RESTRICTED_HEADERS.contains(name.toLowerCase(Locale.ROOT))) {
+                builder.header(name, value);
+            }
+        });
+
+        Duration timeout = request.getTimeout() != null ? request.getTimeout() : requestTimeout;
+        if (timeout != null) {
+            builder.timeout(timeout);
+        }
+
+        CompletableFuture<HttpResponse<?>> result;
+        if (streaming) {
+            CompletableFuture<java.net.http.HttpResponse<Flow.Publisher<List<ByteBuffer>>>> exchange =
+                client.sendAsync(builder.build(), BodyHandlers.ofPublisher());
+            result = MiddlewareSupport.forwardCancellation(
+                exchange.thenApply(response -> toStreamingResponse(request, response)), exchange);
+        } else {
+            CompletableFuture<java.net.http.HttpResponse<byte[]>> exchange =
+                client.sendAsync(builder.build(), BodyHandlers.ofByteArray());
+            result = MiddlewareSupport.forwardCancellation(
+                exchange.thenApply(response -> toResponse(request, response)), exchange);
+        }
+        inFlight.add(result);
+        result.whenComplete((response, failure) -> inFlight.remove(result));
+        if (closed) {
+            // Closed while the exchange was being started
+            result.cancel(true);
+        }
+        return result;
+    }
+
+    /**
+     * Adapts a request body without copying it into a single array.
+     */
+    private static java.net.http.HttpRequest.BodyPublisher toBodyPublisher(HttpRequestBody body) {
+        long length = body.contentLength();
+        if (length == 0) {
+            return BodyPublishers.noBody();
+        }
+        return length > 0
+            ? BodyPublishers.fromPublisher(body.asPublisher(), length)
+            : BodyPublishers.fromPublisher(body.asPublisher());
+    }
+
+    /**
+     * Converts a JDK response into our response type. This runs on the JDK
+     * client's executor, so the typed body the request declared is decoded
+     * right here.
+     */
+    private HttpResponse<?> toResponse(HttpRequest request, java.net.http.HttpResponse<byte[]> response) {
+        DefaultHttpResponse<Object> result = new DefaultHttpResponse<>(response.statusCode(), response.body(),
+                                                                       toHeaders(response), response.uri(), request,
+                                                                       serializer, executor);
+        result.decodeDeclaredBody();
+        return result;
+    }
+
+    /**
+     * Converts a JDK response whose body is still arriving. Stream flow control
+     * is driven by the demand of the body's consumer: the next data is only
+     * requested from the JDK client once the previous data has been queued
+     * below the body's high-water mark.
+     */
+    private HttpResponse<?> toStreamingResponse(HttpRequest request,
+                                                      java.net.http.HttpResponse<Flow.Publisher<List<ByteBuffer>>> response) {
+        StreamingResponseBody stream = new StreamingResponseBody();
+        response.body().subscribe(new Flow.Subscriber<List<ByteBuffer>>() {
+            private Flow.Subscription subscription;
+
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                this.subscription = subscription;
+                stream.onDemand(() -> subscription.request(1));
+                subscription.request(1);
+            }
+
+            @Override
+            public void onNext(List<ByteBuffer> items) {
+                if (stream.isCancelled()) {
+                    subscription.cancel();
+                    return;
+                }
+                boolean more = true;
+                for (ByteBuffer item : items) {
+                    more = stream.offer(item);
+                }
+                if (more) {
+                    subscription.request(1);
+                }
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                stream.fail(throwable);
+            }
+
+            @Override
+            public void onComplete() {
+                stream.complete();
+            }
+        });
+        return DefaultHttpResponse.streaming(response.statusCode(), stream, toHeaders(response),
+                                             response.uri(), request, serializer, executor);
+    }
+
+    private static Map<String, String> toHeaders(java.net.http.HttpResponse<?> response) {
+        HttpHeaders headers = new HttpHeaders();
+        for (Map.Entry<String, List<String>> header : response.headers().map().entrySet()) {
+            // HTTP/2 pseudo-headers such as :status are not regular response headers
+            if (!header.getKey().startsWith(":")) {
+                for (String value : header.getValue()) {
+                    headers.add(header.getKey(), value);
+                }
+            }
+        }
+        // The response adopts the view's storage, keeping repeated values apart
+        return headers.asMap();
+    }
+
+    /**
+     * Cancels the exchanges in flight and closes the cleartext transport.
+     * Later requests fail with an {@link IllegalStateException}.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        for (CompletableFuture<HttpResponse<?>> exchange : inFlight) {
+            exchange.cancel(true);
+        }
+        cleartext.close();
+        // java.net.http.HttpClient only became closeable in JDK 21; before that its
+        // connections are released once the client is no longer referenced
+        if (client instanceof AutoCloseable) {
+            try {
+                ((AutoCloseable) client).close();
+            } catch (Exception e) {
+                // Nothing sensible to do while shutting down
+            }
+        }
+    }
+}
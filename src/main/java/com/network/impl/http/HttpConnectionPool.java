@@ -0,0 +1,435 @@
+package com.network.impl.http;
+
+import com.network.api.connection.Connection;
+
+import java.lang.ref.WeakReference;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Keep-alive pool of {@link Connection}s, partitioned by {@link HttpRoute}.
+ *
+ * <p>The pool enforces a per-route and a total connection limit. Callers that
+ * cannot be served immediately are queued in arrival order and are handed the
+ * next connection that becomes available for their route, so a saturated route
+ * does not starve callers that arrived earlier. Connections older than the
+ * configured time-to-live are closed instead of being reused, and idle ones are
+ * swept in the background every half time-to-live, so that expired
+ * connections do not linger until the route is used again.
+ *
+ * <p>All state is guarded by a single lock. Futures are always completed
+ * outside of that lock so that caller continuations never run while it is held.
+ */
+final class HttpConnectionPool implements AutoCloseable {
+
+    private final Function<HttpRoute, CompletableFuture<Connection>> connector;
+    private final int maxConnectionsPerRoute;
+    private final int maxTotalConnections;
+    private final long timeToLiveNanos;
+
+    private final Object lock = new Object();
+    private final Map<HttpRoute, RouteState> routes = new HashMap<>();
+    private final Map<Connection, Entry> leased = new IdentityHashMap<>();
+    private final ArrayDeque<Waiter> waiters = new ArrayDeque<>();
+    private int allocated;
+    private boolean closed;
+
+    /**
+     * Creates a new connection pool.
+     *
+     * @param connector              opens a new connection for a route
+     * @param maxConnectionsPerRoute the maximum number of connections per route
+     * @param maxTotalConnections    the maximum number of connections across all routes
+     * @param timeToLive             the maximum age of a pooled connection, or null for no limit
+     */
+    HttpConnectionPool(Function<HttpRoute, CompletableFuture<Connection>> connector,
+                       int maxConnectionsPerRoute,
+                       int maxTotalConnections,
+                       Duration timeToLive) {
+        if (maxConnectionsPerRoute <= 0 || maxTotalConnections <= 0) {
+            throw new IllegalArgumentException("Connection limits must be positive");
+        }
+        this.connector = connector;
+        this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+        this.maxTotalConnections = maxTotalConnections;
+        this.timeToLiveNanos = timeToLive == null || timeToLive.isZero() || timeToLive.isNegative()
+            ? Long.MAX_VALUE
+            : timeToLive.toNanos();
+        if (timeToLiveNanos != Long.MAX_VALUE) {
+            scheduleSweep(new WeakReference<>(this), Math.max(timeToLiveNanos / 2, 1));
+        }
+    }
+
+    /**
+     * Creates a new connection pool with the limits of a client configuration.
+     *
+     * @param connector opens a new connection for a route
+     * @param config    the client configuration
+     */
+    HttpConnectionPool(Function<HttpRoute, CompletableFuture<Connection>> connector, DefaultHttpClientConfig config) {
+        this(connector, config.getMaxConnectionsPerRoute(), config.getMaxTotalConnections(),
+             config.getConnectionTimeToLive());
+    }
+
+    /**
+     * Leases a connection for a route.
+     *
+     * <p>The returned future completes with an idle pooled connection, a newly
+     * opened connection, or - if the limits are reached - the next connection
+     * released for the route. Callers may cancel the future or apply a timeout
+     * to it; abandoned requests are skipped when connections become available.
+     *
+     * @param route the route
+     * @return a future that completes with the leased connection
+     */
+    CompletableFuture<Connection> acquire(HttpRoute route) {
+        Waiter waiter = new Waiter(route);
+        List<Runnable> actions = new ArrayList<>();
+        synchronized (lock) {
+            if (closed) {
+                waiter.future.completeExceptionally(new IllegalStateException("Connection pool is closed"));
+                return waiter.future;
+            }
+            waiters.addLast(waiter);
+            dispatch(actions);
+        }
+        runAll(actions);
+        return waiter.future;
+    }
+
+    /**
+     * Returns a leased connection to the pool.
+     *
+     * @param connection the connection
+     * @param reusable   true if the connection may serve another request,
+     *                   false if it must be closed (e.g. after a protocol error
+     *                   or a {@code Connection: close} response)
+     */
+    void release(Connection connection, boolean reusable) {
+        List<Runnable> actions = new ArrayList<>();
+        synchronized (lock) {
+            Entry entry = leased.remove(connection);
+            if (entry == null) {
+                return;
+            }
+            RouteState state = routes.get(entry.route);
+            long now = System.nanoTime();
+            if (!closed && reusable && connection.isOpen() && !entry.isExpired(now)) {
+                entry.idleSinceNanos = now;
+                state.idle.addFirst(entry);
+            } else {
+                discard(state, entry, actions);
+            }
+            dispatch(actions);
+        }
+        runAll(actions);
+    }
+
+    /**
+     * Closes idle connections that have exceeded their time-to-live or have
+     * been closed by the peer.
+     *
+     * @return the number of connections evicted
+     */
+    int evictExpired() {
+        List<Runnable> actions = new ArrayList<>();
+        int evicted = 0;
+        synchronized (lock) {
+            long now = System.nanoTime();
+            for (RouteState state : routes.values()) {
+                for (Iterator<Entry> it = state.idle.iterator(); it.hasNext(); ) {
+                    Entry entry = it.next();
+                    if (entry.isExpired(now) || !entry.connection.isOpen()) {
+                        it.remove();
+                        discard(state, entry, actions);
+                        evicted++;
+                    }
+                }
+            }
+            dispatch(actions);
+        }
+        runAll(actions);
+        return evicted;
+    }
+
+    /**
+     * Schedules the next sweep of expired idle connections on the shared
+     * delayed executor, whose thread is a daemon. The task holds the pool
+     * weakly, so a pool that is dropped without being closed stops sweeping.
+     */
+    private static void scheduleSweep(WeakReference<HttpConnectionPool> ref, long intervalNanos) {
+        CompletableFuture.delayedExecutor(intervalNanos, TimeUnit.NANOSECONDS).execute(() -> {
+            HttpConnectionPool pool = ref.get();
+            if (pool != null && !pool.isClosed()) {
+                pool.evictExpired();
+                scheduleSweep(ref, intervalNanos);
+            }
+        });
+    }
+
+    private boolean isClosed() {
+        synchronized (lock) {
+            return closed;
+        }
+    }
+
+    /**
+     * Gets the number of connections currently open or being opened.
+     *
+     * @return the number of allocated connections
+     */
+    int getAllocatedCount() {
+        synchronized (lock) {
+            return allocated;
+        }
+    }
+
+    /**
+     * Gets the number of idle connections across all routes.
+     *
+     * @return the number of idle connections
+     */
+    int getIdleCount() {
+        synchronized (lock) {
+            int idle = 0;
+            for (RouteState state : routes.values()) {
+                idle += state.idle.size();
+            }
+            return idle;
+        }
+    }
+
+    /**
+     * Gets the number of callers waiting for a connection.
+     *
+     * @return the number of pending callers
+     */
+    int getPendingCount() {
+        synchronized (lock) {
+            return waiters.size();
+        }
+    }
+
+    /**
+     * Closes all idle connections and fails all pending callers. Leased
+     * connections are closed when they are released.
+     */
+    @Override
+    public void close() {
+        List<Runnable> actions = new ArrayList<>();
+        synchronized (lock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            for (RouteState state : routes.values()) {
+                while (!state.idle.isEmpty()) {
+                    discard(state, state.idle.pollFirst(), actions);
+                }
+            }
+            IllegalStateException failure = new IllegalStateException("Connection pool is closed");
+            for (Waiter waiter : waiters) {
+                actions.add(() -> waiter.future.completeExceptionally(failure));
+            }
+            waiters.clear();
+        }
+        runAll(actions);
+    }
+
+    /**
+     * Serves queued callers in arrival order as far as the limits allow.
+     * Must be called with the lock held.
+     */
+    private void dispatch(List<Runnable> actions) {
+        long now = System.nanoTime();
+        for (Iterator<Waiter> it = waiters.iterator(); it.hasNext(); ) {
+            Waiter waiter = it.next();
+            if (waiter.future.isDone()) {
+                it.remove();
+                continue;
+            }
+
+            RouteState state = routes.computeIfAbsent(waiter.route, route -> new RouteState());
+
+            Entry idle = pollIdle(state, now, actions);
+            if (idle != null) {
+                it.remove();
+                leased.put(idle.connection, idle);
+                actions.add(() -> handOff(waiter, idle.connection));
+                continue;
+            }
+
+            if (state.allocated >= maxConnectionsPerRoute) {
+                continue;
+            }
+            if (allocated >= maxTotalConnections && !reclaimIdleFromOtherRoute(state, actions)) {
+                continue;
+            }
+
+            it.remove();
+            state.allocated++;
+            allocated++;
+            actions.add(() -> connect(waiter));
+        }
+    }
+
+    /**
+     * Polls the most recently used idle connection of a route, discarding
+     * stale ones on the way. Must be called with the lock held.
+     */
+    private Entry pollIdle(RouteState state, long now, List<Runnable> actions) {
+        Entry entry;
+        while ((entry = state.idle.pollFirst()) != null) {
+            if (!entry.isExpired(now) && entry.connection.isOpen()) {
+                return entry;
+            }
+            discard(state, entry, actions);
+        }
+        return null;
+    }
+
+    /**
+     * Closes the least recently used idle connection of another route to make
+     * room under the total limit. Must be called with the lock held.
+     */
+    private boolean reclaimIdleFromOtherRoute(RouteState requester, List<Runnable> actions) {
+        Entry oldest = null;
+        RouteState owner = null;
+        for (RouteState state : routes.values()) {
+            if (state == requester) {
+                continue;
+            }
+            Entry candidate = state.idle.peekLast();
+            if (candidate != null && (oldest == null || candidate.idleSinceNanos < oldest.idleSinceNanos)) {
+                oldest = candidate;
+                owner = state;
+            }
+        }
+        if (oldest == null) {
+            return false;
+        }
+        owner.idle.pollLast();
+        discard(owner, oldest, actions);
+        return true;
+    }
+
+    /**
+     * Releases the capacity held by a connection and schedules it to be closed.
+     * Must be called with the lock held.
+     */
+    private void discard(RouteState state, Entry entry, List<Runnable> actions) {
+        state.allocated--;
+        allocated--;
+        Connection connection = entry.connection;
+        actions.add(connection::close);
+    }
+
+    /**
+     * Opens a new connection for a waiter. Runs outside the lock.
+     */
+    private void connect(Waiter waiter) {
+        CompletableFuture<Connection> attempt;
+        try {
+            attempt = connector.apply(waiter.route);
+        } catch (RuntimeException e) {
+            attempt = CompletableFuture.failedFuture(e);
+        }
+
+        attempt.whenComplete((connection, error) -> {
+            List<Runnable> actions = new ArrayList<>();
+            synchronized (lock) {
+                RouteState state = routes.get(waiter.route);
+                if (error != null) {
+                    state.allocated--;
+                    allocated--;
+                    actions.add(() -> waiter.future.completeExceptionally(error));
+                } else {
+                    Entry entry = new Entry(waiter.route, connection, System.nanoTime());
+                    if (closed) {
+                        discard(state, entry, actions);
+                        actions.add(() -> waiter.future.completeExceptionally(
+                            new IllegalStateException("Connection pool is closed")));
+                    } else if (waiter.future.isDone()) {
+                        // The caller gave up while we were connecting; keep the connection for others
+                        entry.idleSinceNanos = entry.createdNanos;
+                        state.idle.addFirst(entry);
+                    } else {
+                        leased.put(connection, entry);
+                        actions.add(() -> handOff(waiter, connection));
+                    }
+                }
+                dispatch(actions);
+            }
+            runAll(actions);
+        });
+    }
+
+    /**
+     * Completes a waiter with a leased connection, returning the connection if
+     * the waiter was abandoned in the meantime. Runs outside the lock.
+     */
+    private void handOff(Waiter waiter, Connection connection) {
+        if (!waiter.future.complete(connection)) {
+            release(connection, true);
+        }
+    }
+
+    private static void runAll(List<Runnable> actions) {
+        for (Runnable action : actions) {
+            try {
+                action.run();
+            } catch (RuntimeException e) {
+                // Closing a broken connection must not prevent other callers from being served
+            }
+        }
+    }
+
+    /**
+     * Per-route bookkeeping.
+     */
+    private static final class RouteState {
+        final ArrayDeque<Entry> idle = new ArrayDeque<>();
+        int allocated;
+    }
+
+    /**
+     * A pooled connection together with its lifetime information.
+     */
+    private final class Entry {
+        final HttpRoute route;
+        final Connection connection;
+        final long createdNanos;
+        long idleSinceNanos;
+
+        Entry(HttpRoute route, Connection connection, long createdNanos) {
+            this.route = route;
+            this.connection = connection;
+            this.createdNanos = createdNanos;
+        }
+
+        boolean isExpired(long now) {
+            return now - createdNanos >= timeToLiveNanos;
+        }
+    }
+
+    /**
+     * A caller waiting for a connection.
+     */
+    private static final class Waiter {
+        final HttpRoute route;
+        final CompletableFuture<Connection> future = new CompletableFuture<>();
+
+        Waiter(HttpRoute route) {
+            this.route = route;
+        }
+    }
+}
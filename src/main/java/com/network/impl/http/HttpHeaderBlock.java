@@ -0,0 +1,358 @@
+package com.network.impl.http;
+
+import com.network.api.http.HttpHeaders;
+
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Read-only view of the raw header block of an HTTP/1.1 response.
+ *
+ * <p>The block keeps the header bytes exactly as they were received. Header
+ * offsets are only indexed on first access, and lookups compare the raw bytes
+ * case-insensitively, so looking up a header allocates nothing but its value.
+ * Names of common headers resolve to shared constants instead of new strings.
+ * A full {@link Map} of the headers is only built if the block is iterated.
+ */
+final class HttpHeaderBlock extends AbstractMap<String, String> {
+
+    /**
+     * Header names that are interned, grouped by length for quick lookup.
+     */
+    private static final String[][] COMMON_NAMES_BY_LENGTH;
+
+    static {
+        String[] common = {
+            "Age", "Allow", "Cache-Control", "Connection", "Content-Disposition", "Content-Encoding",
+            "Content-Language", "Content-Length", "Content-Location", "Content-Range", "Content-Type",
+            "Date", "ETag", "Expires", "Keep-Alive", "Last-Modified", "Link", "Location", "Pragma",
+            "Retry-After", "Server", "Set-Cookie", "Strict-Transport-Security", "Trailer",
+            "Transfer-Encoding", "Upgrade", "Vary", "Via", "WWW-Authenticate", "X-Request-Id"
+        };
+        int maxLength = 0;
+        for (String name : common) {
+            maxLength = Math.max(maxLength, name.length());
+        }
+        String[][] byLength = new String[maxLength + 1][];
+        for (String name : common) {
+            String[] bucket = byLength[name.length()];
+            if (bucket == null) {
+                bucket = new String[] {name};
+            } else {
+                bucket = Arrays.copyOf(bucket, bucket.length + 1);
+                bucket[bucket.length - 1] = name;
+            }
+            byLength[name.length()] = bucket;
+        }
+        COMMON_NAMES_BY_LENGTH = byLength;
+    }
+
+    static final HttpHeaderBlock EMPTY = new HttpHeaderBlock(new byte[0], 0, 0);
+
+    private final byte[] raw;
+    private final int from;
+    private final int to;
+
+    /** Offsets of name start, name end, value start and value end per header. */
+    private int[] offsets;
+    private volatile int count = -1;
+    private String[] values;
+    private Map<String, String> materialized;
+
+    /**
+     * Creates a header block over raw header lines, each terminated by CRLF or LF.
+     * The array is not copied and must not be modified afterwards.
+     *
+     * @param raw  the bytes
+     * @param from the offset of the first header line
+     * @param to   the offset after the last header line
+     */
+    HttpHeaderBlock(byte[] raw, int from, int to) {
+        this.raw = raw;
+        this.from = from;
+        this.to = to;
+    }
+
+    /**
+     * Gets the number of header lines in this block. Repeated headers count
+     * once per line.
+     *
+     * @return the number of header lines
+     */
+    int lineCount() {
+        index();
+        return count;
+    }
+
+    @Override
+    public String get(Object key) {
+        if (!(key instanceof String)) {
+            return null;
+        }
+        index();
+        String name = (String) key;
+        String result = null;
+        for (int i = 0; i < count; i++) {
+            if (nameEquals(i, name)) {
+                String value = value(i);
+                result = result == null ? value : result + ", " + value;
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        if (!(key instanceof String)) {
+            return false;
+        }
+        index();
+        for (int i = 0; i < count; i++) {
+            if (nameEquals(i, (String) key)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Parses a numeric header value without allocating.
+     *
+     * <p>Every occurrence of the header is checked. Repeated values, either on
+     * separate lines or as a comma-separated list, are accepted only if they
+     * are all equal (RFC 9112, section 6.3).
+     *
+     * @param name         the header name
+     * @param defaultValue the value to return if the header is absent
+     * @return the value
+     * @throws NumberFormatException if the header is present but not a non-negative number,
+     *                               or if its occurrences disagree
+     */
+    long getLong(String name, long defaultValue) {
+        index();
+        long result = -1;
+        for (int i = 0; i < count; i++) {
+            if (!nameEquals(i, name)) {
+                continue;
+            }
+            int p = offsets[i * 4 + 2];
+            int end = offsets[i * 4 + 3];
+            do {
+                while (p < end && (raw[p] == ' ' || raw[p] == '\t')) {
+                    p++;
+                }
+                int start = p;
+                long value = 0;
+                while (p < end && raw[p] != ',' && raw[p] != ' ' && raw[p] != '\t') {
+                    int digit = raw[p] - '0';
+                    if (digit < 0 || digit > 9 || p - start >= 18) {
+                        throw new NumberFormatException("Invalid " + name + " header");
+                    }
+                    value = value * 10 + digit;
+                    p++;
+                }
+                if (p == start) {
+                    throw new NumberFormatException("Invalid " + name + " header");
+                }
+                while (p < end && (raw[p] == ' ' || raw[p] == '\t')) {
+                    p++;
+                }
+                if (p < end && raw[p] != ',') {
+                    throw new NumberFormatException("Invalid " + name + " header");
+                }
+                if (result >= 0 && result != value) {
+                    throw new NumberFormatException("Conflicting " + name + " headers");
+                }
+                result = value;
+            } while (p++ < end);
+        }
+        return result >= 0 ? result : defaultValue;
+    }
+
+    /**
+     * Checks if a comma-separated header contains a token, ignoring case,
+     * e.g. {@code chunked} in {@code Transfer-Encoding}.
+     *
+     * @param name  the header name
+     * @param token the token
+     * @return true if any occurrence of the header lists the token
+     */
+    boolean containsToken(String name, String token) {
+        index();
+        for (int i = 0; i < count; i++) {
+            if (!nameEquals(i, name)) {
+                continue;
+            }
+            int p = offsets[i * 4 + 2];
+            int end = offsets[i * 4 + 3];
+            while (p < end) {
+                while (p < end && (raw[p] == ' ' || raw[p] == '\t' || raw[p] == ',')) {
+                    p++;
+                }
+                int tokenStart = p;
+                while (p < end && raw[p] != ',') {
+                    p++;
+                }
+                int tokenEnd = p;
+                while (tokenEnd > tokenStart && (raw[tokenEnd - 1] == ' ' || raw[tokenEnd - 1] == '\t')) {
+                    tokenEnd--;
+                }
+                if (regionEqualsIgnoreCase(tokenStart, tokenEnd, token)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Copies the header lines into an immutable {@link HttpHeaders}, keeping
+     * repeated headers as separate values.
+     *
+     * @return the headers
+     */
+    HttpHeaders toHttpHeaders() {
+        index();
+        if (count == 0) {
+            return HttpHeaders.empty();
+        }
+        HttpHeaders result = new HttpHeaders();
+        for (int i = 0; i < count; i++) {
+            result.add(name(i), value(i));
+        }
+        return result.snapshot();
+    }
+
+    @Override
+    public int size() {
+        return materialize().size();
+    }
+
+    @Override
+    public Set<Entry<String, String>> entrySet() {
+        return materialize().entrySet();
+    }
+
+    private Map<String, String> materialize() {
+        Map<String, String> result = materialized;
+        if (result == null) {
+            index();
+            Map<String, String> map = new LinkedHashMap<>();
+            for (int i = 0; i < count; i++) {
+                map.merge(name(i), value(i), (a, b) -> a + ", " + b);
+            }
+            result = Collections.unmodifiableMap(map);
+            materialized = result;
+        }
+        return result;
+    }
+
+    private String name(int i) {
+        int start = offsets[i * 4];
+        int end = offsets[i * 4 + 1];
+        String[] bucket = end - start < COMMON_NAMES_BY_LENGTH.length ? COMMON_NAMES_BY_LENGTH[end - start] : null;
+        if (bucket != null) {
+            for (String candidate : bucket) {
+                if (regionEqualsIgnoreCase(start, end, candidate)) {
+                    return candidate;
+                }
+            }
+        }
+        return new String(raw, start, end - start, StandardCharsets.ISO_8859_1);
+    }
+
+    private String value(int i) {
+        String[] cache = values;
+        if (cache == null) {
+            cache = new String[count];
+            values = cache;
+        }
+        String value = cache[i];
+        if (value == null) {
+            int start = offsets[i * 4 + 2];
+            value = new String(raw, start, offsets[i * 4 + 3] - start, StandardCharsets.ISO_8859_1);
+            cache[i] = value;
+        }
+        return value;
+    }
+
+    private boolean nameEquals(int i, String name) {
+        return regionEqualsIgnoreCase(offsets[i * 4], offsets[i * 4 + 1], name);
+    }
+
+    private boolean regionEqualsIgnoreCase(int start, int end, String value) {
+        if (end - start != value.length()) {
+            return false;
+        }
+        for (int p = start, j = 0; p < end; p++, j++) {
+            int a = raw[p];
+            int b = value.charAt(j);
+            if (a != b && toLower(a) != toLower(b)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int toLower(int c) {
+        return c >= 'A' && c <= 'Z' ? c + 32 : c;
+    }
+
+    /**
+     * Indexes the header lines on first use.
+     *
+     * @throws Http1ResponseParser.ParseException if a header line is malformed
+     */
+    private void index() {
+        if (count >= 0) {
+            return;
+        }
+        int[] result = new int[32];
+        int n = 0;
+        int p = from;
+        while (p < to) {
+            int lineEnd = p;
+            while (lineEnd < to && raw[lineEnd] != '\n') {
+                lineEnd++;
+            }
+            int contentEnd = lineEnd > p && raw[lineEnd - 1] == '\r' ? lineEnd - 1 : lineEnd;
+            if (contentEnd > p) {
+                int colon = p;
+                while (colon < contentEnd && raw[colon] != ':') {
+                    colon++;
+                }
+                if (colon == p || colon == contentEnd) {
+                    throw new Http1ResponseParser.ParseException("Invalid header line");
+                }
+                int nameEnd = colon;
+                while (nameEnd > p && (raw[nameEnd - 1] == ' ' || raw[nameEnd - 1] == '\t')) {
+                    nameEnd--;
+                }
+                int valueStart = colon + 1;
+                while (valueStart < contentEnd && (raw[valueStart] == ' ' || raw[valueStart] == '\t')) {
+                    valueStart++;
+                }
+                int valueEnd = contentEnd;
+                while (valueEnd > valueStart && (raw[valueEnd - 1] == ' ' || raw[valueEnd - 1] == '\t')) {
+                    valueEnd--;
+                }
+                if (n * 4 + 4 > result.length) {
+                    result = Arrays.copyOf(result, result.length * 2);
+                }
+                result[n * 4] = p;
+                result[n * 4 + 1] = nameEnd;
+                result[n * 4 + 2] = valueStart;
+                result[n * 4 + 3] = valueEnd;
+                n++;
+            }
+            p = lineEnd + 1;
+        }
+        offsets = result;
+        count = n;
+    }
+}
@@ -0,0 +1,120 @@
+package com.network.impl.http;
+
+import com.network.api.connection.Protocol;
+
+import java.net.URI;
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * Identifies the origin a connection is opened to.
+ *
+ * <p>Two requests share pooled connections only if they resolve to the same
+ * route, i.e. the same protocol, host and port.
+ */
+final class HttpRoute {
+
+    private final Protocol protocol;
+    private final String host;
+    private final int port;
+
+    /**
+     * Creates a new route.
+     *
+     * @param protocol the protocol, either {@link Protocol#HTTP} or {@link Protocol#HTTPS}
+     * @param host     the target host
+     * @param port     the target port
+     */
+    HttpRoute(Protocol protocol, String host, int port) {
+        this.protocol = Objects.requireNonNull(protocol, "protocol");
+        this.host = Objects.requireNonNull(host, "host").toLowerCase(Locale.ROOT);
+        this.port = port;
+    }
+
+    /**
+     * Creates the route for a request URI.
+     *
+     * @param uri the request URI
+     * @return the route
+     * @throws IllegalArgumentException if the URI is not an absolute http or https URI
+     */
+    static HttpRoute of(URI uri) {
+        String scheme = uri.getScheme();
+        if (scheme == null || uri.getHost() == null) {
+            throw new IllegalArgumentException("URI must be absolute: " + uri);
+        }
+
+        Protocol protocol;
+        if ("https".equalsIgnoreCase(scheme)) {
+            protocol = Protocol.HTTPS;
+        } else if ("http".equalsIgnoreCase(scheme)) {
+            protocol = Protocol.HTTP;
+        } else {
+            throw new IllegalArgumentException("Unsupported scheme: " + scheme);
+        }
+
+        int port = uri.getPort();
+        if (port == -1) {
+            port = protocol == Protocol.HTTPS ? 443 : 80;
+        }
+        return new HttpRoute(protocol, uri.getHost(), port);
+    }
+
+    /**
+     * Gets the protocol of this route.
+     *
+     * @return the protocol
+     */
+    Protocol getProtocol() {
+        return protocol;
+    }
+
+    /**
+     * Gets the target host of this route.
+     *
+     * @return the host, lower-cased
+     */
+    String getHost() {
+        return host;
+    }
+
+    /**
+     * Gets the target port of this route.
+     *
+     * @return the port
+     */
+    int getPort() {
+        return port;
+    }
+
+    /**
+     * Checks if this route uses TLS.
+     *
+     * @return true for https routes, false otherwise
+     */
+    boolean isSecure() {
+        return protocol == Protocol.HTTPS;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof HttpRoute)) {
+            return false;
+        }
+        HttpRoute other = (HttpRoute) o;
+        return port == other.port && protocol == other.protocol && host.equals(other.host);
+    }
+
+    @Override
+    public int hashCode() {
+        return (protocol.hashCode() * 31 + host.hashCode()) * 31 + port;
+    }
+
+    @Override
+    public String toString() {
+        return (isSecure() ? "https://" : "http://") + host + ":" + port;
+    }
+}
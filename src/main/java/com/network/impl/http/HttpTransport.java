@@ -0,0 +1,30 @@
+package com.network.impl.http;
+
+import com.network.api.http.HttpRequest;
+import com.network.api.http.HttpResponse;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Sends fully prepared requests over the wire.
+ *
+ * <p>A transport sits below the middleware chain: it receives the request
+ * after all middleware has run and produces the raw response that is then
+ * passed back up the chain.
+ */
+interface HttpTransport extends AutoCloseable {
+
+    /**
+     * Sends a request.
+     *
+     * @param request the request to send
+     * @return a CompletableFuture that completes with the response
+     */
+    CompletableFuture<HttpResponse<?>> execute(HttpRequest request);
+
+    /**
+     * Releases the connections held by this transport.
+     */
+    @Override
+    void close();
+}
@@ -0,0 +1,123 @@
+package com.network.impl.http;
+
+import com.network.buffer.BufferPool;
+import com.network.buffer.PooledBuffer;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Collects a response body from the parts reported by the parser.
+ *
+ * <p>If the length is announced, the body is copied straight into an array
+ * of that size. Otherwise the parts are collected in pooled buffers of
+ * growing size and copied once into an array of the final size, instead of
+ * growing an array step by step and copying it at the end.
+ */
+final class ResponseBodyBuffer {
+
+    /** Largest announced length for which the array is allocated up front. */
+    private static final long MAX_PREALLOCATED = 16 * 1024 * 1024;
+    private static final int FIRST_SEGMENT = 4096;
+
+    private final BufferPool pool;
+    private byte[] array;
+    private int length;
+    private List<PooledBuffer> segments;
+
+    /**
+     * Creates a new body buffer.
+     *
+     * @param pool           the pool to take segments from
+     * @param expectedLength the announced body length, or -1 if unknown
+     */
+    ResponseBodyBuffer(BufferPool pool, long expectedLength) {
+        this.pool = pool;
+        if (expectedLength >= 0 && expectedLength <= MAX_PREALLOCATED) {
+            this.array = new byte[(int) expectedLength];
+        }
+    }
+
+    /**
+     * Appends a part of the body.
+     *
+     * @param chunk the part, which is consumed
+     */
+    void append(ByteBuffer chunk) {
+        if (array != null && chunk.remaining() <= array.length - length) {
+            int count = chunk.remaining();
+            chunk.get(array, length, count);
+            length += count;
+            return;
+        }
+        if (array != null) {
+            // More than announced; the parser does not allow this, but stay safe
+            moveToSegments();
+        }
+        if (segments == null) {
+            segments = new ArrayList<>();
+        }
+        while (chunk.hasRemaining()) {
+            ByteBuffer last = segments.isEmpty() ? null : segments.get(segments.size() - 1).buffer();
+            if (last == null || !last.hasRemaining()) {
+                int size = last == null ? FIRST_SEGMENT : Math.min(last.capacity() * 2, pool.getMaxBufferSize());
+                segments.add(pool.acquire(size));
+                continue;
+            }
+            int count = Math.min(chunk.remaining(), last.remaining());
+            ByteBuffer slice = chunk.duplicate();
+            slice.limit(slice.position() + count);
+            last.put(slice);
+            chunk.position(chunk.position() + count);
+            length += count;
+        }
+    }
+
+    /**
+     * Gets the body and releases the pooled segments.
+     *
+     * @return the body
+     */
+    byte[] toByteArray() {
+        if (segments == null) {
+            byte[] result = array != null ? array : new byte[0];
+            array = null;
+            return length == result.length ? result : Arrays.copyOf(result, length);
+        }
+        byte[] result = new byte[length];
+        int offset = 0;
+        for (PooledBuffer segment : segments) {
+            ByteBuffer buffer = segment.buffer();
+            buffer.flip();
+            int count = buffer.remaining();
+            buffer.get(result, offset, count);
+            offset += count;
+        }
+        release();
+        return result;
+    }
+
+    /**
+     * Releases the pooled segments without producing the body.
+     */
+    void release() {
+        if (segments != null) {
+            for (PooledBuffer segment : segments) {
+                segment.release();
+            }
+            segments = null;
+        }
+        array = null;
+    }
+
+    private void moveToSegments() {
+        byte[] collected = array;
+        int count = length;
+        array = null;
+        length = 0;
+        segments = new ArrayList<>();
+        append(ByteBuffer.wrap(collected, 0, count));
+    }
+}
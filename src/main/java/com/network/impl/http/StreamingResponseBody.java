@@ -0,0 +1,388 @@
+package com.network.impl.http;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Response body that is delivered to the caller while it is still arriving.
+ *
+ * <p>The transport {@link #offer(ByteBuffer) offers} body chunks as they are
+ * read from the connection. Chunks are handed to the single subscriber as it
+ * requests them. Unrequested chunks are queued; once the queue reaches its
+ * high-water mark {@code offer} returns false and the transport should stop
+ * reading from the connection until the demand listener is invoked, which
+ * happens when the consumer has drained the queue to half of that mark.
+ */
+final class StreamingResponseBody implements Flow.Publisher<ByteBuffer> {
+
+    private static final int DEFAULT_HIGH_WATER_MARK = 16;
+
+    private final Object lock = new Object();
+    private final AtomicInteger wip = new AtomicInteger();
+    private final ArrayDeque<ByteBuffer> queue = new ArrayDeque<>();
+    private final int highWaterMark;
+
+    private Flow.Subscriber<? super ByteBuffer> subscriber;
+    private Runnable demandListener;
+    private long demand;
+    private boolean paused;
+    private boolean completed;
+    private Throwable error;
+    private boolean cancelled;
+    private boolean terminated;
+
+    StreamingResponseBody() {
+        this(DEFAULT_HIGH_WATER_MARK);
+    }
+
+    /**
+     * Creates a new streaming body.
+     *
+     * @param highWaterMark the number of queued chunks at which the producer is paused
+     */
+    StreamingResponseBody(int highWaterMark) {
+        this.highWaterMark = Math.max(2, highWaterMark);
+    }
+
+    /**
+     * Sets the callback that resumes the producer after {@link #offer(ByteBuffer)}
+     * returned false.
+     *
+     * @param listener the callback
+     */
+    void onDemand(Runnable listener) {
+        synchronized (lock) {
+            this.demandListener = listener;
+        }
+    }
+
+    /**
+     * Adds a chunk of the body. The buffer is owned by this body afterwards.
+     *
+     * @param chunk the chunk
+     * @return true if the producer may continue, false if it should pause
+     *         until the demand listener is invoked
+     */
+    boolean offer(ByteBuffer chunk) {
+        boolean more;
+        synchronized (lock) {
+            if (cancelled || completed || error != null) {
+                return true;
+            }
+            queue.addLast(chunk);
+            more = queue.size() < highWaterMark;
+            paused = !more;
+        }
+        drain();
+        synchronized (lock) {
+            // The consumer may have caught up while the chunk was delivered
+            return !paused;
+        }
+    }
+
+    /**
+     * Signals that the whole body has been offered.
+     */
+    void complete() {
+        synchronized (lock) {
+            completed = true;
+        }
+        drain();
+    }
+
+    /**
+     * Signals that the body cannot be completed, e.g. because the connection failed.
+     *
+     * @param cause the failure
+     */
+    void fail(Throwable cause) {
+        synchronized (lock) {
+            if (completed || error != null) {
+                return;
+            }
+            error = cause;
+        }
+        drain();
+    }
+
+    /**
+     * Checks if the consumer abandoned this body.
+     *
+     * @return true if the subscription was cancelled
+     */
+    boolean isCancelled() {
+        synchronized (lock) {
+            return cancelled;
+        }
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super ByteBuffer> subscriber) {
+        synchronized (lock) {
+            if (this.subscriber != null) {
+                reject(subscriber);
+                return;
+            }
+            this.subscriber = subscriber;
+        }
+        subscriber.onSubscribe(new Flow.Subscription() {
+            @Override
+            public void request(long n) {
+                if (n <= 0) {
+                    fail(new IllegalArgumentException("Demand must be positive: " + n));
+                    return;
+                }
+                synchronized (lock) {
+                    demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+                }
+                drain();
+            }
+
+            @Override
+            public void cancel() {
+                StreamingResponseBody.this.cancel();
+            }
+        });
+        drain();
+    }
+
+    /**
+     * Discards the body, e.g. because nobody is going to consume it. The
+     * remaining body is read and dropped so the connection stays usable.
+     */
+    void cancel() {
+        Runnable resume;
+        synchronized (lock) {
+            cancelled = true;
+            queue.clear();
+            resume = paused ? demandListener : null;
+            paused = false;
+        }
+        if (resume != null) {
+            resume.run();
+        }
+    }
+
+    /**
+     * Reads the whole body into a byte array, blocking until it has arrived.
+     *
+     * @return the body
+     * @throws IllegalStateException if the body is already being consumed
+     */
+    byte[] aggregate() {
+        CompletableFuture<byte[]> result = new CompletableFuture<>();
+        subscribe(new Flow.Subscriber<ByteBuffer>() {
+            private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                subscription.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(ByteBuffer item) {
+                byte[] bytes = new byte[item.remaining()];
+                item.get(bytes);
+                out.write(bytes, 0, bytes.length);
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                result.completeExceptionally(throwable);
+            }
+
+            @Override
+            public void onComplete() {
+                result.complete(out.toByteArray());
+            }
+        });
+        try {
+            return result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IllegalStateException) {
+                throw (IllegalStateException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Exposes the body as a blocking input stream that requests one chunk at
+     * a time, so a slow reader pauses the connection.
+     *
+     * @return the input stream
+     */
+    InputStream asInputStream() {
+        BlockingInputStream stream = new BlockingInputStream();
+        subscribe(stream);
+        return stream;
+    }
+
+    private void reject(Flow.Subscriber<? super ByteBuffer> late) {
+        late.onSubscribe(new Flow.Subscription() {
+            @Override
+            public void request(long n) {
+                // Nothing will be delivered
+            }
+
+            @Override
+            public void cancel() {
+                // Nothing to cancel
+            }
+        });
+        late.onError(new IllegalStateException("Response body can only be consumed once"));
+    }
+
+    /**
+     * Delivers queued chunks and terminal signals. Emission is serialized so
+     * that re-entrant requests from {@code onNext} do not recurse.
+     */
+    private void drain() {
+        if (wip.getAndIncrement() != 0) {
+            return;
+        }
+        int missed = 1;
+        for (;;) {
+            for (;;) {
+                Flow.Subscriber<? super ByteBuffer> target;
+                ByteBuffer next = null;
+                boolean terminate = false;
+                Throwable failure = null;
+                Runnable resume = null;
+                synchronized (lock) {
+                    target = subscriber;
+                    if (target == null || cancelled || terminated) {
+                        break;
+                    }
+                    if (demand > 0 && !queue.isEmpty()) {
+                        next = queue.pollFirst();
+                        demand--;
+                        if (paused && queue.size() <= highWaterMark / 2) {
+                            paused = false;
+                            resume = demandListener;
+                        }
+                    } else if (queue.isEmpty() && (completed || error != null)) {
+                        terminated = true;
+                        terminate = true;
+                        failure = error;
+                    } else {
+                        break;
+                    }
+                }
+                if (resume != null) {
+                    resume.run();
+                }
+                if (next != null) {
+                    target.onNext(next);
+                } else if (terminate) {
+                    if (failure != null) {
+                        target.onError(failure);
+                    } else {
+                        target.onComplete();
+                    }
+                    break;
+                }
+            }
+            missed = wip.addAndGet(-missed);
+            if (missed == 0) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Input stream fed by the publisher one chunk at a time.
+     */
+    private static final class BlockingInputStream extends InputStream implements Flow.Subscriber<ByteBuffer> {
+        private Flow.Subscription subscription;
+        private ByteBuffer current;
+        private boolean requested;
+        private boolean done;
+        private Throwable failure;
+
+        @Override
+        public synchronized void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            notifyAll();
+        }
+
+        @Override
+        public synchronized void onNext(ByteBuffer item) {
+            current = item;
+            requested = false;
+            notifyAll();
+        }
+
+        @Override
+        public synchronized void onError(Throwable throwable) {
+            failure = throwable;
+            done = true;
+            notifyAll();
+        }
+
+        @Override
+        public synchronized void onComplete() {
+            done = true;
+            notifyAll();
+        }
+
+        @Override
+        public synchronized int read() throws IOException {
+            byte[] one = new byte[1];
+            int n = read(one, 0, 1);
+            return n < 0 ? -1 : one[0] & 0xFF;
+        }
+
+        @Override
+        public synchronized int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            while (current == null || !current.hasRemaining()) {
+                current = null;
+                if (done) {
+                    if (failure != null) {
+                        throw failure instanceof IOException ? (IOException) failure : new IOException(failure);
+                    }
+                    return -1;
+                }
+                if (!requested && subscription != null) {
+                    requested = true;
+                    subscription.request(1);
+                    continue;
+                }
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting for response body");
+                }
+            }
+            int n = Math.min(len, current.remaining());
+            current.get(b, off, n);
+            return n;
+        }
+
+        @Override
+        public synchronized int available() {
+            return current == null ? 0 : current.remaining();
+        }
+
+        @Override
+        public synchronized void close() {
+            if (!done && subscription != null) {
+                subscription.cancel();
+            }
+            done = true;
+            current = null;
+        }
+    }
+}
@@ -0,0 +1,464 @@
+package com.network.middleware.http;
+
+import com.network.api.http.HttpRequest;
+import com.network.api.http.HttpRequestContext;
+import com.network.api.http.HttpResponse;
+import com.network.api.http.middleware.HttpAsyncMiddlewareChain;
+import com.network.api.http.middleware.HttpMiddleware;
+import com.network.api.http.middleware.HttpMiddlewareChain;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Middleware that stops sending requests to a host that keeps failing.
+ *
+ * <p>A breaker is kept per host. Outcomes are counted in a ring of time
+ * buckets covering the sliding window; a call counts as failed if it threw or
+ * returned one of the failure status codes, and as slow if it took longer than
+ * the slow call duration. Once the window holds enough calls and the failure
+ * or slow call rate reaches its threshold, the breaker opens and requests fail
+ * immediately with a {@link CircuitOpenException}, without using a
+ * connection. After the open duration a limited number of probe requests are
+ * let through; if they all succeed the breaker closes again, otherwise it
+ * reopens.
+ *
+ * <p>All state is kept in atomics, so recording an outcome never blocks.
+ */
+public class CircuitBreakerMiddleware implements HttpMiddleware {
+
+    /**
+     * State of the breaker of a host.
+     */
+    public enum State {
+        /** Requests are sent and their outcomes recorded. */
+        CLOSED,
+        /** Requests fail immediately. */
+        OPEN,
+        /** A limited number of probe requests are sent. */
+        HALF_OPEN
+    }
+
+    private static final int ORDER = 600;
+
+    /** Calls, failures and slow calls are packed into one counter per bucket. */
+    private static final int COUNT_BITS = 21;
+    private static final long COUNT_MASK = (1L << COUNT_BITS) - 1;
+    private static final long FAILURE = 1L << COUNT_BITS;
+    private static final long SLOW = 1L << (2 * COUNT_BITS);
+
+    private static final int REJECTED = 0;
+    private static final int PERMITTED = 1;
+    private static final int PROBE = 2;
+
+    private final double failureRateThreshold;
+    private final double slowCallRateThreshold;
+    private final long slowCallNanos;
+    private final int minimumCalls;
+    private final int bucketCount;
+    private final long bucketNanos;
+    private final long openNanos;
+    private final int permittedProbes;
+    private final Set<Integer> failureStatusCodes;
+    private final ConcurrentMap<String, Breaker> breakers = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a new circuit breaker middleware with default settings.
+     */
+    public CircuitBreakerMiddleware() {
+        this(builder());
+    }
+
+    private CircuitBreakerMiddleware(Builder builder) {
+        this.failureRateThreshold = builder.failureRateThreshold;
+        this.slowCallRateThreshold = builder.slowCallRateThreshold;
+        this.slowCallNanos = builder.slowCallDuration.toNanos();
+        this.minimumCalls = builder.minimumCalls;
+        this.bucketCount = builder.bucketCount;
+        this.bucketNanos = Math.max(1, builder.window.toNanos() / builder.bucketCount);
+        this.openNanos = builder.openDuration.toNanos();
+        this.permittedProbes = builder.permittedProbes;
+        this.failureStatusCodes = new HashSet<>(builder.failureStatusCodes);
+    }
+
+    @Override
+    public int getOrder() {
+        return ORDER;
+    }
+
+    @Override
+    public void beforeRequest(HttpRequestContext context) {
+        // Nothing to prepare
+    }
+
+    @Override
+    public void afterResponse(HttpRequestContext context, HttpResponse<?> response) {
+        // Outcomes are recorded in process and processAsync, which see failures as well
+    }
+
+    @Override
+    public HttpResponse<?> process(HttpRequest request, HttpMiddlewareChain chain) {
+        Breaker breaker = breaker(request);
+        int permit = breaker.acquire();
+        if (permit == REJECTED) {
+            throw breaker.rejection;
+        }
+        long start = System.nanoTime();
+        HttpResponse<?> response;
+        try {
+            response = chain.next(request);
+        } catch (RuntimeException e) {
+            breaker.record(permit, start, true);
+            throw e;
+        }
+        breaker.record(permit, start, isFailure(response));
+        return response;
+    }
+
+    @Override
+    public CompletableFuture<HttpResponse<?>> processAsync(HttpRequest request, HttpAsyncMiddlewareChain chain) {
+        Breaker breaker = breaker(request);
+        int permit = breaker.acquire();
+        if (permit == REJECTED) {
+            return CompletableFuture.failedFuture(breaker.rejection);
+        }
+        long start = System.nanoTime();
+        CompletableFuture<HttpResponse<?>> future;
+        try {
+            future = chain.next(request);
+        } catch (RuntimeException e) {
+            breaker.record(permit, start, true);
+            throw e;
+        }
+        future.whenComplete((response, failure) -> {
+            if (isCancellation(failure)) {
+                // A cancelled call says nothing about the health of the host
+                breaker.release(permit);
+            } else {
+                breaker.record(permit, start, failure != null || isFailure(response));
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Gets the state of the breaker of a host.
+     *
+     * @param host the host name
+     * @return the state, {@link State#CLOSED} for hosts that were never called
+     */
+    public State getState(String host) {
+        Breaker breaker = breakers.get(host);
+        return breaker == null ? State.CLOSED : State.values()[breaker.state.get()];
+    }
+
+    private Breaker breaker(HttpRequest request) {
+        String host = request.getUri().getHost();
+        String key = host != null ? host : "";
+        Breaker breaker = breakers.get(key);
+        if (breaker == null) {
+            breaker = breakers.computeIfAbsent(key, Breaker::new);
+        }
+        return breaker;
+    }
+
+    private boolean isFailure(HttpResponse<?> response) {
+        return response == null || failureStatusCodes.contains(response.getStatusCode());
+    }
+
+    private static boolean isCancellation(Throwable failure) {
+        return failure instanceof CancellationException
+            || (failure instanceof CompletionException && failure.getCause() instanceof CancellationException);
+    }
+
+    /**
+     * Breaker and sliding window of one host.
+     */
+    private final class Breaker {
+        final AtomicInteger state = new AtomicInteger(State.CLOSED.ordinal());
+        final CircuitOpenException rejection;
+        private final AtomicLongArray epochs = new AtomicLongArray(bucketCount);
+        private final AtomicLongArray counts = new AtomicLongArray(bucketCount);
+        private final AtomicInteger probesStarted = new AtomicInteger();
+        private final AtomicInteger probesSucceeded = new AtomicInteger();
+        private final long origin = System.nanoTime();
+        private volatile long openedAt;
+
+        Breaker(String host) {
+            this.rejection = new CircuitOpenException(host);
+            for (int i = 0; i < bucketCount; i++) {
+                epochs.set(i, -1);
+            }
+        }
+
+        /**
+         * Decides if a call may proceed.
+         *
+         * @return REJECTED, PERMITTED or PROBE
+         */
+        int acquire() {
+            for (;;) {
+                int current = state.get();
+                if (current == State.CLOSED.ordinal()) {
+                    return PERMITTED;
+                }
+                if (current == State.OPEN.ordinal()) {
+                    if (System.nanoTime() - openedAt < openNanos) {
+                        return REJECTED;
+                    }
+                    state.compareAndSet(current, State.HALF_OPEN.ordinal());
+                    continue;
+                }
+                return probesStarted.incrementAndGet() <= permittedProbes ? PROBE : REJECTED;
+            }
+        }
+
+        /**
+         * Returns the permit of a call that ended without an outcome.
+         */
+        void release(int permit) {
+            if (permit == PROBE) {
+                probesStarted.decrementAndGet();
+            }
+        }
+
+        void record(int permit, long startNanos, boolean failed) {
+            long now = System.nanoTime();
+            boolean slow = now - startNanos >= slowCallNanos;
+            if (permit == PROBE) {
+                if (failed || slow) {
+                    open(State.HALF_OPEN, now);
+                } else if (probesSucceeded.incrementAndGet() >= permittedProbes
+                           && state.compareAndSet(State.HALF_OPEN.ordinal(), State.CLOSED.ordinal())) {
+                    reset();
+                }
+                return;
+            }
+            add(now, 1 + (failed ? FAILURE : 0) + (slow ? SLOW : 0));
+            if (failed || slow) {
+                evaluate(now);
+            }
+        }
+
+        private void add(long now, long delta) {
+            long epoch = (now - origin) / bucketNanos;
+            int slot = (int) (epoch % bucketCount);
+            long current = epochs.get(slot);
+            if (current != epoch && epochs.compareAndSet(slot, current, epoch)) {
+                // The bucket is reused for a new period; concurrent adds may be lost, which is acceptable
+                counts.set(slot, 0);
+            }
+            counts.addAndGet(slot, delta);
+        }
+
+        private void evaluate(long now) {
+            long epoch = (now - origin) / bucketNanos;
+            long calls = 0;
+            long failures = 0;
+            long slowCalls = 0;
+            for (int i = 0; i < bucketCount; i++) {
+                if (epoch - epochs.get(i) < bucketCount) {
+                    long packed = counts.get(i);
+                    calls += packed & COUNT_MASK;
+                    failures += (packed >>> COUNT_BITS) & COUNT_MASK;
+                    slowCalls += (packed >>> (2 * COUNT_BITS)) & COUNT_MASK;
+                }
+            }
+            if (calls >= minimumCalls
+                && (failures >= calls * failureRateThreshold || slowCalls >= calls * slowCallRateThreshold)) {
+                open(State.CLOSED, now);
+            }
+        }
+
+        private void open(State from, long now) {
+            if (state.get() != from.ordinal()) {
+                return;
+            }
+            // Published before the state changes, so readers of OPEN see the new time
+            // and the breaker cannot turn half-open with stale probe counters
+            openedAt = now;
+            probesStarted.set(0);
+            probesSucceeded.set(0);
+            state.compareAndSet(from.ordinal(), State.OPEN.ordinal());
+        }
+
+        private void reset() {
+            for (int i = 0; i < bucketCount; i++) {
+                counts.set(i, 0);
+            }
+        }
+    }
+
+    /**
+     * Exception returned while the breaker of a host is open. It carries no
+     * stack trace, and one instance is reused per host, so failing fast costs
+     * no allocation.
+     */
+    public static final class CircuitOpenException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+        private final String host;
+
+        /**
+         * Creates a new circuit open exception.
+         *
+         * @param host the host whose breaker is open
+         */
+        public CircuitOpenException(String host) {
+            super("Circuit breaker open for host " + host, null, false, false);
+            this.host = host;
+        }
+
+        /**
+         * Gets the host whose breaker is open.
+         *
+         * @return the host name
+         */
+        public String getHost() {
+            return host;
+        }
+    }
+
+    /**
+     * Builder for creating {@link CircuitBreakerMiddleware} instances.
+     */
+    public static class Builder {
+        private double failureRateThreshold = 0.5;
+        private double slowCallRateThreshold = 1.0;
+        private Duration slowCallDuration = Duration.ofSeconds(5);
+        private int minimumCalls = 20;
+        private Duration window = Duration.ofSeconds(10);
+        private int bucketCount = 10;
+        private Duration openDuration = Duration.ofSeconds(10);
+        private int permittedProbes = 3;
+        private final Set<Integer> failureStatusCodes = new HashSet<>(java.util.Arrays.asList(500, 502, 503, 504));
+
+        /**
+         * Sets the share of failed calls at which the breaker opens.
+         *
+         * @param threshold the failure rate between 0 and 1
+         * @return this builder
+         * @throws IllegalArgumentException if the rate is not between 0 and 1
+         */
+        public Builder failureRateThreshold(double threshold) {
+            this.failureRateThreshold = checkRate(threshold);
+            return this;
+        }
+
+        /**
+         * Sets when a call counts as slow and the share of slow calls at which
+         * the breaker opens.
+         *
+         * @param duration  the duration from which a call is slow
+         * @param threshold the slow call rate between 0 and 1
+         * @return this builder
+         * @throws IllegalArgumentException if the duration is not positive or the rate is not between 0 and 1
+         */
+        public Builder slowCalls(Duration duration, double threshold) {
+            if (duration == null || duration.isNegative() || duration.isZero()) {
+                throw new IllegalArgumentException("Slow call duration must be positive");
+            }
+            this.slowCallDuration = duration;
+            this.slowCallRateThreshold = checkRate(threshold);
+            return this;
+        }
+
+        /**
+         * Sets the number of calls in the window below which the breaker stays closed.
+         *
+         * @param minimumCalls the minimum number of calls
+         * @return this builder
+         */
+        public Builder minimumCalls(int minimumCalls) {
+            this.minimumCalls = Math.max(1, minimumCalls);
+            return this;
+        }
+
+        /**
+         * Sets the sliding window over which rates are computed.
+         *
+         * @param window      the window length
+         * @param bucketCount the number of buckets the window is divided into
+         * @return this builder
+         * @throws IllegalArgumentException if the window is not positive or there are no buckets
+         */
+        public Builder slidingWindow(Duration window, int bucketCount) {
+            if (window == null || window.isNegative() || window.isZero() || bucketCount <= 0) {
+                throw new IllegalArgumentException("Window and bucket count must be positive");
+            }
+            this.window = window;
+            this.bucketCount = bucketCount;
+            return this;
+        }
+
+        /**
+         * Sets how long the breaker stays open before probing the host.
+         *
+         * @param openDuration the open duration
+         * @return this builder
+         * @throws IllegalArgumentException if the duration is null or negative
+         */
+        public Builder openDuration(Duration openDuration) {
+            if (openDuration == null || openDuration.isNegative()) {
+                throw new IllegalArgumentException("Open duration must not be negative");
+            }
+            this.openDuration = openDuration;
+            return this;
+        }
+
+        /**
+         * Sets the number of probe calls in the half-open state.
+         *
+         * @param permittedProbes the number of probes that must succeed to close the breaker
+         * @return this builder
+         */
+        public Builder permittedProbes(int permittedProbes) {
+            this.permittedProbes = Math.max(1, permittedProbes);
+            return this;
+        }
+
+        /**
+         * Sets the HTTP status codes that count as failures.
+         *
+         * @param statusCodes the status codes
+         * @return this builder
+         */
+        public Builder failureStatusCodes(Integer... statusCodes) {
+            this.failureStatusCodes.clear();
+            java.util.Collections.addAll(this.failureStatusCodes, statusCodes);
+            return this;
+        }
+
+        /**
+         * Builds a new {@link CircuitBreakerMiddleware} with the current settings.
+         *
+         * @return a new circuit breaker middleware
+         */
+        public CircuitBreakerMiddleware build() {
+            return new CircuitBreakerMiddleware(this);
+        }
+
+        private static double checkRate(double rate) {
+            if (rate <= 0 || rate > 1) {
+                throw new IllegalArgumentException("Rate must be greater than 0 and at most 1");
+            }
+            return rate;
+        }
+    }
+
+    /**
+     * Creates a new builder for {@link CircuitBreakerMiddleware}.
+     *
+     * @return a new builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+}
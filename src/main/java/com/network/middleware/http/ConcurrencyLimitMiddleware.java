@@ -0,0 +1,515 @@
+package com.network.middleware.http;
+
+import com.network.api.http.HttpRequest;
+import com.network.api.http.HttpRequestContext;
+import com.network.api.http.HttpResponse;
+import com.network.api.http.middleware.HttpAsyncMiddlewareChain;
+import com.network.api.http.middleware.HttpMiddleware;
+import com.network.api.http.middleware.HttpMiddlewareChain;
+import com.network.api.http.middleware.MiddlewareSupport;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Middleware that limits the number of concurrent requests per route and
+ * adapts the limit to what the route can take.
+ *
+ * <p>The limit of each route (the URI authority) follows a gradient: every
+ * response compares its latency with the estimated no-load latency of the
+ * route, the lowest latency seen, which slowly drifts towards the current
+ * latency. While latency stays within the tolerance the limit grows by about
+ * its square root, which leaves room for a small queue at the server; when
+ * latency rises the limit shrinks in proportion. Drop signals, i.e. failures
+ * and the drop status codes ({@code 429} and {@code 503} by default), cut the
+ * limit multiplicatively, at most once per round trip. Requests beyond the
+ * limit wait in a bounded queue for a free slot, and fail with a
+ * {@link LimitExceededException} if the queue is full or the wait takes too long.
+ *
+ * <p>The middleware runs after {@link HedgingMiddleware}, so every copy of a
+ * hedged request counts against the limit.
+ */
+public class ConcurrencyLimitMiddleware implements HttpMiddleware {
+
+    private static final int ORDER = 850;
+    /** Number of samples over which the no-load latency estimate drifts up to the current latency. */
+    private static final int BASELINE_DRIFT = 1000;
+
+    private final double initialLimit;
+    private final int minLimit;
+    private final int maxLimit;
+    private final int maxQueueSize;
+    private final long maxQueueWaitNanos;
+    private final double backoffRatio;
+    private final double tolerance;
+    private final double smoothing;
+    private final Set<Integer> dropStatusCodes;
+    private final ConcurrentMap<String, Limiter> limiters = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a new concurrency limit middleware with default settings.
+     */
+    public ConcurrencyLimitMiddleware() {
+        this(builder());
+    }
+
+    private ConcurrencyLimitMiddleware(Builder builder) {
+        this.initialLimit = builder.initialLimit;
+        this.minLimit = builder.minLimit;
+        this.maxLimit = builder.maxLimit;
+        this.maxQueueSize = builder.maxQueueSize;
+        this.maxQueueWaitNanos = builder.maxQueueWait.toNanos();
+        this.backoffRatio = builder.backoffRatio;
+        this.tolerance = builder.tolerance;
+        this.smoothing = builder.smoothing;
+        this.dropStatusCodes = new HashSet<>(builder.dropStatusCodes);
+    }
+
+    @Override
+    public int getOrder() {
+        return ORDER;
+    }
+
+    @Override
+    public void beforeRequest(HttpRequestContext context) {
+        // Nothing to prepare
+    }
+
+    @Override
+    public void afterResponse(HttpRequestContext context, HttpResponse<?> response) {
+        // Outcomes are recorded in process and processAsync, which see failures as well
+    }
+
+    @Override
+    public HttpResponse<?> process(HttpRequest request, HttpMiddlewareChain chain) {
+        Limiter limiter = limiter(request);
+        if (!limiter.tryAcquire()) {
+            CompletableFuture<Void> waiter = limiter.enqueue();
+            try {
+                waiter.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                if (!limiter.abandon(waiter) && !waiter.isCompletedExceptionally()) {
+                    // The slot was granted while the caller was interrupted
+                    limiter.release(System.nanoTime(), false, false);
+                }
+                throw limiter.rejection;
+            } catch (ExecutionException e) {
+                throw limiter.rejection;
+            }
+        }
+        long start = System.nanoTime();
+        HttpResponse<?> response;
+        try {
+            response = chain.next(request);
+        } catch (RuntimeException e) {
+            limiter.release(start, true, false);
+            throw e;
+        }
+        limiter.release(start, isDrop(response), true);
+        return response;
+    }
+
+    @Override
+    public CompletableFuture<HttpResponse<?>> processAsync(HttpRequest request, HttpAsyncMiddlewareChain chain) {
+        Limiter limiter = limiter(request);
+        if (limiter.tryAcquire()) {
+            return send(request, chain, limiter);
+        }
+        return sendWhenGranted(request, chain, limiter, limiter.enqueue());
+    }
+
+    /**
+     * Gets the current limit of a route.
+     *
+     * @param authority the URI authority of the route, e.g. {@code example.com:8080}
+     * @return the current limit, or the initial limit for routes that were never called
+     */
+    public int getLimit(String authority) {
+        Limiter limiter = limiters.get(authority);
+        return limiter == null ? (int) initialLimit : limiter.getLimit();
+    }
+
+    private CompletableFuture<HttpResponse<?>> send(HttpRequest request, HttpAsyncMiddlewareChain chain, Limiter limiter) {
+        long start = System.nanoTime();
+        CompletableFuture<HttpResponse<?>> future;
+        try {
+            future = chain.next(request);
+        } catch (RuntimeException e) {
+            limiter.release(start, true, false);
+            return CompletableFuture.failedFuture(e);
+        }
+        future.whenComplete((response, failure) -> {
+            if (isCancellation(failure)) {
+                // Cancelled requests say nothing about the capacity of the route
+                limiter.release(start, false, false);
+            } else {
+                limiter.release(start, failure != null || isDrop(response), failure == null);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Sends a queued request once it has a slot. Cancelling the returned
+     * future takes the request out of the queue, or cancels the exchange if
+     * it was sent already.
+     */
+    private CompletableFuture<HttpResponse<?>> sendWhenGranted(HttpRequest request, HttpAsyncMiddlewareChain chain,
+                                                               Limiter limiter, CompletableFuture<Void> waiter) {
+        CompletableFuture<HttpResponse<?>> result = new CompletableFuture<>();
+        waiter.whenComplete((granted, failure) -> {
+            if (failure != null) {
+                result.completeExceptionally(failure);
+            } else if (result.isDone()) {
+                // Cancelled after the slot was granted; pass the slot on
+                limiter.release(System.nanoTime(), false, false);
+            } else {
+                CompletableFuture<HttpResponse<?>> future = send(request, chain, limiter);
+                future.whenComplete((response, error) -> {
+                    if (error != null) {
+                        result.completeExceptionally(error);
+                    } else {
+                        result.complete(response);
+                    }
+                });
+                MiddlewareSupport.forwardCancellation(result, future);
+            }
+        });
+        result.whenComplete((response, error) -> {
+            if (result.isCancelled()) {
+                limiter.abandon(waiter);
+            }
+        });
+        return result;
+    }
+
+    private Limiter limiter(HttpRequest request) {
+        String authority = request.getUri().getRawAuthority();
+        String key = authority != null ? authority : "";
+        Limiter limiter = limiters.get(key);
+        if (limiter == null) {
+            limiter = limiters.computeIfAbsent(key, Limiter::new);
+        }
+        return limiter;
+    }
+
+    private boolean isDrop(HttpResponse<?> response) {
+        return response == null || dropStatusCodes.contains(response.getStatusCode());
+    }
+
+    private static boolean isCancellation(Throwable failure) {
+        return failure instanceof CancellationException
+            || (failure instanceof CompletionException && failure.getCause() instanceof CancellationException);
+    }
+
+    /**
+     * Limit, in-flight count and queue of one route.
+     */
+    private final class Limiter {
+        final LimitExceededException rejection;
+        private final ArrayDeque<CompletableFuture<Void>> waiters = new ArrayDeque<>();
+        private double limit = initialLimit;
+        private double baselineRttNanos;
+        private long lastDropNanos;
+        private int inFlight;
+
+        Limiter(String route) {
+            this.rejection = new LimitExceededException(route);
+            this.lastDropNanos = System.nanoTime();
+        }
+
+        synchronized int getLimit() {
+            return (int) limit;
+        }
+
+        synchronized boolean tryAcquire() {
+            if (inFlight < (int) limit && waiters.isEmpty()) {
+                inFlight++;
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * Waits for a free slot. The returned future completes once the slot
+         * is taken on behalf of the caller.
+         */
+        CompletableFuture<Void> enqueue() {
+            CompletableFuture<Void> waiter = new CompletableFuture<>();
+            synchronized (this) {
+                if (inFlight < (int) limit && waiters.isEmpty()) {
+                    inFlight++;
+                    waiter.complete(null);
+                    return waiter;
+                }
+                if (waiters.size() >= maxQueueSize) {
+                    return CompletableFuture.failedFuture(rejection);
+                }
+                waiters.addLast(waiter);
+            }
+            try {
+                CompletableFuture.delayedExecutor(maxQueueWaitNanos, TimeUnit.NANOSECONDS).execute(() -> {
+                    if (waiter.completeExceptionally(rejection)) {
+                        synchronized (this) {
+                            waiters.remove(waiter);
+                        }
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // Without a timer the request waits until a slot is free
+            }
+            return waiter;
+        }
+
+        /**
+         * Takes a request that gave up waiting out of the queue.
+         *
+         * @param waiter the future returned by {@link #enqueue()}
+         * @return true if the request was still waiting, false if it was
+         *         granted a slot or timed out in the meantime
+         */
+        boolean abandon(CompletableFuture<Void> waiter) {
+            if (!waiter.cancel(false)) {
+                return false;
+            }
+            synchronized (this) {
+                waiters.remove(waiter);
+            }
+            return true;
+        }
+
+        /**
+         * Frees the slot of a finished request, adapts the limit and hands
+         * free slots to queued requests.
+         *
+         * @param startNanos the time the request was sent
+         * @param drop       whether the request failed in a way that signals overload
+         * @param sample     whether the latency of the request is meaningful
+         */
+        void release(long startNanos, boolean drop, boolean sample) {
+            List<CompletableFuture<Void>> granted = null;
+            synchronized (this) {
+                if (drop) {
+                    // Requests sent before the last cut were sent under the old limit;
+                    // their drops must not cut the limit again
+                    if (startNanos - lastDropNanos > 0) {
+                        limit = Math.max(minLimit, limit * backoffRatio);
+                        lastDropNanos = System.nanoTime();
+                    }
+                } else if (sample) {
+                    adapt(System.nanoTime() - startNanos);
+                }
+                inFlight--;
+                while (inFlight < (int) limit && !waiters.isEmpty()) {
+                    CompletableFuture<Void> waiter = waiters.pollFirst();
+                    if (!waiter.isDone()) {
+                        inFlight++;
+                        if (granted == null) {
+                            granted = new ArrayList<>(2);
+                        }
+                        granted.add(waiter);
+                    }
+                }
+            }
+            if (granted != null) {
+                // Futures are completed outside the lock since callers continue on this thread
+                for (CompletableFuture<Void> waiter : granted) {
+                    if (!waiter.complete(null)) {
+                        // The waiter timed out in the meantime; pass its slot on
+                        release(System.nanoTime(), false, false);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Moves the limit along the latency gradient. Must hold the lock.
+         */
+        private void adapt(long rttNanos) {
+            long rtt = Math.max(1, rttNanos);
+            if (baselineRttNanos == 0 || rtt < baselineRttNanos) {
+                baselineRttNanos = rtt;
+            } else {
+                // Drift up slowly so that a permanent change in latency is eventually accepted
+                baselineRttNanos += (rtt - baselineRttNanos) / BASELINE_DRIFT;
+            }
+            double gradient = Math.max(0.5, Math.min(1.0, tolerance * baselineRttNanos / rtt));
+            if (gradient == 1.0 && inFlight * 2 < limit) {
+                // The route is not using its limit, so latency says nothing about a higher one
+                return;
+            }
+            double target = limit * gradient + Math.sqrt(limit);
+            limit = Math.max(minLimit, Math.min(maxLimit, limit * (1 - smoothing) + target * smoothing));
+        }
+    }
+
+    /**
+     * Exception returned when a request cannot get a slot within the limit of
+     * its route. It carries no stack trace, and one instance is reused per
+     * route, so shedding load costs no allocation.
+     */
+    public static final class LimitExceededException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+        private final String route;
+
+        /**
+         * Creates a new limit exceeded exception.
+         *
+         * @param route the route whose limit was exceeded
+         */
+        public LimitExceededException(String route) {
+            super("Concurrency limit exceeded for " + route, null, false, false);
+            this.route = route;
+        }
+
+        /**
+         * Gets the route whose limit was exceeded.
+         *
+         * @return the URI authority of the route
+         */
+        public String getRoute() {
+            return route;
+        }
+    }
+
+    /**
+     * Builder for creating {@link ConcurrencyLimitMiddleware} instances.
+     */
+    public static class Builder {
+        private int initialLimit = 20;
+        private int minLimit = 1;
+        private int maxLimit = 1000;
+        private int maxQueueSize = 100;
+        private Duration maxQueueWait = Duration.ofSeconds(1);
+        private double backoffRatio = 0.9;
+        private double tolerance = 1.5;
+        private double smoothing = 0.2;
+        private final Set<Integer> dropStatusCodes = new HashSet<>(java.util.Arrays.asList(429, 503));
+
+        /**
+         * Sets the limits of the concurrency limit.
+         *
+         * @param initialLimit the limit of a route before anything was measured
+         * @param minLimit     the lowest limit
+         * @param maxLimit     the highest limit
+         * @return this builder
+         * @throws IllegalArgumentException if the limits are not positive and ordered
+         */
+        public Builder limits(int initialLimit, int minLimit, int maxLimit) {
+            if (minLimit <= 0 || minLimit > initialLimit || initialLimit > maxLimit) {
+                throw new IllegalArgumentException("Limits must be positive and minLimit <= initialLimit <= maxLimit");
+            }
+            this.initialLimit = initialLimit;
+            this.minLimit = minLimit;
+            this.maxLimit = maxLimit;
+            return this;
+        }
+
+        /**
+         * Sets how many requests may wait for a free slot, and for how long.
+         * A queue size of 0 rejects excess requests immediately.
+         *
+         * @param maxQueueSize the maximum number of waiting requests per route
+         * @param maxQueueWait the maximum time a request waits
+         * @return this builder
+         * @throws IllegalArgumentException if the size is negative or the wait is null or negative
+         */
+        public Builder queue(int maxQueueSize, Duration maxQueueWait) {
+            if (maxQueueSize < 0 || maxQueueWait == null || maxQueueWait.isNegative()) {
+                throw new IllegalArgumentException("Queue size and wait must not be negative");
+            }
+            this.maxQueueSize = maxQueueSize;
+            this.maxQueueWait = maxQueueWait;
+            return this;
+        }
+
+        /**
+         * Sets the factor the limit is multiplied with on a drop signal.
+         *
+         * @param backoffRatio the factor, greater than 0 and less than 1
+         * @return this builder
+         * @throws IllegalArgumentException if the factor is out of range
+         */
+        public Builder backoffRatio(double backoffRatio) {
+            if (backoffRatio <= 0 || backoffRatio >= 1) {
+                throw new IllegalArgumentException("Backoff ratio must be between 0 and 1");
+            }
+            this.backoffRatio = backoffRatio;
+            return this;
+        }
+
+        /**
+         * Sets how much slower than the long-term average a response may be
+         * before the limit shrinks.
+         *
+         * @param tolerance the tolerated latency ratio, at least 1
+         * @return this builder
+         * @throws IllegalArgumentException if the tolerance is less than 1
+         */
+        public Builder tolerance(double tolerance) {
+            if (tolerance < 1) {
+                throw new IllegalArgumentException("Tolerance must be at least 1");
+            }
+            this.tolerance = tolerance;
+            return this;
+        }
+
+        /**
+         * Sets how quickly the limit moves towards a new estimate.
+         *
+         * @param smoothing the weight of each new estimate, greater than 0 and at most 1
+         * @return this builder
+         * @throws IllegalArgumentException if the weight is out of range
+         */
+        public Builder smoothing(double smoothing) {
+            if (smoothing <= 0 || smoothing > 1) {
+                throw new IllegalArgumentException("Smoothing must be greater than 0 and at most 1");
+            }
+            this.smoothing = smoothing;
+            return this;
+        }
+
+        /**
+         * Sets the HTTP status codes that signal an overloaded route.
+         *
+         * @param statusCodes the status codes
+         * @return this builder
+         */
+        public Builder dropStatusCodes(Integer... statusCodes) {
+            this.dropStatusCodes.clear();
+            java.util.Collections.addAll(this.dropStatusCodes, statusCodes);
+            return this;
+        }
+
+        /**
+         * Builds a new {@link ConcurrencyLimitMiddleware} with the current settings.
+         *
+         * @return a new concurrency limit middleware
+         */
+        public ConcurrencyLimitMiddleware build() {
+            return new ConcurrencyLimitMiddleware(this);
+        }
+    }
+
+    /**
+     * Creates a new builder for {@link ConcurrencyLimitMiddleware}.
+     *
+     * @return a new builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+}
@@ -0,0 +1,381 @@
+package com.network.middleware.http;
+
+import com.network.api.http.HttpMethod;
+import com.network.api.http.HttpRequest;
+import com.network.api.http.HttpRequestContext;
+import com.network.api.http.HttpResponse;
+import com.network.api.http.middleware.HttpAsyncMiddlewareChain;
+import com.network.api.http.middleware.HttpMiddleware;
+import com.network.api.http.middleware.HttpMiddlewareChain;
+import com.network.api.http.middleware.MiddlewareSupport;
+
+import java.time.Duration;
+import java.time.temporal.ChronoUnit;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Middleware that sends a second copy of a slow request.
+ *
+ * <p>Latencies are tracked per route (the URI authority). If a request has
+ * not been answered within the configured latency percentile of its route,
+ * e.g. p95, the same request is sent again. Whichever copy answers first is
+ * returned and the other one is cancelled, which releases its connection.
+ * Only requests with one of the hedge methods and a repeatable body are
+ * hedged, by default the same safe methods that {@link RetryMiddleware}
+ * retries. A {@link RetryMiddleware.RetryBudget} limits hedges to a share of
+ * the traffic, so hedging cannot double the load on a slow backend.
+ *
+ * <p>Hedging only applies to asynchronous requests; blocking requests are
+ * passed through and only contribute to the latency statistics. The
+ * middleware runs after most other middlewares so that each copy passes
+ * through as little of the chain as possible.
+ */
+public class HedgingMiddleware implements HttpMiddleware {
+
+    private static final int ORDER = 800;
+    private static final int DECAY_INTERVAL = 1024;
+    private static final int REFRESH_INTERVAL = 64;
+
+    private final double percentile;
+    private final long minDelayMicros;
+    private final long maxDelayMicros;
+    private final int minSamples;
+    private final Set<HttpMethod> hedgeMethods;
+    private final RetryMiddleware.RetryBudget budget;
+    private final Executor executor;
+    private final ConcurrentMap<String, RouteStats> routes = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a new hedging middleware with default settings: hedge after the
+     * p95 latency of the route, but not before 10 milliseconds.
+     */
+    public HedgingMiddleware() {
+        this(builder());
+    }
+
+    private HedgingMiddleware(Builder builder) {
+        this.percentile = builder.percentile;
+        this.minDelayMicros = TimeUnit.NANOSECONDS.toMicros(builder.minDelay.toNanos());
+        this.maxDelayMicros = Math.max(minDelayMicros, TimeUnit.NANOSECONDS.toMicros(builder.maxDelay.toNanos()));
+        this.minSamples = builder.minSamples;
+        this.hedgeMethods = new HashSet<>(builder.hedgeMethods);
+        this.budget = builder.budget != null ? builder.budget : new RetryMiddleware.RetryBudget(0.1, 10);
+        this.executor = builder.executor != null ? builder.executor : ForkJoinPool.commonPool();
+    }
+
+    @Override
+    public int getOrder() {
+        return ORDER;
+    }
+
+    @Override
+    public void beforeRequest(HttpRequestContext context) {
+        // Nothing to prepare
+    }
+
+    @Override
+    public void afterResponse(HttpRequestContext context, HttpResponse<?> response) {
+        // Nothing to clean up
+    }
+
+    @Override
+    public HttpResponse<?> process(HttpRequest request, HttpMiddlewareChain chain) {
+        long start = System.nanoTime();
+        HttpResponse<?> response = chain.next(request);
+        stats(request).record(start);
+        return response;
+    }
+
+    @Override
+    public CompletableFuture<HttpResponse<?>> processAsync(HttpRequest request, HttpAsyncMiddlewareChain chain) {
+        RouteStats stats = stats(request);
+        long delay = stats.hedgeDelayMicros();
+        if (delay < 0 || !hedgeMethods.contains(request.getMethod()) || !request.getRequestBody().isRepeatable()) {
+            long start = System.nanoTime();
+            CompletableFuture<HttpResponse<?>> future = chain.next(request);
+            future.thenRun(() -> stats.record(start));
+            return future;
+        }
+        budget.deposit();
+        HedgedCall call = new HedgedCall(request, chain, stats);
+        call.start(delay);
+        return call.result;
+    }
+
+    /**
+     * Gets the current hedge delay of a route.
+     *
+     * @param authority the authority of the route, e.g. {@code example.com:8080}
+     * @return the delay after which requests to the route are hedged, or null
+     *         while too few of its responses have been seen
+     */
+    public Duration getHedgeDelay(String authority) {
+        RouteStats stats = routes.get(authority);
+        long delay = stats != null ? stats.hedgeDelayMicros() : -1;
+        return delay >= 0 ? Duration.of(delay, ChronoUnit.MICROS) : null;
+    }
+
+    /**
+     * Gets the statistics of a route, creating them on first use.
+     */
+    private RouteStats stats(HttpRequest request) {
+        String route = request.getUri().getRawAuthority();
+        RouteStats stats = routes.get(route != null ? route : "");
+        if (stats == null) {
+            stats = routes.computeIfAbsent(route != null ? route : "", key -> new RouteStats());
+        }
+        return stats;
+    }
+
+    /**
+     * Latency statistics of one route.
+     */
+    private final class RouteStats {
+        private final LatencyHistogram histogram = new LatencyHistogram(DECAY_INTERVAL);
+        private volatile long hedgeDelayMicros = -1;
+
+        void record(long startNanos) {
+            histogram.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos));
+            long samples = histogram.getSampleCount();
+            if (samples >= minSamples && (samples % REFRESH_INTERVAL == 0 || hedgeDelayMicros < 0)) {
+                long delay = histogram.percentile(percentile);
+                hedgeDelayMicros = Math.min(maxDelayMicros, Math.max(minDelayMicros, delay));
+            }
+        }
+
+        /**
+         * Gets the delay after which a request is hedged, or -1 while there
+         * are too few samples to know what is slow.
+         */
+        long hedgeDelayMicros() {
+            return hedgeDelayMicros;
+        }
+    }
+
+    /**
+     * A request that may be sent twice; the first response completes {@link #result}.
+     */
+    private final class HedgedCall {
+        final CompletableFuture<HttpResponse<?>> result = new CompletableFuture<>();
+        private final HttpRequest request;
+        private final HttpAsyncMiddlewareChain chain;
+        private final RouteStats stats;
+        private final long start = System.nanoTime();
+        private CompletableFuture<HttpResponse<?>> primary;
+        private CompletableFuture<HttpResponse<?>> hedge;
+        private int outstanding;
+
+        HedgedCall(HttpRequest request, HttpAsyncMiddlewareChain chain, RouteStats stats) {
+            this.request = request;
+            this.chain = chain;
+            this.stats = stats;
+        }
+
+        void start(long delayMicros) {
+            synchronized (this) {
+                outstanding = 1;
+            }
+            CompletableFuture<HttpResponse<?>> future = send();
+            synchronized (this) {
+                primary = future;
+            }
+            result.whenComplete((response, failure) -> {
+                if (result.isCancelled()) {
+                    cancelAll(null);
+                }
+            });
+            if (!result.isDone()) {
+                try {
+                    CompletableFuture.delayedExecutor(delayMicros, TimeUnit.MICROSECONDS, executor)
+                        .execute(this::sendHedge);
+                } catch (RejectedExecutionException e) {
+                    // Without a timer the request is simply not hedged
+                }
+            }
+        }
+
+        private void sendHedge() {
+            synchronized (this) {
+                if (result.isDone() || !budget.tryWithdraw()) {
+                    return;
+                }
+                outstanding++;
+            }
+            CompletableFuture<HttpResponse<?>> future = send();
+            synchronized (this) {
+                hedge = future;
+            }
+            if (result.isDone()) {
+                // The primary answered while the hedge was being sent
+                future.cancel(true);
+            }
+        }
+
+        private CompletableFuture<HttpResponse<?>> send() {
+            CompletableFuture<HttpResponse<?>> future;
+            try {
+                future = chain.next(request);
+            } catch (RuntimeException e) {
+                future = CompletableFuture.failedFuture(e);
+            }
+            CompletableFuture<HttpResponse<?>> self = future;
+            future.whenComplete((response, failure) -> onComplete(self, response, failure));
+            return future;
+        }
+
+        private void onComplete(CompletableFuture<HttpResponse<?>> source, HttpResponse<?> response,
+                                Throwable failure) {
+            if (failure == null) {
+                if (result.complete(response)) {
+                    // Timed from the primary, so a winning hedge counts its delay and the
+                    // tail the hedge cut off stays in the histogram
+                    stats.record(start);
+                    cancelAll(source);
+                } else {
+                    MiddlewareSupport.discard(response);
+                }
+                return;
+            }
+            boolean last;
+            synchronized (this) {
+                last = --outstanding == 0;
+            }
+            if (last) {
+                // Every copy failed; report the failure of the last one
+                result.completeExceptionally(failure);
+            }
+        }
+
+        private void cancelAll(CompletableFuture<HttpResponse<?>> winner) {
+            CompletableFuture<HttpResponse<?>> first;
+            CompletableFuture<HttpResponse<?>> second;
+            synchronized (this) {
+                first = primary;
+                second = hedge;
+            }
+            if (first != null && first != winner) {
+                first.cancel(true);
+            }
+            if (second != null && second != winner) {
+                second.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * Builder for creating {@link HedgingMiddleware} instances.
+     */
+    public static class Builder {
+        private double percentile = 0.95;
+        private Duration minDelay = Duration.ofMillis(10);
+        private Duration maxDelay = Duration.ofSeconds(5);
+        private int minSamples = 20;
+        private final Set<HttpMethod> hedgeMethods = new HashSet<>(java.util.Arrays.asList(HttpMethod.GET, HttpMethod.HEAD, HttpMethod.OPTIONS));
+        private RetryMiddleware.RetryBudget budget;
+        private Executor executor;
+
+        /**
+         * Sets the latency percentile of the route after which a request is hedged.
+         *
+         * @param percentile the percentile, e.g. 0.95 for p95
+         * @return this builder
+         * @throws IllegalArgumentException if the percentile is not between 0 and 1
+         */
+        public Builder percentile(double percentile) {
+            if (percentile <= 0 || percentile >= 1) {
+                throw new IllegalArgumentException("Percentile must be between 0 and 1");
+            }
+            this.percentile = percentile;
+            return this;
+        }
+
+        /**
+         * Sets the bounds of the hedge delay.
+         *
+         * @param minDelay the minimum delay before a request is hedged
+         * @param maxDelay the maximum delay before a request is hedged
+         * @return this builder
+         * @throws IllegalArgumentException if a delay is null or negative
+         */
+        public Builder delayBounds(Duration minDelay, Duration maxDelay) {
+            if (minDelay == null || maxDelay == null || minDelay.isNegative() || maxDelay.isNegative()) {
+                throw new IllegalArgumentException("Hedge delays must not be negative");
+            }
+            this.minDelay = minDelay;
+            this.maxDelay = maxDelay;
+            return this;
+        }
+
+        /**
+         * Sets the number of responses a route needs before its requests are hedged.
+         *
+         * @param minSamples the minimum number of samples
+         * @return this builder
+         */
+        public Builder minSamples(int minSamples) {
+            this.minSamples = Math.max(1, minSamples);
+            return this;
+        }
+
+        /**
+         * Sets the HTTP methods that can be hedged.
+         *
+         * @param methods the HTTP methods
+         * @return this builder
+         */
+        public Builder hedgeMethods(HttpMethod... methods) {
+            this.hedgeMethods.clear();
+            java.util.Collections.addAll(this.hedgeMethods, methods);
+            return this;
+        }
+
+        /**
+         * Sets the budget that limits hedged requests. Defaults to 10% of the traffic.
+         *
+         * @param budget the hedge budget
+         * @return this builder
+         */
+        public Builder hedgeBudget(RetryMiddleware.RetryBudget budget) {
+            this.budget = budget;
+            return this;
+        }
+
+        /**
+         * Sets the executor that sends hedged requests. Defaults to the common
+         * fork-join pool.
+         *
+         * @param executor the executor
+         * @return this builder
+         */
+        public Builder executor(Executor executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        /**
+         * Builds a new {@link HedgingMiddleware} with the current settings.
+         *
+         * @return a new hedging middleware
+         */
+        public HedgingMiddleware build() {
+            return new HedgingMiddleware(this);
+        }
+    }
+
+    /**
+     * Creates a new builder for {@link HedgingMiddleware}.
+     *
+     * @return a new builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+}
@@ -0,0 +1,106 @@
+package com.network.middleware.http;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram of recent request latencies.
+ *
+ * <p>Latencies are counted in log-linear buckets: each power of two of
+ * microseconds is split into four sub-buckets, so any percentile is reported
+ * with an error of at most 25% while the histogram stays a fixed array of
+ * counters. Every {@code decayInterval} samples all counts are halved so that
+ * the histogram follows changes in latency.
+ */
+final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 2;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    /** Covers latencies up to 2^40 microseconds, i.e. about 12 days. */
+    private static final int BUCKETS = 41 * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong samples = new AtomicLong();
+    private final int decayInterval;
+
+    /**
+     * Creates a new histogram.
+     *
+     * @param decayInterval the number of samples after which counts are halved
+     */
+    LatencyHistogram(int decayInterval) {
+        this.decayInterval = Math.max(16, decayInterval);
+    }
+
+    /**
+     * Records a latency.
+     *
+     * @param micros the latency in microseconds
+     */
+    void record(long micros) {
+        counts.incrementAndGet(bucketOf(Math.max(0, micros)));
+        if (samples.incrementAndGet() % decayInterval == 0) {
+            // Concurrent increments may be halved too; the histogram is an estimate anyway
+            for (int i = 0; i < BUCKETS; i++) {
+                long count;
+                do {
+                    count = counts.get(i);
+                } while (count > 0 && !counts.compareAndSet(i, count, count >> 1));
+            }
+        }
+    }
+
+    /**
+     * Gets the total number of samples recorded, including decayed ones.
+     *
+     * @return the number of samples
+     */
+    long getSampleCount() {
+        return samples.get();
+    }
+
+    /**
+     * Estimates a latency percentile.
+     *
+     * @param percentile the percentile between 0 and 1, e.g. 0.95
+     * @return the upper bound of the bucket holding the percentile in
+     *         microseconds, or -1 if nothing was recorded
+     */
+    long percentile(double percentile) {
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            total += counts.get(i);
+        }
+        if (total == 0) {
+            return -1;
+        }
+        long rank = (long) Math.ceil(total * percentile);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return upperBoundOf(i);
+            }
+        }
+        return upperBoundOf(BUCKETS - 1);
+    }
+
+    private static int bucketOf(long micros) {
+        if (micros < SUB_BUCKETS) {
+            return (int) micros;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        int subBucket = (int) (micros >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        int bucket = (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+        return Math.min(bucket, BUCKETS - 1);
+    }
+
+    private static long upperBoundOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        int subBucket = bucket % SUB_BUCKETS;
+        return ((long) (SUB_BUCKETS + subBucket + 1) << (exponent - SUB_BUCKET_BITS)) - 1;
+    }
+}
@@ -1,29 +1,76 @@
 package com.network.middleware.http;
 
+import com.network.api.http.AttributeKey;
 import com.network.api.http.HttpMethod;
+import com.network.api.http.HttpRequest;
 import com.network.api.http.HttpRequestContext;
 import com.network.api.http.HttpResponse;
+import com.network.api.http.middleware.HttpAsyncMiddlewareChain;
 import com.network.api.http.middleware.HttpMiddleware;
+import com.network.api.http.middleware.HttpMiddlewareChain;
+import com.network.api.http.middleware.MiddlewareSupport;
 
+import java.io.IOException;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Middleware for handling HTTP request retries.
+ * 
+ * <p>A request is retried if its method is one of the retry methods, its body
+ * can be sent again, and the attempt either failed with one of the retry
+ * exceptions or returned one of the retry status codes. Retries are delayed
+ * with exponential backoff and jitter. For {@code 429} and {@code 503}
+ * responses a {@code Retry-After} header takes precedence over the backoff,
+ * and the response is returned as is if the server asks to wait longer than
+ * the maximum backoff.
+ * 
+ * <p>Asynchronous retries are scheduled on the JDK's shared delay timer and
+ * never block a thread. Every request deposits a fraction of a token into a
+ * {@link RetryBudget} and every retry withdraws a whole token, so retries
+ * stop once they would exceed that fraction of the traffic.
  */
 public class RetryMiddleware implements HttpMiddleware {
 
+    /**
+     * Context attribute with the number of retries made so far for the request.
+     */
+    public static final AttributeKey.IntKey RETRY_COUNT = AttributeKey.intKey("retry.count");
+
+    private static final Duration DEFAULT_INITIAL_BACKOFF = Duration.ofMillis(100);
+    private static final Duration DEFAULT_MAX_BACKOFF = Duration.ofSeconds(10);
+    private static final double DEFAULT_JITTER = 0.5;
+    private static final DateTimeFormatter HTTP_DATE = DateTimeFormatter.RFC_1123_DATE_TIME;
+
     private final int maxRetries;
     private final Set<Integer> retryStatusCodes;
     private final Set<Class<? extends Throwable>> retryExceptions;
     private final Set<HttpMethod> retryMethods;
+    private final long initialBackoffMillis;
+    private final long maxBackoffMillis;
+    private final double jitter;
+    private final RetryBudget budget;
+    private final Executor executor;
 
     /**
      * Creates a new retry middleware with default settings.
      */
     public RetryMiddleware() {
         this(3, 
-             new HashSet<>(java.util.Arrays.asList(500, 502, 503, 504)), 
+             new HashSet<>(java.util.Arrays.asList(429, 500, 502, 503, 504)), 
              new HashSet<>(java.util.Arrays.asList(java.io.IOException.class)), 
              new HashSet<>(java.util.Arrays.asList(HttpMethod.GET, HttpMethod.HEAD, HttpMethod.OPTIONS)));
     }
@@ -40,55 +87,257 @@ public class RetryMiddleware implements HttpMiddleware {
                           Set<Integer> retryStatusCodes, 
                           Set<Class<? extends Throwable>> retryExceptions,
                           Set<HttpMethod> retryMethods) {
+        this(maxRetries, retryStatusCodes, retryExceptions, retryMethods,
+             DEFAULT_INITIAL_BACKOFF, DEFAULT_MAX_BACKOFF, DEFAULT_JITTER, new RetryBudget(), null);
+    }
+
+    private RetryMiddleware(int maxRetries,
+                            Set<Integer> retryStatusCodes,
+                            Set<Class<? extends Throwable>> retryExceptions,
+                            Set<HttpMethod> retryMethods,
+                            Duration initialBackoff,
+                            Duration maxBackoff,
+                            double jitter,
+                            RetryBudget budget,
+                            Executor executor) {
         this.maxRetries = maxRetries;
         this.retryStatusCodes = retryStatusCodes;
         this.retryExceptions = retryExceptions;
         this.retryMethods = retryMethods;
+        this.initialBackoffMillis = Math.max(1, initialBackoff.toMillis());
+        this.maxBackoffMillis = Math.max(this.initialBackoffMillis, maxBackoff.toMillis());
+        this.jitter = jitter;
+        this.budget = budget;
+        this.executor = executor != null ? executor : ForkJoinPool.commonPool();
     }
 
     @Override
     public void beforeRequest(HttpRequestContext context) {
         // Initialize retry count
-        context.setAttribute("retry.count", 0);
+        context.setInt(RETRY_COUNT, 0);
     }
 
     @Override
     public void afterResponse(HttpRequestContext context, HttpResponse<?> response) {
-        Integer retryCount = (Integer) context.getAttribute("retry.count");
-        if (retryCount == null) {
-            retryCount = 0;
+        // Retries are decided in process and processAsync, which see failures as well
+    }
+
+    @Override
+    public HttpResponse<?> process(HttpRequest request, HttpMiddlewareChain chain) {
+        HttpRequestContext context = request.getContext();
+        beforeRequest(context);
+        budget.deposit();
+        for (int attempt = 0; ; attempt++) {
+            HttpResponse<?> response = null;
+            RuntimeException failure = null;
+            try {
+                response = chain.next(request);
+            } catch (RuntimeException e) {
+                failure = e;
+            }
+            long delay = retryDelay(request, attempt, response, failure);
+            if (delay < 0) {
+                if (failure != null) {
+                    throw failure;
+                }
+                return response;
+            }
+            context.setInt(RETRY_COUNT, attempt + 1);
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                // Give up on retrying and report the last outcome, which is still intact
+                Thread.currentThread().interrupt();
+                if (failure != null) {
+                    throw failure;
+                }
+                return response;
+            }
+            MiddlewareSupport.discard(response);
+        }
+    }
+
+    @Override
+    public CompletableFuture<HttpResponse<?>> processAsync(HttpRequest request, HttpAsyncMiddlewareChain chain) {
+        HttpRequestContext context = request.getContext();
+        beforeRequest(context);
+        budget.deposit();
+        return new AsyncRetry(request, context, chain).start();
+    }
+
+    /**
+     * One asynchronous request with its retries. Cancelling the returned
+     * future cancels the attempt in flight, or stops a retry that is waiting
+     * for its backoff to elapse.
+     */
+    private final class AsyncRetry {
+        private final HttpRequest request;
+        private final HttpRequestContext context;
+        private final HttpAsyncMiddlewareChain chain;
+        private final CompletableFuture<HttpResponse<?>> result = new CompletableFuture<>();
+        private volatile CompletableFuture<HttpResponse<?>> current;
+
+        AsyncRetry(HttpRequest request, HttpRequestContext context, HttpAsyncMiddlewareChain chain) {
+            this.request = request;
+            this.context = context;
+            this.chain = chain;
         }
 
-        // Check if retry is needed
-        if (retryCount < maxRetries && shouldRetry(response)) {
-            // Increment retry count
-            context.setAttribute("retry.count", retryCount + 1);
-            throw new RetryException("Retrying due to status code " + response.getStatusCode(), 
-                                    retryCount + 1);
+        CompletableFuture<HttpResponse<?>> start() {
+            result.whenComplete((response, failure) -> {
+                CompletableFuture<HttpResponse<?>> attempt = current;
+                if (result.isCancelled() && attempt != null) {
+                    attempt.cancel(true);
+                }
+            });
+            attempt(0);
+            return result;
+        }
+
+        /**
+         * Sends one attempt and schedules the next one if it has to be retried.
+         */
+        private void attempt(int attempt) {
+            if (result.isDone()) {
+                // The caller cancelled the request while the retry was pending
+                return;
+            }
+            CompletableFuture<HttpResponse<?>> future;
+            try {
+                future = chain.next(request);
+            } catch (RuntimeException e) {
+                future = CompletableFuture.failedFuture(e);
+            }
+            current = future;
+            if (result.isCancelled()) {
+                // Cancelled before the attempt was published
+                future.cancel(true);
+            }
+            future.whenComplete((response, failure) -> {
+                long delay = retryDelay(request, attempt, response, failure);
+                if (delay >= 0 && !result.isDone()) {
+                    try {
+                        context.setInt(RETRY_COUNT, attempt + 1);
+                        Executor delayed = CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS, executor);
+                        delayed.execute(() -> attempt(attempt + 1));
+                        MiddlewareSupport.discard(response);
+                        return;
+                    } catch (RejectedExecutionException e) {
+                        // Fall through and report the last outcome
+                    }
+                }
+                if (failure != null) {
+                    result.completeExceptionally(failure);
+                } else if (!result.complete(response)) {
+                    // Nobody is waiting for the response anymore
+                    MiddlewareSupport.discard(response);
+                }
+            });
         }
     }
 
     /**
-     * Checks if a response should be retried.
+     * Decides if an attempt is retried.
      * 
-     * @param response the response to check
-     * @return true if the response should be retried, false otherwise
+     * @return the delay before the next attempt in milliseconds, or -1 to not retry
      */
-    private boolean shouldRetry(HttpResponse<?> response) {
-        if (response == null) {
-            return false;
+    private long retryDelay(HttpRequest request, int attempt, HttpResponse<?> response, Throwable failure) {
+        if (attempt >= maxRetries || !isRetryable(request)) {
+            return -1;
         }
-
-        if (retryStatusCodes.contains(response.getStatusCode())) {
-            return true;
+        long retryAfter = -1;
+        if (failure != null) {
+            if (!isRetryable(failure)) {
+                return -1;
+            }
+        } else if (response == null || !retryStatusCodes.contains(response.getStatusCode())) {
+            return -1;
+        } else if (response.getStatusCode() == 429 || response.getStatusCode() == 503) {
+            retryAfter = parseRetryAfter(response.getHeader("Retry-After"));
+            if (retryAfter > maxBackoffMillis) {
+                // The caller is better off seeing the response than waiting that long
+                return -1;
+            }
         }
+        if (!budget.tryWithdraw()) {
+            return -1;
+        }
+        return Math.max(retryAfter, backoff(attempt));
+    }
+
+    /**
+     * Checks if a request may be sent again.
+     * 
+     * @param request the request to check
+     * @return true if the method may be retried and the body can be replayed
+     */
+    private boolean isRetryable(HttpRequest request) {
+        return retryMethods.contains(request.getMethod()) && request.getRequestBody().isRepeatable();
+    }
 
+    /**
+     * Checks if a failure or one of its causes is one of the retry exceptions.
+     * 
+     * @param failure the failure to check
+     * @return true if the failure should be retried, false otherwise
+     */
+    private boolean isRetryable(Throwable failure) {
+        Throwable current = failure;
+        for (int depth = 0; current != null && depth < 8; depth++) {
+            if (!(current instanceof CompletionException) && !(current instanceof ExecutionException)) {
+                for (Class<? extends Throwable> type : retryExceptions) {
+                    if (type.isInstance(current)) {
+                        return true;
+                    }
+                }
+            }
+            current = current.getCause();
+        }
         return false;
     }
 
+    /**
+     * Computes the exponential backoff for an attempt, with up to {@code jitter}
+     * of it taken away at random so that clients do not retry in lockstep.
+     */
+    private long backoff(int attempt) {
+        long ceiling = Math.min(maxBackoffMillis, initialBackoffMillis << Math.min(attempt, 20));
+        return ceiling - (long) (ceiling * jitter * ThreadLocalRandom.current().nextDouble());
+    }
+
+    /**
+     * Parses a {@code Retry-After} header in delta-seconds or HTTP-date form.
+     * 
+     * @param value the header value, may be null
+     * @return the delay in milliseconds, or -1 if absent or invalid
+     */
+    static long parseRetryAfter(String value) {
+        if (value == null || value.isEmpty()) {
+            return -1;
+        }
+        String trimmed = value.trim();
+        if (!trimmed.isEmpty() && Character.isDigit(trimmed.charAt(0))) {
+            try {
+                return TimeUnit.SECONDS.toMillis(Long.parseLong(trimmed));
+            } catch (NumberFormatException e) {
+                return -1;
+            }
+        }
+        try {
+            ZonedDateTime date = ZonedDateTime.parse(trimmed, HTTP_DATE);
+            return Math.max(0, Duration.between(ZonedDateTime.now(date.getZone()), date).toMillis());
+        } catch (DateTimeParseException e) {
+            return -1;
+        }
+    }
+
     /**
      * Exception thrown to indicate that a request should be retried.
+     * 
+     * @deprecated retries are now handled inside the middleware and this
+     *             exception is no longer thrown; it is kept for source compatibility
      */
+    @Deprecated
     public static class RetryException extends RuntimeException {
         private static final long serialVersionUID = 1L;
         private final int attempt;
@@ -114,14 +363,98 @@ public class RetryMiddleware implements HttpMiddleware {
         }
     }
 
+    /**
+     * Token bucket that limits retries to a share of the request traffic.
+     * 
+     * <p>Every request deposits {@code retryRatio} tokens and every retry
+     * withdraws one, up to a maximum balance that also allows a burst of
+     * retries when traffic is low. The bucket is lock-free and can be shared
+     * by several middlewares to enforce one budget across clients.
+     */
+    public static final class RetryBudget {
+        private static final long SCALE = 1000;
+
+        private final long deposit;
+        private final long capacity;
+        private final AtomicLong balance;
+
+        /**
+         * Creates a budget that allows retries for 20% of the requests, with a
+         * balance of up to 10 retries.
+         */
+        public RetryBudget() {
+            this(0.2, 10);
+        }
+
+        /**
+         * Creates a new retry budget.
+         * 
+         * @param retryRatio the number of retries allowed per request, e.g. 0.2 for 20%
+         * @param maxTokens  the maximum number of retries that can be saved up
+         * @throws IllegalArgumentException if an argument is negative or maxTokens is zero
+         */
+        public RetryBudget(double retryRatio, int maxTokens) {
+            if (retryRatio < 0 || maxTokens <= 0) {
+                throw new IllegalArgumentException("Retry ratio must not be negative and max tokens must be positive");
+            }
+            this.deposit = Math.round(retryRatio * SCALE);
+            this.capacity = maxTokens * SCALE;
+            this.balance = new AtomicLong(capacity);
+        }
+
+        /**
+         * Records a request.
+         */
+        public void deposit() {
+            for (;;) {
+                long current = balance.get();
+                long next = Math.min(capacity, current + deposit);
+                if (next == current || balance.compareAndSet(current, next)) {
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Takes the token for one retry if available.
+         * 
+         * @return true if the retry may proceed
+         */
+        public boolean tryWithdraw() {
+            for (;;) {
+                long current = balance.get();
+                if (current < SCALE) {
+                    return false;
+                }
+                if (balance.compareAndSet(current, current - SCALE)) {
+                    return true;
+                }
+            }
+        }
+
+        /**
+         * Gets the number of retries currently available.
+         * 
+         * @return the available retries
+         */
+        public double getAvailableRetries() {
+            return balance.get() / (double) SCALE;
+        }
+    }
+
     /**
      * Builder for creating {@link RetryMiddleware} instances.
      */
     public static class Builder {
         private int maxRetries = 3;
-        private final Set<Integer> retryStatusCodes = new HashSet<>(java.util.Arrays.asList(500, 502, 503, 504));
+        private final Set<Integer> retryStatusCodes = new HashSet<>(java.util.Arrays.asList(429, 500, 502, 503, 504));
         private final Set<Class<? extends Throwable>> retryExceptions = new HashSet<>(java.util.Arrays.asList(java.io.IOException.class));
         private final Set<HttpMethod> retryMethods = new HashSet<>(java.util.Arrays.asList(HttpMethod.GET, HttpMethod.HEAD, HttpMethod.OPTIONS));
+        private Duration initialBackoff = DEFAULT_INITIAL_BACKOFF;
+        private Duration maxBackoff = DEFAULT_MAX_BACKOFF;
+        private double jitter = DEFAULT_JITTER;
+        private RetryBudget budget;
+        private Executor executor;
 
         /**
          * Sets the maximum number of retry attempts.
@@ -171,13 +504,87 @@ public class RetryMiddleware implements HttpMiddleware {
             return this;
         }
 
+        /**
+         * Sets the delay before the first retry. The delay doubles with every
+         * further retry.
+         * 
+         * @param initialBackoff the initial backoff
+         * @return this builder
+         * @throws IllegalArgumentException if the backoff is null or negative
+         */
+        public Builder initialBackoff(Duration initialBackoff) {
+            if (initialBackoff == null || initialBackoff.isNegative()) {
+                throw new IllegalArgumentException("Initial backoff must not be negative");
+            }
+            this.initialBackoff = initialBackoff;
+            return this;
+        }
+
+        /**
+         * Sets the maximum delay between retries. This also caps the
+         * {@code Retry-After} delays the middleware is willing to wait.
+         * 
+         * @param maxBackoff the maximum backoff
+         * @return this builder
+         * @throws IllegalArgumentException if the backoff is null or negative
+         */
+        public Builder maxBackoff(Duration maxBackoff) {
+            if (maxBackoff == null || maxBackoff.isNegative()) {
+                throw new IllegalArgumentException("Max backoff must not be negative");
+            }
+            this.maxBackoff = maxBackoff;
+            return this;
+        }
+
+        /**
+         * Sets the share of each backoff that is randomized, from 0 (none) to 1
+         * (anywhere between zero and the full backoff).
+         * 
+         * @param jitter the jitter factor
+         * @return this builder
+         * @throws IllegalArgumentException if the factor is not between 0 and 1
+         */
+        public Builder jitter(double jitter) {
+            if (jitter < 0 || jitter > 1) {
+                throw new IllegalArgumentException("Jitter must be between 0 and 1");
+            }
+            this.jitter = jitter;
+            return this;
+        }
+
+        /**
+         * Sets the retry budget. Passing the same budget to several
+         * middlewares makes them share it.
+         * 
+         * @param budget the retry budget
+         * @return this builder
+         */
+        public Builder retryBudget(RetryBudget budget) {
+            this.budget = budget;
+            return this;
+        }
+
+        /**
+         * Sets the executor that sends asynchronous retries once their delay
+         * has elapsed. Defaults to the common fork-join pool.
+         * 
+         * @param executor the executor
+         * @return this builder
+         */
+        public Builder executor(Executor executor) {
+            this.executor = executor;
+            return this;
+        }
+
         /**
          * Builds a new {@link RetryMiddleware} with the current settings.
          * 
          * @return a new retry middleware
          */
         public RetryMiddleware build() {
-            return new RetryMiddleware(maxRetries, retryStatusCodes, retryExceptions, retryMethods);
+            return new RetryMiddleware(maxRetries, new HashSet<>(retryStatusCodes), new HashSet<>(retryExceptions),
+                                       new HashSet<>(retryMethods), initialBackoff, maxBackoff, jitter,
+                                       budget != null ? budget : new RetryBudget(), executor);
         }
     }
 
@@ -189,4 +596,4 @@ public class RetryMiddleware implements HttpMiddleware {
     public static Builder builder() {
         return new Builder();
     }
-}
\ No newline at end of file
+}
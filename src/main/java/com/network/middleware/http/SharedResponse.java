@@ -0,0 +1,132 @@
+package com.network.middleware.http;
+
+import com.network.api.http.HttpHeaders;
+import com.network.api.http.HttpRequest;
+import com.network.api.http.HttpResponse;
+import com.network.api.http.HttpResponseException;
+import com.network.serialization.Serializer;
+
+import java.net.URI;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * View of a response that several callers share.
+ *
+ * <p>The body has been read into memory, so every caller can read it
+ * independently. Everything else is taken from the original response, except
+ * the request, which is the caller's own.
+ */
+final class SharedResponse implements HttpResponse<Object> {
+
+    private final HttpResponse<?> delegate;
+    private final byte[] body;
+    private final HttpRequest request;
+
+    /**
+     * Creates a new view.
+     *
+     * @param delegate the original response
+     * @param body     the body of the original response
+     * @param request  the request of the caller
+     */
+    SharedResponse(HttpResponse<?> delegate, byte[] body, HttpRequest request) {
+        this.delegate = delegate;
+        this.body = body;
+        this.request = request;
+    }
+
+    @Override
+    public int getStatusCode() {
+        return delegate.getStatusCode();
+    }
+
+    @Override
+    public String getStatusMessage() {
+        return delegate.getStatusMessage();
+    }
+
+    @Override
+    public HttpRequest getRequest() {
+        return request;
+    }
+
+    @Override
+    public URI getUri() {
+        return delegate.getUri();
+    }
+
+    @Override
+    public URI getRequestUri() {
+        return delegate.getRequestUri();
+    }
+
+    @Override
+    public boolean isSuccess() {
+        return delegate.isSuccess();
+    }
+
+    @Override
+    public boolean isSuccessful() {
+        return delegate.isSuccessful();
+    }
+
+    @Override
+    public boolean isError() {
+        return delegate.isError();
+    }
+
+    @Override
+    public byte[] getBody() {
+        return body;
+    }
+
+    @Override
+    public Object getBodyAs() {
+        return delegate.getBodyAs();
+    }
+
+    @Override
+    public String getBodyAsString() {
+        return new String(body, getCharset());
+    }
+
+    @Override
+    public Optional<Serializer> getSerializer() {
+        return delegate.getSerializer();
+    }
+
+    @Override
+    public String getHeader(String name) {
+        return delegate.getHeader(name);
+    }
+
+    @Override
+    public Map<String, String> getHeaders() {
+        return delegate.getHeaders();
+    }
+
+    @Override
+    public HttpHeaders getHttpHeaders() {
+        return delegate.getHttpHeaders();
+    }
+
+    @Override
+    public String getContentType() {
+        return delegate.getContentType();
+    }
+
+    @Override
+    public HttpResponse<Object> throwIfNotSuccessful() throws HttpResponseException {
+        if (!isSuccessful()) {
+            throw new HttpResponseException(this);
+        }
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return "HTTP " + getStatusCode() + " " + getStatusMessage() + " (shared), " +
+               "headers: " + getHeaders().size() + ", body: " + body.length + " bytes";
+    }
+}
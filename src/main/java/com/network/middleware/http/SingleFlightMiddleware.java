@@ -0,0 +1,391 @@
+package com.network.middleware.http;
+
+import com.network.api.http.HttpMethod;
+import com.network.api.http.HttpRequest;
+import com.network.api.http.HttpRequestContext;
+import com.network.api.http.HttpResponse;
+import com.network.api.http.middleware.HttpAsyncMiddlewareChain;
+import com.network.api.http.middleware.HttpMiddleware;
+import com.network.api.http.middleware.HttpMiddlewareChain;
+import com.network.api.http.middleware.MiddlewareSupport;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Flow;
+
+/**
+ * Middleware that coalesces identical requests while they are in flight.
+ *
+ * <p>Requests are identical if they have the same method, URI and values of
+ * the key headers; by default Accept, Accept-Encoding, Accept-Language,
+ * Authorization and Cookie, so callers with different credentials never share
+ * a response. While a request is in flight, identical requests do not go to
+ * the server but wait for its response instead. Only requests without a body
+ * and with one of the coalesced methods, GET and HEAD by default, are
+ * coalesced. Range and conditional requests, whose responses only make sense
+ * to their own caller, and requests with Proxy-Authorization are never
+ * coalesced.
+ *
+ * <p>If other callers joined, the body of the response is read into memory
+ * so that every caller can read it; each caller gets its own view of the
+ * response. A caller that is alone gets the response as is, so its body can
+ * still be streamed. Failures are passed to every caller. Cancelling the
+ * request of the first caller only cancels the exchange if nobody joined.
+ *
+ * <p>The middleware runs before {@link RetryMiddleware} and the other
+ * resilience middlewares, so the callers also share retries.
+ */
+public class SingleFlightMiddleware implements HttpMiddleware {
+
+    private static final int ORDER = 200;
+
+    /** Headers that make a response specific to its request, so it is never shared. */
+    private static final List<String> UNSHARED_HEADERS = Arrays.asList(
+        "Range", "If-Range", "If-Match", "If-None-Match", "If-Modified-Since", "If-Unmodified-Since",
+        "Proxy-Authorization");
+
+    private final Set<HttpMethod> methods;
+    private final List<String> keyHeaders;
+    private final ConcurrentMap<String, Flight> flights = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a new single-flight middleware with default settings.
+     */
+    public SingleFlightMiddleware() {
+        this(builder());
+    }
+
+    private SingleFlightMiddleware(Builder builder) {
+        this.methods = new HashSet<>(builder.methods);
+        List<String> headers = new ArrayList<>();
+        for (String header : builder.keyHeaders) {
+            String name = header.toLowerCase(Locale.ROOT);
+            if (!headers.contains(name)) {
+                headers.add(name);
+            }
+        }
+        Collections.sort(headers);
+        this.keyHeaders = headers;
+    }
+
+    @Override
+    public int getOrder() {
+        return ORDER;
+    }
+
+    @Override
+    public void beforeRequest(HttpRequestContext context) {
+        // Nothing to prepare
+    }
+
+    @Override
+    public void afterResponse(HttpRequestContext context, HttpResponse<?> response) {
+        // Nothing to clean up
+    }
+
+    @Override
+    public HttpResponse<?> process(HttpRequest request, HttpMiddlewareChain chain) {
+        String key = keyOf(request);
+        if (key == null) {
+            return chain.next(request);
+        }
+        Flight flight = new Flight();
+        Flight existing;
+        while ((existing = flights.putIfAbsent(key, flight)) != null) {
+            if (existing.join()) {
+                try {
+                    return existing.shared.join().forCaller(request);
+                } catch (CompletionException e) {
+                    throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+                }
+            }
+            // The flight is completing; start a new one
+            flights.remove(key, existing);
+        }
+        HttpResponse<?> response;
+        try {
+            response = chain.next(request);
+        } catch (RuntimeException e) {
+            settle(key, flight, request, null, e, true);
+            throw e;
+        }
+        try {
+            return settle(key, flight, request, response, null, true).join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+        }
+    }
+
+    @Override
+    public CompletableFuture<HttpResponse<?>> processAsync(HttpRequest request, HttpAsyncMiddlewareChain chain) {
+        String key = keyOf(request);
+        if (key == null) {
+            return chain.next(request);
+        }
+        Flight flight = new Flight();
+        Flight existing;
+        while ((existing = flights.putIfAbsent(key, flight)) != null) {
+            if (existing.join()) {
+                return existing.shared.thenApply(shared -> shared.forCaller(request));
+            }
+            flights.remove(key, existing);
+        }
+        CompletableFuture<HttpResponse<?>> upstream;
+        try {
+            upstream = chain.next(request);
+        } catch (RuntimeException e) {
+            upstream = CompletableFuture.failedFuture(e);
+        }
+        CompletableFuture<HttpResponse<?>> result = new CompletableFuture<>();
+        upstream.whenComplete((response, failure) ->
+            settle(key, flight, request, response, failure, false).whenComplete((settled, error) -> {
+                if (error != null) {
+                    result.completeExceptionally(error instanceof CompletionException && error.getCause() != null
+                                                 ? error.getCause() : error);
+                } else if (!result.complete(settled)) {
+                    // Cancelled meanwhile; release the connection of a streamed body
+                    MiddlewareSupport.discard(settled);
+                }
+            }));
+        CompletableFuture<HttpResponse<?>> exchange = upstream;
+        result.whenComplete((response, failure) -> {
+            if (result.isCancelled() && flight.abandon()) {
+                flights.remove(key, flight);
+                exchange.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Gets the number of distinct requests in flight.
+     *
+     * @return the number of requests in flight
+     */
+    public int getInFlightCount() {
+        return flights.size();
+    }
+
+    /**
+     * Ends a flight and hands its outcome to the callers that joined it.
+     *
+     * @return the response of the first caller
+     */
+    private CompletableFuture<HttpResponse<?>> settle(String key, Flight flight, HttpRequest request,
+                                                     HttpResponse<?> response, Throwable failure, boolean blocking) {
+        flights.remove(key, flight);
+        int followers = flight.close();
+        if (failure != null) {
+            flight.shared.completeExceptionally(failure);
+            return CompletableFuture.failedFuture(failure);
+        }
+        if (followers == 0) {
+            return CompletableFuture.completedFuture(response);
+        }
+        CompletableFuture<byte[]> body;
+        if (blocking) {
+            try {
+                byte[] bytes = response.getBody();
+                body = CompletableFuture.completedFuture(bytes != null ? bytes : new byte[0]);
+            } catch (RuntimeException e) {
+                body = CompletableFuture.failedFuture(e);
+            }
+        } else {
+            body = collect(response.getBodyPublisher());
+        }
+        return body.handle((bytes, error) -> {
+            if (error != null) {
+                flight.shared.completeExceptionally(error);
+                throw error instanceof CompletionException ? (CompletionException) error : new CompletionException(error);
+            }
+            Shared shared = new Shared(response, bytes);
+            flight.shared.complete(shared);
+            return shared.forCaller(request);
+        });
+    }
+
+    /**
+     * Gets the key of a request, or null if the request is not coalesced.
+     */
+    private String keyOf(HttpRequest request) {
+        if (!methods.contains(request.getMethod()) || request.hasBody()) {
+            return null;
+        }
+        for (String name : UNSHARED_HEADERS) {
+            if (request.hasHeader(name)) {
+                return null;
+            }
+        }
+        StringBuilder key = new StringBuilder(request.getMethod().name()).append(' ').append(request.getUri());
+        for (String name : keyHeaders) {
+            String value = request.getHeader(name);
+            key.append('\u0000');
+            if (value != null) {
+                key.append(value);
+            }
+        }
+        return key.toString();
+    }
+
+    /**
+     * Reads a body publisher into a byte array.
+     */
+    private static CompletableFuture<byte[]> collect(Flow.Publisher<ByteBuffer> publisher) {
+        CompletableFuture<byte[]> future = new CompletableFuture<>();
+        publisher.subscribe(new Flow.Subscriber<ByteBuffer>() {
+            private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                subscription.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(ByteBuffer item) {
+                if (item.hasArray()) {
+                    out.write(item.array(), item.arrayOffset() + item.position(), item.remaining());
+                } else {
+                    byte[] bytes = new byte[item.remaining()];
+                    item.get(bytes);
+                    out.write(bytes, 0, bytes.length);
+                }
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                future.completeExceptionally(throwable);
+            }
+
+            @Override
+            public void onComplete() {
+                future.complete(out.toByteArray());
+            }
+        });
+        return future;
+    }
+
+    /**
+     * A request in flight and the callers waiting for it.
+     */
+    private static final class Flight {
+        final CompletableFuture<Shared> shared = new CompletableFuture<>();
+        private int followers;
+        private boolean closed;
+
+        /**
+         * Adds a caller, unless the flight is already completing.
+         */
+        synchronized boolean join() {
+            if (closed) {
+                return false;
+            }
+            followers++;
+            return true;
+        }
+
+        /**
+         * Stops callers from joining.
+         *
+         * @return the number of callers that joined
+         */
+        synchronized int close() {
+            closed = true;
+            return followers;
+        }
+
+        /**
+         * Closes the flight if nobody joined, so its exchange can be cancelled.
+         */
+        synchronized boolean abandon() {
+            if (closed || followers > 0) {
+                return false;
+            }
+            closed = true;
+            return true;
+        }
+    }
+
+    /**
+     * A response whose body was read, ready to be handed to every caller.
+     */
+    private final class Shared {
+        private final HttpResponse<?> response;
+        private final byte[] body;
+
+        Shared(HttpResponse<?> response, byte[] body) {
+            this.response = response;
+            this.body = body;
+        }
+
+        HttpResponse<?> forCaller(HttpRequest request) {
+            return new SharedResponse(response, body, request);
+        }
+    }
+
+    /**
+     * Builder for creating {@link SingleFlightMiddleware} instances.
+     */
+    public static class Builder {
+        private final Set<HttpMethod> methods = new HashSet<>(Arrays.asList(HttpMethod.GET, HttpMethod.HEAD));
+        private final List<String> keyHeaders = new ArrayList<>(Arrays.asList(
+            "Accept", "Accept-Encoding", "Accept-Language", "Authorization", "Cookie"));
+
+        /**
+         * Sets the HTTP methods whose requests are coalesced. Only idempotent
+         * methods should be coalesced.
+         *
+         * @param methods the HTTP methods
+         * @return this builder
+         */
+        public Builder methods(HttpMethod... methods) {
+            this.methods.clear();
+            Collections.addAll(this.methods, methods);
+            return this;
+        }
+
+        /**
+         * Sets the request headers whose values must match for requests to be
+         * coalesced. This replaces the defaults, so any header that carries
+         * credentials, such as Authorization, Cookie or a custom API key
+         * header, must be listed; otherwise callers with different
+         * credentials share a response.
+         *
+         * @param names the header names
+         * @return this builder
+         */
+        public Builder keyHeaders(String... names) {
+            this.keyHeaders.clear();
+            Collections.addAll(this.keyHeaders, names);
+            return this;
+        }
+
+        /**
+         * Builds a new {@link SingleFlightMiddleware} with the current settings.
+         *
+         * @return a new single-flight middleware
+         */
+        public SingleFlightMiddleware build() {
+            return new SingleFlightMiddleware(this);
+        }
+    }
+
+    /**
+     * Creates a new builder for {@link SingleFlightMiddleware}.
+     *
+     * @return a new builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+}
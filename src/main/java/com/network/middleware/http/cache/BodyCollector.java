@@ -0,0 +1,188 @@
+package com.network.middleware.http.cache;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+
+/**
+ * Collects a response body into a byte array, up to a limit.
+ *
+ * <p>Buffers are requested one at a time, so collection stops as soon as the
+ * body exceeds the limit. The result then completes with null, and the part
+ * collected so far followed by the rest of the body can be read once through
+ * {@link #remainder()}, which passes the body through without buffering it.
+ */
+final class BodyCollector implements Flow.Subscriber<ByteBuffer> {
+
+    /** Completes with the body, or with null if it exceeds the limit. */
+    final CompletableFuture<byte[]> result = new CompletableFuture<>();
+    private final long limit;
+    private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+    private volatile Flow.Subscription subscription;
+    private volatile boolean overflowed;
+    /** Guarded by this once the body overflowed. */
+    private Flow.Subscriber<? super ByteBuffer> downstream;
+    private boolean prefixSent;
+    private boolean upstreamDone;
+    private Throwable upstreamFailure;
+
+    /**
+     * Creates a new collector.
+     *
+     * @param limit the maximum number of bytes to collect
+     */
+    BodyCollector(long limit) {
+        this.limit = limit;
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        this.subscription = subscription;
+        result.whenComplete((bytes, failure) -> {
+            if (result.isCancelled()) {
+                subscription.cancel();
+            }
+        });
+        subscription.request(1);
+    }
+
+    @Override
+    public void onNext(ByteBuffer item) {
+        if (overflowed) {
+            downstream().onNext(item);
+            return;
+        }
+        if (item.hasArray()) {
+            body.write(item.array(), item.arrayOffset() + item.position(), item.remaining());
+        } else {
+            byte[] bytes = new byte[item.remaining()];
+            item.duplicate().get(bytes);
+            body.write(bytes, 0, bytes.length);
+        }
+        if (body.size() > limit) {
+            // No more is requested until the caller reads the remainder
+            overflowed = true;
+            result.complete(null);
+        } else {
+            subscription.request(1);
+        }
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        if (!overflowed) {
+            result.completeExceptionally(throwable);
+            return;
+        }
+        Flow.Subscriber<? super ByteBuffer> target;
+        synchronized (this) {
+            upstreamFailure = throwable;
+            upstreamDone = true;
+            target = prefixSent ? downstream : null;
+        }
+        if (target != null) {
+            target.onError(throwable);
+        }
+    }
+
+    @Override
+    public void onComplete() {
+        if (!overflowed) {
+            result.complete(body.toByteArray());
+            return;
+        }
+        Flow.Subscriber<? super ByteBuffer> target;
+        synchronized (this) {
+            upstreamDone = true;
+            target = prefixSent ? downstream : null;
+        }
+        if (target != null) {
+            target.onComplete();
+        }
+    }
+
+    /**
+     * Gets the whole body of a response that exceeded the limit: the part
+     * collected so far, then the rest as it arrives. It can be subscribed to once.
+     *
+     * @return the publisher of the body
+     */
+    Flow.Publisher<ByteBuffer> remainder() {
+        return subscriber -> {
+            synchronized (this) {
+                if (downstream != null) {
+                    subscriber.onSubscribe(new Flow.Subscription() {
+                        @Override
+                        public void request(long n) {
+                            // Nothing to deliver
+                        }
+
+                        @Override
+                        public void cancel() {
+                            // Nothing to stop
+                        }
+                    });
+                    subscriber.onError(new IllegalStateException("The body can only be read once"));
+                    return;
+                }
+                downstream = subscriber;
+            }
+            subscriber.onSubscribe(new Relay(subscriber));
+        };
+    }
+
+    private synchronized Flow.Subscriber<? super ByteBuffer> downstream() {
+        return downstream;
+    }
+
+    /**
+     * Subscription of the reader of the remainder; the first buffer is the collected part.
+     */
+    private final class Relay implements Flow.Subscription {
+        private final Flow.Subscriber<? super ByteBuffer> subscriber;
+
+        Relay(Flow.Subscriber<? super ByteBuffer> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                subscription.cancel();
+                subscriber.onError(new IllegalArgumentException("Demand must be positive"));
+                return;
+            }
+            boolean first;
+            boolean done;
+            Throwable failure;
+            synchronized (BodyCollector.this) {
+                first = !prefixSent;
+                prefixSent = true;
+                done = upstreamDone;
+                failure = upstreamFailure;
+            }
+            if (first) {
+                subscriber.onNext(ByteBuffer.wrap(body.toByteArray()));
+                if (done) {
+                    // The body ended while nobody was reading it
+                    if (failure != null) {
+                        subscriber.onError(failure);
+                    } else {
+                        subscriber.onComplete();
+                    }
+                    return;
+                }
+                n--;
+            }
+            if (n > 0) {
+                subscription.request(n);
+            }
+        }
+
+        @Override
+        public void cancel() {
+            subscription.cancel();
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.network.middleware.http.cache;
+
+import com.network.api.http.HttpHeaders;
+
+import java.util.Locale;
+
+/**
+ * Parsed Cache-Control directives of a request or response (RFC 9111 section 5.2).
+ *
+ * <p>Unknown directives are ignored. Delta-seconds that do not parse are
+ * treated as absent, except for {@code max-age}, which is treated as 0 so a
+ * malformed response is considered stale rather than fresh forever.
+ */
+final class CacheControl {
+
+    static final long ABSENT = -1;
+
+    boolean noStore;
+    boolean noCache;
+    boolean isPrivate;
+    boolean isPublic;
+    boolean mustRevalidate;
+    boolean onlyIfCached;
+    long maxAge = ABSENT;
+    long sMaxAge = ABSENT;
+    long maxStale = ABSENT;
+    long minFresh = ABSENT;
+
+    private CacheControl() {
+    }
+
+    /**
+     * Parses the Cache-Control and Pragma headers.
+     *
+     * @param headers the headers
+     * @return the directives
+     */
+    static CacheControl parse(HttpHeaders headers) {
+        CacheControl control = new CacheControl();
+        for (String value : headers.getAll("Cache-Control")) {
+            control.parseValue(value);
+        }
+        if (!headers.contains("Cache-Control")) {
+            // Pragma: no-cache is only honoured when Cache-Control is absent
+            for (String pragma : headers.getAll("Pragma")) {
+                if (pragma.toLowerCase(Locale.ROOT).contains("no-cache")) {
+                    control.noCache = true;
+                }
+            }
+        }
+        return control;
+    }
+
+    private void parseValue(String value) {
+        int length = value.length();
+        int start = 0;
+        while (start < length) {
+            int end = nextComma(value, start);
+            String directive = value.substring(start, end).trim();
+            start = end + 1;
+            if (directive.isEmpty()) {
+                continue;
+            }
+            String name = directive;
+            String argument = null;
+            int eq = directive.indexOf('=');
+            if (eq >= 0) {
+                name = directive.substring(0, eq).trim();
+                argument = unquote(directive.substring(eq + 1).trim());
+            }
+            switch (name.toLowerCase(Locale.ROOT)) {
+                case "no-store":
+                    noStore = true;
+                    break;
+                case "no-cache":
+                    // The field-name form only restricts some headers; treat it as no-cache for all
+                    noCache = true;
+                    break;
+                case "private":
+                    isPrivate = true;
+                    break;
+                case "public":
+                    isPublic = true;
+                    break;
+                case "must-revalidate":
+                case "proxy-revalidate":
+                    mustRevalidate = true;
+                    break;
+                case "only-if-cached":
+                    onlyIfCached = true;
+                    break;
+                case "max-age":
+                    long seconds = deltaSeconds(argument);
+                    maxAge = seconds >= 0 ? seconds : 0;
+                    break;
+                case "s-maxage":
+                    sMaxAge = deltaSeconds(argument);
+                    break;
+                case "max-stale":
+                    // Without an argument any staleness is accepted
+                    maxStale = argument == null ? Long.MAX_VALUE : deltaSeconds(argument);
+                    break;
+                case "min-fresh":
+                    minFresh = deltaSeconds(argument);
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    private static int nextComma(String value, int from) {
+        boolean quoted = false;
+        for (int i = from; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                quoted = !quoted;
+            } else if (c == ',' && !quoted) {
+                return i;
+            }
+        }
+        return value.length();
+    }
+
+    private static String unquote(String value) {
+        if (value.length() >= 2 && value.charAt(0) == '"' && value.charAt(value.length() - 1) == '"') {
+            return value.substring(1, value.length() - 1);
+        }
+        return value;
+    }
+
+    private static long deltaSeconds(String value) {
+        if (value == null || value.isEmpty()) {
+            return ABSENT;
+        }
+        long seconds = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return ABSENT;
+            }
+            // Values that overflow are capped (RFC 9111 section 1.2.2)
+            seconds = seconds > Integer.MAX_VALUE ? Integer.MAX_VALUE : seconds * 10 + (c - '0');
+        }
+        return Math.min(seconds, Integer.MAX_VALUE);
+    }
+}
@@ -0,0 +1,260 @@
+package com.network.middleware.http.cache;
+
+import com.network.api.http.HttpHeaders;
+
+import java.nio.ByteBuffer;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A stored response: status, headers and body, plus the times needed to
+ * compute its age (RFC 9111 section 4.2).
+ *
+ * <p>The body is kept in a read-only direct buffer, outside the Java heap,
+ * so a large cache does not add to the work of the garbage collector. Entries
+ * are immutable; a revalidated entry is a new entry that shares the body.
+ */
+final class CacheEntry {
+
+    /** Heuristic freshness is never longer than a day (RFC 9111 section 4.2.2). */
+    private static final long MAX_HEURISTIC_MILLIS = TimeUnit.DAYS.toMillis(1);
+    /** Rough heap cost of an entry besides its headers and body. */
+    private static final int OVERHEAD = 128;
+
+    /** Headers that a 304 response must not replace (RFC 9111 section 3.2). */
+    private static final Set<String> PRESERVED_HEADERS = new HashSet<>(java.util.Arrays.asList(
+        "content-length", "content-encoding", "transfer-encoding", "content-range"));
+
+    private final String uri;
+    private final int statusCode;
+    private final HttpHeaders headers;
+    private final ByteBuffer body;
+    private final long requestTime;
+    private final long responseTime;
+    private final CacheControl control;
+    private final long freshnessLifetime;
+    private final long correctedInitialAge;
+
+    /**
+     * Creates a new entry.
+     *
+     * @param uri          the request URI
+     * @param statusCode   the status code of the response
+     * @param headers      the response headers
+     * @param body         the response body; read-only, positioned at its start
+     * @param requestTime  when the request was sent, in epoch milliseconds
+     * @param responseTime when the response was received, in epoch milliseconds
+     */
+    CacheEntry(String uri, int statusCode, HttpHeaders headers, ByteBuffer body, long requestTime, long responseTime) {
+        this.uri = uri;
+        this.statusCode = statusCode;
+        this.headers = headers.snapshot();
+        this.body = body;
+        this.requestTime = requestTime;
+        this.responseTime = responseTime;
+        this.control = CacheControl.parse(this.headers);
+        this.freshnessLifetime = computeFreshnessLifetime();
+        this.correctedInitialAge = computeCorrectedInitialAge();
+    }
+
+    /**
+     * Copies a heap body into a read-only direct buffer.
+     *
+     * @param body the body
+     * @return the off-heap copy
+     */
+    static ByteBuffer offHeap(byte[] body) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(body.length);
+        buffer.put(body).flip();
+        return buffer.asReadOnlyBuffer();
+    }
+
+    String getUri() {
+        return uri;
+    }
+
+    int getStatusCode() {
+        return statusCode;
+    }
+
+    HttpHeaders getHeaders() {
+        return headers;
+    }
+
+    CacheControl getCacheControl() {
+        return control;
+    }
+
+    /**
+     * Gets the body. The returned buffer is independent of other callers.
+     *
+     * @return a read-only view of the body
+     */
+    ByteBuffer getBody() {
+        return body.duplicate();
+    }
+
+    long getRequestTime() {
+        return requestTime;
+    }
+
+    long getResponseTime() {
+        return responseTime;
+    }
+
+    /**
+     * Gets the number of bytes the entry occupies, used to bound the cache.
+     *
+     * @return the weight of the entry
+     */
+    int weight() {
+        int[] size = {OVERHEAD + uri.length() * 2};
+        headers.forEach((name, value) -> size[0] += (name.length() + value.length()) * 2 + 32);
+        return (int) Math.min(Integer.MAX_VALUE, (long) size[0] + body.capacity());
+    }
+
+    /**
+     * Gets the current age of the entry (RFC 9111 section 4.2.3).
+     *
+     * @param now the current time in epoch milliseconds
+     * @return the age in milliseconds
+     */
+    long age(long now) {
+        return correctedInitialAge + Math.max(0, now - responseTime);
+    }
+
+    /**
+     * Gets how long the entry is fresh after it was generated (RFC 9111 section 4.2.1).
+     *
+     * @return the freshness lifetime in milliseconds, 0 if it is stale immediately
+     */
+    long freshnessLifetime() {
+        return freshnessLifetime;
+    }
+
+    /**
+     * Checks if the entry can be used to answer a request without revalidating it.
+     *
+     * @param request the Cache-Control directives of the request
+     * @param now     the current time in epoch milliseconds
+     * @return true if the entry may be served as is
+     */
+    boolean isUsable(CacheControl request, long now) {
+        if (control.noCache || request.noCache) {
+            return false;
+        }
+        long age = age(now);
+        long lifetime = freshnessLifetime;
+        if (request.maxAge != CacheControl.ABSENT) {
+            if (age > TimeUnit.SECONDS.toMillis(request.maxAge)) {
+                return false;
+            }
+        }
+        if (request.minFresh != CacheControl.ABSENT) {
+            age += TimeUnit.SECONDS.toMillis(request.minFresh);
+        }
+        if (age < lifetime) {
+            return true;
+        }
+        // A stale response may only be served if the request accepts it and the origin allows it
+        if (request.maxStale == CacheControl.ABSENT || control.mustRevalidate) {
+            return false;
+        }
+        return request.maxStale == Long.MAX_VALUE || age - lifetime <= TimeUnit.SECONDS.toMillis(request.maxStale);
+    }
+
+    /**
+     * Checks if the entry has a validator that lets the origin answer 304.
+     *
+     * @return true if the entry has an ETag or Last-Modified header
+     */
+    boolean hasValidator() {
+        return headers.contains("ETag") || headers.contains("Last-Modified");
+    }
+
+    /**
+     * Creates the entry that replaces this one after a 304 response: the
+     * headers of the 304 replace the stored ones, the body is kept.
+     *
+     * @param notModified  the headers of the 304 response
+     * @param requestTime  when the validation request was sent
+     * @param responseTime when the 304 response was received
+     * @return the updated entry
+     */
+    CacheEntry revalidated(HttpHeaders notModified, long requestTime, long responseTime) {
+        HttpHeaders merged = headers.copy();
+        Set<String> replaced = new HashSet<>();
+        notModified.forEach((name, value) -> {
+            String key = name.toLowerCase(Locale.ROOT);
+            if (PRESERVED_HEADERS.contains(key)) {
+                return;
+            }
+            if (replaced.add(key)) {
+                merged.set(name, value);
+            } else {
+                merged.add(name, value);
+            }
+        });
+        return new CacheEntry(uri, statusCode, merged, body, requestTime, responseTime);
+    }
+
+    private long computeFreshnessLifetime() {
+        // s-maxage only applies to shared caches, and this cache is private
+        if (control.maxAge != CacheControl.ABSENT) {
+            return TimeUnit.SECONDS.toMillis(control.maxAge);
+        }
+        long date = parseDate(headers.get("Date"));
+        if (date < 0) {
+            date = responseTime;
+        }
+        String expires = headers.get("Expires");
+        if (expires != null) {
+            // An invalid Expires, e.g. "0", means already expired
+            long expiry = parseDate(expires);
+            return expiry < 0 ? 0 : Math.max(0, expiry - date);
+        }
+        long lastModified = parseDate(headers.get("Last-Modified"));
+        if (lastModified >= 0 && HttpCacheMiddleware.isHeuristicallyCacheable(statusCode)) {
+            return Math.min(MAX_HEURISTIC_MILLIS, Math.max(0, date - lastModified) / 10);
+        }
+        return 0;
+    }
+
+    private long computeCorrectedInitialAge() {
+        long date = parseDate(headers.get("Date"));
+        long apparentAge = date < 0 ? 0 : Math.max(0, responseTime - date);
+        long ageValue = 0;
+        String age = headers.get("Age");
+        if (age != null) {
+            try {
+                ageValue = TimeUnit.SECONDS.toMillis(Long.parseLong(age.trim()));
+            } catch (NumberFormatException e) {
+                // Ignored as if the header were absent
+            }
+        }
+        long responseDelay = Math.max(0, responseTime - requestTime);
+        return Math.max(apparentAge, ageValue + responseDelay);
+    }
+
+    /**
+     * Parses an HTTP date.
+     *
+     * @param value the header value, may be null
+     * @return the date in epoch milliseconds, or -1 if it is missing or invalid
+     */
+    static long parseDate(String value) {
+        if (value == null || value.isEmpty()) {
+            return -1;
+        }
+        try {
+            return ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+        } catch (DateTimeParseException e) {
+            return -1;
+        }
+    }
+}
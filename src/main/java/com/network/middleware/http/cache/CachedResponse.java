@@ -0,0 +1,190 @@
+package com.network.middleware.http.cache;
+
+import com.network.api.http.HttpHeaders;
+import com.network.api.http.HttpRequest;
+import com.network.api.http.HttpRequestBody;
+import com.network.api.http.HttpResponse;
+import com.network.api.http.HttpResponseException;
+import com.network.api.http.HttpStatusCodes;
+
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.Flow;
+
+/**
+ * Response served from the cache.
+ *
+ * <p>The body is read straight from the off-heap buffer of the entry; it is
+ * only copied onto the heap when {@link #getBody()} is called.
+ */
+final class CachedResponse implements HttpResponse<Object> {
+
+    private final CacheEntry entry;
+    private final HttpHeaders headers;
+    private final HttpRequest request;
+    private volatile byte[] body;
+
+    /**
+     * Creates a new cached response.
+     *
+     * @param entry   the cache entry
+     * @param request the request the response answers
+     * @param now     the current time, used for the Age header
+     */
+    CachedResponse(CacheEntry entry, HttpRequest request, long now) {
+        this.entry = entry;
+        this.request = request;
+        long ageSeconds = entry.age(now) / 1000;
+        this.headers = entry.getHeaders().copy().set("Age", Long.toString(ageSeconds)).snapshot();
+    }
+
+    @Override
+    public int getStatusCode() {
+        return entry.getStatusCode();
+    }
+
+    @Override
+    public String getStatusMessage() {
+        return HttpStatusCodes.getMessage(entry.getStatusCode());
+    }
+
+    @Override
+    public HttpRequest getRequest() {
+        return request;
+    }
+
+    @Override
+    public URI getUri() {
+        return request.getUri();
+    }
+
+    @Override
+    public URI getRequestUri() {
+        return request.getUri();
+    }
+
+    @Override
+    public boolean isSuccess() {
+        return isSuccessful();
+    }
+
+    @Override
+    public boolean isSuccessful() {
+        return getStatusCode() >= 200 && getStatusCode() < 300;
+    }
+
+    @Override
+    public boolean isError() {
+        return getStatusCode() >= 400;
+    }
+
+    @Override
+    public byte[] getBody() {
+        byte[] result = body;
+        if (result == null) {
+            ByteBuffer buffer = entry.getBody();
+            result = new byte[buffer.remaining()];
+            buffer.get(result);
+            body = result;
+        }
+        return result;
+    }
+
+    @Override
+    public Flow.Publisher<ByteBuffer> getBodyPublisher() {
+        return HttpRequestBody.ofByteBuffers(entry.getBody()).asPublisher();
+    }
+
+    @Override
+    public InputStream getBodyAsStream() {
+        return new BufferInputStream(entry.getBody());
+    }
+
+    @Override
+    public Object getBodyAs() {
+        // Cached responses have no typed body; use getBodyAs(Class) instead
+        return null;
+    }
+
+    @Override
+    public String getBodyAsString() {
+        return new String(getBody(), getCharset());
+    }
+
+    @Override
+    public String getHeader(String name) {
+        return headers.getCombined(name);
+    }
+
+    @Override
+    public Map<String, String> getHeaders() {
+        return headers.asMap();
+    }
+
+    @Override
+    public HttpHeaders getHttpHeaders() {
+        return headers;
+    }
+
+    @Override
+    public String getContentType() {
+        return getHeader("Content-Type");
+    }
+
+    @Override
+    public HttpResponse<Object> throwIfNotSuccessful() throws HttpResponseException {
+        if (!isSuccessful()) {
+            throw new HttpResponseException(this);
+        }
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return "HTTP " + getStatusCode() + " " + getStatusMessage() + " (cached), " +
+               "headers: " + headers.size() + ", body: " + entry.getBody().remaining() + " bytes";
+    }
+
+    /**
+     * Input stream over a byte buffer.
+     */
+    private static final class BufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        BufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(len, buffer.remaining());
+            buffer.get(b, off, count);
+            return count;
+        }
+
+        @Override
+        public long skip(long n) {
+            int count = (int) Math.max(0, Math.min(n, buffer.remaining()));
+            buffer.position(buffer.position() + count);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
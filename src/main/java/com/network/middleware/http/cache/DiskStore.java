@@ -0,0 +1,479 @@
+package com.network.middleware.http.cache;
+
+import com.network.api.http.HttpHeaders;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.zip.CRC32C;
+
+/**
+ * Persistent store of cache entries in append-only, memory-mapped segment files.
+ *
+ * <p>Each entry is written as one record: a fixed header with the lengths of
+ * the parts and a CRC-32C checksum, followed by the key, the metadata (status,
+ * times and headers) and the body. Records are only ever appended; replacing
+ * or removing an entry appends a new record or a tombstone. The index maps
+ * each key to the segment and offset of its latest record and is rebuilt by
+ * scanning the segments when the store is opened. Scanning stops at the first
+ * record of a segment whose checksum does not match, so a record torn by a
+ * crash is ignored and overwritten.
+ *
+ * <p>When the files exceed the maximum size, the oldest segment is deleted.
+ * Older segments that hold mostly dead records are compacted by copying their
+ * live records to the active segment. Tombstones count as live while an older
+ * segment may still hold a record of their key, so a removed entry does not
+ * come back when the store is reopened. Bodies that are read back are slices
+ * of the mapped files and are not copied onto the heap.
+ *
+ * <p>The store is best effort: I/O failures drop the affected entry rather
+ * than failing the request that caused them.
+ */
+final class DiskStore implements Closeable {
+
+    private static final int MAGIC = 0x48434531;
+    private static final byte TYPE_ENTRY = 1;
+    private static final byte TYPE_TOMBSTONE = 2;
+    /** magic, crc, key length, metadata length, body length, response time, type */
+    private static final int HEADER_BYTES = 4 + 4 + 4 + 4 + 4 + 8 + 1;
+    private static final int MIN_SEGMENT_BYTES = 1024 * 1024;
+    private static final int MAX_SEGMENT_BYTES = 256 * 1024 * 1024;
+    /** Sealed segments with less live data than this share are compacted. */
+    private static final double COMPACTION_THRESHOLD = 0.25;
+    private static final String SUFFIX = ".seg";
+
+    private final Path directory;
+    private final long maxBytes;
+    private final int segmentBytes;
+    private final ConcurrentMap<String, Slot> index = new ConcurrentHashMap<>();
+    /** The latest record of each removed key, guarded by this. */
+    private final Map<String, Slot> tombstones = new HashMap<>();
+    private final TreeMap<Integer, Segment> segments = new TreeMap<>();
+    private Segment active;
+    private boolean closed;
+
+    /**
+     * Opens a store, recovering the entries of an existing one.
+     *
+     * @param directory the directory holding the segment files
+     * @param maxBytes  the maximum total size of the segment files
+     * @throws IOException if the directory cannot be created or read
+     */
+    DiskStore(Path directory, long maxBytes) throws IOException {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        this.segmentBytes = (int) Math.max(MIN_SEGMENT_BYTES, Math.min(MAX_SEGMENT_BYTES, maxBytes / 8));
+        Files.createDirectories(directory);
+        recover();
+    }
+
+    /**
+     * Gets an entry.
+     *
+     * @param key the cache key
+     * @return the entry, or null if it is not stored
+     */
+    CacheEntry get(String key) {
+        Slot slot = index.get(key);
+        if (slot == null) {
+            return null;
+        }
+        ByteBuffer record = slot.segment.buffer.duplicate();
+        record.position(slot.offset);
+        int keyLength = record.getInt(slot.offset + 8);
+        int metaLength = record.getInt(slot.offset + 12);
+        int bodyLength = record.getInt(slot.offset + 16);
+        int metaStart = slot.offset + HEADER_BYTES + keyLength;
+        byte[] meta = new byte[metaLength];
+        record.position(metaStart);
+        record.get(meta);
+        record.limit(metaStart + metaLength + bodyLength);
+        ByteBuffer body = record.slice().asReadOnlyBuffer();
+        try {
+            return readEntry(meta, body);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Stores an entry, unless the same response is already stored.
+     *
+     * @param key   the cache key
+     * @param entry the entry
+     */
+    void put(String key, CacheEntry entry) {
+        Slot existing = index.get(key);
+        if (existing != null && existing.responseTime == entry.getResponseTime()) {
+            // Promoted from disk and demoted again without changes
+            return;
+        }
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        byte[] meta;
+        try {
+            meta = writeMeta(entry);
+        } catch (IOException e) {
+            return;
+        }
+        ByteBuffer body = entry.getBody();
+        synchronized (this) {
+            try {
+                append(keyBytes, meta, body, entry.getResponseTime(), TYPE_ENTRY, key);
+            } catch (RuntimeException e) {
+                // A mapped file that cannot be written must not fail the eviction that got here
+                release(index.remove(key));
+            }
+        }
+    }
+
+    /**
+     * Removes an entry.
+     *
+     * @param key the cache key
+     */
+    void remove(String key) {
+        if (!index.containsKey(key)) {
+            return;
+        }
+        synchronized (this) {
+            try {
+                append(key.getBytes(StandardCharsets.UTF_8), new byte[0], ByteBuffer.allocate(0), 0, TYPE_TOMBSTONE, key);
+            } catch (RuntimeException e) {
+                release(index.remove(key));
+            }
+        }
+    }
+
+    /**
+     * Gets the keys of the stored entries.
+     *
+     * @return a live view of the keys
+     */
+    Set<String> keys() {
+        return index.keySet();
+    }
+
+    /**
+     * Flushes the segments to disk and releases them.
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        for (Segment segment : segments.values()) {
+            segment.buffer.force();
+        }
+        index.clear();
+        tombstones.clear();
+    }
+
+    /**
+     * Appends a record to the active segment, rolling to a new segment if it
+     * does not fit. Must hold the lock.
+     */
+    private void append(byte[] key, byte[] meta, ByteBuffer body, long responseTime, byte type, String indexKey) {
+        int length = HEADER_BYTES + key.length + meta.length + body.remaining();
+        if (closed || length > segmentBytes) {
+            return;
+        }
+        try {
+            if (active == null || active.position + length > segmentBytes) {
+                roll(length);
+            }
+        } catch (IOException e) {
+            return;
+        }
+        Segment segment = active;
+        int offset = segment.position;
+        ByteBuffer out = segment.buffer.duplicate();
+        out.position(offset + 8);
+        out.putInt(key.length).putInt(meta.length).putInt(body.remaining()).putLong(responseTime).put(type);
+        out.put(key).put(meta).put(body.duplicate());
+        CRC32C crc = new CRC32C();
+        ByteBuffer checked = segment.buffer.duplicate();
+        checked.position(offset + 8).limit(offset + length);
+        crc.update(checked);
+        // The magic goes in last, so a partially written header never looks valid
+        segment.buffer.putInt(offset + 4, (int) crc.getValue());
+        segment.buffer.putInt(offset, MAGIC);
+        segment.position = offset + length;
+        if (segment.position + 4 <= segmentBytes) {
+            // Marks the end, in case older data follows after a recovered torn record
+            segment.buffer.putInt(segment.position, 0);
+        }
+
+        Slot slot = new Slot(segment, offset, length, responseTime);
+        segment.liveBytes += length;
+        if (type == TYPE_ENTRY) {
+            release(index.put(indexKey, slot));
+            release(tombstones.remove(indexKey));
+        } else {
+            release(index.remove(indexKey));
+            release(tombstones.put(indexKey, slot));
+        }
+    }
+
+    /**
+     * Starts a new active segment, then deletes or compacts old segments,
+     * keeping room in the new segment for the record that did not fit.
+     *
+     * @param reserved the length of the record to append after rolling
+     */
+    private void roll(int reserved) throws IOException {
+        if (active != null) {
+            active.buffer.force();
+        }
+        int id = segments.isEmpty() ? 1 : segments.lastKey() + 1;
+        active = Segment.open(directory.resolve(String.format("%08d%s", id, SUFFIX)), id, segmentBytes);
+        segments.put(id, active);
+
+        // Over the size limit, the oldest segment goes with all its entries
+        while ((long) segments.size() * segmentBytes > maxBytes && segments.size() > 1) {
+            drop(segments.firstEntry().getValue());
+        }
+        for (Segment segment : new ArrayList<>(segments.values())) {
+            if (segment != active && segments.get(segment.id) == segment && segment.liveBytes < segmentBytes * COMPACTION_THRESHOLD) {
+                compact(segment, reserved);
+            }
+        }
+    }
+
+    /**
+     * Copies the live records of a segment to the active segment and deletes it.
+     * Tombstones are copied too while an older segment may hold their key.
+     */
+    private void compact(Segment segment, int reserved) {
+        boolean olderSegments = segments.firstKey() < segment.id;
+        if (!copyLive(segment, index, reserved)
+            || (olderSegments && !copyLive(segment, tombstones, reserved))) {
+            // Not enough room left; the segment is retried at the next roll
+            return;
+        }
+        drop(segment);
+    }
+
+    /**
+     * Copies the records of a segment that a map points at to the active
+     * segment and updates the map.
+     *
+     * @return false if the active segment ran out of room
+     */
+    private boolean copyLive(Segment segment, Map<String, Slot> slots, int reserved) {
+        List<String> live = new ArrayList<>();
+        for (Map.Entry<String, Slot> entry : slots.entrySet()) {
+            if (entry.getValue().segment == segment) {
+                live.add(entry.getKey());
+            }
+        }
+        for (String key : live) {
+            Slot slot = slots.get(key);
+            if (slot == null || slot.segment != segment) {
+                continue;
+            }
+            if (active.position + slot.length + reserved > segmentBytes) {
+                return false;
+            }
+            ByteBuffer record = segment.buffer.duplicate();
+            record.position(slot.offset).limit(slot.offset + slot.length);
+            int offset = active.position;
+            ByteBuffer out = active.buffer.duplicate();
+            out.position(offset);
+            out.put(record);
+            active.position = offset + slot.length;
+            slots.put(key, new Slot(active, offset, slot.length, slot.responseTime));
+            active.liveBytes += slot.length;
+            segment.liveBytes -= slot.length;
+        }
+        if (active.position + 4 <= segmentBytes) {
+            active.buffer.putInt(active.position, 0);
+        }
+        return true;
+    }
+
+    /**
+     * Deletes a segment and the entries whose latest record it holds.
+     */
+    private void drop(Segment segment) {
+        index.values().removeIf(slot -> slot.segment == segment);
+        tombstones.values().removeIf(slot -> slot.segment == segment);
+        segments.remove(segment.id);
+        try {
+            Files.deleteIfExists(segment.path);
+        } catch (IOException e) {
+            // The file is ignored once it is no longer in the index
+        }
+    }
+
+    private static void release(Slot slot) {
+        if (slot != null) {
+            slot.segment.liveBytes -= slot.length;
+        }
+    }
+
+    /**
+     * Rebuilds the index from the segment files.
+     */
+    private void recover() throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    int id = Integer.parseInt(name.substring(0, name.length() - SUFFIX.length()));
+                    segments.put(id, Segment.open(file, id, segmentBytes));
+                } catch (NumberFormatException e) {
+                    // Not one of our files
+                }
+            }
+        }
+        for (Segment segment : segments.values()) {
+            scan(segment);
+            active = segment;
+        }
+    }
+
+    /**
+     * Replays the valid records of a segment into the index.
+     */
+    private void scan(Segment segment) {
+        ByteBuffer buffer = segment.buffer;
+        int offset = 0;
+        while (offset + HEADER_BYTES <= segmentBytes && buffer.getInt(offset) == MAGIC) {
+            int keyLength = buffer.getInt(offset + 8);
+            int metaLength = buffer.getInt(offset + 12);
+            int bodyLength = buffer.getInt(offset + 16);
+            long length = (long) HEADER_BYTES + keyLength + metaLength + bodyLength;
+            if (keyLength < 0 || metaLength < 0 || bodyLength < 0 || offset + length > segmentBytes) {
+                break;
+            }
+            CRC32C crc = new CRC32C();
+            ByteBuffer checked = buffer.duplicate();
+            checked.position(offset + 8).limit((int) (offset + length));
+            crc.update(checked);
+            if ((int) crc.getValue() != buffer.getInt(offset + 4)) {
+                // Torn write; everything after it is garbage
+                break;
+            }
+            byte[] key = new byte[keyLength];
+            ByteBuffer keyBuffer = buffer.duplicate();
+            keyBuffer.position(offset + HEADER_BYTES);
+            keyBuffer.get(key);
+            String indexKey = new String(key, StandardCharsets.UTF_8);
+            Slot slot = new Slot(segment, offset, (int) length, buffer.getLong(offset + 20));
+            segment.liveBytes += length;
+            if (buffer.get(offset + 28) == TYPE_ENTRY) {
+                release(index.put(indexKey, slot));
+                release(tombstones.remove(indexKey));
+            } else {
+                release(index.remove(indexKey));
+                release(tombstones.put(indexKey, slot));
+            }
+            offset += (int) length;
+        }
+        segment.position = offset;
+        // Clear the tail, so a torn record cannot be mistaken for a valid one later
+        if (offset + 4 <= segmentBytes) {
+            buffer.putInt(offset, 0);
+        }
+    }
+
+    private static byte[] writeMeta(CacheEntry entry) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeUTF(entry.getUri());
+        out.writeInt(entry.getStatusCode());
+        out.writeLong(entry.getRequestTime());
+        out.writeLong(entry.getResponseTime());
+        HttpHeaders headers = entry.getHeaders();
+        out.writeInt(headers.size());
+        IOException[] failure = new IOException[1];
+        headers.forEach((name, value) -> {
+            try {
+                out.writeUTF(name);
+                out.writeUTF(value);
+            } catch (IOException e) {
+                failure[0] = e;
+            }
+        });
+        if (failure[0] != null) {
+            throw failure[0];
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static CacheEntry readEntry(byte[] meta, ByteBuffer body) throws IOException {
+        DataInputStream in = new DataInputStream(new java.io.ByteArrayInputStream(meta));
+        String uri = in.readUTF();
+        int status = in.readInt();
+        long requestTime = in.readLong();
+        long responseTime = in.readLong();
+        int count = in.readInt();
+        HttpHeaders headers = new HttpHeaders();
+        for (int i = 0; i < count; i++) {
+            headers.add(in.readUTF(), in.readUTF());
+        }
+        return new CacheEntry(uri, status, headers, body, requestTime, responseTime);
+    }
+
+    /**
+     * Location of the latest record of a key.
+     */
+    private static final class Slot {
+        final Segment segment;
+        final int offset;
+        final int length;
+        final long responseTime;
+
+        Slot(Segment segment, int offset, int length, long responseTime) {
+            this.segment = segment;
+            this.offset = offset;
+            this.length = length;
+            this.responseTime = responseTime;
+        }
+    }
+
+    /**
+     * A segment file, mapped in full.
+     */
+    private static final class Segment {
+        final int id;
+        final Path path;
+        final MappedByteBuffer buffer;
+        int position;
+        long liveBytes;
+
+        private Segment(int id, Path path, MappedByteBuffer buffer) {
+            this.id = id;
+            this.path = path;
+            this.buffer = buffer;
+        }
+
+        static Segment open(Path path, int id, int size) throws IOException {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                                                        StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                // The mapping stays valid after the channel is closed
+                return new Segment(id, path, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+            }
+        }
+    }
+}
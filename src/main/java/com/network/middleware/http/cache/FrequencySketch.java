@@ -0,0 +1,104 @@
+package com.network.middleware.http.cache;
+
+/**
+ * Count-min sketch that estimates how often keys were accessed recently.
+ *
+ * <p>Each key maps to four 4-bit counters, one per hash function, packed
+ * sixteen to a {@code long}. The estimate is the smallest of the four
+ * counters. Once the number of recorded accesses reaches ten times the table
+ * width, all counters are halved, so old popularity fades and the sketch
+ * reflects the recent access pattern. Not thread-safe; callers synchronize.
+ */
+final class FrequencySketch {
+
+    private static final long[] SEEDS = {
+        0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L
+    };
+    private static final long RESET_MASK = 0x7777777777777777L;
+
+    private final long[] table;
+    private final int tableMask;
+    private final int sampleSize;
+    private int size;
+
+    /**
+     * Creates a sketch sized for a number of distinct keys.
+     *
+     * @param expectedKeys the expected number of keys in the cache
+     */
+    FrequencySketch(int expectedKeys) {
+        int width = Integer.highestOneBit(Math.max(64, Math.min(expectedKeys, 1 << 24)) - 1) << 1;
+        this.table = new long[width];
+        this.tableMask = width - 1;
+        this.sampleSize = 10 * width;
+    }
+
+    /**
+     * Estimates how often a key was accessed, from 0 to 15.
+     *
+     * @param hashCode the hash code of the key
+     * @return the estimated frequency
+     */
+    int frequency(int hashCode) {
+        int hash = spread(hashCode);
+        int frequency = Integer.MAX_VALUE;
+        for (int i = 0; i < 4; i++) {
+            int index = indexOf(hash, i);
+            int offset = offsetOf(hash, i);
+            frequency = Math.min(frequency, (int) ((table[index] >>> offset) & 0xF));
+        }
+        return frequency;
+    }
+
+    /**
+     * Records an access to a key.
+     *
+     * @param hashCode the hash code of the key
+     */
+    void increment(int hashCode) {
+        int hash = spread(hashCode);
+        boolean added = false;
+        for (int i = 0; i < 4; i++) {
+            int index = indexOf(hash, i);
+            int offset = offsetOf(hash, i);
+            long mask = 0xFL << offset;
+            if ((table[index] & mask) != mask) {
+                table[index] += 1L << offset;
+                added = true;
+            }
+        }
+        if (added && ++size >= sampleSize) {
+            reset();
+        }
+    }
+
+    /**
+     * Halves every counter.
+     */
+    private void reset() {
+        for (int i = 0; i < table.length; i++) {
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        size >>>= 1;
+    }
+
+    private int indexOf(int hash, int i) {
+        long h = (hash + SEEDS[i]) * SEEDS[i];
+        h += h >>> 32;
+        return (int) h & tableMask;
+    }
+
+    /**
+     * Picks one of the sixteen counters in a slot; each hash function uses a
+     * different group of four.
+     */
+    private static int offsetOf(int hash, int i) {
+        return (((hash >>> (i << 3)) & 3) << 2 | i) << 2;
+    }
+
+    private static int spread(int x) {
+        x = ((x >>> 16) ^ x) * 0x45d9f3b;
+        x = ((x >>> 16) ^ x) * 0x45d9f3b;
+        return (x >>> 16) ^ x;
+    }
+}
@@ -0,0 +1,594 @@
+package com.network.middleware.http.cache;
+
+import com.network.api.http.HttpHeaders;
+import com.network.api.http.HttpMethod;
+import com.network.api.http.HttpRequest;
+import com.network.api.http.HttpRequestContext;
+import com.network.api.http.HttpResponse;
+import com.network.api.http.middleware.HttpAsyncMiddlewareChain;
+import com.network.api.http.middleware.HttpMiddleware;
+import com.network.api.http.middleware.HttpMiddlewareChain;
+import com.network.api.http.middleware.MiddlewareSupport;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Middleware that caches responses as a private cache (RFC 9111).
+ *
+ * <p>Responses to GET requests are stored if their Cache-Control, Expires
+ * and status code allow it. Fresh responses are served without sending the
+ * request. Stale responses that carry an ETag or Last-Modified header are
+ * revalidated with If-None-Match or If-Modified-Since, and a
+ * {@code 304 Not Modified} answer refreshes the stored entry without
+ * transferring the body again. Responses that vary on request headers are
+ * stored once per combination of the header values named by Vary. A
+ * successful unsafe request, e.g. POST, invalidates the stored responses of
+ * its URI.
+ *
+ * <p>The cache is bounded by the size of the stored responses. Eviction
+ * follows W-TinyLFU: a new response only displaces stored ones if it is
+ * requested more often, so a burst of one-off requests does not flush the
+ * popular entries. Bodies are kept in direct buffers outside the Java heap;
+ * the JVM limits them with {@code -XX:MaxDirectMemorySize}, which must be at
+ * least the maximum size of the cache.
+ *
+ * <p>Optionally, responses evicted from memory are demoted to a persistent
+ * tier on local disk (see {@link Builder#diskTier(Path, long)}) and promoted
+ * back on their next hit. The disk tier survives restarts, so a new process
+ * starts with a warm cache; {@link #close()} writes the entries still in
+ * memory to disk.
+ *
+ * <p>Requests that carry their own conditional or Range headers bypass the
+ * cache. Cacheable responses are read before they are returned, up to the
+ * maximum entry size; a body that turns out to be larger is passed through to
+ * the caller from where the cache stopped reading, without being stored.
+ */
+public class HttpCacheMiddleware implements HttpMiddleware {
+
+    private static final int ORDER = 100;
+    private static final int GATEWAY_TIMEOUT = 504;
+    private static final int NOT_MODIFIED = 304;
+    /** Assumed average response size, used to size the frequency sketch. */
+    private static final int AVERAGE_ENTRY_BYTES = 8 * 1024;
+    private static final ByteBuffer EMPTY_BODY = ByteBuffer.allocate(0).asReadOnlyBuffer();
+
+    /** Status codes that are cacheable without explicit freshness (RFC 9110 section 15.1). */
+    private static final Set<Integer> HEURISTICALLY_CACHEABLE = new HashSet<>(Arrays.asList(
+        200, 203, 204, 300, 301, 308, 404, 405, 410, 414, 501));
+
+    private static final Set<HttpMethod> SAFE_METHODS = new HashSet<>(Arrays.asList(
+        HttpMethod.GET, HttpMethod.HEAD, HttpMethod.OPTIONS));
+
+    /** Hop-by-hop headers describe the connection, not the response, and are not stored. */
+    private static final List<String> HOP_BY_HOP_HEADERS = Arrays.asList(
+        "Connection", "Keep-Alive", "Proxy-Connection", "TE", "Trailer", "Transfer-Encoding", "Upgrade");
+
+    private final long maxEntryBytes;
+    private final TinyLfuCache<String, CacheEntry> entries;
+    private final DiskStore disk;
+    /** Lower-case names of the Vary header of each URI, sorted. */
+    private final ConcurrentMap<String, List<String>> varyIndex = new ConcurrentHashMap<>();
+    /** Keys of the variants of each URI whose responses vary on request headers. */
+    private final ConcurrentMap<String, Set<String>> variants = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a new cache middleware holding up to 64 MB of responses.
+     */
+    public HttpCacheMiddleware() {
+        this(builder());
+    }
+
+    private HttpCacheMiddleware(Builder builder) {
+        this.maxEntryBytes = Math.min(builder.maxEntryBytes, builder.maxBytes);
+        int expectedEntries = (int) Math.min(Integer.MAX_VALUE, Math.max(64, builder.maxBytes / AVERAGE_ENTRY_BYTES));
+        this.entries = new TinyLfuCache<>(builder.maxBytes, expectedEntries, CacheEntry::weight, this::onRemoval);
+        if (builder.diskDirectory != null) {
+            try {
+                this.disk = new DiskStore(builder.diskDirectory, builder.diskMaxBytes);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            for (String key : disk.keys()) {
+                restoreVariant(key);
+            }
+        } else {
+            this.disk = null;
+        }
+    }
+
+    @Override
+    public int getOrder() {
+        return ORDER;
+    }
+
+    @Override
+    public void beforeRequest(HttpRequestContext context) {
+        // Nothing to prepare
+    }
+
+    @Override
+    public void afterResponse(HttpRequestContext context, HttpResponse<?> response) {
+        // Nothing to clean up
+    }
+
+    @Override
+    public HttpResponse<?> process(HttpRequest request, HttpMiddlewareChain chain) {
+        if (!isCacheable(request)) {
+            HttpResponse<?> response = chain.next(request);
+            invalidateIfUnsafe(request, response);
+            return response;
+        }
+        CacheControl control = CacheControl.parse(request.getHttpHeaders());
+        String key = keyOf(request);
+        CacheEntry entry = lookup(key);
+        long now = System.currentTimeMillis();
+        if (entry != null && entry.isUsable(control, now)) {
+            return new CachedResponse(entry, request, now);
+        }
+        if (control.onlyIfCached) {
+            return gatewayTimeout(request, now);
+        }
+        long requestTime = now;
+        HttpResponse<?> response = chain.next(conditional(request, entry));
+        long responseTime = System.currentTimeMillis();
+        if (entry != null && response.getStatusCode() == NOT_MODIFIED) {
+            return revalidate(request, key, entry, response, requestTime, responseTime);
+        }
+        if (!isStorable(request, control, response, requestTime, responseTime)) {
+            return response;
+        }
+        BodyCollector collector = new BodyCollector(maxEntryBytes);
+        response.getBodyPublisher().subscribe(collector);
+        return stored(request, response, collector, collector.result.join(), requestTime, responseTime);
+    }
+
+    @Override
+    public CompletableFuture<HttpResponse<?>> processAsync(HttpRequest request, HttpAsyncMiddlewareChain chain) {
+        if (!isCacheable(request)) {
+            CompletableFuture<HttpResponse<?>> exchange = chain.next(request);
+            return MiddlewareSupport.forwardCancellation(exchange.thenApply(response -> {
+                invalidateIfUnsafe(request, response);
+                return response;
+            }), exchange);
+        }
+        CacheControl control = CacheControl.parse(request.getHttpHeaders());
+        String key = keyOf(request);
+        CacheEntry entry = lookup(key);
+        long now = System.currentTimeMillis();
+        if (entry != null && entry.isUsable(control, now)) {
+            return CompletableFuture.completedFuture(new CachedResponse(entry, request, now));
+        }
+        if (control.onlyIfCached) {
+            return CompletableFuture.completedFuture(gatewayTimeout(request, now));
+        }
+        long requestTime = now;
+        CompletableFuture<HttpResponse<?>> exchange = chain.next(conditional(request, entry));
+        return MiddlewareSupport.forwardCancellation(exchange.thenCompose(response -> {
+            long responseTime = System.currentTimeMillis();
+            if (entry != null && response.getStatusCode() == NOT_MODIFIED) {
+                return CompletableFuture.completedFuture(
+                    revalidate(request, key, entry, response, requestTime, responseTime));
+            }
+            if (!isStorable(request, control, response, requestTime, responseTime)) {
+                return CompletableFuture.completedFuture(response);
+            }
+            // The body is collected without blocking and served from the collected copy
+            BodyCollector collector = new BodyCollector(maxEntryBytes);
+            response.getBodyPublisher().subscribe(collector);
+            return collector.result.thenApply(
+                body -> stored(request, response, collector, body, requestTime, responseTime));
+        }), exchange);
+    }
+
+    /**
+     * Removes the stored responses of a URI, including all its variants.
+     *
+     * @param uri the URI
+     */
+    public void invalidate(URI uri) {
+        String key = uri.toString();
+        remove(key);
+        Set<String> keys = variants.remove(key);
+        if (keys != null) {
+            for (String variant : keys) {
+                remove(variant);
+            }
+        }
+        varyIndex.remove(key);
+    }
+
+    /**
+     * Writes the responses held in memory to the disk tier and closes it, so
+     * the next process starts with them. Does nothing without a disk tier.
+     */
+    public void close() {
+        if (disk == null) {
+            return;
+        }
+        List<String> keys = new ArrayList<>();
+        List<CacheEntry> values = new ArrayList<>();
+        entries.forEach((key, entry) -> {
+            keys.add(key);
+            values.add(entry);
+        });
+        for (int i = 0; i < keys.size(); i++) {
+            disk.put(keys.get(i), values.get(i));
+        }
+        disk.close();
+    }
+
+    /**
+     * Gets the number of stored responses.
+     *
+     * @return the number of entries
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Checks if a status code may be cached with a heuristic freshness lifetime.
+     *
+     * @param statusCode the status code
+     * @return true if the status code is heuristically cacheable
+     */
+    static boolean isHeuristicallyCacheable(int statusCode) {
+        return HEURISTICALLY_CACHEABLE.contains(statusCode);
+    }
+
+    /**
+     * Checks if the cache may answer a request.
+     */
+    private static boolean isCacheable(HttpRequest request) {
+        if (request.getMethod() != HttpMethod.GET) {
+            return false;
+        }
+        HttpHeaders headers = request.getHttpHeaders();
+        // The caller is managing validation or partial content itself
+        return !headers.contains("If-None-Match") && !headers.contains("If-Modified-Since")
+            && !headers.contains("If-Match") && !headers.contains("If-Unmodified-Since")
+            && !headers.contains("If-Range") && !headers.contains("Range");
+    }
+
+    /**
+     * Checks if a response may be stored (RFC 9111 section 3) and could be
+     * served again, judging by its headers, before its body is read.
+     */
+    private boolean isStorable(HttpRequest request, CacheControl requestControl, HttpResponse<?> response,
+                               long requestTime, long responseTime) {
+        if (requestControl.noStore) {
+            return false;
+        }
+        HttpHeaders headers = response.getHttpHeaders();
+        CacheControl control = CacheControl.parse(headers);
+        if (control.noStore) {
+            return false;
+        }
+        String vary = headers.getCombined("Vary");
+        if (vary != null && vary.contains("*")) {
+            return false;
+        }
+        boolean explicit = control.maxAge != CacheControl.ABSENT || control.isPublic || headers.contains("Expires");
+        if (!explicit && !isHeuristicallyCacheable(response.getStatusCode())) {
+            return false;
+        }
+        if (request.hasHeader("Authorization") && !control.isPublic && !control.mustRevalidate
+            && control.sMaxAge == CacheControl.ABSENT) {
+            return false;
+        }
+        String length = headers.get("Content-Length");
+        if (length != null) {
+            try {
+                if (Long.parseLong(length.trim()) > maxEntryBytes) {
+                    return false;
+                }
+            } catch (NumberFormatException e) {
+                return false;
+            }
+        }
+        CacheEntry head = entryOf(request.getUri().toString(), response, EMPTY_BODY, requestTime, responseTime);
+        // Without freshness or a validator it could never be served, not even after revalidation
+        return head.freshnessLifetime() > 0 || head.hasValidator();
+    }
+
+    /**
+     * Stores a collected response and serves it from the stored copy, or
+     * passes it through if the body exceeded the maximum entry size.
+     *
+     * @param body the collected body, or null if it exceeded the maximum entry size
+     */
+    private HttpResponse<?> stored(HttpRequest request, HttpResponse<?> response, BodyCollector collector, byte[] body,
+                                   long requestTime, long responseTime) {
+        if (body == null) {
+            return new PassThroughResponse(response, collector.remainder());
+        }
+        CacheEntry stored = store(request, response, body, requestTime, responseTime);
+        if (stored == null) {
+            stored = entryOf(request.getUri().toString(), response, ByteBuffer.wrap(body).asReadOnlyBuffer(),
+                             requestTime, responseTime);
+        }
+        return new CachedResponse(stored, request, System.currentTimeMillis());
+    }
+
+    /**
+     * Stores a response if its body fits.
+     *
+     * @return the stored entry, or null if it was not stored
+     */
+    private CacheEntry store(HttpRequest request, HttpResponse<?> response, byte[] body,
+                             long requestTime, long responseTime) {
+        if (body.length > maxEntryBytes) {
+            return null;
+        }
+        String uri = request.getUri().toString();
+        CacheEntry entry = entryOf(uri, response, CacheEntry.offHeap(body), requestTime, responseTime);
+        List<String> varyNames = varyNames(entry.getHeaders());
+        String key;
+        if (varyNames.isEmpty()) {
+            varyIndex.remove(uri);
+            key = uri;
+        } else {
+            varyIndex.put(uri, varyNames);
+            key = keyOf(uri, varyNames, request.getHttpHeaders());
+            variants.computeIfAbsent(uri, k -> ConcurrentHashMap.newKeySet()).add(key);
+        }
+        entries.put(key, entry);
+        return entry;
+    }
+
+    private static CacheEntry entryOf(String uri, HttpResponse<?> response, ByteBuffer body,
+                                      long requestTime, long responseTime) {
+        HttpHeaders headers = response.getHttpHeaders().copy();
+        for (String name : HOP_BY_HOP_HEADERS) {
+            headers.remove(name);
+        }
+        return new CacheEntry(uri, response.getStatusCode(), headers, body, requestTime, responseTime);
+    }
+
+    /**
+     * Refreshes an entry with the headers of a 304 response and serves it.
+     */
+    private HttpResponse<?> revalidate(HttpRequest request, String key, CacheEntry entry, HttpResponse<?> notModified,
+                                       long requestTime, long responseTime) {
+        CacheEntry updated = entry.revalidated(notModified.getHttpHeaders(), requestTime, responseTime);
+        MiddlewareSupport.discard(notModified);
+        entries.put(key, updated);
+        return new CachedResponse(updated, request, responseTime);
+    }
+
+    /**
+     * Adds the validators of a stale entry to a request.
+     */
+    private static HttpRequest conditional(HttpRequest request, CacheEntry entry) {
+        if (entry == null) {
+            return request;
+        }
+        HttpHeaders headers = entry.getHeaders();
+        String etag = headers.get("ETag");
+        if (etag != null) {
+            return request.withHeader("If-None-Match", etag);
+        }
+        String lastModified = headers.get("Last-Modified");
+        if (lastModified != null) {
+            return request.withHeader("If-Modified-Since", lastModified);
+        }
+        return request;
+    }
+
+    /**
+     * Invalidates the stored responses that a successful unsafe request may
+     * have changed (RFC 9111 section 4.4).
+     */
+    private void invalidateIfUnsafe(HttpRequest request, HttpResponse<?> response) {
+        if (SAFE_METHODS.contains(request.getMethod())) {
+            return;
+        }
+        int status = response.getStatusCode();
+        if (status < 200 || status >= 400) {
+            return;
+        }
+        URI uri = request.getUri();
+        invalidate(uri);
+        for (String name : Arrays.asList("Location", "Content-Location")) {
+            String value = response.getHeader(name);
+            if (value == null) {
+                continue;
+            }
+            try {
+                URI target = uri.resolve(value.trim());
+                // Only URIs of the same origin may be invalidated
+                if (target.getHost() != null && target.getHost().equalsIgnoreCase(uri.getHost())
+                    && target.getPort() == uri.getPort()) {
+                    invalidate(target);
+                }
+            } catch (IllegalArgumentException e) {
+                // Not a valid URI; nothing to invalidate
+            }
+        }
+    }
+
+    /**
+     * Gets an entry from memory, or from disk, promoting it to memory.
+     */
+    private CacheEntry lookup(String key) {
+        CacheEntry entry = entries.get(key);
+        if (entry == null && disk != null) {
+            entry = disk.get(key);
+            if (entry != null) {
+                entries.put(key, entry);
+            }
+        }
+        return entry;
+    }
+
+    private void remove(String key) {
+        entries.remove(key);
+        if (disk != null) {
+            disk.remove(key);
+        }
+    }
+
+    /**
+     * Registers a variant key found on disk, so its URI is looked up by its
+     * Vary headers again. The names are part of the key.
+     */
+    private void restoreVariant(String key) {
+        int separator = key.indexOf('\u0000');
+        if (separator < 0) {
+            return;
+        }
+        String uri = key.substring(0, separator);
+        List<String> names = new ArrayList<>();
+        for (String part : key.substring(separator + 1).split("\u0000")) {
+            int eq = part.indexOf('=');
+            names.add(eq >= 0 ? part.substring(0, eq) : part);
+        }
+        varyIndex.putIfAbsent(uri, names);
+        variants.computeIfAbsent(uri, k -> ConcurrentHashMap.newKeySet()).add(key);
+    }
+
+    private String keyOf(HttpRequest request) {
+        String uri = request.getUri().toString();
+        List<String> varyNames = varyIndex.get(uri);
+        return varyNames == null ? uri : keyOf(uri, varyNames, request.getHttpHeaders());
+    }
+
+    private static String keyOf(String uri, List<String> varyNames, HttpHeaders headers) {
+        StringBuilder key = new StringBuilder(uri);
+        for (String name : varyNames) {
+            String value = headers.getCombined(name);
+            key.append('\u0000').append(name).append('=').append(value != null ? value.trim() : "");
+        }
+        return key.toString();
+    }
+
+    private static List<String> varyNames(HttpHeaders headers) {
+        String vary = headers.getCombined("Vary");
+        if (vary == null || vary.trim().isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<String> names = new ArrayList<>();
+        for (String name : vary.split(",")) {
+            String trimmed = name.trim().toLowerCase(Locale.ROOT);
+            if (!trimmed.isEmpty() && !names.contains(trimmed)) {
+                names.add(trimmed);
+            }
+        }
+        Collections.sort(names);
+        return names;
+    }
+
+    /**
+     * Demotes an entry evicted from memory to the disk tier.
+     */
+    private void onRemoval(String key, CacheEntry entry) {
+        if (disk != null) {
+            // The variant stays known while it is on disk
+            disk.put(key, entry);
+        } else if (key.length() != entry.getUri().length()) {
+            variants.computeIfPresent(entry.getUri(), (uri, keys) -> {
+                keys.remove(key);
+                return keys.isEmpty() ? null : keys;
+            });
+        }
+    }
+
+    private HttpResponse<?> gatewayTimeout(HttpRequest request, long now) {
+        CacheEntry entry = new CacheEntry(request.getUri().toString(), GATEWAY_TIMEOUT, HttpHeaders.empty(),
+                                          ByteBuffer.allocate(0), now, now);
+        return new CachedResponse(entry, request, now);
+    }
+
+    /**
+     * Builder for creating {@link HttpCacheMiddleware} instances.
+     */
+    public static class Builder {
+        private long maxBytes = 64L * 1024 * 1024;
+        private long maxEntryBytes = 4L * 1024 * 1024;
+        private Path diskDirectory;
+        private long diskMaxBytes;
+
+        /**
+         * Sets the maximum total size of the stored responses.
+         *
+         * @param maxBytes the maximum size in bytes
+         * @return this builder
+         * @throws IllegalArgumentException if the size is not positive
+         */
+        public Builder maxBytes(long maxBytes) {
+            if (maxBytes <= 0) {
+                throw new IllegalArgumentException("Cache size must be positive");
+            }
+            this.maxBytes = maxBytes;
+            return this;
+        }
+
+        /**
+         * Sets the maximum size of a single response body. Larger responses
+         * are passed through without being stored.
+         *
+         * @param maxEntryBytes the maximum body size in bytes
+         * @return this builder
+         * @throws IllegalArgumentException if the size is negative
+         */
+        public Builder maxEntryBytes(long maxEntryBytes) {
+            if (maxEntryBytes < 0) {
+                throw new IllegalArgumentException("Entry size must not be negative");
+            }
+            this.maxEntryBytes = maxEntryBytes;
+            return this;
+        }
+
+        /**
+         * Adds a persistent second tier on local disk. Responses evicted from
+         * memory are written to memory-mapped segment files in the directory,
+         * and a new middleware opened on the same directory starts with them.
+         *
+         * @param directory the directory of the segment files
+         * @param maxBytes  the maximum total size of the segment files
+         * @return this builder
+         * @throws IllegalArgumentException if the directory is null or the size is not positive
+         */
+        public Builder diskTier(Path directory, long maxBytes) {
+            if (directory == null || maxBytes <= 0) {
+                throw new IllegalArgumentException("Disk tier needs a directory and a positive size");
+            }
+            this.diskDirectory = directory;
+            this.diskMaxBytes = maxBytes;
+            return this;
+        }
+
+        /**
+         * Builds a new {@link HttpCacheMiddleware} with the current settings.
+         *
+         * @return a new cache middleware
+         * @throws UncheckedIOException if the disk tier cannot be opened
+         */
+        public HttpCacheMiddleware build() {
+            return new HttpCacheMiddleware(this);
+        }
+    }
+
+    /**
+     * Creates a new builder for {@link HttpCacheMiddleware}.
+     *
+     * @return a new builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+}
@@ -0,0 +1,204 @@
+package com.network.middleware.http.cache;
+
+import com.network.api.http.HttpHeaders;
+import com.network.api.http.HttpRequest;
+import com.network.api.http.HttpRequestBody;
+import com.network.api.http.HttpResponse;
+import com.network.api.http.HttpResponseException;
+import com.network.serialization.Serializer;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpResponse.BodySubscriber;
+import java.net.http.HttpResponse.BodySubscribers;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Flow;
+
+/**
+ * Response that was too large to store, after the cache started reading it.
+ *
+ * <p>The body is the part the cache read, followed by the rest as it
+ * arrives; it is not held in memory unless {@link #getBody()} is called.
+ * Like a streamed body, it can be consumed once, through the publisher, the
+ * stream or {@link #getBody()}; the latter keeps the result for later calls.
+ */
+final class PassThroughResponse implements HttpResponse<Object> {
+
+    private final HttpResponse<?> delegate;
+    private final Flow.Publisher<ByteBuffer> remainder;
+    private volatile byte[] body;
+
+    /**
+     * Creates a new pass-through response.
+     *
+     * @param delegate  the original response, whose body was partly read
+     * @param remainder the whole body, including the part already read
+     */
+    PassThroughResponse(HttpResponse<?> delegate, Flow.Publisher<ByteBuffer> remainder) {
+        this.delegate = delegate;
+        this.remainder = remainder;
+    }
+
+    @Override
+    public int getStatusCode() {
+        return delegate.getStatusCode();
+    }
+
+    @Override
+    public String getStatusMessage() {
+        return delegate.getStatusMessage();
+    }
+
+    @Override
+    public HttpRequest getRequest() {
+        return delegate.getRequest();
+    }
+
+    @Override
+    public URI getUri() {
+        return delegate.getUri();
+    }
+
+    @Override
+    public URI getRequestUri() {
+        return delegate.getRequestUri();
+    }
+
+    @Override
+    public boolean isSuccess() {
+        return delegate.isSuccess();
+    }
+
+    @Override
+    public boolean isSuccessful() {
+        return delegate.isSuccessful();
+    }
+
+    @Override
+    public boolean isError() {
+        return delegate.isError();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>This reads the rest of the body.
+     *
+     * @throws UncheckedIOException if the body cannot be read
+     */
+    @Override
+    public byte[] getBody() {
+        byte[] result = body;
+        if (result == null) {
+            synchronized (this) {
+                result = body;
+                if (result == null) {
+                    try (InputStream in = remainderStream()) {
+                        result = in.readAllBytes();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    body = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Flow.Publisher<ByteBuffer> getBodyPublisher() {
+        byte[] result = body;
+        return result != null ? HttpRequestBody.ofBytes(result).asPublisher() : remainder;
+    }
+
+    @Override
+    public InputStream getBodyAsStream() {
+        byte[] result = body;
+        return result != null ? new ByteArrayInputStream(result) : remainderStream();
+    }
+
+    @Override
+    public Object getBodyAs() {
+        // The typed body of the original response was not decoded; use getBodyAs(Class) instead
+        return null;
+    }
+
+    @Override
+    public String getBodyAsString() {
+        return new String(getBody(), getCharset());
+    }
+
+    @Override
+    public Optional<Serializer> getSerializer() {
+        return delegate.getSerializer();
+    }
+
+    @Override
+    public String getHeader(String name) {
+        return delegate.getHeader(name);
+    }
+
+    @Override
+    public Map<String, String> getHeaders() {
+        return delegate.getHeaders();
+    }
+
+    @Override
+    public HttpHeaders getHttpHeaders() {
+        return delegate.getHttpHeaders();
+    }
+
+    @Override
+    public String getContentType() {
+        return delegate.getContentType();
+    }
+
+    @Override
+    public HttpResponse<Object> throwIfNotSuccessful() throws HttpResponseException {
+        if (!isSuccessful()) {
+            throw new HttpResponseException(this);
+        }
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return "HTTP " + getStatusCode() + " " + getStatusMessage() + " (not cached), " +
+               "headers: " + getHttpHeaders().size();
+    }
+
+    /**
+     * Adapts the publisher of the body to a blocking stream.
+     */
+    private InputStream remainderStream() {
+        BodySubscriber<InputStream> stream = BodySubscribers.ofInputStream();
+        remainder.subscribe(new Flow.Subscriber<ByteBuffer>() {
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                stream.onSubscribe(subscription);
+            }
+
+            @Override
+            public void onNext(ByteBuffer item) {
+                stream.onNext(List.of(item));
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                stream.onError(throwable);
+            }
+
+            @Override
+            public void onComplete() {
+                stream.onComplete();
+            }
+        });
+        return stream.getBody().toCompletableFuture().join();
+    }
+}
@@ -0,0 +1,307 @@
+package com.network.middleware.http.cache;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.ToIntFunction;
+
+/**
+ * Size-bounded map with W-TinyLFU admission and eviction.
+ *
+ * <p>New entries enter a small LRU window (1% of the capacity). Entries
+ * pushed out of the window compete with the eviction victim of the main
+ * region, and only the one that was accessed more often according to a
+ * {@link FrequencySketch} is kept. This protects popular entries from being
+ * flushed by a scan of one-off requests. The main region is a segmented LRU:
+ * entries start in probation and move to the protected segment (80% of the
+ * main region) when they are accessed again.
+ *
+ * <p>Capacity is measured in a weight, here bytes. A single lock guards the
+ * structure; every operation is O(1). The removal listener is told about
+ * evicted entries, outside the lock and after they have left the cache.
+ *
+ * @param <K> the type of the keys
+ * @param <V> the type of the values
+ */
+final class TinyLfuCache<K, V> {
+
+    private static final int WINDOW = 0;
+    private static final int PROBATION = 1;
+    private static final int PROTECTED = 2;
+
+    private final Map<K, Node<K, V>> data = new HashMap<>();
+    private final FrequencySketch sketch;
+    private final ToIntFunction<V> weigher;
+    private final BiConsumer<K, V> removalListener;
+    private final long maxWeight;
+    private final long maxWindowWeight;
+    private final long maxProtectedWeight;
+
+    private final Node<K, V> window = Node.sentinel();
+    private final Node<K, V> probation = Node.sentinel();
+    private final Node<K, V> protectedSegment = Node.sentinel();
+    private long windowWeight;
+    private long protectedWeight;
+    private long totalWeight;
+
+    /**
+     * Creates a new cache.
+     *
+     * @param maxWeight       the maximum total weight
+     * @param expectedSize    the expected number of entries, used to size the sketch
+     * @param weigher         computes the weight of a value
+     * @param removalListener called with entries that are evicted; may be null
+     */
+    TinyLfuCache(long maxWeight, int expectedSize, ToIntFunction<V> weigher, BiConsumer<K, V> removalListener) {
+        this.maxWeight = maxWeight;
+        this.maxWindowWeight = Math.max(1, maxWeight / 100);
+        this.maxProtectedWeight = (maxWeight - maxWindowWeight) * 8 / 10;
+        this.sketch = new FrequencySketch(expectedSize);
+        this.weigher = weigher;
+        this.removalListener = removalListener;
+    }
+
+    /**
+     * Gets a value and records the access.
+     *
+     * @param key the key
+     * @return the value, or null if it is not cached
+     */
+    V get(K key) {
+        synchronized (this) {
+            sketch.increment(key.hashCode());
+            Node<K, V> node = data.get(key);
+            if (node == null) {
+                return null;
+            }
+            onAccess(node);
+            return node.value;
+        }
+    }
+
+    /**
+     * Gets a value without recording an access.
+     *
+     * @param key the key
+     * @return the value, or null if it is not cached
+     */
+    synchronized V peek(K key) {
+        Node<K, V> node = data.get(key);
+        return node != null ? node.value : null;
+    }
+
+    /**
+     * Adds or replaces a value. A new value may be evicted right away if it
+     * is less popular than the entries it would displace.
+     *
+     * @param key   the key
+     * @param value the value
+     */
+    void put(K key, V value) {
+        int weight = weigher.applyAsInt(value);
+        List<Node<K, V>> removed = new ArrayList<>(2);
+        synchronized (this) {
+            sketch.increment(key.hashCode());
+            Node<K, V> existing = data.remove(key);
+            if (existing != null) {
+                // A replaced value is superseded, not evicted
+                unlink(existing);
+            }
+            if (weight > maxWeight) {
+                // Too large to ever fit; pass it straight to the listener
+                removed.add(new Node<>(key, value, weight));
+            } else {
+                Node<K, V> node = new Node<>(key, value, weight);
+                data.put(key, node);
+                link(node, WINDOW);
+                evict(removed);
+            }
+        }
+        notifyRemoved(removed);
+    }
+
+    /**
+     * Removes a value.
+     *
+     * @param key the key
+     * @return the removed value, or null if it was not cached
+     */
+    V remove(K key) {
+        Node<K, V> node;
+        synchronized (this) {
+            node = data.remove(key);
+            if (node == null) {
+                return null;
+            }
+            unlink(node);
+        }
+        // Explicit removals are not demotions, so the listener is not told
+        return node.value;
+    }
+
+    /**
+     * Removes every value, without calling the removal listener.
+     */
+    synchronized void clear() {
+        data.clear();
+        for (Node<K, V> head : java.util.Arrays.asList(window, probation, protectedSegment)) {
+            head.next = head;
+            head.prev = head;
+        }
+        windowWeight = 0;
+        protectedWeight = 0;
+        totalWeight = 0;
+    }
+
+    /**
+     * Calls an action for every cached value, holding the lock.
+     *
+     * @param action the action
+     */
+    synchronized void forEach(BiConsumer<? super K, ? super V> action) {
+        for (Node<K, V> node : data.values()) {
+            action.accept(node.key, node.value);
+        }
+    }
+
+    /**
+     * Gets the number of cached values.
+     *
+     * @return the number of entries
+     */
+    synchronized int size() {
+        return data.size();
+    }
+
+    /**
+     * Gets the total weight of the cached values.
+     *
+     * @return the weight
+     */
+    synchronized long weight() {
+        return totalWeight;
+    }
+
+    private void onAccess(Node<K, V> node) {
+        switch (node.segment) {
+            case WINDOW:
+                moveToTail(node, window);
+                break;
+            case PROBATION:
+                // A second hit promotes the entry; the protected segment demotes its LRU if full
+                unlink(node);
+                link(node, PROTECTED);
+                while (protectedWeight > maxProtectedWeight && protectedSegment.next != node) {
+                    Node<K, V> demoted = protectedSegment.next;
+                    unlink(demoted);
+                    link(demoted, PROBATION);
+                }
+                break;
+            default:
+                moveToTail(node, protectedSegment);
+                break;
+        }
+    }
+
+    /**
+     * Moves entries that overflow the window into probation, then evicts
+     * from the main region until the cache fits.
+     */
+    private void evict(List<Node<K, V>> removed) {
+        while (windowWeight > maxWindowWeight && window.next != window) {
+            Node<K, V> candidate = window.next;
+            unlink(candidate);
+            link(candidate, PROBATION);
+        }
+        while (totalWeight > maxWeight) {
+            Node<K, V> victim = probation.next != probation ? probation.next : protectedSegment.next;
+            Node<K, V> candidate = probation.prev;
+            if (victim == probation || victim == protectedSegment) {
+                victim = window.next;
+            }
+            Node<K, V> evicted = victim;
+            if (candidate != probation && candidate != victim && candidate.segment == PROBATION) {
+                // The newest probation entry came from the window; admit it only if it is more popular
+                int candidateFrequency = sketch.frequency(candidate.key.hashCode());
+                int victimFrequency = sketch.frequency(victim.key.hashCode());
+                evicted = candidateFrequency > victimFrequency ? victim : candidate;
+            }
+            unlink(evicted);
+            data.remove(evicted.key);
+            removed.add(evicted);
+        }
+    }
+
+    private void link(Node<K, V> node, int segment) {
+        Node<K, V> head = segment == WINDOW ? window : segment == PROBATION ? probation : protectedSegment;
+        node.segment = segment;
+        node.prev = head.prev;
+        node.next = head;
+        head.prev.next = node;
+        head.prev = node;
+        if (segment == WINDOW) {
+            windowWeight += node.weight;
+        } else if (segment == PROTECTED) {
+            protectedWeight += node.weight;
+        }
+        totalWeight += node.weight;
+    }
+
+    private void unlink(Node<K, V> node) {
+        node.prev.next = node.next;
+        node.next.prev = node.prev;
+        node.prev = null;
+        node.next = null;
+        if (node.segment == WINDOW) {
+            windowWeight -= node.weight;
+        } else if (node.segment == PROTECTED) {
+            protectedWeight -= node.weight;
+        }
+        totalWeight -= node.weight;
+    }
+
+    private static <K, V> void moveToTail(Node<K, V> node, Node<K, V> head) {
+        node.prev.next = node.next;
+        node.next.prev = node.prev;
+        node.prev = head.prev;
+        node.next = head;
+        head.prev.next = node;
+        head.prev = node;
+    }
+
+    private void notifyRemoved(List<Node<K, V>> removed) {
+        if (removalListener == null) {
+            return;
+        }
+        for (Node<K, V> node : removed) {
+            removalListener.accept(node.key, node.value);
+        }
+    }
+
+    /**
+     * Entry of the cache, linked into the list of its segment.
+     */
+    private static final class Node<K, V> {
+        final K key;
+        final V value;
+        final int weight;
+        int segment;
+        Node<K, V> prev;
+        Node<K, V> next;
+
+        Node(K key, V value, int weight) {
+            this.key = key;
+            this.value = value;
+            this.weight = weight;
+        }
+
+        static <K, V> Node<K, V> sentinel() {
+            Node<K, V> head = new Node<>(null, null, 0);
+            head.prev = head;
+            head.next = head;
+            return head;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.network.middleware.http.encoding;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.function.Consumer;
+
+/**
+ * Incremental transformation of a byte stream, e.g. compression.
+ *
+ * <p>Input arrives in chunks of any size; output is emitted in new buffers
+ * that belong to the consumer. A transform is used by one thread at a time
+ * and must be released once the stream ends or is abandoned.
+ */
+interface ByteTransform {
+
+    /**
+     * Transforms the next chunk of input.
+     *
+     * @param input  the input; fully consumed by this call
+     * @param output receives the transformed output
+     * @throws IOException if the input is malformed
+     */
+    void update(ByteBuffer input, Consumer<ByteBuffer> output) throws IOException;
+
+    /**
+     * Ends the input and emits the remaining output.
+     *
+     * @param output receives the transformed output
+     * @throws IOException if the input ended prematurely
+     */
+    void finish(Consumer<ByteBuffer> output) throws IOException;
+
+    /**
+     * Returns pooled resources. Safe to call more than once.
+     */
+    void release();
+}
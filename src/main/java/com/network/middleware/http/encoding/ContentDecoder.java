@@ -0,0 +1,262 @@
+package com.network.middleware.http.encoding;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * Incremental decoder of the gzip and deflate content codings (RFC 9110
+ * section 8.4.1).
+ *
+ * <p>Gzip headers and trailers are parsed here, so the inflater only sees
+ * raw deflate data and can be taken from the pool; the CRC and length in the
+ * trailer are checked, and concatenated gzip members are decoded as one
+ * stream. For deflate, both the zlib format the specification requires and
+ * the raw deflate data some servers send instead are accepted.
+ */
+final class ContentDecoder implements ByteTransform {
+
+    private static final int DETECT = 0;
+    private static final int HEADER = 1;
+    private static final int BODY = 2;
+    private static final int TRAILER = 3;
+    private static final int DONE = 4;
+
+    private static final int FHCRC = 2;
+    private static final int FEXTRA = 4;
+    private static final int FNAME = 8;
+    private static final int FCOMMENT = 16;
+
+    private final ZipPool pool;
+    private final boolean gzip;
+    private final CRC32 crc = new CRC32();
+    private Inflater inflater;
+    private boolean nowrap;
+    /** Unconsumed input is input[start, end). */
+    private byte[] input;
+    private int start;
+    private int end;
+    private byte[] scratch;
+    private int state;
+    private long memberOutput;
+    private boolean sawInput;
+
+    /**
+     * Creates a new decoder.
+     *
+     * @param pool the pool of inflaters and buffers
+     * @param gzip true for gzip, false for deflate
+     */
+    ContentDecoder(ZipPool pool, boolean gzip) {
+        this.pool = pool;
+        this.gzip = gzip;
+        this.state = gzip ? HEADER : DETECT;
+    }
+
+    @Override
+    public void update(ByteBuffer data, Consumer<ByteBuffer> output) throws IOException {
+        while (data.hasRemaining()) {
+            sawInput = true;
+            append(data);
+            process(output);
+        }
+    }
+
+    @Override
+    public void finish(Consumer<ByteBuffer> output) throws IOException {
+        if (!sawInput) {
+            // An empty body, e.g. of a HEAD request, is not a truncated stream
+            return;
+        }
+        process(output);
+        if (state != DONE) {
+            throw new EOFException("Unexpected end of " + (gzip ? "gzip" : "deflate") + " body");
+        }
+    }
+
+    @Override
+    public void release() {
+        if (inflater != null) {
+            pool.release(inflater, nowrap);
+            inflater = null;
+        }
+        if (input != null) {
+            if (input.length == ZipPool.BUFFER_SIZE) {
+                pool.release(input);
+            }
+            input = null;
+        }
+        if (scratch != null) {
+            pool.release(scratch);
+            scratch = null;
+        }
+    }
+
+    /**
+     * Copies as much of the data as fits into the input buffer.
+     */
+    private void append(ByteBuffer data) {
+        if (input == null) {
+            input = pool.acquireBuffer();
+        }
+        if (start > 0) {
+            System.arraycopy(input, start, input, 0, end - start);
+            end -= start;
+            start = 0;
+        }
+        if (end == input.length) {
+            // Only a gzip header with long extra fields can get here
+            input = Arrays.copyOf(input, input.length * 2);
+        }
+        int count = Math.min(data.remaining(), input.length - end);
+        data.get(input, end, count);
+        end += count;
+    }
+
+    private void process(Consumer<ByteBuffer> output) throws IOException {
+        while (true) {
+            switch (state) {
+                case DETECT:
+                    if (end - start < 2) {
+                        return;
+                    }
+                    int cmf = input[start] & 0xFF;
+                    int flg = input[start + 1] & 0xFF;
+                    nowrap = (cmf & 0x0F) != 8 || ((cmf << 8) | flg) % 31 != 0;
+                    inflater = pool.acquireInflater(nowrap);
+                    state = BODY;
+                    break;
+                case HEADER:
+                    int length = headerLength();
+                    if (length < 0) {
+                        return;
+                    }
+                    start += length;
+                    if (inflater == null) {
+                        nowrap = true;
+                        inflater = pool.acquireInflater(true);
+                    }
+                    crc.reset();
+                    memberOutput = 0;
+                    state = BODY;
+                    break;
+                case BODY:
+                    inflate(output);
+                    if (!inflater.finished()) {
+                        return;
+                    }
+                    state = gzip ? TRAILER : DONE;
+                    break;
+                case TRAILER:
+                    if (end - start < 8) {
+                        return;
+                    }
+                    if (readInt(start) != (int) crc.getValue() || readInt(start + 4) != (int) memberOutput) {
+                        throw new ZipException("Corrupt gzip trailer");
+                    }
+                    start += 8;
+                    inflater.reset();
+                    state = DONE;
+                    break;
+                default:
+                    if (gzip && start < end && (input[start] & 0xFF) == 0x1F) {
+                        // Another gzip member follows
+                        state = HEADER;
+                        break;
+                    }
+                    // Trailing garbage is ignored, as by GZIPInputStream
+                    start = end;
+                    return;
+            }
+        }
+    }
+
+    private void inflate(Consumer<ByteBuffer> output) throws IOException {
+        if (scratch == null) {
+            scratch = pool.acquireBuffer();
+        }
+        inflater.setInput(input, start, end - start);
+        try {
+            while (true) {
+                int count = inflater.inflate(scratch);
+                if (count > 0) {
+                    if (gzip) {
+                        crc.update(scratch, 0, count);
+                    }
+                    memberOutput += count;
+                    output.accept(ByteBuffer.wrap(Arrays.copyOf(scratch, count)));
+                }
+                if (inflater.needsDictionary()) {
+                    throw new ZipException("Deflate data needs a preset dictionary");
+                }
+                if (inflater.finished() || (count == 0 && inflater.needsInput())) {
+                    break;
+                }
+            }
+        } catch (DataFormatException e) {
+            throw new ZipException(e.getMessage());
+        }
+        start = end - inflater.getRemaining();
+    }
+
+    /**
+     * Gets the length of the gzip member header at the start of the input.
+     *
+     * @return the length, or -1 if more input is needed
+     */
+    private int headerLength() throws ZipException {
+        if (end - start < 10) {
+            return -1;
+        }
+        if ((input[start] & 0xFF) != 0x1F || (input[start + 1] & 0xFF) != 0x8B) {
+            throw new ZipException("Not in gzip format");
+        }
+        if (input[start + 2] != 8) {
+            throw new ZipException("Unsupported gzip compression method");
+        }
+        int flags = input[start + 3] & 0xFF;
+        int position = start + 10;
+        if ((flags & FEXTRA) != 0) {
+            if (end - position < 2) {
+                return -1;
+            }
+            position += 2 + ((input[position] & 0xFF) | (input[position + 1] & 0xFF) << 8);
+            if (position > end) {
+                return -1;
+            }
+        }
+        if ((flags & FNAME) != 0 && (position = skipString(position)) < 0) {
+            return -1;
+        }
+        if ((flags & FCOMMENT) != 0 && (position = skipString(position)) < 0) {
+            return -1;
+        }
+        if ((flags & FHCRC) != 0) {
+            position += 2;
+            if (position > end) {
+                return -1;
+            }
+        }
+        return position - start;
+    }
+
+    private int skipString(int position) {
+        for (int i = position; i < end; i++) {
+            if (input[i] == 0) {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+
+    private int readInt(int position) {
+        return (input[position] & 0xFF) | (input[position + 1] & 0xFF) << 8
+            | (input[position + 2] & 0xFF) << 16 | (input[position + 3] & 0xFF) << 24;
+    }
+}
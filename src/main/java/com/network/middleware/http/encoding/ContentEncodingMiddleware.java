@@ -0,0 +1,188 @@
+package com.network.middleware.http.encoding;
+
+import com.network.api.http.HttpRequest;
+import com.network.api.http.HttpRequestBody;
+import com.network.api.http.HttpRequestContext;
+import com.network.api.http.HttpResponse;
+import com.network.api.http.middleware.HttpAsyncMiddlewareChain;
+import com.network.api.http.middleware.HttpMiddleware;
+import com.network.api.http.middleware.HttpMiddlewareChain;
+import com.network.api.http.middleware.MiddlewareSupport;
+
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.zip.Deflater;
+
+/**
+ * Middleware that negotiates and decodes the gzip and deflate content codings.
+ *
+ * <p>Requests without an Accept-Encoding header get {@code gzip, deflate},
+ * and compressed responses to them are decompressed while the body is read,
+ * through the publisher, the stream or the byte array alike. Requests that
+ * set Accept-Encoding themselves get the response as sent. Optionally,
+ * request bodies of at least a given size are gzip-compressed; this is off by
+ * default, as not every server accepts compressed requests.
+ *
+ * <p>Inflaters, deflaters and scratch buffers are pooled, so decoding a
+ * response does not allocate native zlib state. The middleware runs close to
+ * the transport, so retries and caches above it see decoded responses.
+ */
+public class ContentEncodingMiddleware implements HttpMiddleware {
+
+    private static final int ORDER = 900;
+    private static final String ACCEPT_ENCODING = "gzip, deflate";
+
+    private final long compressionThreshold;
+    private final ZipPool pool;
+
+    /**
+     * Creates a new content encoding middleware with default settings.
+     */
+    public ContentEncodingMiddleware() {
+        this(builder());
+    }
+
+    private ContentEncodingMiddleware(Builder builder) {
+        this.compressionThreshold = builder.compressionThreshold;
+        this.pool = new ZipPool(builder.poolSize, builder.compressionLevel);
+    }
+
+    @Override
+    public int getOrder() {
+        return ORDER;
+    }
+
+    @Override
+    public void beforeRequest(HttpRequestContext context) {
+        // Nothing to prepare
+    }
+
+    @Override
+    public void afterResponse(HttpRequestContext context, HttpResponse<?> response) {
+        // Nothing to clean up
+    }
+
+    @Override
+    public HttpResponse<?> process(HttpRequest request, HttpMiddlewareChain chain) {
+        boolean transparent = !request.hasHeader("Accept-Encoding");
+        HttpResponse<?> response = chain.next(prepare(request, transparent));
+        return transparent ? decode(response) : response;
+    }
+
+    @Override
+    public CompletableFuture<HttpResponse<?>> processAsync(HttpRequest request, HttpAsyncMiddlewareChain chain) {
+        boolean transparent = !request.hasHeader("Accept-Encoding");
+        CompletableFuture<HttpResponse<?>> future = chain.next(prepare(request, transparent));
+        return transparent ? MiddlewareSupport.forwardCancellation(future.thenApply(this::decode), future) : future;
+    }
+
+    /**
+     * Adds the Accept-Encoding header and compresses the body if needed.
+     */
+    private HttpRequest prepare(HttpRequest request, boolean transparent) {
+        HttpRequest prepared = transparent ? request.withHeader("Accept-Encoding", ACCEPT_ENCODING) : request;
+        if (compressionThreshold >= 0 && request.hasBody() && !request.hasHeader("Content-Encoding")) {
+            HttpRequestBody body = request.getRequestBody();
+            long length = body.contentLength();
+            if (length >= compressionThreshold) {
+                prepared = prepared.withBody(new EncodedBody(body, pool)).withHeader("Content-Encoding", "gzip");
+            }
+        }
+        return prepared;
+    }
+
+    /**
+     * Wraps a compressed response in a decoding view.
+     */
+    private HttpResponse<?> decode(HttpResponse<?> response) {
+        String coding = response.getHeader("Content-Encoding");
+        if (coding == null) {
+            return response;
+        }
+        switch (coding.trim().toLowerCase(Locale.ROOT)) {
+            case "gzip":
+            case "x-gzip":
+                return new DecodedResponse(response, true, pool);
+            case "deflate":
+                return new DecodedResponse(response, false, pool);
+            default:
+                // Identity, or stacked codings we did not ask for
+                return response;
+        }
+    }
+
+    /**
+     * Builder for creating {@link ContentEncodingMiddleware} instances.
+     */
+    public static class Builder {
+        private long compressionThreshold = -1;
+        private int compressionLevel = Deflater.DEFAULT_COMPRESSION;
+        private int poolSize = 32;
+
+        /**
+         * Enables gzip compression of request bodies whose length is known
+         * and at least the given number of bytes.
+         *
+         * @param minBytes the minimum body length to compress
+         * @return this builder
+         * @throws IllegalArgumentException if minBytes is negative
+         */
+        public Builder compressRequests(long minBytes) {
+            if (minBytes < 0) {
+                throw new IllegalArgumentException("Minimum body length must not be negative");
+            }
+            this.compressionThreshold = minBytes;
+            return this;
+        }
+
+        /**
+         * Sets the compression level of request bodies, from 1 (fastest) to
+         * 9 (smallest). Defaults to the zlib default of 6.
+         *
+         * @param level the compression level
+         * @return this builder
+         * @throws IllegalArgumentException if level is not between 1 and 9
+         */
+        public Builder compressionLevel(int level) {
+            if (level < 1 || level > 9) {
+                throw new IllegalArgumentException("Compression level must be between 1 and 9");
+            }
+            this.compressionLevel = level;
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of idle inflaters, deflaters and buffers
+         * kept of each kind.
+         *
+         * @param size the pool size
+         * @return this builder
+         * @throws IllegalArgumentException if size is negative
+         */
+        public Builder poolSize(int size) {
+            if (size < 0) {
+                throw new IllegalArgumentException("Pool size must not be negative");
+            }
+            this.poolSize = size;
+            return this;
+        }
+
+        /**
+         * Builds a new {@link ContentEncodingMiddleware} with the current settings.
+         *
+         * @return a new content encoding middleware
+         */
+        public ContentEncodingMiddleware build() {
+            return new ContentEncodingMiddleware(this);
+        }
+    }
+
+    /**
+     * Creates a new builder for {@link ContentEncodingMiddleware}.
+     *
+     * @return a new builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+}
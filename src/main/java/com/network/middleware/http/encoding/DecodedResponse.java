@@ -0,0 +1,187 @@
+package com.network.middleware.http.encoding;
+
+import com.network.api.http.HttpHeaders;
+import com.network.api.http.HttpRequest;
+import com.network.api.http.HttpRequestBody;
+import com.network.api.http.HttpResponse;
+import com.network.api.http.HttpResponseException;
+import com.network.serialization.Serializer;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Flow;
+
+/**
+ * Response whose body is decompressed while it is read.
+ *
+ * <p>Content-Encoding and Content-Length are removed from the headers, as
+ * they describe the compressed body. Like the body of the original response,
+ * the decoded body can be consumed once, through the publisher, the stream
+ * or {@link #getBody()}; the latter keeps the result for later calls.
+ */
+final class DecodedResponse implements HttpResponse<Object> {
+
+    private final HttpResponse<?> delegate;
+    private final boolean gzip;
+    private final ZipPool pool;
+    private final HttpHeaders headers;
+    private volatile byte[] body;
+
+    /**
+     * Creates a new decoded response.
+     *
+     * @param delegate the compressed response
+     * @param gzip     true for gzip, false for deflate
+     * @param pool     the pool of inflaters and buffers
+     */
+    DecodedResponse(HttpResponse<?> delegate, boolean gzip, ZipPool pool) {
+        this.delegate = delegate;
+        this.gzip = gzip;
+        this.pool = pool;
+        HttpHeaders copy = delegate.getHttpHeaders().copy();
+        copy.remove("Content-Encoding");
+        copy.remove("Content-Length");
+        this.headers = copy.snapshot();
+    }
+
+    @Override
+    public int getStatusCode() {
+        return delegate.getStatusCode();
+    }
+
+    @Override
+    public String getStatusMessage() {
+        return delegate.getStatusMessage();
+    }
+
+    @Override
+    public HttpRequest getRequest() {
+        return delegate.getRequest();
+    }
+
+    @Override
+    public URI getUri() {
+        return delegate.getUri();
+    }
+
+    @Override
+    public URI getRequestUri() {
+        return delegate.getRequestUri();
+    }
+
+    @Override
+    public boolean isSuccess() {
+        return delegate.isSuccess();
+    }
+
+    @Override
+    public boolean isSuccessful() {
+        return delegate.isSuccessful();
+    }
+
+    @Override
+    public boolean isError() {
+        return delegate.isError();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>This reads and decompresses the whole body.
+     *
+     * @throws UncheckedIOException if the body is not validly compressed
+     */
+    @Override
+    public byte[] getBody() {
+        byte[] result = body;
+        if (result == null) {
+            synchronized (this) {
+                result = body;
+                if (result == null) {
+                    try (InputStream in = decodingStream()) {
+                        result = in.readAllBytes();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    body = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Flow.Publisher<ByteBuffer> getBodyPublisher() {
+        byte[] result = body;
+        if (result != null) {
+            return HttpRequestBody.ofBytes(result).asPublisher();
+        }
+        return new TransformingPublisher(delegate.getBodyPublisher(), () -> new ContentDecoder(pool, gzip));
+    }
+
+    @Override
+    public InputStream getBodyAsStream() {
+        byte[] result = body;
+        return result != null ? new ByteArrayInputStream(result) : decodingStream();
+    }
+
+    @Override
+    public Object getBodyAs() {
+        // The typed body of the original response, if any, was read from the compressed bytes
+        return null;
+    }
+
+    @Override
+    public String getBodyAsString() {
+        return new String(getBody(), getCharset());
+    }
+
+    @Override
+    public Optional<Serializer> getSerializer() {
+        return delegate.getSerializer();
+    }
+
+    @Override
+    public String getHeader(String name) {
+        return headers.getCombined(name);
+    }
+
+    @Override
+    public Map<String, String> getHeaders() {
+        return headers.asMap();
+    }
+
+    @Override
+    public HttpHeaders getHttpHeaders() {
+        return headers;
+    }
+
+    @Override
+    public String getContentType() {
+        return getHeader("Content-Type");
+    }
+
+    @Override
+    public HttpResponse<Object> throwIfNotSuccessful() throws HttpResponseException {
+        if (!isSuccessful()) {
+            throw new HttpResponseException(this);
+        }
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return "HTTP " + getStatusCode() + " " + getStatusMessage() + " (" + (gzip ? "gzip" : "deflate") + "), " +
+               "headers: " + headers.size();
+    }
+
+    private InputStream decodingStream() {
+        return new TransformingInputStream(delegate.getBodyAsStream(), new ContentDecoder(pool, gzip), pool);
+    }
+}
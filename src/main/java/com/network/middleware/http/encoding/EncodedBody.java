@@ -0,0 +1,45 @@
+package com.network.middleware.http.encoding;
+
+import com.network.api.http.HttpRequestBody;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.Flow;
+
+/**
+ * Request body that is gzip-compressed while it is sent.
+ *
+ * <p>The compressed length is not known in advance, so the body is sent with
+ * chunked transfer coding. It is repeatable if the original body is; every
+ * subscription compresses the content again.
+ */
+final class EncodedBody implements HttpRequestBody {
+
+    private final HttpRequestBody body;
+    private final ZipPool pool;
+
+    /**
+     * Creates a new body.
+     *
+     * @param body the uncompressed body
+     * @param pool the pool of deflaters and buffers
+     */
+    EncodedBody(HttpRequestBody body, ZipPool pool) {
+        this.body = body;
+        this.pool = pool;
+    }
+
+    @Override
+    public long contentLength() {
+        return -1;
+    }
+
+    @Override
+    public boolean isRepeatable() {
+        return body.isRepeatable();
+    }
+
+    @Override
+    public Flow.Publisher<ByteBuffer> asPublisher() {
+        return new TransformingPublisher(body.asPublisher(), () -> new GzipEncoder(pool));
+    }
+}
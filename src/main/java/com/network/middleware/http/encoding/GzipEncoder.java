@@ -0,0 +1,95 @@
+package com.network.middleware.http.encoding;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Incremental gzip encoder using a pooled deflater.
+ */
+final class GzipEncoder implements ByteTransform {
+
+    private static final byte[] HEADER = {0x1F, (byte) 0x8B, 8, 0, 0, 0, 0, 0, 0, (byte) 0xFF};
+
+    private final ZipPool pool;
+    private final CRC32 crc = new CRC32();
+    private Deflater deflater;
+    private byte[] input;
+    private byte[] scratch;
+    private boolean started;
+
+    /**
+     * Creates a new encoder.
+     *
+     * @param pool the pool of deflaters and buffers
+     */
+    GzipEncoder(ZipPool pool) {
+        this.pool = pool;
+    }
+
+    @Override
+    public void update(ByteBuffer data, Consumer<ByteBuffer> output) {
+        start(output);
+        while (data.hasRemaining()) {
+            int count = Math.min(data.remaining(), input.length);
+            data.get(input, 0, count);
+            crc.update(input, 0, count);
+            deflater.setInput(input, 0, count);
+            while (!deflater.needsInput()) {
+                drain(output);
+            }
+        }
+    }
+
+    @Override
+    public void finish(Consumer<ByteBuffer> output) {
+        start(output);
+        deflater.finish();
+        while (!deflater.finished()) {
+            drain(output);
+        }
+        long length = deflater.getBytesRead();
+        byte[] trailer = new byte[8];
+        writeInt(trailer, 0, (int) crc.getValue());
+        writeInt(trailer, 4, (int) length);
+        output.accept(ByteBuffer.wrap(trailer));
+    }
+
+    @Override
+    public void release() {
+        if (deflater != null) {
+            pool.release(deflater);
+            pool.release(input);
+            pool.release(scratch);
+            deflater = null;
+            input = null;
+            scratch = null;
+        }
+    }
+
+    private void start(Consumer<ByteBuffer> output) {
+        if (!started) {
+            started = true;
+            deflater = pool.acquireDeflater();
+            input = pool.acquireBuffer();
+            scratch = pool.acquireBuffer();
+            output.accept(ByteBuffer.wrap(HEADER.clone()));
+        }
+    }
+
+    private void drain(Consumer<ByteBuffer> output) {
+        int count = deflater.deflate(scratch);
+        if (count > 0) {
+            output.accept(ByteBuffer.wrap(Arrays.copyOf(scratch, count)));
+        }
+    }
+
+    private static void writeInt(byte[] bytes, int offset, int value) {
+        bytes[offset] = (byte) value;
+        bytes[offset + 1] = (byte) (value >>> 8);
+        bytes[offset + 2] = (byte) (value >>> 16);
+        bytes[offset + 3] = (byte) (value >>> 24);
+    }
+}
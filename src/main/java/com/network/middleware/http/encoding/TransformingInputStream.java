@@ -0,0 +1,126 @@
+package com.network.middleware.http.encoding;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+
+/**
+ * Input stream that transforms the bytes of another input stream.
+ *
+ * <p>Input is read in chunks of {@link ZipPool#BUFFER_SIZE} bytes, only when
+ * the output of the previous chunk has been read.
+ */
+final class TransformingInputStream extends InputStream {
+
+    private final InputStream source;
+    private final ByteTransform transform;
+    private final ZipPool pool;
+    private final ArrayDeque<ByteBuffer> ready = new ArrayDeque<>();
+    private byte[] buffer;
+    private boolean eof;
+    private IOException failure;
+    private boolean closed;
+
+    /**
+     * Creates a new stream.
+     *
+     * @param source    the stream of the input
+     * @param transform the transform
+     * @param pool      the pool of the read buffer
+     */
+    TransformingInputStream(InputStream source, ByteTransform transform, ZipPool pool) {
+        this.source = source;
+        this.transform = transform;
+        this.pool = pool;
+    }
+
+    @Override
+    public int read() throws IOException {
+        ByteBuffer current = next();
+        return current != null ? current.get() & 0xFF : -1;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        ByteBuffer current = next();
+        if (current == null) {
+            return -1;
+        }
+        int count = Math.min(len, current.remaining());
+        current.get(b, off, count);
+        return count;
+    }
+
+    @Override
+    public int available() {
+        ByteBuffer current = ready.peek();
+        return current != null ? current.remaining() : 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            ready.clear();
+            releaseResources();
+            source.close();
+        }
+    }
+
+    /**
+     * Gets the buffer to read from, transforming more input if needed.
+     *
+     * @return a buffer with remaining bytes, or null at the end of the stream
+     */
+    private ByteBuffer next() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        while (true) {
+            ByteBuffer current = ready.peek();
+            if (current != null) {
+                if (current.hasRemaining()) {
+                    return current;
+                }
+                ready.poll();
+                continue;
+            }
+            if (failure != null) {
+                throw failure;
+            }
+            if (eof) {
+                return null;
+            }
+            if (buffer == null) {
+                buffer = pool.acquireBuffer();
+            }
+            int count = source.read(buffer);
+            try {
+                if (count < 0) {
+                    eof = true;
+                    transform.finish(ready::add);
+                    releaseResources();
+                } else if (count > 0) {
+                    transform.update(ByteBuffer.wrap(buffer, 0, count), ready::add);
+                }
+            } catch (IOException e) {
+                // Reads after a corrupt chunk keep failing rather than looking like the end
+                failure = e;
+                releaseResources();
+                throw e;
+            }
+        }
+    }
+
+    private void releaseResources() {
+        transform.release();
+        if (buffer != null) {
+            pool.release(buffer);
+            buffer = null;
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package com.network.middleware.http.encoding;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Publisher that transforms the buffers of another publisher.
+ *
+ * <p>Backpressure is kept end to end: the upstream is asked for one buffer
+ * at a time, and only once the transformed output of the previous one has
+ * been delivered and the subscriber still has demand. A slow subscriber
+ * therefore pauses reading from the connection instead of letting output
+ * pile up in memory.
+ */
+final class TransformingPublisher implements Flow.Publisher<ByteBuffer> {
+
+    private final Flow.Publisher<ByteBuffer> upstream;
+    private final Supplier<ByteTransform> transforms;
+
+    /**
+     * Creates a new publisher.
+     *
+     * @param upstream   the publisher of the input
+     * @param transforms creates the transform of each subscription
+     */
+    TransformingPublisher(Flow.Publisher<ByteBuffer> upstream, Supplier<ByteTransform> transforms) {
+        this.upstream = upstream;
+        this.transforms = transforms;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super ByteBuffer> subscriber) {
+        upstream.subscribe(new TransformingSubscription(subscriber, transforms.get()));
+    }
+
+    /**
+     * Subscription to the upstream and of the downstream at the same time.
+     */
+    private static final class TransformingSubscription implements Flow.Subscriber<ByteBuffer>, Flow.Subscription {
+        private final Flow.Subscriber<? super ByteBuffer> downstream;
+        private final ByteTransform transform;
+        private final Queue<ByteBuffer> ready = new ConcurrentLinkedQueue<>();
+        private final AtomicLong demand = new AtomicLong();
+        private final AtomicInteger wip = new AtomicInteger();
+        private volatile Flow.Subscription subscription;
+        private volatile boolean requested;
+        private volatile boolean upstreamDone;
+        private volatile Throwable failure;
+        private volatile boolean cancelled;
+        private boolean terminated;
+        /** Guarded by the transform, which a cancelling thread may release while input arrives. */
+        private boolean released;
+
+        TransformingSubscription(Flow.Subscriber<? super ByteBuffer> downstream, ByteTransform transform) {
+            this.downstream = downstream;
+            this.transform = transform;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            downstream.onSubscribe(this);
+        }
+
+        @Override
+        public void onNext(ByteBuffer item) {
+            requested = false;
+            if (upstreamDone) {
+                return;
+            }
+            try {
+                synchronized (transform) {
+                    if (!released) {
+                        transform.update(item, ready::add);
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                subscription.cancel();
+                failure = e;
+                upstreamDone = true;
+            }
+            drain();
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            if (!upstreamDone) {
+                failure = throwable;
+                upstreamDone = true;
+            }
+            drain();
+        }
+
+        @Override
+        public void onComplete() {
+            if (!upstreamDone) {
+                try {
+                    synchronized (transform) {
+                        if (!released) {
+                            transform.finish(ready::add);
+                        }
+                    }
+                } catch (IOException | RuntimeException e) {
+                    failure = e;
+                }
+                upstreamDone = true;
+            }
+            drain();
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                failure = new IllegalArgumentException("Demand must be positive");
+                upstreamDone = true;
+                ready.clear();
+                subscription.cancel();
+            } else {
+                demand.accumulateAndGet(n, (current, added) -> current + added < 0 ? Long.MAX_VALUE : current + added);
+            }
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            subscription.cancel();
+            drain();
+        }
+
+        private void release() {
+            synchronized (transform) {
+                released = true;
+                transform.release();
+            }
+        }
+
+        /**
+         * Delivers output and requests input; only one thread runs it at a time.
+         */
+        private void drain() {
+            if (wip.getAndIncrement() != 0) {
+                return;
+            }
+            do {
+                if (cancelled) {
+                    if (!terminated) {
+                        terminated = true;
+                        ready.clear();
+                        release();
+                    }
+                    continue;
+                }
+                while (demand.get() > 0 && !ready.isEmpty() && failure == null) {
+                    demand.decrementAndGet();
+                    downstream.onNext(ready.poll());
+                }
+                if (terminated) {
+                    continue;
+                }
+                if (upstreamDone && (ready.isEmpty() || failure != null)) {
+                    terminated = true;
+                    release();
+                    if (failure != null) {
+                        downstream.onError(failure);
+                    } else {
+                        downstream.onComplete();
+                    }
+                } else if (!upstreamDone && ready.isEmpty() && demand.get() > 0 && !requested) {
+                    requested = true;
+                    subscription.request(1);
+                }
+            } while (wip.decrementAndGet() != 0);
+        }
+    }
+}
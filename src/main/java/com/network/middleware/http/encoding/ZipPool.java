@@ -0,0 +1,128 @@
+package com.network.middleware.http.encoding;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Pool of {@link Inflater}s, {@link Deflater}s and scratch buffers.
+ *
+ * <p>Creating an inflater or deflater allocates native zlib state, and a
+ * deflater allocates about 256 KB of it. Reusing them keeps that cost off the
+ * request path. Released objects are reset; beyond the idle limit they are
+ * ended instead, which frees their native memory right away.
+ */
+final class ZipPool {
+
+    /** Size of the scratch buffers used for compressed input and output. */
+    static final int BUFFER_SIZE = 16 * 1024;
+
+    private final int maxIdle;
+    private final int level;
+    private final Pool<Inflater> gzipInflaters = new Pool<>();
+    private final Pool<Inflater> zlibInflaters = new Pool<>();
+    private final Pool<Deflater> deflaters = new Pool<>();
+    private final Pool<byte[]> buffers = new Pool<>();
+
+    /**
+     * Creates a new pool.
+     *
+     * @param maxIdle the maximum number of idle objects of each kind
+     * @param level   the compression level of the deflaters
+     */
+    ZipPool(int maxIdle, int level) {
+        this.maxIdle = maxIdle;
+        this.level = level;
+    }
+
+    /**
+     * Gets an inflater.
+     *
+     * @param nowrap true for raw deflate data, as in gzip; false for the zlib format
+     * @return the inflater
+     */
+    Inflater acquireInflater(boolean nowrap) {
+        Inflater inflater = (nowrap ? gzipInflaters : zlibInflaters).poll();
+        return inflater != null ? inflater : new Inflater(nowrap);
+    }
+
+    /**
+     * Returns an inflater to the pool.
+     *
+     * @param inflater the inflater
+     * @param nowrap   the format it was acquired for
+     */
+    void release(Inflater inflater, boolean nowrap) {
+        inflater.reset();
+        if (!(nowrap ? gzipInflaters : zlibInflaters).offer(inflater, maxIdle)) {
+            inflater.end();
+        }
+    }
+
+    /**
+     * Gets a deflater for raw deflate data.
+     *
+     * @return the deflater
+     */
+    Deflater acquireDeflater() {
+        Deflater deflater = deflaters.poll();
+        return deflater != null ? deflater : new Deflater(level, true);
+    }
+
+    /**
+     * Returns a deflater to the pool.
+     *
+     * @param deflater the deflater
+     */
+    void release(Deflater deflater) {
+        deflater.reset();
+        if (!deflaters.offer(deflater, maxIdle)) {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Gets a scratch buffer of {@link #BUFFER_SIZE} bytes.
+     *
+     * @return the buffer
+     */
+    byte[] acquireBuffer() {
+        byte[] buffer = buffers.poll();
+        return buffer != null ? buffer : new byte[BUFFER_SIZE];
+    }
+
+    /**
+     * Returns a scratch buffer to the pool.
+     *
+     * @param buffer the buffer
+     */
+    void release(byte[] buffer) {
+        buffers.offer(buffer, maxIdle);
+    }
+
+    /**
+     * Bounded lock-free queue of idle objects.
+     */
+    private static final class Pool<T> {
+        private final ConcurrentLinkedQueue<T> idle = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger size = new AtomicInteger();
+
+        T poll() {
+            T item = idle.poll();
+            if (item != null) {
+                size.decrementAndGet();
+            }
+            return item;
+        }
+
+        boolean offer(T item, int max) {
+            if (size.incrementAndGet() > max) {
+                size.decrementAndGet();
+                return false;
+            }
+            idle.offer(item);
+            return true;
+        }
+    }
+}
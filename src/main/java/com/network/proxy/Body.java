@@ -0,0 +1,19 @@
+package com.network.proxy;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Binds a parameter to the request body. An {@code HttpRequestBody} or a
+ * {@code byte[]} is sent as it is; any other value is serialized with the
+ * serializer of the interface, which also sets the Content-Type unless a
+ * header of the method does. A null value sends no body.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.PARAMETER)
+public @interface Body {
+}
@@ -0,0 +1,25 @@
+package com.network.proxy;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Binds a parameter to a request header, replacing the value of a fixed
+ * {@link Headers} header with the same name. The value is converted with
+ * {@code String.valueOf}; null values are left out.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.PARAMETER)
+public @interface Header {
+
+    /**
+     * Gets the name of the header.
+     *
+     * @return the name
+     */
+    String value();
+}
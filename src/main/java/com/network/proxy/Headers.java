@@ -0,0 +1,25 @@
+package com.network.proxy;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Adds fixed headers to the requests of a method, or of all methods when the
+ * interface is annotated. Headers of the method are added after those of the
+ * interface.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.METHOD, ElementType.TYPE})
+public @interface Headers {
+
+    /**
+     * Gets the headers.
+     *
+     * @return the headers, each as {@code "Name: value"}
+     */
+    String[] value();
+}
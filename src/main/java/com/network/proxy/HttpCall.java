@@ -0,0 +1,38 @@
+package com.network.proxy;
+
+import com.network.api.http.HttpMethod;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Declares the HTTP request sent by a method of an interface created with
+ * {@link HttpInterface}.
+ *
+ * <p>The path is a template relative to the base URI of the interface, in
+ * which {@code {name}} is replaced by the parameter annotated with
+ * {@link Path @Path("name")}. It may contain a fixed query string, to which
+ * {@link Query @Query} parameters are appended.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface HttpCall {
+
+    /**
+     * Gets the request method.
+     *
+     * @return the method
+     */
+    HttpMethod method() default HttpMethod.GET;
+
+    /**
+     * Gets the path template.
+     *
+     * @return the template, e.g. {@code "/users/{id}"}
+     */
+    String value() default "";
+}
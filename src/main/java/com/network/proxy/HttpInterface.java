@@ -0,0 +1,291 @@
+package com.network.proxy;
+
+import com.network.api.http.middleware.HttpAsyncMiddlewareChain;
+import com.network.serialization.Serializer;
+import com.network.serialization.StreamingJsonSerializer;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Proxy;
+import java.net.URI;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Factory of clients for annotated Java interfaces.
+ *
+ * <p>Each abstract method of the interface is annotated with {@link HttpCall}
+ * and its parameters with {@link Path}, {@link Query}, {@link Header} or
+ * {@link Body}:
+ *
+ * <pre>{@code
+ * @Headers("Accept: application/json")
+ * interface UserApi {
+ *     @HttpCall("/users/{id}")
+ *     User get(@Path("id") long id);
+ *
+ *     @HttpCall(method = HttpMethod.POST, value = "/users")
+ *     CompletableFuture<User> create(@Body User user);
+ *
+ *     @HttpCall("/users")
+ *     List<User> search(@Query("name") String name, @Header("X-Trace") String trace);
+ * }
+ *
+ * UserApi users = HttpInterface.builder()
+ *     .withBaseUri(URI.create("https://api.example.com/v1"))
+ *     .withSender(client::sendAsync)
+ *     .build()
+ *     .create(UserApi.class);
+ * }</pre>
+ *
+ * <p>A method may return {@code CompletableFuture} or {@code CompletionStage}
+ * of its result to be asynchronous; otherwise it waits for the response. The
+ * result may be the {@code HttpResponse} itself, {@code void}, a
+ * {@code String}, a {@code byte[]} or a decoded body. Other results than the
+ * response fail with an {@link com.network.api.http.HttpResponseException}
+ * for unsuccessful status codes. Plain classes are decoded by the response,
+ * with the serializer of the client; generic types such as {@code List<User>}
+ * are decoded with the serializer of this factory, which also serializes
+ * request bodies. Default methods run as written.
+ *
+ * <p>Every method is compiled into an invocation plan when the interface is
+ * first created, so mistakes in the annotations fail at that point and calls
+ * do not look at annotations or generic signatures again. Proxies are cached
+ * per interface.
+ */
+public final class HttpInterface {
+
+    private static final MethodType SPREAD_TYPE = MethodType.methodType(Object.class, Object.class, Object[].class);
+
+    private final URI baseUri;
+    private final HttpAsyncMiddlewareChain sender;
+    private final Serializer serializer;
+    private final Duration timeout;
+    private final ConcurrentMap<Class<?>, Object> proxies = new ConcurrentHashMap<>();
+
+    private HttpInterface(Builder builder) {
+        this.baseUri = builder.baseUri;
+        this.sender = builder.sender;
+        this.serializer = builder.serializer;
+        this.timeout = builder.timeout;
+    }
+
+    /**
+     * Creates a new builder.
+     *
+     * @return the builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Gets the client of an interface.
+     *
+     * @param <T> the type of the interface
+     * @param api the interface
+     * @return the client, shared by all callers
+     * @throws IllegalArgumentException if the class is not an interface, or a
+     *                                  method cannot be mapped to a request
+     */
+    public <T> T create(Class<T> api) {
+        return api.cast(proxies.computeIfAbsent(api, this::newProxy));
+    }
+
+    /**
+     * Gets the base URI that path templates are relative to.
+     *
+     * @return the base URI, or null if templates are absolute
+     */
+    public URI getBaseUri() {
+        return baseUri;
+    }
+
+    /**
+     * Gets the function that sends requests.
+     *
+     * @return the sender
+     */
+    public HttpAsyncMiddlewareChain getSender() {
+        return sender;
+    }
+
+    /**
+     * Gets the serializer of request bodies and generic response bodies.
+     *
+     * @return the serializer
+     */
+    public Serializer getSerializer() {
+        return serializer;
+    }
+
+    /**
+     * Gets the timeout of the requests.
+     *
+     * @return the timeout, or null to use the timeout of the client
+     */
+    public Duration getTimeout() {
+        return timeout;
+    }
+
+    private Object newProxy(Class<?> api) {
+        if (!api.isInterface()) {
+            throw new IllegalArgumentException(api.getName() + " is not an interface");
+        }
+        Map<Method, MethodHandler> handlers = new HashMap<>();
+        for (Method method : api.getMethods()) {
+            if (Modifier.isStatic(method.getModifiers())) {
+                continue;
+            }
+            if (method.isDefault()) {
+                handlers.put(method, new DefaultMethod(method));
+            } else if (method.isAnnotationPresent(HttpCall.class)) {
+                handlers.put(method, new InvocationPlan(api, method, this));
+            } else {
+                throw new IllegalArgumentException(method + " has no @HttpCall annotation");
+            }
+        }
+        return Proxy.newProxyInstance(api.getClassLoader(), new Class<?>[] {api}, new Dispatcher(api, handlers));
+    }
+
+    /**
+     * Invocation handler that looks up the handler of each method.
+     */
+    private final class Dispatcher implements InvocationHandler {
+        private final Class<?> api;
+        private final Map<Method, MethodHandler> handlers;
+
+        Dispatcher(Class<?> api, Map<Method, MethodHandler> handlers) {
+            this.api = api;
+            this.handlers = handlers;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            MethodHandler handler = handlers.get(method);
+            if (handler != null) {
+                return handler.invoke(proxy, method, args);
+            }
+            // Only equals, hashCode and toString of Object reach a proxy
+            switch (method.getName()) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    return api.getName() + (baseUri != null ? " at " + baseUri : "");
+            }
+        }
+    }
+
+    /**
+     * Handler of a default method, which calls the method of the interface
+     * through a method handle resolved once.
+     */
+    private static final class DefaultMethod implements MethodHandler {
+        private final MethodHandle handle;
+
+        DefaultMethod(Method method) {
+            Class<?> declaring = method.getDeclaringClass();
+            try {
+                MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(declaring, MethodHandles.lookup());
+                this.handle = lookup.unreflectSpecial(method, declaring)
+                    .asSpreader(Object[].class, method.getParameterCount())
+                    .asType(SPREAD_TYPE);
+            } catch (IllegalAccessException e) {
+                throw new IllegalArgumentException("Cannot call default method " + method, e);
+            }
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            return handle.invokeExact(proxy, args);
+        }
+    }
+
+    /**
+     * Builder of {@link HttpInterface} instances.
+     */
+    public static final class Builder {
+        private URI baseUri;
+        private HttpAsyncMiddlewareChain sender;
+        private Serializer serializer = new StreamingJsonSerializer();
+        private Duration timeout;
+
+        private Builder() {
+        }
+
+        /**
+         * Sets the base URI that path templates are relative to.
+         *
+         * @param baseUri the base URI, or null if templates are absolute
+         * @return this builder
+         */
+        public Builder withBaseUri(URI baseUri) {
+            this.baseUri = baseUri;
+            return this;
+        }
+
+        /**
+         * Sets the function that sends requests, usually the asynchronous
+         * send method of a client, so that requests pass through its
+         * middleware.
+         *
+         * @param sender the sender
+         * @return this builder
+         */
+        public Builder withSender(HttpAsyncMiddlewareChain sender) {
+            if (sender == null) {
+                throw new IllegalArgumentException("Sender must not be null");
+            }
+            this.sender = sender;
+            return this;
+        }
+
+        /**
+         * Sets the serializer of request bodies and generic response bodies.
+         * The default is a {@link StreamingJsonSerializer}.
+         *
+         * @param serializer the serializer
+         * @return this builder
+         */
+        public Builder withSerializer(Serializer serializer) {
+            if (serializer == null) {
+                throw new IllegalArgumentException("Serializer must not be null");
+            }
+            this.serializer = serializer;
+            return this;
+        }
+
+        /**
+         * Sets the timeout of the requests.
+         *
+         * @param timeout the timeout, or null to use the timeout of the client
+         * @return this builder
+         */
+        public Builder withTimeout(Duration timeout) {
+            this.timeout = timeout;
+            return this;
+        }
+
+        /**
+         * Builds the factory.
+         *
+         * @return the factory
+         * @throws IllegalStateException if no sender is set
+         */
+        public HttpInterface build() {
+            if (sender == null) {
+                throw new IllegalStateException("A sender is required");
+            }
+            return new HttpInterface(this);
+        }
+    }
+}
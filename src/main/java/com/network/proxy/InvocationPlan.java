@@ -0,0 +1,308 @@
+package com.network.proxy;
+
+import com.network.api.http.HttpHeaders;
+import com.network.api.http.HttpMethod;
+import com.network.api.http.HttpRequest;
+import com.network.api.http.HttpRequestBody;
+import com.network.api.http.HttpResponse;
+import com.network.api.http.HttpResponseException;
+import com.network.api.http.middleware.HttpAsyncMiddlewareChain;
+import com.network.api.http.middleware.MiddlewareSupport;
+import com.network.serialization.ContentNegotiatingSerializer;
+import com.network.serialization.Serializer;
+import com.network.serialization.StreamingSerializer;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Array;
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.TypeVariable;
+import java.lang.reflect.WildcardType;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Function;
+
+/**
+ * Handler of one {@link HttpCall} method, compiled from its annotations and
+ * signature when the interface is created.
+ *
+ * <p>Everything that does not depend on the arguments is worked out here
+ * once: the URI template is split into literals and argument indexes, fixed
+ * headers are parsed into an immutable {@link HttpHeaders} that requests
+ * share, and the decoder of the return type is chosen. A call then only
+ * expands the template, copies the headers if a parameter sets one, and
+ * serializes the body.
+ *
+ * <p>When the body is decoded to a plain class, the class is also set as
+ * the {@link com.network.api.http.HttpRequestContext#RESPONSE_TYPE} of the
+ * request, so the client decodes it as soon as the response arrives and
+ * {@link HttpResponse#getBodyAs(Class)} returns the memoized value.
+ */
+final class InvocationPlan implements MethodHandler {
+
+    private final HttpAsyncMiddlewareChain sender;
+    private final HttpMethod httpMethod;
+    private final UriTemplate uri;
+    private final HttpHeaders headers;
+    private final String[] headerNames;
+    private final int[] headerArgs;
+    private final int bodyArg;
+    private final Serializer serializer;
+    private final Duration timeout;
+    private final Class<?> responseType;
+    private final Function<HttpResponse<?>, Object> decoder;
+    private final boolean async;
+    private final Class<?>[] exceptionTypes;
+
+    /**
+     * Compiles a method.
+     *
+     * @param api    the interface the proxy implements
+     * @param method the method, annotated with {@link HttpCall}
+     * @param owner  the interface factory
+     * @throws IllegalArgumentException if the method cannot be mapped to a request
+     */
+    InvocationPlan(Class<?> api, Method method, HttpInterface owner) {
+        HttpCall call = method.getAnnotation(HttpCall.class);
+        this.sender = owner.getSender();
+        this.httpMethod = call.method();
+        this.serializer = owner.getSerializer();
+        this.timeout = owner.getTimeout();
+        this.exceptionTypes = method.getExceptionTypes();
+
+        Map<String, Integer> pathArgs = new HashMap<>();
+        Map<String, Integer> queryArgs = new LinkedHashMap<>();
+        List<String> headerNames = new ArrayList<>();
+        List<Integer> headerArgs = new ArrayList<>();
+        int bodyArg = -1;
+        Annotation[][] annotations = method.getParameterAnnotations();
+        for (int i = 0; i < annotations.length; i++) {
+            Annotation binding = binding(method, i, annotations[i]);
+            if (binding instanceof Path) {
+                if (pathArgs.put(((Path) binding).value(), i) != null) {
+                    throw new IllegalArgumentException("Duplicate @Path(\"" + ((Path) binding).value() + "\") on " + method);
+                }
+            } else if (binding instanceof Query) {
+                if (queryArgs.put(((Query) binding).value(), i) != null) {
+                    throw new IllegalArgumentException("Duplicate @Query(\"" + ((Query) binding).value() + "\") on " + method);
+                }
+            } else if (binding instanceof Header) {
+                headerNames.add(((Header) binding).value());
+                headerArgs.add(i);
+            } else {
+                if (bodyArg >= 0) {
+                    throw new IllegalArgumentException("More than one @Body parameter on " + method);
+                }
+                bodyArg = i;
+            }
+        }
+        this.uri = new UriTemplate(owner.getBaseUri(), call.value(), pathArgs, queryArgs);
+        this.headerNames = headerNames.toArray(new String[0]);
+        this.headerArgs = headerArgs.stream().mapToInt(Integer::intValue).toArray();
+        this.bodyArg = bodyArg;
+
+        HttpHeaders fixed = new HttpHeaders();
+        addHeaders(fixed, api.getAnnotation(Headers.class), method);
+        addHeaders(fixed, method.getAnnotation(Headers.class), method);
+        if (bodyArg >= 0 && !fixed.contains("Content-Type")) {
+            Class<?> bodyClass = method.getParameterTypes()[bodyArg];
+            if (!HttpRequestBody.class.isAssignableFrom(bodyClass) && bodyClass != byte[].class) {
+                fixed.set("Content-Type", serializer.getContentType());
+            }
+        }
+        this.headers = fixed.snapshot();
+
+        Type bodyType = method.getGenericReturnType();
+        Class<?> returnClass = method.getReturnType();
+        this.async = returnClass == CompletableFuture.class || returnClass == CompletionStage.class;
+        if (async) {
+            bodyType = typeArgument(bodyType);
+        }
+        Class<?> bodyClass = rawClass(bodyType);
+        if (HttpResponse.class.isAssignableFrom(bodyClass)) {
+            // The caller gets the response itself, with its body decoded to the type argument
+            Type typed = typeArgument(bodyType);
+            this.responseType = isDecodedClass(typed) ? (Class<?>) typed : null;
+            this.decoder = response -> response;
+        } else {
+            this.responseType = isDecodedClass(bodyType) ? bodyClass : null;
+            this.decoder = decoder(bodyType, bodyClass, serializer);
+        }
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        CompletableFuture<HttpResponse<?>> response = sender.next(newRequest(args));
+        if (async) {
+            return MiddlewareSupport.forwardCancellation(response.thenApply(decoder), response);
+        }
+        try {
+            return decoder.apply(response.join());
+        } catch (CompletionException e) {
+            throw unwrap(e);
+        }
+    }
+
+    /**
+     * Builds the request of a call.
+     *
+     * @param args the arguments, or null if the method has no parameters
+     * @return the request
+     */
+    HttpRequest newRequest(Object[] args) {
+        HttpHeaders requestHeaders = headers;
+        if (headerArgs.length > 0) {
+            HttpHeaders copy = headers.copy();
+            for (int i = 0; i < headerArgs.length; i++) {
+                Object value = args[headerArgs[i]];
+                if (value != null) {
+                    copy.set(headerNames[i], String.valueOf(value));
+                }
+            }
+            requestHeaders = copy.snapshot();
+        }
+        HttpRequestBody body = bodyArg >= 0 ? toBody(args[bodyArg]) : HttpRequestBody.empty();
+        return new ProxyRequest(uri.expand(args), httpMethod, requestHeaders, body, timeout, responseType);
+    }
+
+    private HttpRequestBody toBody(Object value) {
+        if (value == null) {
+            return HttpRequestBody.empty();
+        }
+        if (value instanceof HttpRequestBody) {
+            return (HttpRequestBody) value;
+        }
+        if (value instanceof byte[]) {
+            return HttpRequestBody.ofBytes((byte[]) value);
+        }
+        return HttpRequestBody.ofBytes(serializer.serialize(value));
+    }
+
+    /**
+     * Gets the exception to rethrow for a failed request: the cause if the
+     * method may throw it, otherwise the completion exception itself.
+     */
+    private Throwable unwrap(CompletionException e) {
+        Throwable cause = e.getCause();
+        if (cause == null) {
+            return e;
+        }
+        if (cause instanceof RuntimeException || cause instanceof Error) {
+            return cause;
+        }
+        for (Class<?> type : exceptionTypes) {
+            if (type.isInstance(cause)) {
+                return cause;
+            }
+        }
+        return e;
+    }
+
+    private static Annotation binding(Method method, int index, Annotation[] annotations) {
+        Annotation binding = null;
+        for (Annotation annotation : annotations) {
+            if (annotation instanceof Path || annotation instanceof Query
+                || annotation instanceof Header || annotation instanceof Body) {
+                if (binding != null) {
+                    throw new IllegalArgumentException("Parameter " + index + " of " + method + " has more than one binding");
+                }
+                binding = annotation;
+            }
+        }
+        if (binding == null) {
+            throw new IllegalArgumentException(
+                "Parameter " + index + " of " + method + " needs @Path, @Query, @Header or @Body");
+        }
+        return binding;
+    }
+
+    private static void addHeaders(HttpHeaders headers, Headers annotation, Method method) {
+        if (annotation == null) {
+            return;
+        }
+        for (String header : annotation.value()) {
+            int colon = header.indexOf(':');
+            if (colon <= 0) {
+                throw new IllegalArgumentException("Header \"" + header + "\" of " + method + " is not \"Name: value\"");
+            }
+            headers.add(header.substring(0, colon).trim(), header.substring(colon + 1).trim());
+        }
+    }
+
+    private static Function<HttpResponse<?>, Object> decoder(Type type, Class<?> raw, Serializer serializer) {
+        if (raw == void.class || raw == Void.class) {
+            return response -> {
+                checkStatus(response);
+                return null;
+            };
+        }
+        if (raw == String.class) {
+            return response -> checkStatus(response).getBodyAsString();
+        }
+        if (raw == byte[].class) {
+            return response -> checkStatus(response).getBody();
+        }
+        if (type instanceof Class) {
+            return response -> checkStatus(response).getBodyAs(raw);
+        }
+        // Generic types such as List<Item> need the type arguments, which Class-based decoding loses
+        return response -> {
+            byte[] body = checkStatus(response).getBody();
+            if (body == null || body.length == 0) {
+                return null;
+            }
+            Serializer selected = ContentNegotiatingSerializer.select(serializer, response.getContentType());
+            return selected instanceof StreamingSerializer
+                ? ((StreamingSerializer) selected).deserialize(body, type)
+                : selected.deserialize(body, raw);
+        };
+    }
+
+    private static HttpResponse<?> checkStatus(HttpResponse<?> response) {
+        if (!response.isSuccessful()) {
+            throw new HttpResponseException(response);
+        }
+        return response;
+    }
+
+    /**
+     * Checks if a body type is a plain class that the client can decode
+     * before the response is handed over.
+     */
+    private static boolean isDecodedClass(Type type) {
+        return type instanceof Class && type != void.class && type != Void.class
+            && type != String.class && type != byte[].class && type != Object.class;
+    }
+
+    private static Type typeArgument(Type type) {
+        return type instanceof ParameterizedType ? ((ParameterizedType) type).getActualTypeArguments()[0] : Object.class;
+    }
+
+    private static Class<?> rawClass(Type type) {
+        if (type instanceof Class) {
+            return (Class<?>) type;
+        }
+        if (type instanceof ParameterizedType) {
+            return (Class<?>) ((ParameterizedType) type).getRawType();
+        }
+        if (type instanceof GenericArrayType) {
+            return Array.newInstance(rawClass(((GenericArrayType) type).getGenericComponentType()), 0).getClass();
+        }
+        if (type instanceof WildcardType) {
+            return rawClass(((WildcardType) type).getUpperBounds()[0]);
+        }
+        if (type instanceof TypeVariable) {
+            return rawClass(((TypeVariable<?>) type).getBounds()[0]);
+        }
+        return Object.class;
+    }
+}
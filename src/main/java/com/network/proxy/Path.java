@@ -0,0 +1,25 @@
+package com.network.proxy;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Binds a parameter to a variable of the {@link HttpCall} path template. The
+ * value is converted with {@code String.valueOf} and percent-encoded as a
+ * path segment; it must not be null.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.PARAMETER)
+public @interface Path {
+
+    /**
+     * Gets the name of the variable.
+     *
+     * @return the name
+     */
+    String value();
+}
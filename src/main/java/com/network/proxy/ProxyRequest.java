@@ -0,0 +1,107 @@
+package com.network.proxy;
+
+import com.network.api.http.HttpHeaders;
+import com.network.api.http.HttpMethod;
+import com.network.api.http.HttpRequest;
+import com.network.api.http.HttpRequestBody;
+import com.network.api.http.HttpRequestContext;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Request built by an {@link InvocationPlan} from the arguments of a call.
+ */
+final class ProxyRequest implements HttpRequest {
+
+    private final URI uri;
+    private final HttpMethod method;
+    private final HttpHeaders headers;
+    private final HttpRequestBody body;
+    private final Duration timeout;
+    private final HttpRequestContext context = new HttpRequestContext();
+
+    /**
+     * Creates a new request.
+     *
+     * @param uri          the request URI
+     * @param method       the HTTP method
+     * @param headers      the immutable request headers
+     * @param body         the request body
+     * @param timeout      the request timeout, or null
+     * @param responseType the class to decode the response body to as soon as
+     *                     it arrives, or null
+     */
+    ProxyRequest(URI uri, HttpMethod method, HttpHeaders headers, HttpRequestBody body,
+                 Duration timeout, Class<?> responseType) {
+        this.uri = uri;
+        this.method = method;
+        this.headers = headers;
+        this.body = body;
+        this.timeout = timeout;
+        if (responseType != null) {
+            context.set(HttpRequestContext.RESPONSE_TYPE, responseType);
+        }
+    }
+
+    @Override
+    public URI getUri() {
+        return uri;
+    }
+
+    @Override
+    public HttpMethod getMethod() {
+        return method;
+    }
+
+    @Override
+    public Map<String, String> getHeaders() {
+        return headers.asMap();
+    }
+
+    @Override
+    public HttpHeaders getHttpHeaders() {
+        return headers;
+    }
+
+    @Override
+    public String getHeader(String name) {
+        return headers.getCombined(name);
+    }
+
+    @Override
+    public boolean hasHeader(String name) {
+        return headers.contains(name);
+    }
+
+    @Override
+    public Duration getTimeout() {
+        return timeout;
+    }
+
+    @Override
+    public byte[] getBody() {
+        return body.contentLength() == 0 ? null : body.toByteArray();
+    }
+
+    @Override
+    public HttpRequestBody getRequestBody() {
+        return body;
+    }
+
+    @Override
+    public boolean hasBody() {
+        return body.contentLength() != 0;
+    }
+
+    @Override
+    public HttpRequestContext getContext() {
+        return context;
+    }
+
+    @Override
+    public String toString() {
+        return method + " " + uri + ", headers: " + headers.size();
+    }
+}
@@ -0,0 +1,25 @@
+package com.network.proxy;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Binds a parameter to a query parameter. The value is converted with
+ * {@code String.valueOf} and percent-encoded; arrays and collections add the
+ * parameter once per element, and null values are left out.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.PARAMETER)
+public @interface Query {
+
+    /**
+     * Gets the name of the query parameter.
+     *
+     * @return the name
+     */
+    String value();
+}
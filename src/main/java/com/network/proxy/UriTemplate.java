@@ -0,0 +1,187 @@
+package com.network.proxy;
+
+import java.lang.reflect.Array;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * URI template of an {@link HttpCall} method, split into literals and
+ * variables once so that expanding it is a single pass over the arguments.
+ *
+ * <p>The base URI of the interface is folded into the first literal, and
+ * query parameter names are percent-encoded up front.
+ */
+final class UriTemplate {
+
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    /** Literal i comes before variable i; there is one more literal than variables. */
+    private final String[] literals;
+    private final int[] pathArgs;
+    private final String[] queryNames;
+    private final int[] queryArgs;
+    private final boolean hasQuery;
+    private final int sizeHint;
+
+    /**
+     * Parses a template.
+     *
+     * @param base       the base URI, or null for an absolute template
+     * @param template   the path template
+     * @param pathArgs   the argument index of each variable name
+     * @param queryArgs  the argument index of each query parameter, in order
+     * @throws IllegalArgumentException if a variable has no argument or an
+     *                                  argument has no variable
+     */
+    UriTemplate(URI base, String template, Map<String, Integer> pathArgs, Map<String, Integer> queryArgs) {
+        String prefix = base != null ? base.toString() : "";
+        if (prefix.endsWith("/") && template.startsWith("/")) {
+            prefix = prefix.substring(0, prefix.length() - 1);
+        }
+        List<String> literals = new ArrayList<>();
+        List<Integer> args = new ArrayList<>();
+        StringBuilder literal = new StringBuilder(prefix);
+        int position = 0;
+        while (position < template.length()) {
+            int open = template.indexOf('{', position);
+            if (open < 0) {
+                literal.append(template, position, template.length());
+                break;
+            }
+            int close = template.indexOf('}', open);
+            if (close < 0) {
+                throw new IllegalArgumentException("Unclosed variable in URI template: " + template);
+            }
+            String name = template.substring(open + 1, close);
+            Integer arg = pathArgs.get(name);
+            if (arg == null) {
+                throw new IllegalArgumentException("No @Path parameter for {" + name + "} in " + template);
+            }
+            literal.append(template, position, open);
+            literals.add(literal.toString());
+            literal.setLength(0);
+            args.add(arg);
+            position = close + 1;
+        }
+        literals.add(literal.toString());
+        for (String name : pathArgs.keySet()) {
+            if (!template.contains("{" + name + "}")) {
+                throw new IllegalArgumentException("No {" + name + "} in URI template " + template);
+            }
+        }
+        this.literals = literals.toArray(new String[0]);
+        this.pathArgs = args.stream().mapToInt(Integer::intValue).toArray();
+        this.queryNames = new String[queryArgs.size()];
+        this.queryArgs = new int[queryArgs.size()];
+        int i = 0;
+        for (Map.Entry<String, Integer> entry : queryArgs.entrySet()) {
+            queryNames[i] = encode(entry.getKey());
+            this.queryArgs[i++] = entry.getValue();
+        }
+        String literalText = String.join("", this.literals);
+        this.hasQuery = literalText.indexOf('?') >= 0;
+        this.sizeHint = literalText.length() + 16 * (this.pathArgs.length + queryNames.length);
+    }
+
+    /**
+     * Expands this template.
+     *
+     * @param args the arguments of the call
+     * @return the URI
+     * @throws IllegalArgumentException if a path argument is null
+     */
+    URI expand(Object[] args) {
+        if (pathArgs.length == 0 && queryNames.length == 0) {
+            return URI.create(literals[0]);
+        }
+        StringBuilder uri = new StringBuilder(sizeHint);
+        for (int i = 0; i < pathArgs.length; i++) {
+            Object value = args[pathArgs[i]];
+            if (value == null) {
+                throw new IllegalArgumentException("Path parameter " + i + " of " + this + " is null");
+            }
+            uri.append(literals[i]).append(encodeSegment(String.valueOf(value)));
+        }
+        uri.append(literals[pathArgs.length]);
+        boolean first = !hasQuery;
+        for (int i = 0; i < queryNames.length; i++) {
+            Object value = args[queryArgs[i]];
+            if (value instanceof Iterable) {
+                for (Object element : (Iterable<?>) value) {
+                    first = appendQuery(uri, first, queryNames[i], element);
+                }
+            } else if (value != null && value.getClass().isArray()) {
+                for (int j = 0, n = Array.getLength(value); j < n; j++) {
+                    first = appendQuery(uri, first, queryNames[i], Array.get(value, j));
+                }
+            } else {
+                first = appendQuery(uri, first, queryNames[i], value);
+            }
+        }
+        return URI.create(uri.toString());
+    }
+
+    private static boolean appendQuery(StringBuilder uri, boolean first, String name, Object value) {
+        if (value == null) {
+            return first;
+        }
+        uri.append(first ? '?' : '&').append(name).append('=').append(encode(String.valueOf(value)));
+        return false;
+    }
+
+    /**
+     * Percent-encodes everything but the unreserved characters of RFC 3986,
+     * so that a value cannot add path segments or query parameters.
+     *
+     * @param value the value
+     * @return the encoded value, or the value itself if nothing needs encoding
+     */
+    static String encode(String value) {
+        int i = 0;
+        while (i < value.length() && isUnreserved(value.charAt(i))) {
+            i++;
+        }
+        if (i == value.length()) {
+            return value;
+        }
+        StringBuilder encoded = new StringBuilder(value.length() + 16).append(value, 0, i);
+        for (byte b : value.substring(i).getBytes(StandardCharsets.UTF_8)) {
+            if (isUnreserved((char) b)) {
+                encoded.append((char) b);
+            } else {
+                encoded.append('%').append(HEX[(b >> 4) & 0xF]).append(HEX[b & 0xF]);
+            }
+        }
+        return encoded.toString();
+    }
+
+    /**
+     * Percent-encodes a path value like {@link #encode(String)}, and also the
+     * dots of a value that consists of dots only, so that {@code .} or
+     * {@code ..} cannot be resolved as a dot-segment and move up the path.
+     *
+     * @param value the value
+     * @return the encoded value
+     */
+    static String encodeSegment(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) != '.') {
+                return encode(value);
+            }
+        }
+        return value.replace(".", "%2E");
+    }
+
+    private static boolean isUnreserved(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+            || c == '-' || c == '.' || c == '_' || c == '~';
+    }
+
+    @Override
+    public String toString() {
+        return String.join("{}", literals);
+    }
+}
@@ -0,0 +1,629 @@
+package com.network.serialization;
+
+import com.network.buffer.BufferPool;
+
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * Pull parser that reads CBOR (RFC 8949) through the token API of
+ * {@link JsonReader}.
+ *
+ * <p>Maps are reported as objects and must have text string keys; definite
+ * and indefinite lengths are both accepted. Byte strings are reported as
+ * strings and read as base64, which is how they are written as JSON.
+ * Bignums and decimal fractions are read as numbers, undefined as null, and
+ * other tags are ignored.
+ */
+final class CborReader extends JsonReader {
+
+    private static final int MAX_DEPTH = 512;
+    private static final int CHUNK = 64 * 1024;
+    private static final int BREAK = 0xFF;
+
+    private static final int DOCUMENT = 0;
+    private static final int ARRAY = 1;
+    private static final int MAP = 2;
+
+    private static final int TAG_POSITIVE_BIGNUM = 2;
+    private static final int TAG_NEGATIVE_BIGNUM = 3;
+    private static final int TAG_DECIMAL_FRACTION = 4;
+
+    /** The kind of each open container. */
+    private int[] kinds = new int[32];
+    /** The number of items left in each open container, or -1 for an indefinite length. */
+    private long[] remaining = new long[32];
+    /** Whether each open indefinite-length map expects a key next. */
+    private boolean[] keyExpected = new boolean[32];
+    private int depth;
+    private JsonToken peeked;
+    /** The tag of the peeked number, or -1. */
+    private long tag = -1;
+
+    private byte[] bytes = new byte[64];
+
+    /**
+     * Creates a reader over buffers. The positions of the buffers are not modified.
+     *
+     * @param buffers the input
+     */
+    CborReader(ByteBuffer... buffers) {
+        super(buffers);
+        push(DOCUMENT, 1);
+    }
+
+    /**
+     * Creates a reader over an input stream, which is closed with the reader.
+     *
+     * @param in   the input
+     * @param pool the pool to take the read buffer from
+     */
+    CborReader(InputStream in, BufferPool pool) {
+        super(in, pool);
+        push(DOCUMENT, 1);
+    }
+
+    @Override
+    public JsonToken peek() {
+        if (peeked == null) {
+            peeked = doPeek();
+        }
+        return peeked;
+    }
+
+    @Override
+    public boolean hasNext() {
+        JsonToken token = peek();
+        return token != JsonToken.END_OBJECT && token != JsonToken.END_ARRAY && token != JsonToken.END_DOCUMENT;
+    }
+
+    @Override
+    public void beginObject() {
+        begin(JsonToken.BEGIN_OBJECT, MAP);
+    }
+
+    @Override
+    public void endObject() {
+        end(JsonToken.END_OBJECT);
+    }
+
+    @Override
+    public void beginArray() {
+        begin(JsonToken.BEGIN_ARRAY, ARRAY);
+    }
+
+    @Override
+    public void endArray() {
+        end(JsonToken.END_ARRAY);
+    }
+
+    @Override
+    public String nextName() {
+        expect(JsonToken.NAME);
+        return decode(readText());
+    }
+
+    @Override
+    public int nextName(JsonNames names) {
+        expect(JsonToken.NAME);
+        return names.indexOf(bytes, readText());
+    }
+
+    @Override
+    public String nextString() {
+        expect(JsonToken.STRING);
+        if (peekByte() >> 5 == 2) {
+            int length = readStringBytes(2);
+            consumed();
+            return Base64.getEncoder().encodeToString(Arrays.copyOf(bytes, length));
+        }
+        return decode(readText());
+    }
+
+    @Override
+    public int nextString(JsonNames names) {
+        expect(JsonToken.STRING);
+        if (peekByte() >> 5 != 3) {
+            throw error("Expected a text string");
+        }
+        return names.indexOf(bytes, readText());
+    }
+
+    @Override
+    public boolean nextBoolean() {
+        expect(JsonToken.BOOLEAN);
+        boolean value = readByte() == 0xF5;
+        consumed();
+        return value;
+    }
+
+    @Override
+    public void nextNull() {
+        expect(JsonToken.NULL);
+        readByte();
+        consumed();
+    }
+
+    @Override
+    public int nextInt() {
+        long offset = offset();
+        long value = nextLong();
+        if ((int) value != value) {
+            throw new JsonFormatException("Number out of int range", offset);
+        }
+        return (int) value;
+    }
+
+    @Override
+    public long nextLong() {
+        expect(JsonToken.NUMBER);
+        long offset = offset();
+        int initial = peekByte();
+        if (tag < 0 && initial < 0x40 && (initial & 0x1F) < 28) {
+            // Plain integers, the common case, need no boxing
+            readByte();
+            long argument = readArgument(initial);
+            if (argument >= 0) {
+                consumed();
+                return initial < 0x20 ? argument : -1 - argument;
+            }
+            throw new JsonFormatException("Number is not a long", offset);
+        }
+        Number value = readNumber();
+        try {
+            if (value instanceof Long) {
+                return value.longValue();
+            }
+            if (value instanceof Double) {
+                return new BigDecimal(value.doubleValue()).longValueExact();
+            }
+            if (value instanceof BigInteger) {
+                return ((BigInteger) value).longValueExact();
+            }
+            return ((BigDecimal) value).longValueExact();
+        } catch (ArithmeticException | NumberFormatException e) {
+            throw new JsonFormatException("Number is not a long", offset);
+        }
+    }
+
+    @Override
+    public double nextDouble() {
+        expect(JsonToken.NUMBER);
+        return readNumber().doubleValue();
+    }
+
+    @Override
+    public Number nextNumber() {
+        expect(JsonToken.NUMBER);
+        Number value = readNumber();
+        if (value instanceof Long || value instanceof Double) {
+            return value;
+        }
+        BigDecimal decimal = value instanceof BigDecimal ? (BigDecimal) value : new BigDecimal((BigInteger) value);
+        try {
+            return decimal.longValueExact();
+        } catch (ArithmeticException e) {
+            return decimal.doubleValue();
+        }
+    }
+
+    @Override
+    public BigDecimal nextBigDecimal() {
+        expect(JsonToken.NUMBER);
+        Number value = readNumber();
+        if (value instanceof Long) {
+            return BigDecimal.valueOf(value.longValue());
+        }
+        if (value instanceof Double) {
+            return BigDecimal.valueOf(value.doubleValue());
+        }
+        if (value instanceof BigInteger) {
+            return new BigDecimal((BigInteger) value);
+        }
+        return (BigDecimal) value;
+    }
+
+    @Override
+    public void skipValue() {
+        int open = 0;
+        do {
+            switch (peek()) {
+                case BEGIN_ARRAY:
+                    beginArray();
+                    open++;
+                    break;
+                case BEGIN_OBJECT:
+                    beginObject();
+                    open++;
+                    break;
+                case END_ARRAY:
+                    endArray();
+                    open--;
+                    break;
+                case END_OBJECT:
+                    endObject();
+                    open--;
+                    break;
+                case NAME:
+                case STRING:
+                    skipString();
+                    break;
+                case NUMBER:
+                    readNumber();
+                    break;
+                case BOOLEAN:
+                    nextBoolean();
+                    break;
+                case NULL:
+                    nextNull();
+                    break;
+                default:
+                    throw error("Unexpected end of input");
+            }
+        } while (open > 0);
+    }
+
+    @Override
+    public void endDocument() {
+        expect(JsonToken.END_DOCUMENT);
+    }
+
+    private JsonToken doPeek() {
+        int level = depth - 1;
+        int kind = kinds[level];
+        long left = remaining[level];
+        if (left == 0) {
+            if (kind == DOCUMENT) {
+                if (peekByte() != -1) {
+                    throw error("Unexpected data after the end of the input");
+                }
+                return JsonToken.END_DOCUMENT;
+            }
+            return kind == MAP ? JsonToken.END_OBJECT : JsonToken.END_ARRAY;
+        }
+        boolean key = kind == MAP && (left < 0 ? keyExpected[level] : left % 2 == 0);
+        while (true) {
+            int initial = peekByte();
+            if (initial == -1) {
+                throw error("Unexpected end of input");
+            }
+            if (initial == BREAK && left < 0) {
+                if (kind == MAP && !key) {
+                    throw error("Missing map value");
+                }
+                return kind == MAP ? JsonToken.END_OBJECT : JsonToken.END_ARRAY;
+            }
+            int major = initial >> 5;
+            if (key && major != 3) {
+                throw error("Map key is not a text string");
+            }
+            switch (major) {
+                case 0:
+                case 1:
+                    return JsonToken.NUMBER;
+                case 2:
+                    return JsonToken.STRING;
+                case 3:
+                    return key ? JsonToken.NAME : JsonToken.STRING;
+                case 4:
+                    return JsonToken.BEGIN_ARRAY;
+                case 5:
+                    return JsonToken.BEGIN_OBJECT;
+                case 6: {
+                    readByte();
+                    long value = readArgument(initial);
+                    if (value == TAG_POSITIVE_BIGNUM || value == TAG_NEGATIVE_BIGNUM || value == TAG_DECIMAL_FRACTION) {
+                        tag = value;
+                        return JsonToken.NUMBER;
+                    }
+                    // Other tags only annotate the item that follows
+                    break;
+                }
+                default:
+                    switch (initial & 0x1F) {
+                        case 20:
+                        case 21:
+                            return JsonToken.BOOLEAN;
+                        case 22:
+                        case 23:
+                            return JsonToken.NULL;
+                        case 25:
+                        case 26:
+                        case 27:
+                            return JsonToken.NUMBER;
+                        default:
+                            throw error(String.format("Unsupported simple value 0x%02x", initial));
+                    }
+            }
+        }
+    }
+
+    private void expect(JsonToken token) {
+        JsonToken actual = peek();
+        if (actual != token) {
+            throw error("Expected " + token + " but was " + actual);
+        }
+    }
+
+    private void begin(JsonToken token, int kind) {
+        expect(token);
+        int initial = readByte();
+        long length = readArgument(initial);
+        consumed();
+        if (length >= 0 && kind == MAP) {
+            if (length > Long.MAX_VALUE / 2) {
+                throw error("Map too large");
+            }
+            length *= 2;
+        }
+        push(kind, length);
+    }
+
+    private void end(JsonToken token) {
+        expect(token);
+        if (remaining[depth - 1] < 0) {
+            readByte();
+        }
+        depth--;
+        peeked = null;
+    }
+
+    private void push(int kind, long length) {
+        if (depth == MAX_DEPTH) {
+            throw error("Nesting deeper than " + MAX_DEPTH + " levels");
+        }
+        if (depth == kinds.length) {
+            kinds = Arrays.copyOf(kinds, depth * 2);
+            remaining = Arrays.copyOf(remaining, depth * 2);
+            keyExpected = Arrays.copyOf(keyExpected, depth * 2);
+        }
+        kinds[depth] = kind;
+        remaining[depth] = length;
+        keyExpected[depth] = true;
+        depth++;
+    }
+
+    /**
+     * Records that the peeked item has been read.
+     */
+    private void consumed() {
+        int level = depth - 1;
+        if (remaining[level] > 0) {
+            remaining[level]--;
+        } else {
+            keyExpected[level] = !keyExpected[level];
+        }
+        peeked = null;
+        tag = -1;
+    }
+
+    /**
+     * Reads the argument that follows an initial byte.
+     *
+     * @return the argument, negative if it does not fit a signed long, or -1
+     *         for an indefinite length
+     */
+    private long readArgument(int initial) {
+        int info = initial & 0x1F;
+        if (info < 24) {
+            return info;
+        }
+        switch (info) {
+            case 24:
+                return readUnsigned(1);
+            case 25:
+                return readUnsigned(2);
+            case 26:
+                return readUnsigned(4);
+            case 27: {
+                long value = readUnsigned(8);
+                if (value < 0 && initial >> 5 != 0 && initial >> 5 != 1 && initial >> 5 != 6) {
+                    throw error("Length too large");
+                }
+                return value;
+            }
+            case 31:
+                int major = initial >> 5;
+                if (major < 2 || major > 5) {
+                    throw error("Indefinite length not allowed here");
+                }
+                return -1;
+            default:
+                throw error(String.format("Reserved initial byte 0x%02x", initial));
+        }
+    }
+
+    private long readUnsigned(int length) {
+        long value = 0;
+        for (int i = 0; i < length; i++) {
+            int b = readByte();
+            if (b == -1) {
+                throw error("Unexpected end of input");
+            }
+            value = value << 8 | b;
+        }
+        return value;
+    }
+
+    /**
+     * Reads a text string into the byte array.
+     *
+     * @return the length of the string
+     */
+    private int readText() {
+        int length = readStringBytes(3);
+        consumed();
+        return length;
+    }
+
+    /**
+     * Reads a string of the given major type, which may be split into
+     * chunks, into the byte array.
+     *
+     * @return the length
+     */
+    private int readStringBytes(int major) {
+        int initial = readByte();
+        long length = readArgument(initial);
+        if (length >= 0) {
+            return appendBytes(0, length);
+        }
+        int size = 0;
+        while (true) {
+            int chunk = readByte();
+            if (chunk == BREAK) {
+                return size;
+            }
+            if (chunk >> 5 != major || (chunk & 0x1F) == 31) {
+                throw error("Invalid chunk in an indefinite-length string");
+            }
+            size = appendBytes(size, readArgument(chunk));
+        }
+    }
+
+    /**
+     * Reads bytes into the byte array, growing it only as the input arrives,
+     * so a bogus length cannot allocate more memory than the input has.
+     *
+     * @return the new size
+     */
+    private int appendBytes(int size, long length) {
+        if (length > Integer.MAX_VALUE - 8 - size) {
+            throw error("String too long");
+        }
+        while (length > 0) {
+            int count = (int) Math.min(length, CHUNK);
+            if (size + count > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(size + count, Math.min(bytes.length * 2, Integer.MAX_VALUE - 8)));
+            }
+            readFully(bytes, size, count);
+            size += count;
+            length -= count;
+        }
+        return size;
+    }
+
+    private void skipString() {
+        int initial = readByte();
+        long length = readArgument(initial);
+        if (length >= 0) {
+            skipFully(length);
+        } else {
+            while (true) {
+                int chunk = readByte();
+                if (chunk == BREAK) {
+                    break;
+                }
+                if (chunk >> 5 != initial >> 5 || (chunk & 0x1F) == 31) {
+                    throw error("Invalid chunk in an indefinite-length string");
+                }
+                skipFully(readArgument(chunk));
+            }
+        }
+        consumed();
+    }
+
+    private String decode(int length) {
+        return new String(bytes, 0, length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reads the peeked number.
+     *
+     * @return a {@link Long}, {@link Double}, {@link BigInteger} or {@link BigDecimal}
+     */
+    private Number readNumber() {
+        Number value;
+        if (tag == TAG_DECIMAL_FRACTION) {
+            value = readDecimalFraction();
+        } else if (tag >= 0) {
+            value = readBignum(tag == TAG_NEGATIVE_BIGNUM);
+        } else {
+            value = readPlainNumber();
+        }
+        consumed();
+        return value;
+    }
+
+    private Number readPlainNumber() {
+        int initial = readByte();
+        int major = initial >> 5;
+        if (major == 7) {
+            switch (initial & 0x1F) {
+                case 25:
+                    return (double) halfToFloat((int) readUnsigned(2));
+                case 26:
+                    return (double) Float.intBitsToFloat((int) readUnsigned(4));
+                default:
+                    return Double.longBitsToDouble(readUnsigned(8));
+            }
+        }
+        if (major > 1) {
+            throw error("Expected an integer");
+        }
+        long argument = readArgument(initial);
+        if (argument >= 0) {
+            return major == 0 ? argument : -1 - argument;
+        }
+        // The argument is an unsigned 64-bit value beyond the range of a long
+        BigInteger unsigned = new BigInteger(Long.toUnsignedString(argument));
+        return major == 0 ? unsigned : unsigned.negate().subtract(BigInteger.ONE);
+    }
+
+    private BigInteger readBignum(boolean negative) {
+        int initial = peekByte();
+        if (initial >> 5 != 2) {
+            throw error("Bignum is not a byte string");
+        }
+        int length = readStringBytes(2);
+        BigInteger magnitude = new BigInteger(1, Arrays.copyOf(bytes, length));
+        return negative ? magnitude.negate().subtract(BigInteger.ONE) : magnitude;
+    }
+
+    private BigDecimal readDecimalFraction() {
+        if (readByte() != 0x82) {
+            throw error("Decimal fraction is not an array of two items");
+        }
+        tag = -1;
+        Number exponent = readTaggedInteger();
+        Number mantissa = readTaggedInteger();
+        if (!(exponent instanceof Long) || (int) exponent.longValue() != exponent.longValue()) {
+            throw error("Decimal fraction exponent out of range");
+        }
+        BigInteger unscaled = mantissa instanceof BigInteger
+            ? (BigInteger) mantissa
+            : BigInteger.valueOf(mantissa.longValue());
+        return new BigDecimal(unscaled, -(int) exponent.longValue());
+    }
+
+    private Number readTaggedInteger() {
+        int initial = peekByte();
+        if (initial == 0xC2 || initial == 0xC3) {
+            readByte();
+            return readBignum(initial == 0xC3);
+        }
+        if (initial >> 5 > 1) {
+            throw error("Expected an integer");
+        }
+        return readPlainNumber();
+    }
+
+    private static float halfToFloat(int half) {
+        int exponent = half >> 10 & 0x1F;
+        int mantissa = half & 0x3FF;
+        float value;
+        if (exponent == 0) {
+            value = mantissa * 0x1p-24f;
+        } else if (exponent == 31) {
+            value = mantissa == 0 ? Float.POSITIVE_INFINITY : Float.NaN;
+        } else {
+            value = (mantissa + 1024) * (float) Math.pow(2, exponent - 25);
+        }
+        return (half & 0x8000) != 0 ? -value : value;
+    }
+}
@@ -0,0 +1,110 @@
+package com.network.serialization;
+
+import com.network.buffer.BufferChain;
+import com.network.buffer.BufferPool;
+
+import java.io.InputStream;
+import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+
+/**
+ * Binary serializer using CBOR (RFC 8949), a compact encoding of the JSON
+ * data model.
+ *
+ * <p>Objects are bound exactly as by {@link StreamingJsonSerializer}, through
+ * the same cached and generated {@link JsonBinder}s, so a class serializes
+ * to equivalent JSON and CBOR documents. CBOR documents are typically about
+ * half the size of the JSON ones and much cheaper to parse, as numbers are
+ * binary and strings are length-prefixed. Use a
+ * {@link ContentNegotiatingSerializer} to fall back to JSON for servers that
+ * do not support CBOR.
+ */
+public class CborSerializer implements StreamingSerializer {
+
+    /** The media type of CBOR documents. */
+    public static final String CONTENT_TYPE = "application/cbor";
+
+    private final BufferPool pool;
+
+    /**
+     * Creates a new serializer using the shared buffer pool.
+     */
+    public CborSerializer() {
+        this(BufferPool.shared());
+    }
+
+    /**
+     * Creates a new serializer.
+     *
+     * @param pool the pool of the buffers to write into and read with
+     */
+    public CborSerializer(BufferPool pool) {
+        if (pool == null) {
+            throw new IllegalArgumentException("Buffer pool cannot be null");
+        }
+        this.pool = pool;
+    }
+
+    @Override
+    public byte[] serialize(Object object) {
+        try (BufferChain out = new BufferChain(pool)) {
+            serialize(object, out);
+            return out.toByteArray();
+        }
+    }
+
+    @Override
+    public void serialize(Object object, BufferChain out) {
+        JsonWriter writer = new CborWriter(out);
+        if (object == null) {
+            writer.nullValue();
+        } else {
+            JsonBinders.write(writer, JsonBinders.forClass(object.getClass()), object.getClass(), object);
+        }
+    }
+
+    @Override
+    public <T> T deserialize(byte[] data, Class<T> type) {
+        return deserialize(new ByteBuffer[] {ByteBuffer.wrap(data)}, type);
+    }
+
+    @Override
+    public <T> T deserialize(ByteBuffer[] buffers, Class<T> type) {
+        try (JsonReader reader = new CborReader(buffers)) {
+            return read(reader, type);
+        }
+    }
+
+    @Override
+    public <T> T deserialize(InputStream in, Class<T> type) {
+        try (JsonReader reader = new CborReader(in, pool)) {
+            return read(reader, type);
+        }
+    }
+
+    @Override
+    public <T> ElementIterator<T> deserializeElements(InputStream in, Class<T> type) {
+        return new JsonArrayIterator<>(new CborReader(in, pool), type);
+    }
+
+    @Override
+    public Object deserialize(byte[] data, Type type) {
+        try (JsonReader reader = new CborReader(new ByteBuffer[] {ByteBuffer.wrap(data)})) {
+            Object value = JsonBinders.read(reader, JsonBinders.forType(type));
+            reader.endDocument();
+            return value;
+        }
+    }
+
+    @Override
+    public String getContentType() {
+        return CONTENT_TYPE;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T read(JsonReader reader, Class<T> type) {
+        Object value = JsonBinders.read(reader, JsonBinders.forClass(type));
+        reader.endDocument();
+        return type.isPrimitive() ? (T) value : type.cast(value);
+    }
+}
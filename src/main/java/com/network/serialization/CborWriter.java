@@ -0,0 +1,271 @@
+package com.network.serialization;
+
+import com.network.buffer.BufferChain;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+
+/**
+ * Writes values as CBOR (RFC 8949) straight into a {@link BufferChain}.
+ *
+ * <p>Objects and arrays are written with indefinite lengths, so nothing has
+ * to be counted or buffered before their elements. Integers use the
+ * shortest encoding, and floating-point values are written in single
+ * precision when that is exact.
+ */
+final class CborWriter extends JsonWriter {
+
+    private static final int UNSIGNED = 0;
+    private static final int NEGATIVE = 1 << 5;
+    private static final int BYTES = 2 << 5;
+    private static final int TEXT = 3 << 5;
+    private static final int ARRAY = 4 << 5;
+    private static final int MAP = 5 << 5;
+    private static final int TAG = 6 << 5;
+
+    private static final int INDEFINITE_ARRAY = 0x9F;
+    private static final int INDEFINITE_MAP = 0xBF;
+    private static final int BREAK = 0xFF;
+    private static final int FALSE = 0xF4;
+    private static final int TRUE = 0xF5;
+    private static final int NULL = 0xF6;
+    private static final int FLOAT = 0xFA;
+    private static final int DOUBLE = 0xFB;
+
+    private static final int TAG_POSITIVE_BIGNUM = 2;
+    private static final int TAG_NEGATIVE_BIGNUM = 3;
+    private static final int TAG_DECIMAL_FRACTION = 4;
+
+    private static final BigInteger LONG_MIN = BigInteger.valueOf(Long.MIN_VALUE);
+    private static final BigInteger LONG_MAX = BigInteger.valueOf(Long.MAX_VALUE);
+
+    private int depth;
+
+    /**
+     * Creates a new writer.
+     *
+     * @param out the chain to write to
+     */
+    CborWriter(BufferChain out) {
+        super(out);
+    }
+
+    @Override
+    public JsonWriter beginObject() {
+        depth++;
+        out.write(INDEFINITE_MAP);
+        return this;
+    }
+
+    @Override
+    public JsonWriter endObject() {
+        return end();
+    }
+
+    @Override
+    public JsonWriter beginArray() {
+        depth++;
+        out.write(INDEFINITE_ARRAY);
+        return this;
+    }
+
+    @Override
+    public JsonWriter endArray() {
+        return end();
+    }
+
+    @Override
+    public JsonWriter name(String name) {
+        writeText(name);
+        return this;
+    }
+
+    @Override
+    public JsonWriter name(JsonNames names, int index) {
+        return value(names, index);
+    }
+
+    @Override
+    public JsonWriter value(String value) {
+        if (value == null) {
+            return nullValue();
+        }
+        writeText(value);
+        return this;
+    }
+
+    @Override
+    public JsonWriter value(JsonNames names, int index) {
+        byte[] utf8 = names.utf8(index);
+        writeHead(TEXT, utf8.length);
+        out.write(utf8, 0, utf8.length);
+        return this;
+    }
+
+    @Override
+    public JsonWriter value(long value) {
+        if (value >= 0) {
+            writeHead(UNSIGNED, value);
+        } else {
+            writeHead(NEGATIVE, -1 - value);
+        }
+        return this;
+    }
+
+    @Override
+    public JsonWriter value(double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            // Kept consistent with JSON, which cannot represent them
+            throw new IllegalArgumentException("Cannot serialize " + value);
+        }
+        float single = (float) value;
+        ByteBuffer buffer = out.writable(9);
+        if (single == value) {
+            buffer.put((byte) FLOAT).putInt(Float.floatToIntBits(single));
+            out.advance(5);
+        } else {
+            buffer.put((byte) DOUBLE).putLong(Double.doubleToLongBits(value));
+            out.advance(9);
+        }
+        return this;
+    }
+
+    @Override
+    public JsonWriter value(boolean value) {
+        out.write(value ? TRUE : FALSE);
+        return this;
+    }
+
+    @Override
+    public JsonWriter value(Number value) {
+        if (value == null) {
+            return nullValue();
+        }
+        if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+            return value(value.longValue());
+        }
+        if (value instanceof Double || value instanceof Float) {
+            return value(value.doubleValue());
+        }
+        if (value instanceof BigInteger) {
+            writeBigInteger((BigInteger) value);
+        } else if (value instanceof BigDecimal) {
+            BigDecimal decimal = (BigDecimal) value;
+            writeHead(TAG, TAG_DECIMAL_FRACTION);
+            writeHead(ARRAY, 2);
+            value(-(long) decimal.scale());
+            writeBigInteger(decimal.unscaledValue());
+        } else {
+            writeBigInteger(new BigDecimal(value.toString()).toBigIntegerExact());
+        }
+        return this;
+    }
+
+    @Override
+    public JsonWriter nullValue() {
+        out.write(NULL);
+        return this;
+    }
+
+    private JsonWriter end() {
+        if (depth == 0) {
+            throw new IllegalStateException("No open object or array");
+        }
+        depth--;
+        out.write(BREAK);
+        return this;
+    }
+
+    private void writeBigInteger(BigInteger value) {
+        if (value.compareTo(LONG_MIN) >= 0 && value.compareTo(LONG_MAX) <= 0) {
+            value(value.longValue());
+            return;
+        }
+        boolean negative = value.signum() < 0;
+        byte[] magnitude = (negative ? value.negate().subtract(BigInteger.ONE) : value).toByteArray();
+        // toByteArray has a leading zero when the top bit is set
+        int offset = magnitude[0] == 0 ? 1 : 0;
+        writeHead(TAG, negative ? TAG_NEGATIVE_BIGNUM : TAG_POSITIVE_BIGNUM);
+        writeHead(BYTES, magnitude.length - offset);
+        out.write(magnitude, offset, magnitude.length - offset);
+    }
+
+    /**
+     * Writes the initial byte of a data item and its argument in the
+     * shortest form.
+     */
+    private void writeHead(int major, long argument) {
+        ByteBuffer buffer = out.writable(9);
+        if (argument < 24) {
+            buffer.put((byte) (major | argument));
+            out.advance(1);
+        } else if (argument < 0x100) {
+            buffer.put((byte) (major | 24)).put((byte) argument);
+            out.advance(2);
+        } else if (argument < 0x10000) {
+            buffer.put((byte) (major | 25)).putShort((short) argument);
+            out.advance(3);
+        } else if (argument < 0x100000000L) {
+            buffer.put((byte) (major | 26)).putInt((int) argument);
+            out.advance(5);
+        } else {
+            buffer.put((byte) (major | 27)).putLong(argument);
+            out.advance(9);
+        }
+    }
+
+    /**
+     * Writes a text string, encoding it as UTF-8 straight into the buffers.
+     * Lone surrogates are replaced with U+FFFD.
+     */
+    private void writeText(String value) {
+        int length = value.length();
+        long encodedLength = length;
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c >= 0x80) {
+                if (c < 0x800) {
+                    encodedLength += 1;
+                } else if (Character.isHighSurrogate(c) && i + 1 < length &&
+                           Character.isLowSurrogate(value.charAt(i + 1))) {
+                    encodedLength += 2;
+                    i++;
+                } else {
+                    encodedLength += 2;
+                }
+            }
+        }
+        writeHead(TEXT, encodedLength);
+        ByteBuffer buffer = out.writable(16);
+        int start = buffer.position();
+        for (int i = 0; i < length; i++) {
+            if (buffer.remaining() < 4) {
+                out.advance(buffer.position() - start);
+                buffer = out.writable(64);
+                start = buffer.position();
+            }
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                buffer.put((byte) c);
+            } else if (c < 0x800) {
+                buffer.put((byte) (0xC0 | c >> 6));
+                buffer.put((byte) (0x80 | (c & 0x3F)));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                buffer.put((byte) (0xF0 | codePoint >> 18));
+                buffer.put((byte) (0x80 | (codePoint >> 12 & 0x3F)));
+                buffer.put((byte) (0x80 | (codePoint >> 6 & 0x3F)));
+                buffer.put((byte) (0x80 | (codePoint & 0x3F)));
+            } else {
+                if (Character.isSurrogate(c)) {
+                    c = '\uFFFD';
+                }
+                buffer.put((byte) (0xE0 | c >> 12));
+                buffer.put((byte) (0x80 | (c >> 6 & 0x3F)));
+                buffer.put((byte) (0x80 | (c & 0x3F)));
+            }
+        }
+        out.advance(buffer.position() - start);
+    }
+}
@@ -0,0 +1,183 @@
+package com.network.serialization;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Array;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Locale;
+
+/**
+ * Serializer that picks one of several formats by media type.
+ *
+ * <p>Bodies are serialized with the first, preferred serializer. Responses
+ * are deserialized with the serializer matching their Content-Type, so a
+ * server that ignores the preferred format and answers with another one is
+ * still understood; the last serializer is the fallback for responses
+ * without a known Content-Type. For example, to prefer CBOR but accept JSON:
+ *
+ * <pre>{@code
+ * ContentNegotiatingSerializer serializer =
+ *     new ContentNegotiatingSerializer(new CborSerializer(), new StreamingJsonSerializer());
+ * builder.withSerializer(serializer)
+ *        .withDefaultAccept(serializer.getAccept())
+ *        .withDefaultContentType(serializer.getContentType());
+ * }</pre>
+ */
+public class ContentNegotiatingSerializer implements Serializer {
+
+    private final Serializer[] serializers;
+
+    /**
+     * Creates a new serializer.
+     *
+     * @param preferred the serializer of request bodies and the first choice for responses
+     * @param fallbacks the serializers of other accepted formats, in order of
+     *                  preference; the last one also reads responses of unknown type
+     */
+    public ContentNegotiatingSerializer(Serializer preferred, Serializer... fallbacks) {
+        if (preferred == null) {
+            throw new IllegalArgumentException("Preferred serializer cannot be null");
+        }
+        this.serializers = new Serializer[fallbacks.length + 1];
+        this.serializers[0] = preferred;
+        for (int i = 0; i < fallbacks.length; i++) {
+            if (fallbacks[i] == null) {
+                throw new IllegalArgumentException("Fallback serializer cannot be null");
+            }
+            this.serializers[i + 1] = fallbacks[i];
+        }
+    }
+
+    /**
+     * Gets the serializer of a media type.
+     *
+     * @param serializer  a serializer, which may negotiate
+     * @param contentType the Content-Type of the body, or null
+     * @return the serializer to use for the body
+     */
+    public static Serializer select(Serializer serializer, String contentType) {
+        if (serializer instanceof ContentNegotiatingSerializer) {
+            return ((ContentNegotiatingSerializer) serializer).forContentType(contentType);
+        }
+        return serializer;
+    }
+
+    /**
+     * Deserializes the elements of a body that is an array with the
+     * serializer of its media type, one at a time if the serializer streams.
+     * Other serializers decode the whole array first.
+     *
+     * @param <T>         the type of the elements
+     * @param serializer  a serializer, which may negotiate
+     * @param contentType the Content-Type of the body, or null
+     * @param in          the body, which is closed when the iterator is
+     * @param type        the type of the elements
+     * @return the iterator over the elements
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> ElementIterator<T> deserializeElements(Serializer serializer, String contentType,
+                                                             InputStream in, Class<T> type) {
+        Serializer selected = select(serializer, contentType);
+        if (selected instanceof StreamingSerializer) {
+            return ((StreamingSerializer) selected).deserializeElements(in, type);
+        }
+        byte[] data;
+        try (InputStream body = in) {
+            data = body.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        Object[] elements = data.length > 0
+            ? (Object[]) selected.deserialize(data, Array.newInstance(type, 0).getClass())
+            : null;
+        Iterator<Object> iterator = elements != null ? Arrays.asList(elements).iterator() : Collections.emptyIterator();
+        return new ElementIterator<T>() {
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public T next() {
+                return (T) iterator.next();
+            }
+
+            @Override
+            public void close() {
+                // The body was read up front
+            }
+        };
+    }
+
+    /**
+     * Gets the serializer of a media type. Structured syntax suffixes are
+     * recognized, so {@code application/problem+json} matches
+     * {@code application/json}.
+     *
+     * @param contentType the Content-Type of the body, or null
+     * @return the matching serializer, or the last one if none matches
+     */
+    public Serializer forContentType(String contentType) {
+        if (contentType != null) {
+            String mediaType = mediaType(contentType);
+            for (Serializer serializer : serializers) {
+                String supported = mediaType(serializer.getContentType());
+                if (mediaType.equals(supported)) {
+                    return serializer;
+                }
+                int slash = supported.indexOf('/');
+                if (slash > 0 && mediaType.endsWith("+" + supported.substring(slash + 1))) {
+                    return serializer;
+                }
+            }
+        }
+        return serializers[serializers.length - 1];
+    }
+
+    /**
+     * Gets the value of the Accept header that asks for the formats in order
+     * of preference.
+     *
+     * @return the header value, e.g. {@code application/cbor, application/json;q=0.9}
+     */
+    public String getAccept() {
+        StringBuilder accept = new StringBuilder();
+        for (int i = 0; i < serializers.length; i++) {
+            if (i > 0) {
+                accept.append(", ");
+            }
+            accept.append(mediaType(serializers[i].getContentType()));
+            if (i > 0) {
+                accept.append(";q=0.").append(Math.max(1, 10 - i));
+            }
+        }
+        return accept.toString();
+    }
+
+    @Override
+    public byte[] serialize(Object object) {
+        return serializers[0].serialize(object);
+    }
+
+    /**
+     * Deserializes with the preferred serializer. Use
+     * {@link #forContentType(String)} when the type of the data is known.
+     */
+    @Override
+    public <T> T deserialize(byte[] data, Class<T> type) {
+        return serializers[0].deserialize(data, type);
+    }
+
+    @Override
+    public String getContentType() {
+        return serializers[0].getContentType();
+    }
+
+    private static String mediaType(String contentType) {
+        int semicolon = contentType.indexOf(';');
+        return (semicolon >= 0 ? contentType.substring(0, semicolon) : contentType).trim().toLowerCase(Locale.ROOT);
+    }
+}
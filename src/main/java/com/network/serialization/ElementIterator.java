@@ -0,0 +1,39 @@
+package com.network.serialization;
+
+import java.io.Closeable;
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Iterator over the elements of a top-level array, decoded one at a time as
+ * the document is read.
+ *
+ * <p>The iterator holds the input of the document, which it releases once
+ * the array has been read completely or decoding fails. It should be closed
+ * if it may not be consumed to the end; closing it early discards the rest
+ * of the input.
+ *
+ * @param <T> the type of the elements
+ */
+public interface ElementIterator<T> extends Iterator<T>, Closeable {
+
+    /**
+     * Stops iterating and releases the input.
+     */
+    @Override
+    void close();
+
+    /**
+     * Gets a sequential stream of the remaining elements, which closes this
+     * iterator when it is closed.
+     *
+     * @return the stream of elements
+     */
+    default Stream<T> stream() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED), false)
+            .onClose(this::close);
+    }
+}
@@ -0,0 +1,130 @@
+package com.network.serialization;
+
+import com.network.buffer.BufferPool;
+
+import java.io.InputStream;
+import java.util.NoSuchElementException;
+import java.util.stream.Stream;
+
+/**
+ * Iterator over the elements of a top-level JSON array, decoded one at a
+ * time as the input stream is read. The same iterator reads CBOR arrays
+ * through a {@link CborReader}, as CBOR shares the JSON data model.
+ *
+ * <p>Only the element being decoded is held in memory, so arrays far larger
+ * than the heap can be processed as long as the caller does not keep the
+ * elements. Nothing is read before the first call to {@link #hasNext()}. A
+ * {@code null} document has no elements. The input stream is closed once the
+ * array has been read completely, when decoding fails, or when the iterator
+ * is closed; closing it early discards the rest of the input.
+ *
+ * @param <T> the type of the elements
+ */
+public final class JsonArrayIterator<T> implements ElementIterator<T> {
+
+    private final JsonReader reader;
+    private final JsonBinder<T> binder;
+    private boolean started;
+    private boolean done;
+
+    /**
+     * Creates a new iterator.
+     *
+     * @param in   the stream of the document
+     * @param type the type of the elements
+     * @param pool the pool to take the read buffer from
+     */
+    public JsonArrayIterator(InputStream in, Class<T> type, BufferPool pool) {
+        this(new JsonReader(in, pool), type);
+    }
+
+    /**
+     * Creates a new iterator over the document of a reader.
+     *
+     * @param reader the reader, which the iterator closes
+     * @param type   the type of the elements
+     */
+    JsonArrayIterator(JsonReader reader, Class<T> type) {
+        this.reader = reader;
+        this.binder = JsonBinders.forClass(type);
+    }
+
+    /**
+     * Creates a sequential stream of the elements of a top-level JSON array.
+     * The stream should be closed, e.g. with try-with-resources, if it may
+     * not be consumed to the end.
+     *
+     * @param <T>  the type of the elements
+     * @param in   the stream of the document
+     * @param type the type of the elements
+     * @param pool the pool to take the read buffer from
+     * @return the stream of elements
+     */
+    public static <T> Stream<T> stream(InputStream in, Class<T> type, BufferPool pool) {
+        return new JsonArrayIterator<>(in, type, pool).stream();
+    }
+
+    /**
+     * Checks if the array has another element, reading input as needed.
+     *
+     * @return true if there is another element
+     * @throws JsonFormatException if the input is not a JSON array
+     */
+    @Override
+    public boolean hasNext() {
+        if (done) {
+            return false;
+        }
+        try {
+            if (!started) {
+                started = true;
+                if (reader.peek() == JsonToken.NULL) {
+                    reader.nextNull();
+                    finish();
+                    return false;
+                }
+                reader.beginArray();
+            }
+            if (reader.hasNext()) {
+                return true;
+            }
+            reader.endArray();
+            finish();
+            return false;
+        } catch (RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * Decodes the next element.
+     *
+     * @return the element, which may be null
+     * @throws NoSuchElementException if the array has no more elements
+     * @throws JsonFormatException    if the element cannot be decoded
+     */
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        try {
+            return JsonBinders.read(reader, binder);
+        } catch (RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    @Override
+    public void close() {
+        done = true;
+        reader.close();
+    }
+
+    private void finish() {
+        reader.endDocument();
+        close();
+    }
+}
@@ -0,0 +1,79 @@
+package com.network.serialization;
+
+import java.lang.reflect.Type;
+
+/**
+ * Reads and writes values of one type as JSON.
+ *
+ * <p>Binders are resolved once per type by {@link StreamingJsonSerializer}
+ * and then reused for every value of that type, so they must be stateless
+ * and thread-safe. Binders of classes annotated with {@link JsonCodec} are
+ * generated at build time; all others are bound by reflection.
+ *
+ * @param <T> the type of the values
+ */
+public interface JsonBinder<T> {
+
+    /**
+     * Writes a value.
+     *
+     * @param writer the writer
+     * @param value  the value, which is not null
+     */
+    void write(JsonWriter writer, T value);
+
+    /**
+     * Reads a value. The next token of the reader is not {@link JsonToken#NULL}.
+     *
+     * @param reader the reader
+     * @return the value
+     * @throws JsonFormatException if the input does not match the type
+     */
+    T read(JsonReader reader);
+
+    /**
+     * Gets the binder of a class, generated or reflective.
+     *
+     * @param <T>  the type of the values
+     * @param type the class
+     * @return the binder
+     */
+    static <T> JsonBinder<T> forClass(Class<T> type) {
+        return JsonBinders.forClass(type);
+    }
+
+    /**
+     * Gets the binder of a type, which may be generic, such as the type of a
+     * field declared as {@code List<Item>}.
+     *
+     * @param type the type
+     * @return the binder
+     */
+    static JsonBinder<?> forType(Type type) {
+        return JsonBinders.forType(type);
+    }
+
+    /**
+     * Writes a value that may be null. Values of a subclass of the declared
+     * class are written with the binder of their own class.
+     *
+     * @param writer   the writer
+     * @param binder   the binder of the declared type
+     * @param declared the declared class
+     * @param value    the value, or null
+     */
+    static void writeNullable(JsonWriter writer, JsonBinder<?> binder, Class<?> declared, Object value) {
+        JsonBinders.write(writer, binder, declared, value);
+    }
+
+    /**
+     * Reads a value that may be null.
+     *
+     * @param reader the reader
+     * @param binder the binder of the value
+     * @return the value, or null
+     */
+    static Object readNullable(JsonReader reader, JsonBinder<?> binder) {
+        return JsonBinders.read(reader, binder);
+    }
+}
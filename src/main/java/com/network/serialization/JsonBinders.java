@@ -0,0 +1,856 @@
+package com.network.serialization;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.TypeVariable;
+import java.lang.reflect.WildcardType;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Supplier;
+
+/**
+ * Resolves and caches the {@link JsonBinder} of each type.
+ *
+ * <p>Classes annotated with {@link JsonCodec} use the binder generated for
+ * them at build time, if it is on the class path. Binders of other classes
+ * are created on first use and kept in a
+ * {@link ClassValue}, so resolving one afterwards is a single lookup and the
+ * cache does not keep classes from being unloaded. Binders of generic types,
+ * such as {@code List<Item>}, are resolved once for the field that declares
+ * them. Plain classes are bound through their non-static, non-transient
+ * fields, including inherited ones, and need a no-argument constructor, of
+ * any visibility, to be read.
+ */
+final class JsonBinders {
+
+    private static final Map<Class<?>, JsonBinder<?>> BUILT_IN = new HashMap<>();
+
+    private static final ClassValue<JsonBinder<?>> BINDERS = new ClassValue<JsonBinder<?>>() {
+        @Override
+        protected JsonBinder<?> computeValue(Class<?> type) {
+            return create(type);
+        }
+    };
+
+    static {
+        JsonBinder<String> string = new JsonBinder<String>() {
+            @Override
+            public void write(JsonWriter writer, String value) {
+                writer.value(value);
+            }
+
+            @Override
+            public String read(JsonReader reader) {
+                return reader.nextString();
+            }
+        };
+        JsonBinder<Boolean> bool = new JsonBinder<Boolean>() {
+            @Override
+            public void write(JsonWriter writer, Boolean value) {
+                writer.value(value.booleanValue());
+            }
+
+            @Override
+            public Boolean read(JsonReader reader) {
+                return reader.nextBoolean();
+            }
+        };
+        JsonBinder<Integer> integer = new JsonBinder<Integer>() {
+            @Override
+            public void write(JsonWriter writer, Integer value) {
+                writer.value(value.longValue());
+            }
+
+            @Override
+            public Integer read(JsonReader reader) {
+                return reader.nextInt();
+            }
+        };
+        JsonBinder<Long> longBinder = new JsonBinder<Long>() {
+            @Override
+            public void write(JsonWriter writer, Long value) {
+                writer.value(value.longValue());
+            }
+
+            @Override
+            public Long read(JsonReader reader) {
+                return reader.nextLong();
+            }
+        };
+        JsonBinder<Short> shortBinder = new JsonBinder<Short>() {
+            @Override
+            public void write(JsonWriter writer, Short value) {
+                writer.value(value.longValue());
+            }
+
+            @Override
+            public Short read(JsonReader reader) {
+                int value = reader.nextInt();
+                if ((short) value != value) {
+                    throw reader.error("Number out of short range");
+                }
+                return (short) value;
+            }
+        };
+        JsonBinder<Byte> byteBinder = new JsonBinder<Byte>() {
+            @Override
+            public void write(JsonWriter writer, Byte value) {
+                writer.value(value.longValue());
+            }
+
+            @Override
+            public Byte read(JsonReader reader) {
+                int value = reader.nextInt();
+                if ((byte) value != value) {
+                    throw reader.error("Number out of byte range");
+                }
+                return (byte) value;
+            }
+        };
+        JsonBinder<Double> doubleBinder = new JsonBinder<Double>() {
+            @Override
+            public void write(JsonWriter writer, Double value) {
+                writer.value(value.doubleValue());
+            }
+
+            @Override
+            public Double read(JsonReader reader) {
+                return reader.nextDouble();
+            }
+        };
+        JsonBinder<Float> floatBinder = new JsonBinder<Float>() {
+            @Override
+            public void write(JsonWriter writer, Float value) {
+                writer.value(value.doubleValue());
+            }
+
+            @Override
+            public Float read(JsonReader reader) {
+                return (float) reader.nextDouble();
+            }
+        };
+        JsonBinder<Character> character = new JsonBinder<Character>() {
+            @Override
+            public void write(JsonWriter writer, Character value) {
+                writer.value(String.valueOf(value.charValue()));
+            }
+
+            @Override
+            public Character read(JsonReader reader) {
+                String value = reader.nextString();
+                if (value.length() != 1) {
+                    throw reader.error("Expected a single character");
+                }
+                return value.charAt(0);
+            }
+        };
+        JsonBinder<BigDecimal> bigDecimal = new JsonBinder<BigDecimal>() {
+            @Override
+            public void write(JsonWriter writer, BigDecimal value) {
+                writer.value(value);
+            }
+
+            @Override
+            public BigDecimal read(JsonReader reader) {
+                return reader.nextBigDecimal();
+            }
+        };
+        JsonBinder<BigInteger> bigInteger = new JsonBinder<BigInteger>() {
+            @Override
+            public void write(JsonWriter writer, BigInteger value) {
+                writer.value(value);
+            }
+
+            @Override
+            public BigInteger read(JsonReader reader) {
+                try {
+                    return reader.nextBigDecimal().toBigIntegerExact();
+                } catch (ArithmeticException e) {
+                    throw reader.error("Number is not an integer");
+                }
+            }
+        };
+        JsonBinder<byte[]> bytes = new JsonBinder<byte[]>() {
+            @Override
+            public void write(JsonWriter writer, byte[] value) {
+                writer.value(Base64.getEncoder().encodeToString(value));
+            }
+
+            @Override
+            public byte[] read(JsonReader reader) {
+                try {
+                    return Base64.getDecoder().decode(reader.nextString());
+                } catch (IllegalArgumentException e) {
+                    throw reader.error("Invalid base64 string");
+                }
+            }
+        };
+        BUILT_IN.put(String.class, string);
+        BUILT_IN.put(Boolean.class, bool);
+        BUILT_IN.put(boolean.class, bool);
+        BUILT_IN.put(Integer.class, integer);
+        BUILT_IN.put(int.class, integer);
+        BUILT_IN.put(Long.class, longBinder);
+        BUILT_IN.put(long.class, longBinder);
+        BUILT_IN.put(Short.class, shortBinder);
+        BUILT_IN.put(short.class, shortBinder);
+        BUILT_IN.put(Byte.class, byteBinder);
+        BUILT_IN.put(byte.class, byteBinder);
+        BUILT_IN.put(Double.class, doubleBinder);
+        BUILT_IN.put(double.class, doubleBinder);
+        BUILT_IN.put(Float.class, floatBinder);
+        BUILT_IN.put(float.class, floatBinder);
+        BUILT_IN.put(Character.class, character);
+        BUILT_IN.put(char.class, character);
+        BUILT_IN.put(BigDecimal.class, bigDecimal);
+        BUILT_IN.put(BigInteger.class, bigInteger);
+        BUILT_IN.put(byte[].class, bytes);
+        BUILT_IN.put(Object.class, new NaturalBinder());
+    }
+
+    private JsonBinders() {
+        // Utility class
+    }
+
+    /**
+     * Gets the binder of a class.
+     *
+     * @param <T>  the type of the values
+     * @param type the class
+     * @return the binder
+     */
+    @SuppressWarnings("unchecked")
+    static <T> JsonBinder<T> forClass(Class<T> type) {
+        return (JsonBinder<T>) BINDERS.get(type);
+    }
+
+    /**
+     * Gets the binder of a type, which may be generic.
+     *
+     * @param type the type
+     * @return the binder
+     */
+    static JsonBinder<?> forType(Type type) {
+        if (type instanceof Class) {
+            return BINDERS.get((Class<?>) type);
+        }
+        if (type instanceof ParameterizedType) {
+            ParameterizedType parameterized = (ParameterizedType) type;
+            Class<?> raw = (Class<?>) parameterized.getRawType();
+            Type[] arguments = parameterized.getActualTypeArguments();
+            if (Collection.class.isAssignableFrom(raw) || raw == Iterable.class) {
+                return new CollectionBinder(collectionFactory(raw), arguments[0]);
+            }
+            if (Map.class.isAssignableFrom(raw)) {
+                return new MapBinder(mapFactory(raw), arguments[0], arguments[1]);
+            }
+            return BINDERS.get(raw);
+        }
+        if (type instanceof GenericArrayType) {
+            Type component = ((GenericArrayType) type).getGenericComponentType();
+            return new ArrayBinder(rawClass(component), component);
+        }
+        return BINDERS.get(rawClass(type));
+    }
+
+    /**
+     * Reads a value that may be null.
+     *
+     * @param <T>    the type of the value
+     * @param reader the reader
+     * @param binder the binder of the value
+     * @return the value, or null
+     */
+    static <T> T read(JsonReader reader, JsonBinder<T> binder) {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        return binder.read(reader);
+    }
+
+    /**
+     * Writes a value that may be null, with the binder of its runtime class
+     * if that is not the declared class.
+     *
+     * @param writer   the writer
+     * @param binder   the binder of the declared type
+     * @param declared the declared class
+     * @param value    the value, or null
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    static void write(JsonWriter writer, JsonBinder binder, Class<?> declared, Object value) {
+        if (value == null) {
+            writer.nullValue();
+            return;
+        }
+        Class<?> actual = value.getClass();
+        if (actual != declared && !declared.isPrimitive()) {
+            binder = BINDERS.get(actual);
+        }
+        binder.write(writer, value);
+    }
+
+    static Class<?> rawClass(Type type) {
+        if (type instanceof Class) {
+            return (Class<?>) type;
+        }
+        if (type instanceof ParameterizedType) {
+            return (Class<?>) ((ParameterizedType) type).getRawType();
+        }
+        if (type instanceof GenericArrayType) {
+            return Array.newInstance(rawClass(((GenericArrayType) type).getGenericComponentType()), 0).getClass();
+        }
+        if (type instanceof WildcardType) {
+            return rawClass(((WildcardType) type).getUpperBounds()[0]);
+        }
+        if (type instanceof TypeVariable) {
+            Type[] bounds = ((TypeVariable<?>) type).getBounds();
+            return bounds.length > 0 ? rawClass(bounds[0]) : Object.class;
+        }
+        return Object.class;
+    }
+
+    private static JsonBinder<?> create(Class<?> type) {
+        JsonBinder<?> builtIn = BUILT_IN.get(type);
+        if (builtIn != null) {
+            return builtIn;
+        }
+        if (type.isEnum()) {
+            return new EnumBinder(type);
+        }
+        if (type.isArray()) {
+            return new ArrayBinder(type.getComponentType(), type.getComponentType());
+        }
+        if (Collection.class.isAssignableFrom(type) || type == Iterable.class) {
+            return new CollectionBinder(collectionFactory(type), Object.class);
+        }
+        if (Map.class.isAssignableFrom(type)) {
+            return new MapBinder(mapFactory(type), String.class, Object.class);
+        }
+        if (type.isAnnotationPresent(JsonCodec.class)) {
+            JsonBinder<?> generated = generated(type);
+            if (generated != null) {
+                return generated;
+            }
+        }
+        if (type.isInterface() || Modifier.isAbstract(type.getModifiers())) {
+            return new AbstractBinder(type);
+        }
+        if (Number.class.isAssignableFrom(type) || type.getName().startsWith("java.")) {
+            // Fields of platform classes are not accessible
+            return new AbstractBinder(type);
+        }
+        return new BeanBinder(type);
+    }
+
+    /**
+     * Loads the binder generated for a class annotated with {@link JsonCodec}.
+     *
+     * @param type the class
+     * @return the binder, or null if it was not generated
+     */
+    private static JsonBinder<?> generated(Class<?> type) {
+        String name = type.getName();
+        int dot = name.lastIndexOf('.');
+        name = name.substring(0, dot + 1) + name.substring(dot + 1).replace('$', '_') + "_JsonBinder";
+        Class<?> binder;
+        try {
+            binder = Class.forName(name, true, type.getClassLoader());
+        } catch (ClassNotFoundException e) {
+            // The processor did not run; reflection still works
+            return null;
+        }
+        if (!JsonBinder.class.isAssignableFrom(binder)) {
+            return null;
+        }
+        try {
+            return (JsonBinder<?>) binder.getConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot create " + name, e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Supplier<Collection<Object>> collectionFactory(Class<?> type) {
+        if (!type.isInterface() && !Modifier.isAbstract(type.getModifiers())) {
+            Constructor<?> constructor = noArgConstructor(type);
+            if (constructor != null) {
+                return () -> (Collection<Object>) newInstance(constructor);
+            }
+        }
+        if (SortedSet.class.isAssignableFrom(type)) {
+            return TreeSet::new;
+        }
+        if (Set.class.isAssignableFrom(type)) {
+            return LinkedHashSet::new;
+        }
+        return ArrayList::new;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Supplier<Map<Object, Object>> mapFactory(Class<?> type) {
+        if (!type.isInterface() && !Modifier.isAbstract(type.getModifiers())) {
+            Constructor<?> constructor = noArgConstructor(type);
+            if (constructor != null) {
+                return () -> (Map<Object, Object>) newInstance(constructor);
+            }
+        }
+        if (SortedMap.class.isAssignableFrom(type)) {
+            return TreeMap::new;
+        }
+        return LinkedHashMap::new;
+    }
+
+    private static Constructor<?> noArgConstructor(Class<?> type) {
+        try {
+            Constructor<?> constructor = type.getDeclaredConstructor();
+            constructor.setAccessible(true);
+            return constructor;
+        } catch (NoSuchMethodException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static Object newInstance(Constructor<?> constructor) {
+        try {
+            return constructor.newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot create " + constructor.getDeclaringClass().getName(), e);
+        }
+    }
+
+    /**
+     * Binds JSON to the natural Java types: maps, lists, strings, longs,
+     * doubles and booleans.
+     */
+    private static final class NaturalBinder implements JsonBinder<Object> {
+        @Override
+        public void write(JsonWriter writer, Object value) {
+            if (value.getClass() == Object.class) {
+                writer.beginObject().endObject();
+            } else {
+                JsonBinders.write(writer, this, Object.class, value);
+            }
+        }
+
+        @Override
+        public Object read(JsonReader reader) {
+            switch (reader.peek()) {
+                case BEGIN_OBJECT: {
+                    Map<String, Object> map = new LinkedHashMap<>();
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        String name = reader.nextName();
+                        map.put(name, JsonBinders.read(reader, this));
+                    }
+                    reader.endObject();
+                    return map;
+                }
+                case BEGIN_ARRAY: {
+                    List<Object> list = new ArrayList<>();
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        list.add(JsonBinders.read(reader, this));
+                    }
+                    reader.endArray();
+                    return list;
+                }
+                case STRING:
+                    return reader.nextString();
+                case NUMBER:
+                    return reader.nextNumber();
+                case BOOLEAN:
+                    return reader.nextBoolean();
+                default:
+                    throw reader.error("Unexpected " + reader.peek());
+            }
+        }
+    }
+
+    /**
+     * Binds types that cannot be instantiated; values are written with the
+     * binder of their runtime class.
+     */
+    private static final class AbstractBinder implements JsonBinder<Object> {
+        private final Class<?> type;
+
+        AbstractBinder(Class<?> type) {
+            this.type = type;
+        }
+
+        @Override
+        public void write(JsonWriter writer, Object value) {
+            if (value.getClass() == type) {
+                throw new IllegalArgumentException("Cannot serialize " + type.getName());
+            }
+            JsonBinders.write(writer, this, type, value);
+        }
+
+        @Override
+        public Object read(JsonReader reader) {
+            throw new IllegalArgumentException("Cannot deserialize " + type.getName() + ": no concrete type");
+        }
+    }
+
+    /**
+     * Binds enum constants to their names.
+     */
+    private static final class EnumBinder implements JsonBinder<Enum<?>> {
+        private final Enum<?>[] constants;
+        private final JsonNames names;
+
+        EnumBinder(Class<?> type) {
+            this.constants = (Enum<?>[]) type.getEnumConstants();
+            String[] values = new String[constants.length];
+            for (int i = 0; i < constants.length; i++) {
+                values[i] = constants[i].name();
+            }
+            this.names = JsonNames.of(values);
+        }
+
+        @Override
+        public void write(JsonWriter writer, Enum<?> value) {
+            writer.value(names, value.ordinal());
+        }
+
+        @Override
+        public Enum<?> read(JsonReader reader) {
+            long offset = reader.offset();
+            int index = reader.nextString(names);
+            if (index < 0) {
+                throw new JsonFormatException("Unknown " + constants.getClass().getComponentType().getSimpleName() +
+                                              " constant", offset);
+            }
+            return constants[index];
+        }
+    }
+
+    /**
+     * Binds arrays to JSON arrays.
+     */
+    private static final class ArrayBinder implements JsonBinder<Object> {
+        private final Class<?> component;
+        private final Type componentType;
+        private volatile JsonBinder<?> elements;
+
+        ArrayBinder(Class<?> component, Type componentType) {
+            this.component = component;
+            this.componentType = componentType;
+        }
+
+        @Override
+        public void write(JsonWriter writer, Object value) {
+            JsonBinder<?> binder = elements();
+            writer.beginArray();
+            int length = Array.getLength(value);
+            for (int i = 0; i < length; i++) {
+                JsonBinders.write(writer, binder, component, Array.get(value, i));
+            }
+            writer.endArray();
+        }
+
+        @Override
+        public Object read(JsonReader reader) {
+            JsonBinder<?> binder = elements();
+            List<Object> values = new ArrayList<>();
+            reader.beginArray();
+            while (reader.hasNext()) {
+                Object value = JsonBinders.read(reader, binder);
+                if (value == null && component.isPrimitive()) {
+                    throw reader.error("Null in array of " + component.getName());
+                }
+                values.add(value);
+            }
+            reader.endArray();
+            Object array = Array.newInstance(component, values.size());
+            for (int i = 0; i < values.size(); i++) {
+                Array.set(array, i, values.get(i));
+            }
+            return array;
+        }
+
+        private JsonBinder<?> elements() {
+            JsonBinder<?> binder = elements;
+            if (binder == null) {
+                // Resolved on first use, so that recursive types do not recurse here
+                binder = forType(componentType);
+                elements = binder;
+            }
+            return binder;
+        }
+    }
+
+    /**
+     * Binds collections to JSON arrays.
+     */
+    private static final class CollectionBinder implements JsonBinder<Collection<Object>> {
+        private final Supplier<Collection<Object>> factory;
+        private final Type elementType;
+        private final Class<?> elementClass;
+        private volatile JsonBinder<?> elements;
+
+        CollectionBinder(Supplier<Collection<Object>> factory, Type elementType) {
+            this.factory = factory;
+            this.elementType = elementType;
+            this.elementClass = rawClass(elementType);
+        }
+
+        @Override
+        public void write(JsonWriter writer, Collection<Object> value) {
+            JsonBinder<?> binder = elements();
+            writer.beginArray();
+            for (Object element : value) {
+                JsonBinders.write(writer, binder, elementClass, element);
+            }
+            writer.endArray();
+        }
+
+        @Override
+        public Collection<Object> read(JsonReader reader) {
+            JsonBinder<?> binder = elements();
+            Collection<Object> values = factory.get();
+            reader.beginArray();
+            while (reader.hasNext()) {
+                values.add(JsonBinders.read(reader, binder));
+            }
+            reader.endArray();
+            return values;
+        }
+
+        private JsonBinder<?> elements() {
+            JsonBinder<?> binder = elements;
+            if (binder == null) {
+                binder = forType(elementType);
+                elements = binder;
+            }
+            return binder;
+        }
+    }
+
+    /**
+     * Binds maps to JSON objects. Keys are strings, enum constants or integers.
+     */
+    private static final class MapBinder implements JsonBinder<Map<Object, Object>> {
+        private final Supplier<Map<Object, Object>> factory;
+        private final Class<?> keyClass;
+        private final Type valueType;
+        private final Class<?> valueClass;
+        private volatile JsonBinder<?> values;
+
+        MapBinder(Supplier<Map<Object, Object>> factory, Type keyType, Type valueType) {
+            this.factory = factory;
+            this.keyClass = rawClass(keyType);
+            this.valueType = valueType;
+            this.valueClass = rawClass(valueType);
+            if (keyClass != String.class && keyClass != Object.class && !keyClass.isEnum()
+                && keyClass != Integer.class && keyClass != Long.class) {
+                throw new IllegalArgumentException("Unsupported map key type " + keyClass.getName());
+            }
+        }
+
+        @Override
+        public void write(JsonWriter writer, Map<Object, Object> value) {
+            JsonBinder<?> binder = values();
+            writer.beginObject();
+            for (Map.Entry<Object, Object> entry : value.entrySet()) {
+                Object key = entry.getKey();
+                writer.name(key instanceof Enum ? ((Enum<?>) key).name() : String.valueOf(key));
+                JsonBinders.write(writer, binder, valueClass, entry.getValue());
+            }
+            writer.endObject();
+        }
+
+        @Override
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        public Map<Object, Object> read(JsonReader reader) {
+            JsonBinder<?> binder = values();
+            Map<Object, Object> map = factory.get();
+            reader.beginObject();
+            while (reader.hasNext()) {
+                long offset = reader.offset();
+                String name = reader.nextName();
+                Object key;
+                try {
+                    if (keyClass == Integer.class) {
+                        key = Integer.valueOf(name);
+                    } else if (keyClass == Long.class) {
+                        key = Long.valueOf(name);
+                    } else if (keyClass.isEnum()) {
+                        key = Enum.valueOf((Class) keyClass, name);
+                    } else {
+                        key = name;
+                    }
+                } catch (IllegalArgumentException e) {
+                    throw new JsonFormatException("Invalid map key '" + name + "'", offset);
+                }
+                map.put(key, JsonBinders.read(reader, binder));
+            }
+            reader.endObject();
+            return map;
+        }
+
+        private JsonBinder<?> values() {
+            JsonBinder<?> binder = values;
+            if (binder == null) {
+                binder = forType(valueType);
+                values = binder;
+            }
+            return binder;
+        }
+    }
+
+    /**
+     * Binds plain classes to JSON objects through their fields.
+     */
+    private static final class BeanBinder implements JsonBinder<Object> {
+        private final Class<?> type;
+        private final Constructor<?> constructor;
+        private final Property[] properties;
+        private final JsonNames names;
+
+        BeanBinder(Class<?> type) {
+            this.type = type;
+            this.constructor = noArgConstructor(type);
+            List<Property> found = new ArrayList<>();
+            collect(type, found);
+            this.properties = found.toArray(new Property[0]);
+            String[] values = new String[properties.length];
+            for (int i = 0; i < properties.length; i++) {
+                values[i] = properties[i].field.getName();
+            }
+            this.names = JsonNames.of(values);
+        }
+
+        private static void collect(Class<?> type, List<Property> found) {
+            if (type == null || type == Object.class) {
+                return;
+            }
+            collect(type.getSuperclass(), found);
+            for (Field field : type.getDeclaredFields()) {
+                int modifiers = field.getModifiers();
+                if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers) || field.isSynthetic()) {
+                    continue;
+                }
+                // A field hides an inherited field of the same name
+                found.removeIf(property -> property.field.getName().equals(field.getName()));
+                try {
+                    field.setAccessible(true);
+                } catch (RuntimeException e) {
+                    throw new IllegalArgumentException("Cannot bind field " + field, e);
+                }
+                found.add(new Property(field));
+            }
+        }
+
+        @Override
+        public void write(JsonWriter writer, Object value) {
+            writer.beginObject();
+            try {
+                for (int i = 0; i < properties.length; i++) {
+                    writer.name(names, i);
+                    properties[i].write(writer, value);
+                }
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+            writer.endObject();
+        }
+
+        @Override
+        public Object read(JsonReader reader) {
+            if (constructor == null) {
+                throw new IllegalArgumentException("Cannot deserialize " + type.getName() +
+                                                   ": no no-argument constructor");
+            }
+            Object instance = newInstance(constructor);
+            reader.beginObject();
+            try {
+                while (reader.hasNext()) {
+                    int index = reader.nextName(names);
+                    if (index < 0) {
+                        reader.skipValue();
+                    } else {
+                        properties[index].read(reader, instance);
+                    }
+                }
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+            reader.endObject();
+            return instance;
+        }
+    }
+
+    /**
+     * A bound field. Primitive fields are read and written without boxing.
+     */
+    private static final class Property {
+        private final Field field;
+        private final Class<?> type;
+        private volatile JsonBinder<?> binder;
+
+        Property(Field field) {
+            this.field = field;
+            this.type = field.getType();
+        }
+
+        void write(JsonWriter writer, Object instance) throws IllegalAccessException {
+            if (type == int.class) {
+                writer.value(field.getInt(instance));
+            } else if (type == long.class) {
+                writer.value(field.getLong(instance));
+            } else if (type == double.class) {
+                writer.value(field.getDouble(instance));
+            } else if (type == boolean.class) {
+                writer.value(field.getBoolean(instance));
+            } else {
+                JsonBinders.write(writer, binder(), type, field.get(instance));
+            }
+        }
+
+        void read(JsonReader reader, Object instance) throws IllegalAccessException {
+            if (type.isPrimitive() && reader.peek() == JsonToken.NULL) {
+                // Absent values keep the default
+                reader.nextNull();
+            } else if (type == int.class) {
+                field.setInt(instance, reader.nextInt());
+            } else if (type == long.class) {
+                field.setLong(instance, reader.nextLong());
+            } else if (type == double.class) {
+                field.setDouble(instance, reader.nextDouble());
+            } else if (type == boolean.class) {
+                field.setBoolean(instance, reader.nextBoolean());
+            } else {
+                field.set(instance, JsonBinders.read(reader, binder()));
+            }
+        }
+
+        private JsonBinder<?> binder() {
+            JsonBinder<?> resolved = binder;
+            if (resolved == null) {
+                resolved = forType(field.getGenericType());
+                binder = resolved;
+            }
+            return resolved;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.network.serialization;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a class whose {@link JsonBinder} is generated at build time.
+ *
+ * <p>The {@code JsonCodecProcessor} annotation processor generates a binder
+ * named after the class with a {@code _JsonBinder} suffix, in the same
+ * package; for a nested class the names of the enclosing classes are joined
+ * with underscores, e.g. {@code Outer_Item_JsonBinder}. The binder reads and
+ * writes the non-static, non-transient fields of the class and its
+ * superclasses directly, or through their getters and setters when the
+ * fields are not accessible from the package. The class needs a non-private
+ * no-argument constructor.
+ *
+ * <p>At runtime {@link StreamingJsonSerializer} uses the generated binder if
+ * it is present, and falls back to reflection otherwise.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface JsonCodec {
+}
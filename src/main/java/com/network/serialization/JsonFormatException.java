@@ -0,0 +1,44 @@
+package com.network.serialization;
+
+/**
+ * Exception thrown when JSON input is malformed or does not match the
+ * expected type.
+ */
+public class JsonFormatException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long offset;
+
+    /**
+     * Creates a new exception.
+     *
+     * @param message the detail message
+     * @param offset  the offset of the input byte where the problem was found, or -1 if unknown
+     */
+    public JsonFormatException(String message, long offset) {
+        super(offset >= 0 ? message + " at offset " + offset : message);
+        this.offset = offset;
+    }
+
+    /**
+     * Creates a new exception with a cause.
+     *
+     * @param message the detail message
+     * @param offset  the offset of the input byte where the problem was found, or -1 if unknown
+     * @param cause   the cause
+     */
+    public JsonFormatException(String message, long offset, Throwable cause) {
+        super(offset >= 0 ? message + " at offset " + offset : message, cause);
+        this.offset = offset;
+    }
+
+    /**
+     * Gets the offset of the input byte where the problem was found.
+     *
+     * @return the offset, or -1 if unknown
+     */
+    public long getOffset() {
+        return offset;
+    }
+}
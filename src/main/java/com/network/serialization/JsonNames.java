@@ -0,0 +1,111 @@
+package com.network.serialization;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Fixed set of object member names, encoded once.
+ *
+ * <p>Readers match member names against the set by comparing the raw bytes
+ * of the input, so known names are never decoded into strings, and writers
+ * copy each name with its quotes and colon as one pre-encoded run of bytes.
+ */
+public final class JsonNames {
+
+    private final String[] names;
+    private final byte[][] utf8;
+    private final byte[][] encoded;
+    /** Open-addressing table of name indexes plus one; 0 marks a free entry. */
+    private final int[] table;
+
+    private JsonNames(String[] names) {
+        this.names = names.clone();
+        this.utf8 = new byte[names.length][];
+        this.encoded = new byte[names.length][];
+        this.table = new int[Integer.highestOneBit(Math.max(1, names.length) * 2) * 2];
+        for (int i = 0; i < names.length; i++) {
+            utf8[i] = names[i].getBytes(StandardCharsets.UTF_8);
+            encoded[i] = JsonWriter.encodeName(names[i]);
+            int slot = hash(utf8[i], utf8[i].length) & (table.length - 1);
+            while (table[slot] != 0) {
+                if (Arrays.equals(utf8[table[slot] - 1], utf8[i])) {
+                    throw new IllegalArgumentException("Duplicate name: " + names[i]);
+                }
+                slot = (slot + 1) & (table.length - 1);
+            }
+            table[slot] = i + 1;
+        }
+    }
+
+    /**
+     * Creates a set of names.
+     *
+     * @param names the names
+     * @return the set
+     * @throws IllegalArgumentException if a name occurs twice
+     */
+    public static JsonNames of(String... names) {
+        return new JsonNames(names);
+    }
+
+    /**
+     * Gets the number of names.
+     *
+     * @return the size
+     */
+    public int size() {
+        return names.length;
+    }
+
+    /**
+     * Gets a name.
+     *
+     * @param index the index of the name
+     * @return the name
+     */
+    public String get(int index) {
+        return names[index];
+    }
+
+    /**
+     * Gets the index of a name given as UTF-8 bytes.
+     *
+     * @param bytes  the array holding the name
+     * @param length the length of the name
+     * @return the index, or -1 if the name is not in the set
+     */
+    int indexOf(byte[] bytes, int length) {
+        int slot = hash(bytes, length) & (table.length - 1);
+        int entry;
+        while ((entry = table[slot]) != 0) {
+            byte[] candidate = utf8[entry - 1];
+            if (candidate.length == length && Arrays.equals(candidate, 0, length, bytes, 0, length)) {
+                return entry - 1;
+            }
+            slot = (slot + 1) & (table.length - 1);
+        }
+        return -1;
+    }
+
+    /**
+     * Gets a name encoded as UTF-8.
+     */
+    byte[] utf8(int index) {
+        return utf8[index];
+    }
+
+    /**
+     * Gets a name encoded as a quoted string followed by a colon.
+     */
+    byte[] encoded(int index) {
+        return encoded[index];
+    }
+
+    private static int hash(byte[] bytes, int length) {
+        int hash = 0x811C9DC5;
+        for (int i = 0; i < length; i++) {
+            hash = (hash ^ bytes[i]) * 0x01000193;
+        }
+        return hash ^ (hash >>> 16);
+    }
+}
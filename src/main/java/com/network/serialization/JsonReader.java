@@ -0,0 +1,945 @@
+package com.network.serialization;
+
+import com.network.buffer.BufferPool;
+import com.network.buffer.PooledBuffer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Pull parser that reads a JSON document straight from UTF-8 bytes.
+ *
+ * <p>The input is either a sequence of buffers or an input stream, which is
+ * read through a single pooled buffer as the parser advances, so a document
+ * is never held in memory as a whole. Strings are decoded from the bytes into
+ * a reused character array, numbers are parsed from the bytes, and member
+ * names can be matched against a {@link JsonNames} set without being decoded
+ * at all. The parser is strict: it accepts exactly one value as defined by
+ * RFC 8259 per document.
+ *
+ * <p>Errors in the input are reported as {@link JsonFormatException}s with the
+ * offset of the offending byte; failures of the input stream are reported as
+ * {@link UncheckedIOException}s. A reader is not thread-safe.
+ *
+ * <p>The token API is the JSON data model rather than the JSON syntax, so
+ * {@link JsonBinder}s work unchanged on the CBOR reader of
+ * {@link CborSerializer}, which extends this class.
+ */
+public class JsonReader implements Closeable {
+
+    private static final int EMPTY_ARRAY = 1;
+    private static final int NONEMPTY_ARRAY = 2;
+    private static final int EMPTY_OBJECT = 3;
+    private static final int DANGLING_NAME = 4;
+    private static final int NONEMPTY_OBJECT = 5;
+    private static final int EMPTY_DOCUMENT = 6;
+    private static final int NONEMPTY_DOCUMENT = 7;
+
+    private static final int MAX_DEPTH = 512;
+    private static final int READ_BUFFER_SIZE = 8192;
+    private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
+    private static final BigDecimal LONG_MIN = BigDecimal.valueOf(Long.MIN_VALUE);
+    private static final BigDecimal LONG_MAX = BigDecimal.valueOf(Long.MAX_VALUE);
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private final InputStream in;
+    private final ByteBuffer[] buffers;
+    private final BufferPool pool;
+    private int nextBuffer;
+    private PooledBuffer readBuffer;
+    private ByteBuffer buf = EMPTY;
+    private int bufStart;
+    private long consumed;
+    private boolean closed;
+
+    private int[] stack = new int[32];
+    private int depth;
+    private JsonToken peeked;
+
+    private char[] chars = new char[64];
+    private byte[] bytes = new byte[64];
+
+    /** The last number read: its digits as a long if it has at most 18, and its decimal exponent. */
+    private long mantissa;
+    private int exponent;
+    private int significantDigits;
+    private boolean negative;
+    private boolean integral;
+    private int numberLength;
+
+    /**
+     * Creates a reader over buffers. The positions of the buffers are not modified.
+     *
+     * @param buffers the input
+     */
+    public JsonReader(ByteBuffer... buffers) {
+        this.in = null;
+        this.buffers = buffers.clone();
+        this.pool = null;
+        stack[depth++] = EMPTY_DOCUMENT;
+    }
+
+    /**
+     * Creates a reader over an input stream. The stream is read as the
+     * parser advances, through a buffer taken from a pool, and closed with
+     * the reader.
+     *
+     * @param in   the input
+     * @param pool the pool to take the read buffer from
+     */
+    public JsonReader(InputStream in, BufferPool pool) {
+        this.in = in;
+        this.buffers = null;
+        this.pool = pool;
+        stack[depth++] = EMPTY_DOCUMENT;
+    }
+
+    /**
+     * Gets the kind of the next token without consuming it.
+     *
+     * @return the token
+     */
+    public JsonToken peek() {
+        if (peeked == null) {
+            peeked = doPeek();
+        }
+        return peeked;
+    }
+
+    /**
+     * Checks if the current array or object has another element.
+     *
+     * @return true if there is another element or member
+     */
+    public boolean hasNext() {
+        JsonToken token = peek();
+        return token != JsonToken.END_OBJECT && token != JsonToken.END_ARRAY && token != JsonToken.END_DOCUMENT;
+    }
+
+    /**
+     * Consumes the start of an object.
+     */
+    public void beginObject() {
+        expect(JsonToken.BEGIN_OBJECT);
+        push(EMPTY_OBJECT);
+        peeked = null;
+    }
+
+    /**
+     * Consumes the end of an object.
+     */
+    public void endObject() {
+        expect(JsonToken.END_OBJECT);
+        depth--;
+        peeked = null;
+    }
+
+    /**
+     * Consumes the start of an array.
+     */
+    public void beginArray() {
+        expect(JsonToken.BEGIN_ARRAY);
+        push(EMPTY_ARRAY);
+        peeked = null;
+    }
+
+    /**
+     * Consumes the end of an array.
+     */
+    public void endArray() {
+        expect(JsonToken.END_ARRAY);
+        depth--;
+        peeked = null;
+    }
+
+    /**
+     * Consumes the name of an object member.
+     *
+     * @return the name
+     */
+    public String nextName() {
+        expect(JsonToken.NAME);
+        peeked = null;
+        return readString();
+    }
+
+    /**
+     * Consumes the name of an object member and looks it up in a set of
+     * names, without decoding it.
+     *
+     * @param names the known names
+     * @return the index of the name in the set, or -1 if it is not in the set
+     */
+    public int nextName(JsonNames names) {
+        expect(JsonToken.NAME);
+        peeked = null;
+        return names.indexOf(bytes, readRawString());
+    }
+
+    /**
+     * Consumes a string value.
+     *
+     * @return the string
+     */
+    public String nextString() {
+        expect(JsonToken.STRING);
+        peeked = null;
+        return readString();
+    }
+
+    /**
+     * Consumes a string value and looks it up in a set of names, without
+     * decoding it.
+     *
+     * @param names the known strings
+     * @return the index of the string in the set, or -1 if it is not in the set
+     */
+    public int nextString(JsonNames names) {
+        expect(JsonToken.STRING);
+        peeked = null;
+        return names.indexOf(bytes, readRawString());
+    }
+
+    /**
+     * Consumes a boolean value.
+     *
+     * @return the value
+     */
+    public boolean nextBoolean() {
+        expect(JsonToken.BOOLEAN);
+        peeked = null;
+        if (peekByte() == 't') {
+            readKeyword("true");
+            return true;
+        }
+        readKeyword("false");
+        return false;
+    }
+
+    /**
+     * Consumes a null value.
+     */
+    public void nextNull() {
+        expect(JsonToken.NULL);
+        peeked = null;
+        readKeyword("null");
+    }
+
+    /**
+     * Consumes a number value that is an {@code int}.
+     *
+     * @return the value
+     */
+    public int nextInt() {
+        long offset = offset();
+        long value = nextLong();
+        if ((int) value != value) {
+            throw new JsonFormatException("Number out of int range", offset);
+        }
+        return (int) value;
+    }
+
+    /**
+     * Consumes a number value that is a {@code long}. Numbers with a fraction
+     * or exponent are accepted if their value is integral.
+     *
+     * @return the value
+     */
+    public long nextLong() {
+        long offset = offset();
+        readNumber();
+        if (integral && significantDigits <= 18) {
+            return negative ? -mantissa : mantissa;
+        }
+        try {
+            return toBigDecimal().longValueExact();
+        } catch (ArithmeticException e) {
+            throw new JsonFormatException("Number is not a long", offset);
+        }
+    }
+
+    /**
+     * Consumes a number value as a {@code double}.
+     *
+     * @return the value
+     */
+    public double nextDouble() {
+        readNumber();
+        return toDouble();
+    }
+
+    /**
+     * Consumes a number value as a {@link Long} if it is an integer in the
+     * range of a long, or as a {@link Double} otherwise.
+     *
+     * @return the value
+     */
+    public Number nextNumber() {
+        readNumber();
+        if (integral && significantDigits <= 18) {
+            return negative ? -mantissa : mantissa;
+        }
+        if (integral) {
+            BigDecimal value = toBigDecimal();
+            if (value.compareTo(LONG_MIN) >= 0 && value.compareTo(LONG_MAX) <= 0) {
+                return value.longValue();
+            }
+            return value.doubleValue();
+        }
+        return toDouble();
+    }
+
+    /**
+     * Consumes a number value without loss of precision.
+     *
+     * @return the value
+     */
+    public BigDecimal nextBigDecimal() {
+        readNumber();
+        return toBigDecimal();
+    }
+
+    /**
+     * Skips the next value, including everything nested in it.
+     */
+    public void skipValue() {
+        int open = 0;
+        do {
+            switch (peek()) {
+                case BEGIN_ARRAY:
+                    beginArray();
+                    open++;
+                    break;
+                case BEGIN_OBJECT:
+                    beginObject();
+                    open++;
+                    break;
+                case END_ARRAY:
+                    endArray();
+                    open--;
+                    break;
+                case END_OBJECT:
+                    endObject();
+                    open--;
+                    break;
+                case NAME:
+                case STRING:
+                    peeked = null;
+                    skipString();
+                    break;
+                case NUMBER:
+                    readNumber();
+                    break;
+                case BOOLEAN:
+                    nextBoolean();
+                    break;
+                case NULL:
+                    nextNull();
+                    break;
+                default:
+                    throw error("Unexpected end of input");
+            }
+        } while (open > 0);
+    }
+
+    /**
+     * Checks that the document has been read completely.
+     *
+     * @throws JsonFormatException if there is more input after the value
+     */
+    public void endDocument() {
+        expect(JsonToken.END_DOCUMENT);
+    }
+
+    /**
+     * Gets the offset of the next input byte.
+     *
+     * @return the offset
+     */
+    public long offset() {
+        return consumed + buf.position() - bufStart;
+    }
+
+    /**
+     * Releases the read buffer and closes the input stream, if any.
+     */
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            buf = EMPTY;
+            bufStart = 0;
+            if (readBuffer != null) {
+                readBuffer.release();
+                readBuffer = null;
+            }
+            if (in != null) {
+                try {
+                    in.close();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Creates an exception for the current position.
+     *
+     * @param message the message
+     * @return the exception
+     */
+    JsonFormatException error(String message) {
+        return new JsonFormatException(message, offset());
+    }
+
+    private void expect(JsonToken token) {
+        JsonToken actual = peek();
+        if (actual != token) {
+            throw error("Expected " + token + " but was " + actual);
+        }
+    }
+
+    private void push(int scope) {
+        if (depth == MAX_DEPTH) {
+            throw error("Nesting deeper than " + MAX_DEPTH + " levels");
+        }
+        if (depth == stack.length) {
+            stack = Arrays.copyOf(stack, depth * 2);
+        }
+        stack[depth++] = scope;
+    }
+
+    private JsonToken doPeek() {
+        int scope = stack[depth - 1];
+        switch (scope) {
+            case EMPTY_ARRAY:
+                stack[depth - 1] = NONEMPTY_ARRAY;
+                if (peekNonWhitespace() == ']') {
+                    readByte();
+                    return JsonToken.END_ARRAY;
+                }
+                break;
+            case NONEMPTY_ARRAY: {
+                int c = readNonWhitespace();
+                if (c == ']') {
+                    return JsonToken.END_ARRAY;
+                }
+                if (c != ',') {
+                    throw unexpected(c, "',' or ']'");
+                }
+                break;
+            }
+            case EMPTY_OBJECT:
+            case NONEMPTY_OBJECT: {
+                stack[depth - 1] = DANGLING_NAME;
+                int c = readNonWhitespace();
+                if (scope == NONEMPTY_OBJECT) {
+                    if (c == '}') {
+                        return JsonToken.END_OBJECT;
+                    }
+                    if (c != ',') {
+                        throw unexpected(c, "',' or '}'");
+                    }
+                    c = readNonWhitespace();
+                } else if (c == '}') {
+                    return JsonToken.END_OBJECT;
+                }
+                if (c != '"') {
+                    throw unexpected(c, "a member name");
+                }
+                return JsonToken.NAME;
+            }
+            case DANGLING_NAME: {
+                stack[depth - 1] = NONEMPTY_OBJECT;
+                int c = readNonWhitespace();
+                if (c != ':') {
+                    throw unexpected(c, "':'");
+                }
+                break;
+            }
+            case EMPTY_DOCUMENT:
+                stack[depth - 1] = NONEMPTY_DOCUMENT;
+                break;
+            default: {
+                int c = peekNonWhitespace();
+                if (c == -1) {
+                    return JsonToken.END_DOCUMENT;
+                }
+                throw unexpected(readByte(), "the end of the input");
+            }
+        }
+        int c = peekNonWhitespace();
+        switch (c) {
+            case '{':
+                readByte();
+                return JsonToken.BEGIN_OBJECT;
+            case '[':
+                readByte();
+                return JsonToken.BEGIN_ARRAY;
+            case '"':
+                readByte();
+                return JsonToken.STRING;
+            case 't':
+            case 'f':
+                return JsonToken.BOOLEAN;
+            case 'n':
+                return JsonToken.NULL;
+            default:
+                if (c == '-' || (c >= '0' && c <= '9')) {
+                    return JsonToken.NUMBER;
+                }
+                throw unexpected(c == -1 ? -1 : readByte(), "a value");
+        }
+    }
+
+    private JsonFormatException unexpected(int c, String expected) {
+        if (c == -1) {
+            return error("Unexpected end of input, expected " + expected);
+        }
+        String found = c >= 0x20 && c < 0x7F ? "'" + (char) c + "'" : String.format("byte 0x%02x", c);
+        return new JsonFormatException("Unexpected " + found + ", expected " + expected, offset() - 1);
+    }
+
+    /**
+     * Reads the rest of a string whose opening quote has been consumed.
+     */
+    private String readString() {
+        int length = 0;
+        while (true) {
+            if (length + 2 > chars.length) {
+                chars = Arrays.copyOf(chars, chars.length * 2);
+            }
+            int b = readByte();
+            if (b == '"') {
+                return new String(chars, 0, length);
+            }
+            if (b == '\\') {
+                int c = readEscape();
+                if (Character.isHighSurrogate((char) c) && peekByte() == '\\') {
+                    readByte();
+                    int low = readEscape();
+                    chars[length++] = (char) c;
+                    chars[length++] = (char) low;
+                } else {
+                    chars[length++] = (char) c;
+                }
+            } else if (b < 0x80) {
+                if (b < 0x20) {
+                    throw b == -1 ? error("Unterminated string") : unexpected(b, "a string character");
+                }
+                chars[length++] = (char) b;
+            } else {
+                int codePoint = readUtf8(b);
+                if (codePoint >= 0x10000) {
+                    chars[length++] = Character.highSurrogate(codePoint);
+                    chars[length++] = Character.lowSurrogate(codePoint);
+                } else {
+                    chars[length++] = (char) codePoint;
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads the rest of a string into the byte scratch array as UTF-8,
+     * resolving escapes.
+     *
+     * @return the length of the string in bytes
+     */
+    private int readRawString() {
+        int length = 0;
+        while (true) {
+            if (length + 8 > bytes.length) {
+                bytes = Arrays.copyOf(bytes, bytes.length * 2);
+            }
+            int b = readByte();
+            if (b == '"') {
+                return length;
+            }
+            if (b == '\\') {
+                int c = readEscape();
+                if (Character.isHighSurrogate((char) c) && peekByte() == '\\') {
+                    readByte();
+                    int low = readEscape();
+                    if (Character.isLowSurrogate((char) low)) {
+                        c = Character.toCodePoint((char) c, (char) low);
+                    } else {
+                        length = putUtf8(c, length);
+                        c = low;
+                    }
+                }
+                length = putUtf8(c, length);
+            } else if (b < 0x20) {
+                throw b == -1 ? error("Unterminated string") : unexpected(b, "a string character");
+            } else {
+                bytes[length++] = (byte) b;
+            }
+        }
+    }
+
+    private void skipString() {
+        while (true) {
+            int b = readByte();
+            if (b == '"') {
+                return;
+            }
+            if (b == '\\') {
+                readEscape();
+            } else if (b < 0x20) {
+                throw b == -1 ? error("Unterminated string") : unexpected(b, "a string character");
+            }
+        }
+    }
+
+    private int putUtf8(int codePoint, int length) {
+        if (codePoint < 0x80) {
+            bytes[length++] = (byte) codePoint;
+        } else if (codePoint < 0x800) {
+            bytes[length++] = (byte) (0xC0 | codePoint >> 6);
+            bytes[length++] = (byte) (0x80 | (codePoint & 0x3F));
+        } else if (codePoint < 0x10000) {
+            bytes[length++] = (byte) (0xE0 | codePoint >> 12);
+            bytes[length++] = (byte) (0x80 | (codePoint >> 6 & 0x3F));
+            bytes[length++] = (byte) (0x80 | (codePoint & 0x3F));
+        } else {
+            bytes[length++] = (byte) (0xF0 | codePoint >> 18);
+            bytes[length++] = (byte) (0x80 | (codePoint >> 12 & 0x3F));
+            bytes[length++] = (byte) (0x80 | (codePoint >> 6 & 0x3F));
+            bytes[length++] = (byte) (0x80 | (codePoint & 0x3F));
+        }
+        return length;
+    }
+
+    /**
+     * Reads an escape sequence whose backslash has been consumed.
+     */
+    private int readEscape() {
+        int c = readByte();
+        switch (c) {
+            case '"':
+            case '\\':
+            case '/':
+                return c;
+            case 'b':
+                return '\b';
+            case 'f':
+                return '\f';
+            case 'n':
+                return '\n';
+            case 'r':
+                return '\r';
+            case 't':
+                return '\t';
+            case 'u': {
+                int value = 0;
+                for (int i = 0; i < 4; i++) {
+                    int h = readByte();
+                    int digit = Character.digit(h, 16);
+                    if (h == -1 || digit < 0) {
+                        throw unexpected(h, "a hex digit");
+                    }
+                    value = value << 4 | digit;
+                }
+                return value;
+            }
+            default:
+                throw unexpected(c, "an escape character");
+        }
+    }
+
+    /**
+     * Decodes a multi-byte UTF-8 sequence whose first byte has been consumed.
+     */
+    private int readUtf8(int first) {
+        int count;
+        int codePoint;
+        if ((first & 0xE0) == 0xC0) {
+            count = 1;
+            codePoint = first & 0x1F;
+        } else if ((first & 0xF0) == 0xE0) {
+            count = 2;
+            codePoint = first & 0x0F;
+        } else if ((first & 0xF8) == 0xF0) {
+            count = 3;
+            codePoint = first & 0x07;
+        } else {
+            throw new JsonFormatException("Malformed UTF-8", offset() - 1);
+        }
+        for (int i = 0; i < count; i++) {
+            int b = readByte();
+            if ((b & 0xC0) != 0x80) {
+                throw new JsonFormatException("Malformed UTF-8", offset() - 1);
+            }
+            codePoint = codePoint << 6 | (b & 0x3F);
+        }
+        if (codePoint > 0x10FFFF || codePoint < (count == 1 ? 0x80 : count == 2 ? 0x800 : 0x10000)) {
+            throw new JsonFormatException("Malformed UTF-8", offset() - 1);
+        }
+        return codePoint;
+    }
+
+    private void readKeyword(String keyword) {
+        for (int i = 0; i < keyword.length(); i++) {
+            int c = readByte();
+            if (c != keyword.charAt(i)) {
+                throw unexpected(c, "'" + keyword + "'");
+            }
+        }
+        int next = peekByte();
+        if ((next >= 'a' && next <= 'z') || (next >= '0' && next <= '9')) {
+            throw unexpected(readByte(), "a delimiter");
+        }
+    }
+
+    /**
+     * Reads a number into the scratch array and the number fields.
+     */
+    private void readNumber() {
+        expect(JsonToken.NUMBER);
+        peeked = null;
+        numberLength = 0;
+        mantissa = 0;
+        exponent = 0;
+        significantDigits = 0;
+        integral = true;
+        negative = false;
+        int c = peekByte();
+        if (c == '-') {
+            negative = true;
+            appendNumber(readByte());
+            c = peekByte();
+        }
+        if (c == '0') {
+            appendNumber(readByte());
+            c = peekByte();
+        } else if (c >= '1' && c <= '9') {
+            c = readDigits(false);
+        } else {
+            throw unexpected(c == -1 ? -1 : readByte(), "a digit");
+        }
+        if (c == '.') {
+            integral = false;
+            appendNumber(readByte());
+            c = peekByte();
+            if (c < '0' || c > '9') {
+                throw unexpected(c == -1 ? -1 : readByte(), "a digit");
+            }
+            c = readDigits(true);
+        }
+        if (c == 'e' || c == 'E') {
+            integral = false;
+            appendNumber(readByte());
+            c = peekByte();
+            boolean negativeExponent = false;
+            if (c == '+' || c == '-') {
+                negativeExponent = c == '-';
+                appendNumber(readByte());
+                c = peekByte();
+            }
+            if (c < '0' || c > '9') {
+                throw unexpected(c == -1 ? -1 : readByte(), "a digit");
+            }
+            int value = 0;
+            while (c >= '0' && c <= '9') {
+                appendNumber(readByte());
+                value = Math.min(value * 10 + (c - '0'), 100_000);
+                c = peekByte();
+            }
+            exponent += negativeExponent ? -value : value;
+        }
+    }
+
+    /**
+     * Reads a run of digits, accumulating up to 18 significant digits into the mantissa.
+     *
+     * @return the byte after the digits
+     */
+    private int readDigits(boolean fraction) {
+        int c = peekByte();
+        while (c >= '0' && c <= '9') {
+            appendNumber(readByte());
+            if (significantDigits == 0 && c == '0') {
+                // Leading zeros of a fraction only move the decimal point
+                if (fraction) {
+                    exponent--;
+                }
+            } else if (significantDigits < 18) {
+                mantissa = mantissa * 10 + (c - '0');
+                significantDigits++;
+                if (fraction) {
+                    exponent--;
+                }
+            } else {
+                // Digits beyond the mantissa are only kept in the text
+                significantDigits++;
+                if (!fraction) {
+                    exponent++;
+                }
+            }
+            c = peekByte();
+        }
+        return c;
+    }
+
+    private void appendNumber(int c) {
+        if (numberLength == bytes.length) {
+            bytes = Arrays.copyOf(bytes, bytes.length * 2);
+        }
+        bytes[numberLength++] = (byte) c;
+    }
+
+    private double toDouble() {
+        if (significantDigits <= 15 && exponent >= -22 && exponent <= 22) {
+            // Both operands are exact, so the result is correctly rounded
+            double value = exponent >= 0 ? mantissa * POWERS_OF_TEN[exponent] : mantissa / POWERS_OF_TEN[-exponent];
+            return negative ? -value : value;
+        }
+        return Double.parseDouble(new String(bytes, 0, numberLength, StandardCharsets.ISO_8859_1));
+    }
+
+    private BigDecimal toBigDecimal() {
+        if (chars.length < numberLength) {
+            chars = new char[numberLength];
+        }
+        for (int i = 0; i < numberLength; i++) {
+            chars[i] = (char) bytes[i];
+        }
+        return new BigDecimal(chars, 0, numberLength);
+    }
+
+    private int peekNonWhitespace() {
+        while (true) {
+            int c = peekByte();
+            if (c != ' ' && c != '\n' && c != '\r' && c != '\t') {
+                return c;
+            }
+            buf.get();
+        }
+    }
+
+    private int readNonWhitespace() {
+        int c = peekNonWhitespace();
+        if (c != -1) {
+            buf.get();
+        }
+        return c;
+    }
+
+    /**
+     * Reads the next input byte.
+     *
+     * @return the byte, or -1 at the end of the input
+     */
+    final int readByte() {
+        if (!buf.hasRemaining() && !fill()) {
+            return -1;
+        }
+        return buf.get() & 0xFF;
+    }
+
+    /**
+     * Gets the next input byte without consuming it.
+     *
+     * @return the byte, or -1 at the end of the input
+     */
+    final int peekByte() {
+        if (!buf.hasRemaining() && !fill()) {
+            return -1;
+        }
+        return buf.get(buf.position()) & 0xFF;
+    }
+
+    /**
+     * Reads input bytes that must all be present.
+     *
+     * @param target the array to read into
+     * @param offset the offset in the array
+     * @param length the number of bytes
+     * @throws JsonFormatException if the input ends first
+     */
+    final void readFully(byte[] target, int offset, int length) {
+        while (length > 0) {
+            if (!buf.hasRemaining() && !fill()) {
+                throw error("Unexpected end of input");
+            }
+            int count = Math.min(length, buf.remaining());
+            buf.get(target, offset, count);
+            offset += count;
+            length -= count;
+        }
+    }
+
+    /**
+     * Skips input bytes that must all be present.
+     *
+     * @param length the number of bytes
+     * @throws JsonFormatException if the input ends first
+     */
+    final void skipFully(long length) {
+        while (length > 0) {
+            if (!buf.hasRemaining() && !fill()) {
+                throw error("Unexpected end of input");
+            }
+            int count = (int) Math.min(length, buf.remaining());
+            buf.position(buf.position() + count);
+            length -= count;
+        }
+    }
+
+    /**
+     * Moves to the next input buffer.
+     *
+     * @return false at the end of the input
+     */
+    private boolean fill() {
+        consumed += buf.position() - bufStart;
+        if (closed) {
+            throw new IllegalStateException("Reader closed");
+        }
+        if (buffers != null) {
+            while (nextBuffer < buffers.length) {
+                buf = buffers[nextBuffer++].duplicate();
+                bufStart = buf.position();
+                if (buf.hasRemaining()) {
+                    return true;
+                }
+            }
+            buf = EMPTY;
+            bufStart = 0;
+            return false;
+        }
+        if (readBuffer == null) {
+            readBuffer = pool.acquire(READ_BUFFER_SIZE);
+        }
+        ByteBuffer target = readBuffer.buffer();
+        try {
+            int count;
+            do {
+                count = in.read(target.array(), target.arrayOffset(), target.capacity());
+            } while (count == 0);
+            target.clear();
+            if (count < 0) {
+                target.limit(0);
+                buf = target;
+                bufStart = 0;
+                return false;
+            }
+            target.limit(count);
+            buf = target;
+            bufStart = 0;
+            return true;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
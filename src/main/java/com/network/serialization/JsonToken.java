@@ -0,0 +1,27 @@
+package com.network.serialization;
+
+/**
+ * Kinds of tokens in a JSON document, as reported by {@link JsonReader#peek()}.
+ */
+public enum JsonToken {
+    /** The start of an object. */
+    BEGIN_OBJECT,
+    /** The end of an object. */
+    END_OBJECT,
+    /** The start of an array. */
+    BEGIN_ARRAY,
+    /** The end of an array. */
+    END_ARRAY,
+    /** The name of an object member. */
+    NAME,
+    /** A string value. */
+    STRING,
+    /** A number value. */
+    NUMBER,
+    /** A {@code true} or {@code false} value. */
+    BOOLEAN,
+    /** A {@code null} value. */
+    NULL,
+    /** The end of the input. */
+    END_DOCUMENT
+}
@@ -0,0 +1,381 @@
+package com.network.serialization;
+
+import com.network.buffer.BufferChain;
+import com.network.buffer.BufferPool;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Writes a JSON document as UTF-8 straight into a {@link BufferChain}.
+ *
+ * <p>Strings are encoded character by character into the buffers, and
+ * integers digit by digit, so writing a document creates no intermediate
+ * strings or arrays. Commas and colons are inserted as needed. A writer is
+ * not thread-safe.
+ *
+ * <p>The CBOR writer of {@link CborSerializer} extends this class, so
+ * {@link JsonBinder}s write either format.
+ */
+public class JsonWriter {
+
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] TRUE = {'t', 'r', 'u', 'e'};
+    private static final byte[] FALSE = {'f', 'a', 'l', 's', 'e'};
+    private static final byte[] NULL = {'n', 'u', 'l', 'l'};
+    private static final byte[] MIN_LONG = Long.toString(Long.MIN_VALUE).getBytes(StandardCharsets.US_ASCII);
+
+    final BufferChain out;
+    private final byte[] digits = new byte[20];
+    /** Whether the container at each depth already has an element. */
+    private boolean[] nonEmpty = new boolean[16];
+    private int depth;
+    private boolean afterName;
+
+    /**
+     * Creates a new writer.
+     *
+     * @param out the chain to write to
+     */
+    public JsonWriter(BufferChain out) {
+        this.out = out;
+    }
+
+    /**
+     * Begins an object.
+     *
+     * @return this writer
+     */
+    public JsonWriter beginObject() {
+        beforeValue();
+        open();
+        out.write('{');
+        return this;
+    }
+
+    /**
+     * Ends the current object.
+     *
+     * @return this writer
+     */
+    public JsonWriter endObject() {
+        close();
+        out.write('}');
+        return this;
+    }
+
+    /**
+     * Begins an array.
+     *
+     * @return this writer
+     */
+    public JsonWriter beginArray() {
+        beforeValue();
+        open();
+        out.write('[');
+        return this;
+    }
+
+    /**
+     * Ends the current array.
+     *
+     * @return this writer
+     */
+    public JsonWriter endArray() {
+        close();
+        out.write(']');
+        return this;
+    }
+
+    /**
+     * Writes the name of an object member.
+     *
+     * @param name the name
+     * @return this writer
+     */
+    public JsonWriter name(String name) {
+        beforeName();
+        writeString(name);
+        out.write(':');
+        return this;
+    }
+
+    /**
+     * Writes the name of an object member from a set of pre-encoded names.
+     *
+     * @param names the names
+     * @param index the index of the name
+     * @return this writer
+     */
+    public JsonWriter name(JsonNames names, int index) {
+        beforeName();
+        byte[] encoded = names.encoded(index);
+        out.write(encoded, 0, encoded.length);
+        return this;
+    }
+
+    /**
+     * Writes a string value.
+     *
+     * @param value the value, or null
+     * @return this writer
+     */
+    public JsonWriter value(String value) {
+        if (value == null) {
+            return nullValue();
+        }
+        beforeValue();
+        writeString(value);
+        return this;
+    }
+
+    /**
+     * Writes a string value from a set of pre-encoded strings.
+     *
+     * @param names the strings
+     * @param index the index of the string
+     * @return this writer
+     */
+    public JsonWriter value(JsonNames names, int index) {
+        beforeValue();
+        byte[] encoded = names.encoded(index);
+        // Without the colon that follows a name
+        out.write(encoded, 0, encoded.length - 1);
+        return this;
+    }
+
+    /**
+     * Writes an integer value.
+     *
+     * @param value the value
+     * @return this writer
+     */
+    public JsonWriter value(long value) {
+        beforeValue();
+        writeLong(value);
+        return this;
+    }
+
+    /**
+     * Writes a floating-point value.
+     *
+     * @param value the value
+     * @return this writer
+     * @throws IllegalArgumentException if the value is NaN or infinite
+     */
+    public JsonWriter value(double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            throw new IllegalArgumentException("JSON cannot represent " + value);
+        }
+        beforeValue();
+        if (value == (long) value && Math.abs(value) < 1e15 && (value != 0 || 1 / value > 0)) {
+            // Integral values are common and need no decimal conversion
+            writeLong((long) value);
+            out.write('.');
+            out.write('0');
+        } else {
+            writeAscii(Double.toString(value));
+        }
+        return this;
+    }
+
+    /**
+     * Writes a boolean value.
+     *
+     * @param value the value
+     * @return this writer
+     */
+    public JsonWriter value(boolean value) {
+        beforeValue();
+        byte[] literal = value ? TRUE : FALSE;
+        out.write(literal, 0, literal.length);
+        return this;
+    }
+
+    /**
+     * Writes a number value.
+     *
+     * @param value the value, or null
+     * @return this writer
+     */
+    public JsonWriter value(Number value) {
+        if (value == null) {
+            return nullValue();
+        }
+        if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+            return value(value.longValue());
+        }
+        if (value instanceof Double || value instanceof Float) {
+            return value(value.doubleValue());
+        }
+        beforeValue();
+        writeAscii(value.toString());
+        return this;
+    }
+
+    /**
+     * Writes a null value.
+     *
+     * @return this writer
+     */
+    public JsonWriter nullValue() {
+        beforeValue();
+        out.write(NULL, 0, NULL.length);
+        return this;
+    }
+
+    /**
+     * Encodes a member name as a quoted string followed by a colon.
+     */
+    static byte[] encodeName(String name) {
+        try (BufferChain chain = new BufferChain(BufferPool.shared())) {
+            JsonWriter writer = new JsonWriter(chain);
+            writer.writeString(name);
+            chain.write(':');
+            return chain.toByteArray();
+        }
+    }
+
+    private void beforeName() {
+        if (nonEmpty[depth]) {
+            out.write(',');
+        }
+        nonEmpty[depth] = true;
+        afterName = true;
+    }
+
+    private void beforeValue() {
+        if (afterName) {
+            afterName = false;
+        } else if (depth > 0) {
+            if (nonEmpty[depth]) {
+                out.write(',');
+            }
+            nonEmpty[depth] = true;
+        }
+    }
+
+    private void open() {
+        if (++depth == nonEmpty.length) {
+            nonEmpty = Arrays.copyOf(nonEmpty, depth * 2);
+        }
+        nonEmpty[depth] = false;
+    }
+
+    private void close() {
+        if (depth == 0) {
+            throw new IllegalStateException("No open object or array");
+        }
+        depth--;
+    }
+
+    private void writeLong(long value) {
+        if (value == Long.MIN_VALUE) {
+            out.write(MIN_LONG, 0, MIN_LONG.length);
+            return;
+        }
+        boolean negative = value < 0;
+        long remaining = negative ? -value : value;
+        int position = digits.length;
+        do {
+            digits[--position] = (byte) ('0' + remaining % 10);
+            remaining /= 10;
+        } while (remaining != 0);
+        if (negative) {
+            digits[--position] = '-';
+        }
+        out.write(digits, position, digits.length - position);
+    }
+
+    private void writeAscii(String value) {
+        ByteBuffer buffer = out.writable(value.length());
+        if (buffer.remaining() >= value.length()) {
+            for (int i = 0; i < value.length(); i++) {
+                buffer.put((byte) value.charAt(i));
+            }
+            out.advance(value.length());
+        } else {
+            for (int i = 0; i < value.length(); i++) {
+                out.write(value.charAt(i));
+            }
+        }
+    }
+
+    private void writeString(String value) {
+        ByteBuffer buffer = out.writable(16);
+        int start = buffer.position();
+        buffer.put((byte) '"');
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            if (buffer.remaining() < 12) {
+                out.advance(buffer.position() - start);
+                buffer = out.writable(64);
+                start = buffer.position();
+            }
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                if (c >= 0x20 && c != '"' && c != '\\') {
+                    buffer.put((byte) c);
+                } else {
+                    escape(buffer, c);
+                }
+            } else if (c < 0x800) {
+                buffer.put((byte) (0xC0 | c >> 6));
+                buffer.put((byte) (0x80 | (c & 0x3F)));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                buffer.put((byte) (0xF0 | codePoint >> 18));
+                buffer.put((byte) (0x80 | (codePoint >> 12 & 0x3F)));
+                buffer.put((byte) (0x80 | (codePoint >> 6 & 0x3F)));
+                buffer.put((byte) (0x80 | (codePoint & 0x3F)));
+            } else if (Character.isSurrogate(c)) {
+                // A lone surrogate cannot be encoded as UTF-8
+                escape(buffer, c);
+            } else {
+                buffer.put((byte) (0xE0 | c >> 12));
+                buffer.put((byte) (0x80 | (c >> 6 & 0x3F)));
+                buffer.put((byte) (0x80 | (c & 0x3F)));
+            }
+        }
+        if (!buffer.hasRemaining()) {
+            out.advance(buffer.position() - start);
+            buffer = out.writable(1);
+            start = buffer.position();
+        }
+        buffer.put((byte) '"');
+        out.advance(buffer.position() - start);
+    }
+
+    private static void escape(ByteBuffer buffer, char c) {
+        buffer.put((byte) '\\');
+        switch (c) {
+            case '"':
+            case '\\':
+                buffer.put((byte) c);
+                break;
+            case '\n':
+                buffer.put((byte) 'n');
+                break;
+            case '\r':
+                buffer.put((byte) 'r');
+                break;
+            case '\t':
+                buffer.put((byte) 't');
+                break;
+            case '\b':
+                buffer.put((byte) 'b');
+                break;
+            case '\f':
+                buffer.put((byte) 'f');
+                break;
+            default:
+                buffer.put((byte) 'u');
+                buffer.put(HEX[c >> 12 & 0xF]);
+                buffer.put(HEX[c >> 8 & 0xF]);
+                buffer.put(HEX[c >> 4 & 0xF]);
+                buffer.put(HEX[c & 0xF]);
+                break;
+        }
+    }
+}
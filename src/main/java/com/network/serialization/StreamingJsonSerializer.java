@@ -0,0 +1,104 @@
+package com.network.serialization;
+
+import com.network.buffer.BufferChain;
+import com.network.buffer.BufferPool;
+
+import java.io.InputStream;
+import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+
+/**
+ * JSON serializer that writes UTF-8 straight into pooled buffers and parses
+ * without building intermediate strings.
+ *
+ * <p>Objects are bound through {@link JsonBinder}s, which are resolved once
+ * per class and cached. Plain classes are bound through their fields, which
+ * need not be public; reading one needs a no-argument constructor. Unknown
+ * properties are skipped when reading.
+ */
+public class StreamingJsonSerializer implements StreamingSerializer {
+
+    private final BufferPool pool;
+
+    /**
+     * Creates a new serializer using the shared buffer pool.
+     */
+    public StreamingJsonSerializer() {
+        this(BufferPool.shared());
+    }
+
+    /**
+     * Creates a new serializer.
+     *
+     * @param pool the pool of the buffers to write into and read with
+     */
+    public StreamingJsonSerializer(BufferPool pool) {
+        if (pool == null) {
+            throw new IllegalArgumentException("Buffer pool cannot be null");
+        }
+        this.pool = pool;
+    }
+
+    @Override
+    public byte[] serialize(Object object) {
+        try (BufferChain out = new BufferChain(pool)) {
+            serialize(object, out);
+            return out.toByteArray();
+        }
+    }
+
+    @Override
+    public void serialize(Object object, BufferChain out) {
+        JsonWriter writer = new JsonWriter(out);
+        if (object == null) {
+            writer.nullValue();
+        } else {
+            JsonBinders.write(writer, JsonBinders.forClass(object.getClass()), object.getClass(), object);
+        }
+    }
+
+    @Override
+    public <T> T deserialize(byte[] data, Class<T> type) {
+        return deserialize(new ByteBuffer[] {ByteBuffer.wrap(data)}, type);
+    }
+
+    @Override
+    public <T> T deserialize(ByteBuffer[] buffers, Class<T> type) {
+        try (JsonReader reader = new JsonReader(buffers)) {
+            return read(reader, type);
+        }
+    }
+
+    @Override
+    public <T> T deserialize(InputStream in, Class<T> type) {
+        try (JsonReader reader = new JsonReader(in, pool)) {
+            return read(reader, type);
+        }
+    }
+
+    @Override
+    public <T> ElementIterator<T> deserializeElements(InputStream in, Class<T> type) {
+        return new JsonArrayIterator<>(new JsonReader(in, pool), type);
+    }
+
+    @Override
+    public Object deserialize(byte[] data, Type type) {
+        try (JsonReader reader = new JsonReader(new ByteBuffer[] {ByteBuffer.wrap(data)})) {
+            Object value = JsonBinders.read(reader, JsonBinders.forType(type));
+            reader.endDocument();
+            return value;
+        }
+    }
+
+    @Override
+    public String getContentType() {
+        return "application/json";
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T read(JsonReader reader, Class<T> type) {
+        Object value = JsonBinders.read(reader, JsonBinders.forClass(type));
+        reader.endDocument();
+        return type.isPrimitive() ? (T) value : type.cast(value);
+    }
+}
@@ -0,0 +1,67 @@
+package com.network.serialization;
+
+import com.network.buffer.BufferChain;
+
+import java.io.InputStream;
+import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+
+/**
+ * Serializer that can write into and read from buffers without copying a
+ * document into a single array.
+ */
+public interface StreamingSerializer extends Serializer {
+
+    /**
+     * Serializes an object into a buffer chain.
+     *
+     * @param object the object, which may be null
+     * @param out    the chain to append the document to
+     */
+    void serialize(Object object, BufferChain out);
+
+    /**
+     * Deserializes a document spread over buffers. The positions of the
+     * buffers are not changed.
+     *
+     * @param <T>     the type of the object
+     * @param buffers the buffers, in order
+     * @param type    the type of the object
+     * @return the object, or null for a null document
+     */
+    <T> T deserialize(ByteBuffer[] buffers, Class<T> type);
+
+    /**
+     * Deserializes a document from a stream, reading it as it is parsed. The
+     * stream is closed afterwards.
+     *
+     * @param <T>  the type of the object
+     * @param in   the stream
+     * @param type the type of the object
+     * @return the object, or null for a null document
+     */
+    <T> T deserialize(InputStream in, Class<T> type);
+
+    /**
+     * Deserializes the elements of a document that is an array one at a
+     * time, reading the stream as they are pulled. A null document has no
+     * elements. The stream is closed when the iterator is.
+     *
+     * @param <T>  the type of the elements
+     * @param in   the stream
+     * @param type the type of the elements
+     * @return the iterator over the elements
+     */
+    <T> ElementIterator<T> deserializeElements(InputStream in, Class<T> type);
+
+    /**
+     * Deserializes a document into a type that may be generic, such as
+     * {@code List<Item>}, whose elements are then bound as their declared
+     * type rather than as plain maps and lists.
+     *
+     * @param data the document
+     * @param type the type of the object
+     * @return the object, or null for a null document
+     */
+    Object deserialize(byte[] data, Type type);
+}
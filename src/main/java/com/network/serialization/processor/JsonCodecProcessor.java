@@ -0,0 +1,376 @@
+package com.network.serialization.processor;
+
+import com.network.serialization.JsonCodec;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Annotation processor that generates a {@link com.network.serialization.JsonBinder}
+ * for each class annotated with {@link JsonCodec}.
+ *
+ * <p>The generated binders read and write fields directly, or through their
+ * getters and setters, and match member names with a
+ * {@link com.network.serialization.JsonNames} table, so binding a class costs
+ * no reflection and compiles to code the JIT can inline. Fields of
+ * primitive, boxed and {@code String} types are bound inline; fields of other
+ * types delegate to the binder of their declared type, which is resolved on
+ * first use.
+ *
+ * <p>The processor is registered as a service, so it runs whenever this
+ * library is on the annotation processor path.
+ */
+@SupportedAnnotationTypes("com.network.serialization.JsonCodec")
+public class JsonCodecProcessor extends AbstractProcessor {
+
+    private static final String SUFFIX = "_JsonBinder";
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment round) {
+        for (Element element : round.getElementsAnnotatedWith(JsonCodec.class)) {
+            if (element.getKind() != ElementKind.CLASS) {
+                error(element, "@JsonCodec can only be applied to classes");
+                continue;
+            }
+            TypeElement type = (TypeElement) element;
+            try {
+                if (check(type)) {
+                    List<Property> properties = new ArrayList<>();
+                    collect(type, type, properties);
+                    if (properties.stream().allMatch(property -> property.valid)) {
+                        generate(type, properties);
+                    }
+                }
+            } catch (IOException e) {
+                error(type, "Cannot write the binder of " + type + ": " + e.getMessage());
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks that the generated binder can instantiate the class.
+     */
+    private boolean check(TypeElement type) {
+        Set<Modifier> modifiers = type.getModifiers();
+        if (modifiers.contains(Modifier.ABSTRACT)) {
+            error(type, "@JsonCodec classes cannot be abstract");
+            return false;
+        }
+        for (Element enclosing = type; enclosing.getKind() != ElementKind.PACKAGE;
+             enclosing = enclosing.getEnclosingElement()) {
+            if (enclosing.getModifiers().contains(Modifier.PRIVATE)) {
+                error(type, "@JsonCodec classes cannot be private or nested in private classes");
+                return false;
+            }
+            if (enclosing.getEnclosingElement().getKind() != ElementKind.PACKAGE &&
+                !enclosing.getModifiers().contains(Modifier.STATIC)) {
+                error(type, "@JsonCodec classes cannot be inner classes; make them static");
+                return false;
+            }
+        }
+        for (ExecutableElement constructor : ElementFilter.constructorsIn(type.getEnclosedElements())) {
+            if (constructor.getParameters().isEmpty() && !constructor.getModifiers().contains(Modifier.PRIVATE)) {
+                return true;
+            }
+        }
+        error(type, "@JsonCodec classes need a non-private no-argument constructor");
+        return false;
+    }
+
+    /**
+     * Collects the bound fields of a class and its superclasses, superclass
+     * fields first. A field hides an inherited field of the same name.
+     */
+    private void collect(TypeElement owner, TypeElement type, List<Property> properties) {
+        TypeMirror superclass = type.getSuperclass();
+        if (superclass.getKind() == TypeKind.DECLARED) {
+            TypeElement parent = (TypeElement) ((DeclaredType) superclass).asElement();
+            if (!parent.getQualifiedName().contentEquals("java.lang.Object")) {
+                collect(owner, parent, properties);
+            }
+        }
+        for (VariableElement field : ElementFilter.fieldsIn(type.getEnclosedElements())) {
+            Set<Modifier> modifiers = field.getModifiers();
+            if (modifiers.contains(Modifier.STATIC) || modifiers.contains(Modifier.TRANSIENT)) {
+                continue;
+            }
+            String name = field.getSimpleName().toString();
+            properties.removeIf(property -> property.name.equals(name));
+            properties.add(new Property(owner, field));
+        }
+    }
+
+    private void generate(TypeElement type, List<Property> properties) throws IOException {
+        String packageName = packageOf(type).getQualifiedName().toString();
+        String binaryName = processingEnv.getElementUtils().getBinaryName(type).toString();
+        String simpleName = (packageName.isEmpty() ? binaryName : binaryName.substring(packageName.length() + 1))
+            .replace('$', '_') + SUFFIX;
+        String className = type.getQualifiedName().toString();
+        String binderName = packageName.isEmpty() ? simpleName : packageName + "." + simpleName;
+        boolean generic = properties.stream().anyMatch(property -> property.delegated && property.generic);
+
+        StringBuilder out = new StringBuilder();
+        if (!packageName.isEmpty()) {
+            out.append("package ").append(packageName).append(";\n\n");
+        }
+        out.append("import com.network.serialization.JsonBinder;\n")
+            .append("import com.network.serialization.JsonNames;\n")
+            .append("import com.network.serialization.JsonReader;\n")
+            .append("import com.network.serialization.JsonToken;\n")
+            .append("import com.network.serialization.JsonWriter;\n\n");
+        out.append("/**\n * JSON binder of {@link ").append(className).append("}, generated by ")
+            .append(getClass().getSimpleName()).append(". Do not edit.\n */\n");
+        out.append("public final class ").append(simpleName).append(" implements JsonBinder<")
+            .append(className).append("> {\n\n");
+        out.append("    private static final JsonNames NAMES = JsonNames.of(");
+        for (int i = 0; i < properties.size(); i++) {
+            out.append(i > 0 ? ", " : "").append('"').append(properties.get(i).name).append('"');
+        }
+        out.append(");\n");
+        for (int i = 0; i < properties.size(); i++) {
+            if (properties.get(i).delegated) {
+                out.append("    private static volatile JsonBinder<?> binder").append(i).append(";\n");
+            }
+        }
+
+        out.append("\n    @Override\n    public void write(JsonWriter writer, ").append(className).append(" value) {\n")
+            .append("        writer.beginObject();\n");
+        for (int i = 0; i < properties.size(); i++) {
+            out.append("        writer.name(NAMES, ").append(i).append(");\n");
+            properties.get(i).write(out, i);
+        }
+        out.append("        writer.endObject();\n    }\n");
+
+        out.append("\n    @Override\n    @SuppressWarnings({\"unchecked\", \"rawtypes\"})\n")
+            .append("    public ").append(className).append(" read(JsonReader reader) {\n")
+            .append("        ").append(className).append(" value = new ").append(className).append("();\n")
+            .append("        reader.beginObject();\n")
+            .append("        while (reader.hasNext()) {\n")
+            .append("            switch (reader.nextName(NAMES)) {\n");
+        for (int i = 0; i < properties.size(); i++) {
+            out.append("                case ").append(i).append(":\n");
+            properties.get(i).read(out, i);
+            out.append("                    break;\n");
+        }
+        out.append("                default:\n                    reader.skipValue();\n                    break;\n")
+            .append("            }\n        }\n        reader.endObject();\n        return value;\n    }\n");
+
+        for (int i = 0; i < properties.size(); i++) {
+            Property property = properties.get(i);
+            if (!property.delegated) {
+                continue;
+            }
+            String resolve = property.generic
+                ? "JsonBinder.forType(genericType(\"" + property.name + "\"))"
+                : "JsonBinder.forClass(" + property.erasure + ".class)";
+            out.append("\n    private static JsonBinder<?> binder").append(i).append("() {\n")
+                .append("        JsonBinder<?> binder = binder").append(i).append(";\n")
+                .append("        if (binder == null) {\n")
+                .append("            binder = ").append(resolve).append(";\n")
+                .append("            binder").append(i).append(" = binder;\n")
+                .append("        }\n        return binder;\n    }\n");
+        }
+        if (generic) {
+            out.append("\n    private static java.lang.reflect.Type genericType(String name) {\n")
+                .append("        for (Class<?> type = ").append(className).append(".class; type != null; ")
+                .append("type = type.getSuperclass()) {\n")
+                .append("            try {\n")
+                .append("                return type.getDeclaredField(name).getGenericType();\n")
+                .append("            } catch (NoSuchFieldException e) {\n")
+                .append("                // Declared in a superclass\n")
+                .append("            }\n        }\n")
+                .append("        throw new IllegalStateException(\"No field \" + name);\n    }\n");
+        }
+        out.append("}\n");
+
+        try (Writer writer = processingEnv.getFiler().createSourceFile(binderName, type).openWriter()) {
+            writer.write(out.toString());
+        }
+    }
+
+    private static PackageElement packageOf(Element element) {
+        while (element.getKind() != ElementKind.PACKAGE) {
+            element = element.getEnclosingElement();
+        }
+        return (PackageElement) element;
+    }
+
+    private void error(Element element, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+
+    /**
+     * A bound field and the code that reads and writes it.
+     */
+    private final class Property {
+        final String name;
+        final TypeMirror type;
+        final String erasure;
+        /** Whether the field is bound through the binder of its type. */
+        final boolean delegated;
+        /** Whether the declared type has type arguments, so its binder is resolved from the field. */
+        final boolean generic;
+        final String getter;
+        final String setter;
+        boolean valid = true;
+
+        Property(TypeElement owner, VariableElement field) {
+            this.name = field.getSimpleName().toString();
+            this.type = field.asType();
+            this.erasure = processingEnv.getTypeUtils().erasure(type).toString();
+            this.delegated = inlineKind() == null;
+            this.generic = !processingEnv.getTypeUtils().isSameType(type, processingEnv.getTypeUtils().erasure(type));
+            String packageName = packageOf(owner).getQualifiedName().toString();
+            if (accessible(field, packageName)) {
+                this.getter = "value." + name;
+                this.setter = field.getModifiers().contains(Modifier.FINAL) ? null : "value." + name + " = %s";
+            } else {
+                String capitalized = Character.toUpperCase(name.charAt(0)) + name.substring(1);
+                String found = accessor(owner, packageName, "get" + capitalized, 0);
+                if (found == null && type.getKind() == TypeKind.BOOLEAN) {
+                    found = accessor(owner, packageName, "is" + capitalized, 0);
+                }
+                this.getter = found != null ? "value." + found + "()" : null;
+                found = accessor(owner, packageName, "set" + capitalized, 1);
+                this.setter = found != null ? "value." + found + "(%s)" : null;
+            }
+            if (getter == null) {
+                error(field, "Field " + name + " is not accessible from package " + packageName +
+                             " and has no accessible getter");
+                valid = false;
+            } else if (setter == null) {
+                error(field, "Field " + name + " cannot be assigned from package " + packageName +
+                             " and has no accessible setter");
+                valid = false;
+            }
+        }
+
+        private boolean accessible(Element element, String packageName) {
+            Set<Modifier> modifiers = element.getModifiers();
+            return modifiers.contains(Modifier.PUBLIC) ||
+                   (!modifiers.contains(Modifier.PRIVATE) &&
+                    packageOf(element).getQualifiedName().contentEquals(packageName));
+        }
+
+        private String accessor(TypeElement owner, String packageName, String method, int parameters) {
+            for (ExecutableElement candidate :
+                ElementFilter.methodsIn(processingEnv.getElementUtils().getAllMembers(owner))) {
+                if (!candidate.getSimpleName().contentEquals(method) ||
+                    candidate.getParameters().size() != parameters ||
+                    candidate.getModifiers().contains(Modifier.STATIC) || !accessible(candidate, packageName)) {
+                    continue;
+                }
+                TypeMirror accessed = parameters == 0
+                    ? candidate.getReturnType()
+                    : candidate.getParameters().get(0).asType();
+                if (processingEnv.getTypeUtils().isSameType(accessed, type)) {
+                    return method;
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Gets the reader method of a type that is bound inline.
+         *
+         * @return the method name, or null if the type is delegated
+         */
+        private String inlineKind() {
+            switch (type.getKind()) {
+                case INT:
+                    return "nextInt";
+                case LONG:
+                    return "nextLong";
+                case DOUBLE:
+                    return "nextDouble";
+                case BOOLEAN:
+                    return "nextBoolean";
+                case DECLARED:
+                    switch (erasure) {
+                        case "java.lang.String":
+                            return "nextString";
+                        case "java.lang.Integer":
+                            return "nextInt";
+                        case "java.lang.Long":
+                            return "nextLong";
+                        case "java.lang.Double":
+                            return "nextDouble";
+                        case "java.lang.Boolean":
+                            return "nextBoolean";
+                        default:
+                            return null;
+                    }
+                default:
+                    return null;
+            }
+        }
+
+        void write(StringBuilder out, int index) {
+            String indent = "        ";
+            if (delegated) {
+                out.append(indent).append("JsonBinder.writeNullable(writer, binder").append(index).append("(), ")
+                    .append(erasure).append(".class, ").append(getter).append(");\n");
+            } else if (type.getKind().isPrimitive() || erasure.equals("java.lang.String")) {
+                out.append(indent).append("writer.value(").append(getter).append(");\n");
+            } else if (erasure.equals("java.lang.Boolean")) {
+                out.append(indent).append("{\n")
+                    .append(indent).append("    Boolean flag = ").append(getter).append(";\n")
+                    .append(indent).append("    if (flag == null) {\n")
+                    .append(indent).append("        writer.nullValue();\n")
+                    .append(indent).append("    } else {\n")
+                    .append(indent).append("        writer.value(flag.booleanValue());\n")
+                    .append(indent).append("    }\n")
+                    .append(indent).append("}\n");
+            } else {
+                out.append(indent).append("writer.value((Number) ").append(getter).append(");\n");
+            }
+        }
+
+        void read(StringBuilder out, int index) {
+            String indent = "                    ";
+            boolean primitive = type.getKind().isPrimitive();
+            if (delegated && !primitive) {
+                String boxed = "(" + erasure + ") JsonBinder.readNullable(reader, binder" + index + "())";
+                out.append(indent).append(String.format(setter, boxed)).append(";\n");
+                return;
+            }
+            String next = delegated
+                ? "(" + processingEnv.getTypeUtils().boxedClass(processingEnv.getTypeUtils().getPrimitiveType(
+                    type.getKind())).getQualifiedName() + ") binder" + index + "().read(reader)"
+                : "reader." + inlineKind() + "()";
+            out.append(indent).append("if (reader.peek() == JsonToken.NULL) {\n")
+                .append(indent).append("    reader.nextNull();\n");
+            if (!primitive) {
+                out.append(indent).append("    ").append(String.format(setter, "null")).append(";\n");
+            }
+            out.append(indent).append("} else {\n")
+                .append(indent).append("    ").append(String.format(setter, next)).append(";\n")
+                .append(indent).append("}\n");
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.network.api.http;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HttpHeadersTest {
+
+    @Test
+    void lookupsIgnoreCase() {
+        HttpHeaders headers = new HttpHeaders().add("Content-Type", "text/plain");
+
+        assertEquals("text/plain", headers.get("content-type"));
+        assertEquals("text/plain", headers.asMap().get("CONTENT-TYPE"));
+        assertTrue(headers.contains("Content-type"));
+        assertNull(headers.get("Content-Length"));
+    }
+
+    @Test
+    void repeatedHeadersKeepAllValuesInOrder() {
+        HttpHeaders headers = new HttpHeaders()
+            .add("Accept", "text/html")
+            .add("X-Other", "1")
+            .add("accept", "application/json");
+
+        assertEquals("text/html", headers.get("Accept"));
+        assertEquals(List.of("text/html", "application/json"), headers.getAll("ACCEPT"));
+        assertEquals("text/html, application/json", headers.getCombined("Accept"));
+        assertEquals(3, headers.size());
+    }
+
+    @Test
+    void setReplacesAllValuesAndRemoveDeletesThem() {
+        HttpHeaders headers = new HttpHeaders().add("Accept", "a").add("Accept", "b").add("Host", "h");
+
+        headers.set("accept", "c");
+        assertEquals(List.of("c"), headers.getAll("Accept"));
+
+        assertTrue(headers.remove("ACCEPT"));
+        assertFalse(headers.remove("Accept"));
+        assertFalse(headers.contains("Accept"));
+        assertEquals("h", headers.get("Host"));
+        assertEquals(1, headers.size());
+    }
+
+    @Test
+    void manyHeadersSurviveGrowthAndRemoval() {
+        HttpHeaders headers = new HttpHeaders();
+        for (int i = 0; i < 100; i++) {
+            headers.add("X-Header-" + i, Integer.toString(i));
+        }
+        for (int i = 0; i < 100; i += 2) {
+            headers.remove("x-header-" + i);
+        }
+        for (int i = 100; i < 150; i++) {
+            headers.add("X-Header-" + i, Integer.toString(i));
+        }
+
+        assertEquals(100, headers.size());
+        for (int i = 0; i < 150; i++) {
+            assertEquals(i < 100 && i % 2 == 0 ? null : Integer.toString(i), headers.get("X-HEADER-" + i));
+        }
+        List<String> order = new ArrayList<>();
+        headers.forEach((name, value) -> order.add(value));
+        assertEquals("1", order.get(0));
+        assertEquals("149", order.get(order.size() - 1));
+    }
+
+    @Test
+    void snapshotIsImmutableAndUnaffectedByLaterChanges() {
+        HttpHeaders headers = new HttpHeaders().add("Accept", "a");
+        HttpHeaders snapshot = headers.snapshot();
+
+        headers.set("Accept", "b").add("Host", "h");
+
+        assertTrue(snapshot.isImmutable());
+        assertEquals("a", snapshot.get("Accept"));
+        assertFalse(snapshot.contains("Host"));
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.add("Host", "h"));
+    }
+
+    @Test
+    void copiesDoNotAffectEachOther() {
+        HttpHeaders original = new HttpHeaders().add("Accept", "a");
+        HttpHeaders copy = original.copy();
+
+        copy.set("Accept", "b");
+        original.add("Host", "h");
+
+        assertEquals("a", original.get("Accept"));
+        assertEquals("b", copy.get("Accept"));
+        assertFalse(copy.contains("Host"));
+    }
+
+    @Test
+    void copyOfAMapViewSharesItsHeaders() {
+        Map<String, String> map = new LinkedHashMap<>();
+        map.put("Accept", "a");
+        map.put("Host", "h");
+        HttpHeaders headers = HttpHeaders.copyOf(map);
+
+        HttpHeaders again = HttpHeaders.copyOf(headers.snapshot().asMap());
+
+        assertEquals("a", again.get("accept"));
+        assertEquals(2, again.asMap().size());
+        assertFalse(again.isImmutable());
+    }
+
+    @Test
+    void invalidNamesAndValuesAreRejected() {
+        HttpHeaders headers = new HttpHeaders();
+
+        assertThrows(IllegalArgumentException.class, () -> headers.add(null, "v"));
+        assertThrows(IllegalArgumentException.class, () -> headers.add("Accept", null));
+    }
+}
@@ -0,0 +1,64 @@
+package com.network.api.http;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HttpRequestContextTest {
+
+    private static final AttributeKey<String> TENANT = AttributeKey.of("test.tenant", String.class);
+    private static final AttributeKey.IntKey ATTEMPT = AttributeKey.intKey("test.attempt");
+
+    private final HttpRequestContext context = new HttpRequestContext();
+
+    @Test
+    void attributeSetByNameIsVisibleThroughItsKey() {
+        context.setAttribute("test.tenant", "acme");
+        context.setAttribute("test.attempt", 3);
+
+        assertEquals("acme", context.get(TENANT));
+        assertEquals(3, context.getInt(ATTEMPT));
+        assertEquals("acme", context.getAttribute("test.tenant"));
+    }
+
+    @Test
+    void valueOfAnotherTypeIsKeptByName() {
+        context.set(TENANT, "acme");
+        context.setAttribute("test.tenant", 42);
+
+        assertNull(context.get(TENANT));
+        assertEquals(42, context.getAttribute("test.tenant"));
+        assertTrue(context.hasAttribute("test.tenant"));
+        assertEquals(42, context.getAttributes().get("test.tenant"));
+    }
+
+    @Test
+    void valueOfTheKeyTypeReplacesOneKeptByName() {
+        context.setAttribute("test.tenant", 42);
+        context.setAttribute("test.tenant", "acme");
+
+        assertEquals("acme", context.get(TENANT));
+        assertEquals("acme", context.getAttribute("test.tenant"));
+        assertEquals("acme", context.removeAttribute("test.tenant"));
+        assertFalse(context.hasAttribute("test.tenant"));
+    }
+
+    @Test
+    void removingByNameClearsBothKinds() {
+        context.setAttribute("test.attempt", "first");
+        context.setInt(ATTEMPT, 2);
+
+        assertEquals(2, context.removeAttribute("test.attempt"));
+        assertNull(context.getAttribute("test.attempt"));
+    }
+
+    @Test
+    void keyNamesAreUniquePerType() {
+        assertEquals(TENANT, AttributeKey.of("test.tenant", String.class));
+        assertThrows(IllegalArgumentException.class, () -> AttributeKey.of("test.tenant", Integer.class));
+    }
+}
@@ -0,0 +1,36 @@
+package com.network.api.http;
+
+import com.network.middleware.http.TestRequest;
+import com.network.middleware.http.TestResponse;
+import com.network.serialization.StreamingJsonSerializer;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class HttpResponseTest {
+
+    @Test
+    void elementsAreDecodedWithTheSerializerOfTheRequest() {
+        TestRequest request = TestRequest.get("http://example.com/items");
+        request.getContext().set(HttpRequestContext.SERIALIZER, new StreamingJsonSerializer());
+        TestResponse response = TestResponse.ok(request, "[\"a\", \"b\"]", "Content-Type", "application/json");
+
+        try (Stream<String> items = response.getBodyAsElements(String.class)) {
+            assertEquals(List.of("a", "b"), items.collect(Collectors.toList()));
+        }
+        assertEquals(1, response.closed());
+    }
+
+    @Test
+    void decodingWithoutASerializerFails() {
+        TestResponse response = TestResponse.ok(TestRequest.get("http://example.com/items"), "[]");
+
+        assertThrows(IllegalStateException.class, () -> response.getBodyAsIterator(String.class));
+    }
+}
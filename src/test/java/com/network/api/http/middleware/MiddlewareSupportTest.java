@@ -0,0 +1,34 @@
+package com.network.api.http.middleware;
+
+import com.network.middleware.http.TestRequest;
+import com.network.middleware.http.TestResponse;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MiddlewareSupportTest {
+
+    @Test
+    void discardClosesTheBodyStream() {
+        TestResponse response = TestResponse.ok(TestRequest.get("http://example.com/"), "body");
+
+        MiddlewareSupport.discard(response);
+        MiddlewareSupport.discard(null);
+
+        assertEquals(1, response.closed());
+    }
+
+    @Test
+    void cancellingADerivedFutureCancelsItsSource() {
+        CompletableFuture<String> source = new CompletableFuture<>();
+        CompletableFuture<Integer> derived = MiddlewareSupport.forwardCancellation(source.thenApply(String::length), source);
+
+        derived.cancel(true);
+
+        assertTrue(source.isCancelled());
+    }
+}
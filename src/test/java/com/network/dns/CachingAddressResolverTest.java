@@ -0,0 +1,146 @@
+package com.network.dns;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CachingAddressResolverTest {
+
+    private final AtomicInteger lookups = new AtomicInteger();
+    private volatile AddressResolver hosts = hosts("192.0.2.1");
+    private volatile CompletableFuture<List<InetAddress>> pending;
+
+    /**
+     * Counts lookups and answers them from {@link #hosts}, or with {@link #pending} if it is set.
+     */
+    private final AddressResolver delegate = host -> {
+        lookups.incrementAndGet();
+        CompletableFuture<List<InetAddress>> future = pending;
+        return future != null ? future : hosts.resolve(host);
+    };
+
+    private static AddressResolver hosts(String... addresses) {
+        return StaticAddressResolver.builder().withHost("example.com", addresses).build();
+    }
+
+    private static List<InetAddress> addresses(String... literals) throws Exception {
+        return hosts(literals).resolve("example.com").get();
+    }
+
+    private CachingAddressResolver.Builder caching() {
+        return CachingAddressResolver.builder().withDelegate(delegate);
+    }
+
+    @Test
+    void addressesAreCachedForTheirTtl() throws Exception {
+        CachingAddressResolver resolver = caching().withTtl(Duration.ofMillis(50)).withRefreshAhead(1).build();
+
+        assertEquals(addresses("192.0.2.1"), resolver.resolve("example.com").get());
+        assertEquals(addresses("192.0.2.1"), resolver.resolve("EXAMPLE.com").get());
+        assertEquals(1, lookups.get());
+
+        Thread.sleep(80);
+        hosts = hosts("192.0.2.2");
+        assertEquals(addresses("192.0.2.2"), resolver.resolve("example.com").get());
+        assertEquals(2, lookups.get());
+    }
+
+    @Test
+    void concurrentLookupsShareOneLookup() throws Exception {
+        CachingAddressResolver resolver = caching().build();
+        pending = new CompletableFuture<>();
+
+        CompletableFuture<List<InetAddress>> first = resolver.resolve("example.com");
+        CompletableFuture<List<InetAddress>> second = resolver.resolve("example.com");
+        assertFalse(first.isDone());
+        pending.complete(addresses("192.0.2.3"));
+
+        assertSame(first, second);
+        assertEquals(addresses("192.0.2.3"), second.get());
+        assertEquals(1, lookups.get());
+    }
+
+    @Test
+    void hotEntryIsRefreshedInTheBackground() throws Exception {
+        CachingAddressResolver resolver = caching().withTtl(Duration.ofMillis(200)).withRefreshAhead(0.25).build();
+        resolver.resolve("example.com").get();
+        Thread.sleep(80);
+
+        pending = new CompletableFuture<>();
+        // The cached addresses are returned while the refresh runs
+        CompletableFuture<List<InetAddress>> during = resolver.resolve("example.com");
+        assertTrue(during.isDone());
+        assertEquals(addresses("192.0.2.1"), during.get());
+        resolver.resolve("example.com");
+        assertEquals(2, lookups.get());
+
+        pending.complete(addresses("192.0.2.4"));
+        assertEquals(addresses("192.0.2.4"), resolver.resolve("example.com").get());
+        assertEquals(2, lookups.get());
+    }
+
+    @Test
+    void staleAddressesAreUsedWhileLookupsFail() throws Exception {
+        CachingAddressResolver resolver = caching().withTtl(Duration.ofMillis(30)).withRefreshAhead(1)
+            .withNegativeTtl(Duration.ofMillis(30)).withMaxStale(Duration.ofSeconds(10)).build();
+        resolver.resolve("example.com").get();
+        hosts = StaticAddressResolver.builder().build();
+        Thread.sleep(50);
+
+        assertEquals(addresses("192.0.2.1"), resolver.resolve("example.com").get(5, TimeUnit.SECONDS));
+        assertEquals(addresses("192.0.2.1"), resolver.resolve("example.com").get(5, TimeUnit.SECONDS));
+        assertEquals(2, lookups.get());
+
+        // The lookup is retried after the negative time to live
+        hosts = hosts("192.0.2.5");
+        Thread.sleep(50);
+        assertEquals(addresses("192.0.2.5"), resolver.resolve("example.com").get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void failuresAreCachedForTheNegativeTtl() throws Exception {
+        CachingAddressResolver resolver = caching().withNegativeTtl(Duration.ofMillis(50))
+            .withMaxStale(Duration.ZERO).build();
+        hosts = StaticAddressResolver.builder().build();
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> resolver.resolve("example.com").get());
+        assertTrue(e.getCause() instanceof UnknownHostException);
+        assertThrows(ExecutionException.class, () -> resolver.resolve("example.com").get());
+        assertEquals(1, lookups.get());
+
+        hosts = hosts("192.0.2.6");
+        Thread.sleep(80);
+        assertEquals(addresses("192.0.2.6"), resolver.resolve("example.com").get());
+    }
+
+    @Test
+    void cacheIsBoundedAndCanBeInvalidated() throws Exception {
+        CachingAddressResolver resolver = caching().withMaxEntries(2).build();
+        List<InetAddress> addresses = addresses("192.0.2.7");
+        hosts = host -> CompletableFuture.completedFuture(addresses);
+
+        for (int i = 0; i < 5; i++) {
+            resolver.resolve("host" + i + ".example.com").get();
+        }
+        assertEquals(2, resolver.size());
+
+        resolver.invalidateAll();
+        assertEquals(0, resolver.size());
+        resolver.resolve("example.com").get();
+        resolver.invalidate("EXAMPLE.COM");
+        assertEquals(0, resolver.size());
+    }
+}
@@ -0,0 +1,138 @@
+package com.network.dns;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HappyEyeballsTest {
+
+    private static final Duration DELAY = Duration.ofMillis(30);
+
+    private final AddressResolver resolver = StaticAddressResolver.builder()
+        .withHost("example.com", "192.0.2.1", "192.0.2.2", "2001:db8::1", "2001:db8::2")
+        .build();
+
+    /** Connection attempts in the order they were started. */
+    private final List<String> started = new CopyOnWriteArrayList<>();
+    private final Map<String, CompletableFuture<TestConnection>> attempts = new ConcurrentHashMap<>();
+
+    private CompletableFuture<TestConnection> connect(Duration delay) {
+        return HappyEyeballs.connect(resolver, "example.com", 443, delay, target -> {
+            String address = target.getAddress().getHostAddress();
+            started.add(address);
+            CompletableFuture<TestConnection> attempt = new CompletableFuture<>();
+            attempts.put(address, attempt);
+            return attempt;
+        });
+    }
+
+    @Test
+    void addressFamiliesAlternateStartingWithIpv6() throws Exception {
+        List<InetAddress> ordered = HappyEyeballs.interleave(resolver.resolve("example.com").get());
+
+        assertEquals(List.of("2001:db8:0:0:0:0:0:1", "192.0.2.1", "2001:db8:0:0:0:0:0:2", "192.0.2.2"),
+                     ordered.stream().map(InetAddress::getHostAddress).toList());
+    }
+
+    @Test
+    void fastAttemptIsTheOnlyOne() throws Exception {
+        CompletableFuture<TestConnection> result = connect(DELAY);
+        TestConnection connection = new TestConnection();
+        attempts.get("2001:db8:0:0:0:0:0:1").complete(connection);
+
+        assertSame(connection, result.get(5, TimeUnit.SECONDS));
+        Thread.sleep(DELAY.toMillis() * 3);
+        assertEquals(1, started.size());
+    }
+
+    @Test
+    void slowAttemptIsRacedAfterTheDelay() throws Exception {
+        long start = System.nanoTime();
+        CompletableFuture<TestConnection> result = connect(DELAY);
+        awaitAttempts(2);
+        assertTrue(System.nanoTime() - start >= DELAY.toNanos());
+        assertEquals("192.0.2.1", started.get(1));
+
+        TestConnection winner = new TestConnection();
+        attempts.get("192.0.2.1").complete(winner);
+        assertSame(winner, result.get(5, TimeUnit.SECONDS));
+
+        // A connection that succeeds after the race is over is closed
+        TestConnection late = new TestConnection();
+        attempts.get("2001:db8:0:0:0:0:0:1").complete(late);
+        assertTrue(late.closed);
+        assertFalse(winner.closed);
+    }
+
+    @Test
+    void failedAttemptStartsTheNextOneAtOnce() throws Exception {
+        CompletableFuture<TestConnection> result = connect(Duration.ofSeconds(30));
+
+        attempts.get("2001:db8:0:0:0:0:0:1").completeExceptionally(new ConnectException("refused"));
+        assertEquals(2, started.size());
+        TestConnection connection = new TestConnection();
+        attempts.get("192.0.2.1").complete(connection);
+
+        assertSame(connection, result.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void raceFailsWithTheFirstErrorWhenEveryAttemptFails() {
+        CompletableFuture<TestConnection> result = HappyEyeballs.connect(resolver, "example.com", 443, DELAY,
+            target -> CompletableFuture.failedFuture(
+                new ConnectException(target.getAddress().getHostAddress())));
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS));
+        assertEquals("2001:db8:0:0:0:0:0:1", e.getCause().getMessage());
+        assertEquals(3, e.getCause().getSuppressed().length);
+    }
+
+    @Test
+    void unknownHostFailsWithoutAttempts() {
+        CompletableFuture<TestConnection> result = HappyEyeballs.connect(resolver, "other.example.com", 443, DELAY,
+            target -> {
+                started.add(target.toString());
+                return new CompletableFuture<>();
+            });
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS));
+        assertTrue(e.getCause() instanceof UnknownHostException);
+        assertTrue(started.isEmpty());
+        assertTrue(HappyEyeballs.connect(List.of(), 443, DELAY,
+            (InetSocketAddress target) -> new CompletableFuture<TestConnection>()).isCompletedExceptionally());
+    }
+
+    private void awaitAttempts(int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (started.size() < count && System.nanoTime() - deadline < 0) {
+            Thread.sleep(1);
+        }
+        assertEquals(count, started.size());
+    }
+
+    private static final class TestConnection implements AutoCloseable {
+        volatile boolean closed;
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+}
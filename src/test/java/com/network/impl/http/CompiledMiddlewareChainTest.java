@@ -0,0 +1,46 @@
+package com.network.impl.http;
+
+import com.network.api.http.HttpMethod;
+import com.network.api.http.HttpRequestContext;
+import com.network.api.http.HttpResponse;
+import com.network.serialization.Serializer;
+import com.network.serialization.StreamingJsonSerializer;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class CompiledMiddlewareChainTest {
+
+    private static DefaultHttpRequest get() {
+        return new DefaultHttpRequest(URI.create("http://example.com/"), HttpMethod.GET, Map.of(), null, null);
+    }
+
+    @Test
+    void requestsCarryTheSerializerOfTheClient() {
+        Serializer serializer = new StreamingJsonSerializer();
+        CompiledMiddlewareChain chain = new CompiledMiddlewareChain(List.of(), serializer);
+        DefaultHttpRequest request = get();
+
+        chain.bindAsync(next -> CompletableFuture.<HttpResponse<?>>completedFuture(null)).next(request);
+
+        assertSame(serializer, request.getContext().get(HttpRequestContext.SERIALIZER));
+    }
+
+    @Test
+    void serializerOfTheRequestIsKept() {
+        Serializer own = new StreamingJsonSerializer();
+        CompiledMiddlewareChain chain = new CompiledMiddlewareChain(List.of(), new StreamingJsonSerializer());
+        DefaultHttpRequest request = get();
+        request.getContext().set(HttpRequestContext.SERIALIZER, own);
+
+        chain.bind(next -> null).next(request);
+
+        assertSame(own, request.getContext().get(HttpRequestContext.SERIALIZER));
+    }
+}
@@ -0,0 +1,46 @@
+package com.network.impl.http;
+
+import com.network.buffer.BufferPool;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DefaultHttpClientConfigTest {
+
+    private static DefaultHttpClientConfig copy(DefaultHttpClientConfig.Builder builder) {
+        return new DefaultHttpClientConfig(new DefaultHttpClientConfig.Builder(new DefaultHttpClientConfig(builder)));
+    }
+
+    @Test
+    void copySharesTheBufferPool() {
+        BufferPool pool = BufferPool.builder().build();
+
+        assertSame(pool, copy(new DefaultHttpClientConfig.Builder().withBufferPool(pool)).getBufferPool());
+    }
+
+    @Test
+    void copySharesTheAddressResolver() {
+        DefaultHttpClientConfig config = new DefaultHttpClientConfig(new DefaultHttpClientConfig.Builder());
+
+        DefaultHttpClientConfig copy = new DefaultHttpClientConfig(new DefaultHttpClientConfig.Builder(config));
+
+        assertSame(config.getAddressResolver(), copy.getAddressResolver());
+    }
+
+    @Test
+    void copyKeepsTheProtocolSettings() {
+        DefaultHttpClientConfig copy = copy(new DefaultHttpClientConfig.Builder()
+            .withHttp2(true)
+            .withPipelining(true)
+            .withMaxPipelineDepth(4)
+            .withResponseStreaming(true));
+
+        assertTrue(copy.isHttp2Enabled());
+        assertTrue(copy.isPipeliningEnabled());
+        assertEquals(4, copy.getMaxPipelineDepth());
+        assertTrue(copy.isResponseStreamingEnabled());
+    }
+}
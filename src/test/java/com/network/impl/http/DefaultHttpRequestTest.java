@@ -0,0 +1,65 @@
+package com.network.impl.http;
+
+import com.network.api.http.HttpMethod;
+import com.network.api.http.HttpRequest;
+import com.network.api.http.HttpRequestBody;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DefaultHttpRequestTest {
+
+    private final AtomicInteger subscriptions = new AtomicInteger();
+
+    private HttpRequestBody streaming(String content) {
+        return HttpRequestBody.ofPublisher(subscriber -> {
+            subscriptions.incrementAndGet();
+            SubmissionPublisher<ByteBuffer> publisher = new SubmissionPublisher<>(Runnable::run, 1);
+            publisher.subscribe(subscriber);
+            publisher.submit(ByteBuffer.wrap(content.getBytes(StandardCharsets.UTF_8)));
+            publisher.close();
+        }, -1);
+    }
+
+    private static DefaultHttpRequest post(HttpRequestBody body) {
+        return DefaultHttpRequest.withBody(URI.create("http://example.com/a"), HttpMethod.POST, Map.of(), body, null);
+    }
+
+    @Test
+    void streamingBodyIsBufferedOnceAndStillSent() {
+        DefaultHttpRequest request = post(streaming("payload"));
+
+        assertEquals("payload", new String(request.getBody(), StandardCharsets.UTF_8));
+        assertEquals("payload", new String(request.getBody(), StandardCharsets.UTF_8));
+
+        HttpRequestBody body = request.getRequestBody();
+        assertTrue(body.isRepeatable());
+        assertEquals("payload", new String(body.toByteArray(), StandardCharsets.UTF_8));
+        assertEquals(1, subscriptions.get());
+    }
+
+    @Test
+    void replacedStreamingBodyIsBufferedOnce() {
+        HttpRequest request = post(null).withBody(streaming("replaced"));
+
+        assertEquals("replaced", new String(request.getBody(), StandardCharsets.UTF_8));
+        assertEquals("replaced", new String(request.getRequestBody().toByteArray(), StandardCharsets.UTF_8));
+        assertEquals(1, subscriptions.get());
+    }
+
+    @Test
+    void emptyBodyReadsAsNull() {
+        assertNull(post(null).getBody());
+        assertNull(post(null).withBody(HttpRequestBody.empty()).getBody());
+    }
+}
@@ -0,0 +1,72 @@
+package com.network.impl.http;
+
+import com.network.serialization.CborSerializer;
+import com.network.serialization.ContentNegotiatingSerializer;
+import com.network.serialization.ElementIterator;
+import com.network.serialization.StreamingJsonSerializer;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DefaultHttpResponseTest {
+
+    private static final URI ITEMS = URI.create("http://example.com/items");
+
+    private final ContentNegotiatingSerializer serializer =
+        new ContentNegotiatingSerializer(new CborSerializer(), new StreamingJsonSerializer());
+
+    @Test
+    void elementsOfAJsonBodyAreDecoded() {
+        DefaultHttpResponse<Object> response = response("application/json",
+            "[{\"name\":\"a\",\"count\":1},{\"name\":\"b\",\"count\":2}]".getBytes(StandardCharsets.UTF_8));
+
+        try (Stream<Item> items = response.getBodyAsElements(Item.class)) {
+            assertEquals(List.of("a1", "b2"), items.map(item -> item.name + item.count).collect(Collectors.toList()));
+        }
+    }
+
+    @Test
+    void elementsOfACborBodyAreDecodedWithTheCborSerializer() {
+        Item first = new Item();
+        first.name = "a";
+        first.count = 1;
+        Item second = new Item();
+        second.name = "b";
+        second.count = 2;
+        byte[] body = new CborSerializer().serialize(List.of(first, second));
+
+        try (ElementIterator<Item> items = response(CborSerializer.CONTENT_TYPE, body).getBodyAsIterator(Item.class)) {
+            assertTrue(items.hasNext());
+            assertEquals("a", items.next().name);
+            assertEquals(2, items.next().count);
+            assertFalse(items.hasNext());
+        }
+    }
+
+    @Test
+    void nullDocumentHasNoElements() {
+        try (Stream<Item> items = response("application/json", "null".getBytes(StandardCharsets.UTF_8))
+                 .getBodyAsElements(Item.class)) {
+            assertEquals(0, items.count());
+        }
+    }
+
+    private DefaultHttpResponse<Object> response(String contentType, byte[] body) {
+        return new DefaultHttpResponse<>(200, body, Map.of("Content-Type", contentType), ITEMS, null, serializer, null);
+    }
+
+    static final class Item {
+        String name;
+        int count;
+    }
+}
@@ -0,0 +1,75 @@
+package com.network.impl.http;
+
+import com.network.api.connection.Connection;
+import com.network.api.connection.ConnectionListener;
+import com.network.api.connection.Protocol;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * In-memory connection that records what is sent and lets a test play the server.
+ */
+final class FakeConnection implements Connection {
+    private final ConnectionListener listener;
+    private final ByteArrayOutputStream sent = new ByteArrayOutputStream();
+    private volatile boolean connected = true;
+
+    FakeConnection(ConnectionListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Delivers data from the server to the listener of the connection.
+     *
+     * @param data the response bytes, as ISO-8859-1 text
+     */
+    void receive(String data) {
+        listener.onDataReceived(this, ByteBuffer.wrap(data.getBytes(StandardCharsets.ISO_8859_1)));
+    }
+
+    /**
+     * Simulates the server closing the connection.
+     */
+    void disconnect() {
+        connected = false;
+        listener.onDisconnect(this);
+    }
+
+    /**
+     * Gets everything written to the connection.
+     *
+     * @return the sent bytes, as ISO-8859-1 text
+     */
+    synchronized String sent() {
+        return new String(sent.toByteArray(), StandardCharsets.ISO_8859_1);
+    }
+
+    @Override
+    public synchronized void send(byte[] data) {
+        sent.write(data, 0, data.length);
+    }
+
+    @Override
+    public synchronized void send(ByteBuffer data) {
+        byte[] bytes = new byte[data.remaining()];
+        data.get(bytes);
+        sent.write(bytes, 0, bytes.length);
+    }
+
+    @Override
+    public boolean isConnected() {
+        return connected;
+    }
+
+    @Override
+    public Protocol getProtocol() {
+        return Protocol.HTTP;
+    }
+
+    @Override
+    public void close() {
+        connected = false;
+    }
+}
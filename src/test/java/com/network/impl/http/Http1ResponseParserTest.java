@@ -0,0 +1,157 @@
+package com.network.impl.http;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class Http1ResponseParserTest {
+
+    private final Recorder recorder = new Recorder();
+    private final Http1ResponseParser parser = new Http1ResponseParser(recorder);
+
+    @Test
+    void fixedLengthBodySplitAcrossBuffers() {
+        String response = "HTTP/1.1 200 OK\r\nContent-Length: 5\r\nX-Id: 7\r\n\r\nhello";
+        for (byte b : response.getBytes(StandardCharsets.ISO_8859_1)) {
+            parser.feed(new byte[] {b});
+        }
+
+        assertEquals(List.of("200 hello"), recorder.responses);
+        assertEquals("7", recorder.lastHeaders.get("x-id"));
+        assertTrue(parser.isIdle());
+    }
+
+    @Test
+    void chunkedBodyWithExtensionsAndTrailers() {
+        feed("HTTP/1.1 200 OK\r\nTransfer-Encoding: chunked\r\n\r\n"
+             + "5;name=value\r\nhello\r\n1\r\n!\r\n0\r\nX-Checksum: 1\r\n\r\n");
+
+        assertEquals(List.of("200 hello!"), recorder.responses);
+        assertTrue(parser.isIdle());
+    }
+
+    @Test
+    void pipelinedResponsesInOneBuffer() {
+        feed("HTTP/1.1 200 OK\r\nContent-Length: 1\r\n\r\na"
+             + "HTTP/1.1 404 Not Found\r\nContent-Length: 0\r\n\r\n"
+             + "HTTP/1.1 200 OK\r\nTransfer-Encoding: chunked\r\n\r\n1\r\nc\r\n0\r\n\r\n");
+
+        assertEquals(List.of("200 a", "404 ", "200 c"), recorder.responses);
+    }
+
+    @Test
+    void interimResponsesAreSkipped() {
+        feed("HTTP/1.1 100 Continue\r\n\r\nHTTP/1.1 201 Created\r\nContent-Length: 2\r\n\r\nok");
+
+        assertEquals(List.of("201 ok"), recorder.responses);
+    }
+
+    @Test
+    void responsesWithoutBodyIgnoreContentLength() {
+        recorder.expectsBody = false;
+        feed("HTTP/1.1 200 OK\r\nContent-Length: 10\r\n\r\n");
+        recorder.expectsBody = true;
+        feed("HTTP/1.1 304 Not Modified\r\nContent-Length: 10\r\n\r\n");
+
+        assertEquals(List.of("200 ", "304 "), recorder.responses);
+        assertTrue(parser.isIdle());
+    }
+
+    @Test
+    void bodyDelimitedByTheEndOfTheConnection() {
+        feed("HTTP/1.0 200 OK\r\n\r\nuntil ");
+        feed("close");
+        assertTrue(recorder.responses.isEmpty());
+
+        assertTrue(parser.endOfInput());
+        assertEquals(List.of("200 until close"), recorder.responses);
+    }
+
+    @Test
+    void truncatedResponseIsNotComplete() {
+        feed("HTTP/1.1 200 OK\r\nContent-Length: 10\r\n\r\nshort");
+
+        assertFalse(parser.endOfInput());
+        assertTrue(recorder.responses.isEmpty());
+    }
+
+    @Test
+    void repeatedContentLengthMustAgree() {
+        feed("HTTP/1.1 200 OK\r\nContent-Length: 2\r\ncontent-length: 2\r\n\r\nok"
+             + "HTTP/1.1 200 OK\r\nContent-Length: 3, 3\r\n\r\nyes");
+        assertEquals(List.of("200 ok", "200 yes"), recorder.responses);
+
+        assertThrows(Http1ResponseParser.ParseException.class,
+            () -> new Http1ResponseParser(new Recorder())
+                .feed(bytes("HTTP/1.1 200 OK\r\nContent-Length: 2\r\nContent-Length: 20\r\n\r\nok")));
+        assertThrows(Http1ResponseParser.ParseException.class,
+            () -> new Http1ResponseParser(new Recorder())
+                .feed(bytes("HTTP/1.1 200 OK\r\nContent-Length: 2, 20\r\n\r\nok")));
+    }
+
+    @Test
+    void malformedInputFails() {
+        assertThrows(Http1ResponseParser.ParseException.class, () -> feed("HTTP/2 200 OK\r\n\r\n"));
+        assertThrows(Http1ResponseParser.ParseException.class,
+            () -> new Http1ResponseParser(new Recorder()).feed(bytes("HTTP/1.1 200 OK\r\nContent-Length: ten\r\n\r\n")));
+        assertThrows(Http1ResponseParser.ParseException.class,
+            () -> new Http1ResponseParser(new Recorder()).feed(bytes("HTTP/1.1 200 OK\r\nContent-Length: -1\r\n\r\n")));
+        assertThrows(Http1ResponseParser.ParseException.class,
+            () -> new Http1ResponseParser(new Recorder()).feed(bytes("HTTP/1.1 200 OK\r\nContent-Length: 1 2\r\n\r\n")));
+        assertThrows(Http1ResponseParser.ParseException.class,
+            () -> new Http1ResponseParser(new Recorder())
+                .feed(bytes("HTTP/1.1 200 OK\r\nTransfer-Encoding: chunked\r\n\r\nzz\r\n")));
+    }
+
+    private void feed(String data) {
+        parser.feed(bytes(data));
+    }
+
+    private static byte[] bytes(String data) {
+        return data.getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Listener that records each response as its status code and body.
+     */
+    private static final class Recorder implements Http1ResponseParser.Listener {
+        final List<String> responses = new ArrayList<>();
+        final ByteArrayOutputStream body = new ByteArrayOutputStream();
+        boolean expectsBody = true;
+        HttpHeaderBlock lastHeaders;
+        int statusCode;
+
+        @Override
+        public boolean expectsBody() {
+            return expectsBody;
+        }
+
+        @Override
+        public void onHead(int statusCode, HttpHeaderBlock headers) {
+            this.statusCode = statusCode;
+            this.lastHeaders = headers;
+            body.reset();
+        }
+
+        @Override
+        public void onBody(ByteBuffer chunk) {
+            byte[] bytes = new byte[chunk.remaining()];
+            chunk.get(bytes);
+            body.write(bytes, 0, bytes.length);
+        }
+
+        @Override
+        public void onComplete() {
+            responses.add(statusCode + " " + new String(body.toByteArray(), StandardCharsets.ISO_8859_1));
+        }
+    }
+}
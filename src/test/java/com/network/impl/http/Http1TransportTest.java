@@ -0,0 +1,223 @@
+package com.network.impl.http;
+
+import com.network.api.connection.Connection;
+import com.network.api.connection.ConnectionListener;
+import com.network.api.http.HttpMethod;
+import com.network.api.http.HttpResponse;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+class Http1TransportTest {
+
+    private static final URI URI_A = URI.create("http://example.com/a");
+
+    private final List<FakeConnection> connections = new CopyOnWriteArrayList<>();
+    private Http1Transport transport;
+
+    private Http1Transport transport(DefaultHttpClientConfig.Builder builder) {
+        transport = new Http1Transport((route, listener) -> {
+            FakeConnection connection = new FakeConnection(listener);
+            connections.add(connection);
+            return CompletableFuture.completedFuture(connection);
+        }, new DefaultHttpClientConfig(builder));
+        return transport;
+    }
+
+    @AfterEach
+    void close() {
+        if (transport != null) {
+            transport.close();
+        }
+    }
+
+    private static void await(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() - deadline > 0) {
+                fail("Condition not met in time");
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    private static DefaultHttpRequest get(URI uri) {
+        return new DefaultHttpRequest(uri, HttpMethod.GET, Map.of(), null, null);
+    }
+
+    @Test
+    void malformedContentLengthFailsTheExchange() {
+        for (String length : new String[] {"abc", "-5", ""}) {
+            CompletableFuture<HttpResponse<?>> future = transport(new DefaultHttpClientConfig.Builder()).execute(get(URI_A));
+            FakeConnection connection = connections.get(connections.size() - 1);
+            connection.receive("HTTP/1.1 200 OK\r\nContent-Length: " + length + "\r\n\r\n");
+
+            ExecutionException e = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+            assertTrue(e.getCause() instanceof Http1ResponseParser.ParseException, length);
+            // A response the server got wrong is not replayed on a new connection
+            assertEquals(1, connections.size());
+            transport.close();
+            connections.clear();
+        }
+    }
+
+    @Test
+    void cancelledExchangeIsNotSentOnTheConnectionItWaitedFor() {
+        CompletableFuture<Connection> connecting = new CompletableFuture<>();
+        List<ConnectionListener> listeners = new CopyOnWriteArrayList<>();
+        transport = new Http1Transport((route, listener) -> {
+            listeners.add(listener);
+            return connecting;
+        }, new DefaultHttpClientConfig(new DefaultHttpClientConfig.Builder()));
+
+        CompletableFuture<HttpResponse<?>> future = transport.execute(get(URI_A));
+        future.cancel(true);
+        FakeConnection connection = new FakeConnection(listeners.get(0));
+        connecting.complete(connection);
+
+        assertEquals("", connection.sent());
+        assertTrue(connection.isConnected());
+    }
+
+    @Test
+    void cancellingAnExchangeClosesItsConnection() {
+        transport(new DefaultHttpClientConfig.Builder());
+        CompletableFuture<HttpResponse<?>> future = transport.execute(get(URI_A));
+        FakeConnection connection = connections.get(0);
+        assertTrue(connection.sent().startsWith("GET /a HTTP/1.1\r\n"));
+
+        future.cancel(true);
+        assertFalse(connection.isConnected());
+        assertEquals(1, connections.size());
+
+        // The next request gets a connection of its own
+        CompletableFuture<HttpResponse<?>> next = transport.execute(get(URI_A));
+        assertEquals(2, connections.size());
+        connections.get(1).receive("HTTP/1.1 200 OK\r\nContent-Length: 2\r\n\r\nok");
+        assertEquals("ok", next.join().getBodyAsString());
+    }
+
+    @Test
+    void requestTimeoutFailsTheExchangeAndClosesTheConnection() {
+        transport(new DefaultHttpClientConfig.Builder().withRequestTimeout(Duration.ofMillis(50)));
+        CompletableFuture<HttpResponse<?>> future = transport.execute(get(URI_A));
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+        assertTrue(e.getCause() instanceof TimeoutException);
+        await(() -> !connections.get(0).isConnected());
+    }
+
+    @Test
+    void timeoutOfTheRequestOverridesTheConfiguration() {
+        transport(new DefaultHttpClientConfig.Builder().withRequestTimeout(Duration.ofMinutes(5)));
+        CompletableFuture<HttpResponse<?>> future = transport.execute(
+            new DefaultHttpRequest(URI_A, HttpMethod.GET, Map.of(), null, Duration.ofMillis(50)));
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+        assertTrue(e.getCause() instanceof TimeoutException);
+    }
+
+    @Test
+    void timedOutRequestIsNotSentWhenItsConnectionArrives() {
+        CompletableFuture<Connection> connecting = new CompletableFuture<>();
+        List<ConnectionListener> listeners = new CopyOnWriteArrayList<>();
+        transport = new Http1Transport((route, listener) -> {
+            listeners.add(listener);
+            return connecting;
+        }, new DefaultHttpClientConfig(new DefaultHttpClientConfig.Builder()
+            .withConnectTimeout(Duration.ofMillis(50))));
+
+        CompletableFuture<HttpResponse<?>> future = transport.execute(get(URI_A));
+        ExecutionException e = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+        assertTrue(e.getCause() instanceof TimeoutException);
+
+        // The connection established too late is closed rather than leaked
+        FakeConnection late = new FakeConnection(listeners.get(0));
+        connecting.complete(late);
+        assertFalse(late.isConnected());
+        assertEquals("", late.sent());
+    }
+
+    @Test
+    void requestsPipelinedBehindATimedOutOneAreReplayed() {
+        transport(new DefaultHttpClientConfig.Builder().withPipelining(true));
+        CompletableFuture<HttpResponse<?>> slow = transport.execute(
+            new DefaultHttpRequest(URI_A, HttpMethod.GET, Map.of(), null, Duration.ofMillis(50)));
+        CompletableFuture<HttpResponse<?>> next = transport.execute(get(URI.create("http://example.com/b")));
+        assertEquals(1, connections.size());
+
+        assertThrows(ExecutionException.class, () -> slow.get(5, TimeUnit.SECONDS));
+        // The connection is given up on the thread that times the request out
+        await(() -> connections.size() == 2 && !connections.get(1).sent().isEmpty());
+        assertFalse(connections.get(0).isConnected());
+        assertTrue(connections.get(1).sent().startsWith("GET /b HTTP/1.1\r\n"));
+        connections.get(1).receive("HTTP/1.1 200 OK\r\nContent-Length: 1\r\n\r\nb");
+        assertEquals("b", next.join().getBodyAsString());
+    }
+
+    @Test
+    void pipelinedRequestsShareAConnectionAndCompleteInOrder() {
+        transport(new DefaultHttpClientConfig.Builder().withPipelining(true));
+        CompletableFuture<HttpResponse<?>> first = transport.execute(get(URI_A));
+        CompletableFuture<HttpResponse<?>> second = transport.execute(get(URI.create("http://example.com/b")));
+
+        assertEquals(1, connections.size());
+        String sent = connections.get(0).sent();
+        assertTrue(sent.startsWith("GET /a HTTP/1.1\r\n"));
+        assertTrue(sent.contains("GET /b HTTP/1.1\r\n"));
+
+        connections.get(0).receive("HTTP/1.1 200 OK\r\nContent-Length: 1\r\n\r\na"
+                                   + "HTTP/1.1 200 OK\r\nContent-Length: 1\r\n\r\nb");
+        assertEquals("a", first.join().getBodyAsString());
+        assertEquals("b", second.join().getBodyAsString());
+    }
+
+    @Test
+    void unansweredPipelinedRequestsAreReplayedWhenTheServerCloses() {
+        transport(new DefaultHttpClientConfig.Builder().withPipelining(true));
+        CompletableFuture<HttpResponse<?>> first = transport.execute(get(URI_A));
+        CompletableFuture<HttpResponse<?>> second = transport.execute(get(URI.create("http://example.com/b")));
+        CompletableFuture<HttpResponse<?>> third = transport.execute(get(URI.create("http://example.com/c")));
+        assertEquals(1, connections.size());
+
+        connections.get(0).receive("HTTP/1.1 200 OK\r\nContent-Length: 1\r\n\r\na");
+        connections.get(0).disconnect();
+        assertEquals("a", first.join().getBodyAsString());
+
+        await(() -> connections.size() == 2);
+        String replayed = connections.get(1).sent();
+        assertTrue(replayed.startsWith("GET /b HTTP/1.1\r\n"));
+        assertTrue(replayed.contains("GET /c HTTP/1.1\r\n"));
+        connections.get(1).receive("HTTP/1.1 200 OK\r\nContent-Length: 1\r\n\r\nb"
+                                   + "HTTP/1.1 200 OK\r\nContent-Length: 1\r\n\r\nc");
+        assertEquals("b", second.join().getBodyAsString());
+        assertEquals("c", third.join().getBodyAsString());
+    }
+
+    @Test
+    void nonIdempotentRequestsAreNotPipelined() {
+        transport(new DefaultHttpClientConfig.Builder().withPipelining(true));
+        transport.execute(get(URI_A));
+        transport.execute(new DefaultHttpRequest(URI_A, HttpMethod.POST, Map.of(), null, null));
+
+        assertEquals(2, connections.size());
+        assertTrue(connections.get(1).sent().startsWith("POST /a HTTP/1.1\r\n"));
+    }
+}
@@ -0,0 +1,94 @@
+package com.network.impl.http;
+
+import com.network.api.http.HttpMethod;
+import com.network.api.http.HttpRequest;
+import com.network.api.http.HttpResponse;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class Http2TransportTest {
+
+    private final List<HttpRequest> cleartextRequests = new CopyOnWriteArrayList<>();
+    private final CompletableFuture<HttpResponse<?>> cleartextResponse = new CompletableFuture<>();
+    private boolean cleartextClosed;
+
+    private final HttpTransport cleartext = new HttpTransport() {
+        @Override
+        public CompletableFuture<HttpResponse<?>> execute(HttpRequest request) {
+            cleartextRequests.add(request);
+            return cleartextResponse;
+        }
+
+        @Override
+        public void close() {
+            cleartextClosed = true;
+        }
+    };
+
+    private Http2Transport transport() {
+        return new Http2Transport(new DefaultHttpClientConfig(new DefaultHttpClientConfig.Builder().withHttp2(true)),
+                                  cleartext);
+    }
+
+    private static DefaultHttpRequest get(String uri) {
+        return new DefaultHttpRequest(URI.create(uri), HttpMethod.GET, Map.of(), null, null);
+    }
+
+    @Test
+    void cleartextRequestsAreSentOverHttp1() {
+        Http2Transport transport = transport();
+        DefaultHttpRequest request = get("http://example.com/a");
+
+        assertSame(cleartextResponse, transport.execute(request));
+        assertEquals(List.of(request), cleartextRequests);
+        transport.close();
+    }
+
+    @Test
+    void closeCancelsExchangesAndRejectsNewRequests() throws Exception {
+        Http2Transport transport = transport();
+        try (ServerSocket server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            // The server accepts the connection but never answers the handshake
+            CompletableFuture<Socket> accepted = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return server.accept();
+                } catch (Exception e) {
+                    return null;
+                }
+            });
+            CompletableFuture<HttpResponse<?>> pending =
+                transport.execute(get("https://127.0.0.1:" + server.getLocalPort() + "/a"));
+
+            transport.close();
+
+            assertTrue(pending.isCancelled());
+            assertTrue(cleartextClosed);
+            ExecutionException e = assertThrows(ExecutionException.class,
+                () -> transport.execute(get("https://example.com/a")).get(5, TimeUnit.SECONDS));
+            assertTrue(e.getCause() instanceof IllegalStateException);
+            assertTrue(transport.execute(get("http://example.com/a")).isCompletedExceptionally());
+            assertTrue(cleartextRequests.isEmpty());
+            server.close();
+            Socket socket = accepted.get(5, TimeUnit.SECONDS);
+            if (socket != null) {
+                socket.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.network.impl.http;
+
+import com.network.api.connection.Connection;
+import com.network.api.connection.Protocol;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+class HttpConnectionPoolTest {
+
+    private static final HttpRoute A = new HttpRoute(Protocol.HTTP, "a.example", 80);
+    private static final HttpRoute B = new HttpRoute(Protocol.HTTP, "b.example", 80);
+
+    private final List<FakeConnection> opened = new ArrayList<>();
+
+    @Test
+    void releasedConnectionIsReused() throws Exception {
+        HttpConnectionPool pool = pool(2, 2, null);
+
+        Connection first = pool.acquire(A).get(5, TimeUnit.SECONDS);
+        pool.release(first, true);
+
+        assertSame(first, pool.acquire(A).get(5, TimeUnit.SECONDS));
+        assertEquals(1, opened.size());
+    }
+
+    @Test
+    void callersBeyondTheRouteLimitWaitInArrivalOrder() throws Exception {
+        HttpConnectionPool pool = pool(1, 4, null);
+        Connection leased = pool.acquire(A).get(5, TimeUnit.SECONDS);
+
+        CompletableFuture<Connection> first = pool.acquire(A);
+        CompletableFuture<Connection> second = pool.acquire(A);
+        assertEquals(2, pool.getPendingCount());
+
+        pool.release(leased, true);
+        assertSame(leased, first.get(5, TimeUnit.SECONDS));
+        assertFalse(second.isDone());
+        assertEquals(1, opened.size());
+    }
+
+    @Test
+    void cancelledCallerIsSkipped() throws Exception {
+        HttpConnectionPool pool = pool(1, 4, null);
+        Connection leased = pool.acquire(A).get(5, TimeUnit.SECONDS);
+
+        CompletableFuture<Connection> abandoned = pool.acquire(A);
+        CompletableFuture<Connection> next = pool.acquire(A);
+        abandoned.cancel(false);
+
+        pool.release(leased, true);
+        assertSame(leased, next.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void idleConnectionOfAnotherRouteIsClosedUnderTheTotalLimit() throws Exception {
+        HttpConnectionPool pool = pool(2, 1, null);
+        Connection a = pool.acquire(A).get(5, TimeUnit.SECONDS);
+        pool.release(a, true);
+
+        Connection b = pool.acquire(B).get(5, TimeUnit.SECONDS);
+
+        assertFalse(a.isConnected());
+        assertTrue(b.isConnected());
+        assertEquals(1, pool.getAllocatedCount());
+    }
+
+    @Test
+    void connectionReleasedAsNotReusableIsClosed() throws Exception {
+        HttpConnectionPool pool = pool(1, 1, null);
+        Connection connection = pool.acquire(A).get(5, TimeUnit.SECONDS);
+
+        pool.release(connection, false);
+
+        assertFalse(connection.isConnected());
+        assertEquals(0, pool.getAllocatedCount());
+    }
+
+    @Test
+    void expiredIdleConnectionsAreSweptInTheBackground() throws Exception {
+        HttpConnectionPool pool = pool(1, 1, Duration.ofMillis(100));
+        Connection connection = pool.acquire(A).get(5, TimeUnit.SECONDS);
+        pool.release(connection, true);
+        assertEquals(1, pool.getIdleCount());
+
+        // Nothing touches the pool again; only the sweep can close the connection
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (connection.isConnected()) {
+            if (System.nanoTime() - deadline > 0) {
+                fail("Expired connection was not swept");
+            }
+            Thread.sleep(10);
+        }
+        assertEquals(0, pool.getIdleCount());
+        assertEquals(0, pool.getAllocatedCount());
+        pool.close();
+    }
+
+    @Test
+    void closeFailsWaitersAndClosesIdleConnections() throws Exception {
+        HttpConnectionPool pool = pool(1, 1, null);
+        Connection leased = pool.acquire(A).get(5, TimeUnit.SECONDS);
+        CompletableFuture<Connection> waiting = pool.acquire(A);
+
+        pool.close();
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> waiting.get(5, TimeUnit.SECONDS));
+        assertTrue(e.getCause() instanceof IllegalStateException);
+        pool.release(leased, true);
+        assertFalse(leased.isConnected());
+    }
+
+    private HttpConnectionPool pool(int perRoute, int total, Duration timeToLive) {
+        return new HttpConnectionPool(route -> {
+            FakeConnection connection = new FakeConnection(null);
+            opened.add(connection);
+            return CompletableFuture.completedFuture(connection);
+        }, perRoute, total, timeToLive);
+    }
+}
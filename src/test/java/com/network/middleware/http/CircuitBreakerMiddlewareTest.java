@@ -0,0 +1,183 @@
+package com.network.middleware.http;
+
+import com.network.api.http.HttpRequest;
+import com.network.api.http.HttpResponse;
+import com.network.middleware.http.CircuitBreakerMiddleware.CircuitOpenException;
+import com.network.middleware.http.CircuitBreakerMiddleware.State;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CircuitBreakerMiddlewareTest {
+
+    private static final String URI = "http://example.com/item";
+    private static final Duration OPEN = Duration.ofMillis(30);
+
+    private final AtomicInteger sent = new AtomicInteger();
+    private final List<CompletableFuture<HttpResponse<?>>> exchanges = new CopyOnWriteArrayList<>();
+
+    private HttpResponse<?> call(CircuitBreakerMiddleware middleware, int status) {
+        return middleware.process(TestRequest.get(URI), request -> {
+            sent.incrementAndGet();
+            return new TestResponse(request, status, "", 1);
+        });
+    }
+
+    private CompletableFuture<HttpResponse<?>> callAsync(CircuitBreakerMiddleware middleware) {
+        return middleware.processAsync(TestRequest.get(URI), request -> {
+            CompletableFuture<HttpResponse<?>> exchange = new CompletableFuture<>();
+            exchanges.add(exchange);
+            return exchange;
+        });
+    }
+
+    private static CircuitBreakerMiddleware.Builder breaker() {
+        return CircuitBreakerMiddleware.builder().minimumCalls(4).openDuration(OPEN).permittedProbes(2);
+    }
+
+    private void open(CircuitBreakerMiddleware middleware) {
+        for (int i = 0; i < 4; i++) {
+            call(middleware, 503);
+        }
+        assertEquals(State.OPEN, middleware.getState("example.com"));
+    }
+
+    @Test
+    void opensWhenTheFailureRateIsReached() {
+        CircuitBreakerMiddleware middleware = breaker().build();
+
+        call(middleware, 200);
+        call(middleware, 200);
+        call(middleware, 503);
+        assertEquals(State.CLOSED, middleware.getState("example.com"));
+        call(middleware, 500);
+
+        assertEquals(State.OPEN, middleware.getState("example.com"));
+        CircuitOpenException e = assertThrows(CircuitOpenException.class, () -> call(middleware, 200));
+        assertEquals("example.com", e.getHost());
+        ExecutionException async = assertThrows(ExecutionException.class, () -> callAsync(middleware).get());
+        assertSame(e, async.getCause());
+        assertEquals(4, sent.get());
+        assertTrue(exchanges.isEmpty());
+    }
+
+    @Test
+    void failuresAreCountedSeparatelyFromCalls() {
+        CircuitBreakerMiddleware middleware = breaker().build();
+
+        for (int i = 0; i < 100; i++) {
+            call(middleware, 200);
+        }
+        for (int i = 0; i < 40; i++) {
+            call(middleware, 503);
+        }
+        assertEquals(State.CLOSED, middleware.getState("example.com"));
+
+        for (int i = 0; i < 60; i++) {
+            call(middleware, 503);
+        }
+        assertEquals(State.OPEN, middleware.getState("example.com"));
+    }
+
+    @Test
+    void outcomesLeaveTheWindow() throws Exception {
+        CircuitBreakerMiddleware middleware = breaker().slidingWindow(Duration.ofMillis(50), 5).build();
+
+        for (int i = 0; i < 3; i++) {
+            call(middleware, 503);
+        }
+        Thread.sleep(120);
+        call(middleware, 503);
+
+        assertEquals(State.CLOSED, middleware.getState("example.com"));
+    }
+
+    @Test
+    void slowCallsOpenTheBreaker() {
+        CircuitBreakerMiddleware middleware = breaker().slowCalls(Duration.ofMillis(5), 0.5).build();
+
+        for (int i = 0; i < 4; i++) {
+            middleware.process(TestRequest.get(URI), request -> {
+                try {
+                    Thread.sleep(10);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return TestResponse.ok(request, "");
+            });
+        }
+
+        assertEquals(State.OPEN, middleware.getState("example.com"));
+    }
+
+    @Test
+    void successfulProbesCloseTheBreaker() throws Exception {
+        CircuitBreakerMiddleware middleware = breaker().build();
+        open(middleware);
+        Thread.sleep(OPEN.toMillis() * 2);
+
+        CompletableFuture<HttpResponse<?>> first = callAsync(middleware);
+        CompletableFuture<HttpResponse<?>> second = callAsync(middleware);
+        assertEquals(State.HALF_OPEN, middleware.getState("example.com"));
+        // Only the permitted number of probes is sent
+        assertThrows(CircuitOpenException.class, () -> call(middleware, 200));
+
+        exchanges.get(0).complete(TestResponse.ok(null, ""));
+        assertEquals(State.HALF_OPEN, middleware.getState("example.com"));
+        exchanges.get(1).complete(TestResponse.ok(null, ""));
+
+        assertEquals(State.CLOSED, middleware.getState("example.com"));
+        assertTrue(first.isDone() && second.isDone());
+        // The window starts empty again
+        call(middleware, 503);
+        assertEquals(State.CLOSED, middleware.getState("example.com"));
+    }
+
+    @Test
+    void failedProbeReopensTheBreaker() throws Exception {
+        CircuitBreakerMiddleware middleware = breaker().build();
+        open(middleware);
+        Thread.sleep(OPEN.toMillis() * 2);
+
+        call(middleware, 200);
+        call(middleware, 503);
+
+        assertEquals(State.OPEN, middleware.getState("example.com"));
+        assertThrows(CircuitOpenException.class, () -> call(middleware, 200));
+    }
+
+    @Test
+    void cancelledProbeReturnsItsPermit() throws Exception {
+        CircuitBreakerMiddleware middleware = breaker().permittedProbes(1).build();
+        open(middleware);
+        Thread.sleep(OPEN.toMillis() * 2);
+
+        callAsync(middleware).cancel(true);
+        assertEquals(State.HALF_OPEN, middleware.getState("example.com"));
+
+        HttpResponse<?> response = call(middleware, 200);
+        assertEquals(200, response.getStatusCode());
+        assertEquals(State.CLOSED, middleware.getState("example.com"));
+    }
+
+    @Test
+    void hostsHaveSeparateBreakers() {
+        CircuitBreakerMiddleware middleware = breaker().build();
+        open(middleware);
+
+        HttpRequest other = TestRequest.get("http://other.example.com/item");
+        assertEquals(200, middleware.process(other, request -> TestResponse.ok(request, "")).getStatusCode());
+        assertEquals(State.CLOSED, middleware.getState("other.example.com"));
+    }
+}
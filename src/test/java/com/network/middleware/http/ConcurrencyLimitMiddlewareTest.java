@@ -0,0 +1,87 @@
+package com.network.middleware.http;
+
+import com.network.api.http.HttpRequest;
+import com.network.api.http.HttpResponse;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConcurrencyLimitMiddlewareTest {
+
+    private static final String URI = "http://example.com/item";
+
+    private final ConcurrencyLimitMiddleware middleware = ConcurrencyLimitMiddleware.builder()
+        .limits(1, 1, 1)
+        .queue(1, Duration.ofMinutes(1))
+        .build();
+    private final List<HttpRequest> sent = new CopyOnWriteArrayList<>();
+    private final List<CompletableFuture<HttpResponse<?>>> exchanges = new CopyOnWriteArrayList<>();
+
+    private CompletableFuture<HttpResponse<?>> send(HttpRequest request) {
+        return middleware.processAsync(request, next -> {
+            sent.add(next);
+            CompletableFuture<HttpResponse<?>> exchange = new CompletableFuture<>();
+            exchanges.add(exchange);
+            return exchange;
+        });
+    }
+
+    @Test
+    void queuedRequestIsSentWhenASlotIsFree() {
+        send(TestRequest.get(URI));
+        CompletableFuture<HttpResponse<?>> queued = send(TestRequest.get(URI));
+        assertEquals(1, sent.size());
+
+        exchanges.get(0).complete(TestResponse.ok(sent.get(0), "first"));
+        assertEquals(2, sent.size());
+        exchanges.get(1).complete(TestResponse.ok(sent.get(1), "second"));
+        assertEquals("second", queued.join().getBodyAsString());
+    }
+
+    @Test
+    void fullQueueRejectsRequests() {
+        send(TestRequest.get(URI));
+        send(TestRequest.get(URI));
+
+        CompletableFuture<HttpResponse<?>> rejected = send(TestRequest.get(URI));
+        assertTrue(rejected.isCompletedExceptionally());
+    }
+
+    @Test
+    void cancelledQueuedRequestLeavesTheQueue() {
+        send(TestRequest.get(URI));
+        CompletableFuture<HttpResponse<?>> cancelled = send(TestRequest.get(URI));
+        cancelled.cancel(true);
+
+        // The cancelled request no longer takes the only place in the queue
+        CompletableFuture<HttpResponse<?>> queued = send(TestRequest.get(URI));
+        assertFalse(queued.isDone());
+
+        exchanges.get(0).complete(TestResponse.ok(sent.get(0), "first"));
+        assertEquals(2, sent.size());
+        assertFalse(exchanges.get(1).isDone());
+    }
+
+    @Test
+    void cancellingASentQueuedRequestCancelsItsExchange() {
+        send(TestRequest.get(URI));
+        CompletableFuture<HttpResponse<?>> queued = send(TestRequest.get(URI));
+        exchanges.get(0).complete(TestResponse.ok(sent.get(0), "first"));
+        assertEquals(2, sent.size());
+
+        queued.cancel(true);
+        assertTrue(exchanges.get(1).isCancelled());
+
+        // The slot of the cancelled exchange is free again
+        send(TestRequest.get(URI));
+        assertEquals(3, sent.size());
+    }
+}
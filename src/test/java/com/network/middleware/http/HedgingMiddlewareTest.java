@@ -0,0 +1,143 @@
+package com.network.middleware.http;
+
+import com.network.api.http.HttpRequest;
+import com.network.api.http.HttpResponse;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HedgingMiddlewareTest {
+
+    private static final String URI = "http://example.com/item";
+    private static final Duration DELAY = Duration.ofMillis(30);
+
+    private final List<CompletableFuture<HttpResponse<?>>> exchanges = new CopyOnWriteArrayList<>();
+    private final List<Long> sentAt = new CopyOnWriteArrayList<>();
+
+    private CompletableFuture<HttpResponse<?>> send(HedgingMiddleware middleware) {
+        return middleware.processAsync(TestRequest.get(URI), next -> {
+            CompletableFuture<HttpResponse<?>> exchange = new CompletableFuture<>();
+            sentAt.add(System.nanoTime());
+            exchanges.add(exchange);
+            return exchange;
+        });
+    }
+
+    /**
+     * Builds a middleware that hedges after a fixed delay once it has seen one response.
+     */
+    private static HedgingMiddleware.Builder hedging() {
+        return HedgingMiddleware.builder().minSamples(1).delayBounds(DELAY, DELAY);
+    }
+
+    private static void warmUp(HedgingMiddleware middleware) {
+        HttpRequest request = TestRequest.get(URI);
+        middleware.processAsync(request, next -> CompletableFuture.completedFuture(TestResponse.ok(next, "")));
+    }
+
+    @Test
+    void requestsAreNotHedgedUntilTheRouteHasSamples() throws Exception {
+        HedgingMiddleware middleware = hedging().build();
+        assertNull(middleware.getHedgeDelay("example.com"));
+
+        send(middleware);
+        Thread.sleep(DELAY.toMillis() * 3);
+
+        assertEquals(1, exchanges.size());
+    }
+
+    @Test
+    void slowRequestIsHedgedAfterTheDelay() throws Exception {
+        HedgingMiddleware middleware = hedging().build();
+        warmUp(middleware);
+        assertEquals(DELAY, middleware.getHedgeDelay("example.com"));
+
+        long start = System.nanoTime();
+        send(middleware);
+        assertEquals(1, exchanges.size());
+        awaitExchanges(2);
+
+        assertTrue(sentAt.get(1) - start >= DELAY.toNanos());
+    }
+
+    @Test
+    void firstResponseWinsAndTheLoserIsCancelled() throws Exception {
+        HedgingMiddleware middleware = hedging().build();
+        warmUp(middleware);
+
+        CompletableFuture<HttpResponse<?>> result = send(middleware);
+        awaitExchanges(2);
+        TestResponse hedged = TestResponse.ok(null, "hedge");
+        exchanges.get(1).complete(hedged);
+
+        assertSame(hedged, result.get(5, TimeUnit.SECONDS));
+        assertTrue(exchanges.get(0).isCancelled());
+    }
+
+    @Test
+    void cancellingTheResultCancelsBothCopies() throws Exception {
+        HedgingMiddleware middleware = hedging().build();
+        warmUp(middleware);
+
+        CompletableFuture<HttpResponse<?>> result = send(middleware);
+        awaitExchanges(2);
+        result.cancel(true);
+
+        assertTrue(exchanges.get(0).isCancelled());
+        assertTrue(exchanges.get(1).isCancelled());
+    }
+
+    @Test
+    void hedgesStopWhenTheBudgetIsSpent() throws Exception {
+        HedgingMiddleware middleware = hedging().hedgeBudget(new RetryMiddleware.RetryBudget(0, 1)).build();
+        warmUp(middleware);
+
+        send(middleware);
+        awaitExchanges(2);
+        send(middleware);
+        Thread.sleep(DELAY.toMillis() * 3);
+
+        assertEquals(3, exchanges.size());
+    }
+
+    @Test
+    void winningHedgeRecordsTheLatencyOfTheWholeCall() throws Exception {
+        HedgingMiddleware middleware = HedgingMiddleware.builder()
+            .minSamples(1).percentile(0.99).delayBounds(DELAY, Duration.ofSeconds(10)).build();
+        warmUp(middleware);
+        // Fast responses up to the sample that refreshes the delay
+        for (int i = 0; i < 62; i++) {
+            middleware.processAsync(TestRequest.get(URI),
+                next -> CompletableFuture.completedFuture(TestResponse.ok(next, "")));
+        }
+
+        CompletableFuture<HttpResponse<?>> result = send(middleware);
+        awaitExchanges(2);
+        Thread.sleep(60);
+        exchanges.get(1).complete(TestResponse.ok(null, "hedge"));
+        result.get(5, TimeUnit.SECONDS);
+
+        // The call took the hedge delay plus the 60 ms of the hedge
+        Duration delay = middleware.getHedgeDelay("example.com");
+        assertFalse(delay.compareTo(Duration.ofMillis(90)) < 0, "Hedge delay was " + delay);
+    }
+
+    private void awaitExchanges(int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (exchanges.size() < count && System.nanoTime() - deadline < 0) {
+            Thread.sleep(1);
+        }
+        assertEquals(count, exchanges.size());
+    }
+}
@@ -0,0 +1,98 @@
+package com.network.middleware.http;
+
+import com.network.api.http.HttpRequest;
+import com.network.api.http.HttpResponse;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RetryMiddlewareTest {
+
+    private static final String URI = "http://example.com/item";
+
+    private final List<CompletableFuture<HttpResponse<?>>> exchanges = new CopyOnWriteArrayList<>();
+
+    private CompletableFuture<HttpResponse<?>> send(RetryMiddleware middleware, HttpRequest request) {
+        return middleware.processAsync(request, next -> {
+            CompletableFuture<HttpResponse<?>> exchange = new CompletableFuture<>();
+            exchanges.add(exchange);
+            return exchange;
+        });
+    }
+
+    private static RetryMiddleware retry(Duration backoff) {
+        return RetryMiddleware.builder().initialBackoff(backoff).jitter(0).build();
+    }
+
+    @Test
+    void retriesUntilTheResponseIsNotRetryable() throws Exception {
+        HttpRequest request = TestRequest.get(URI);
+        CompletableFuture<HttpResponse<?>> result = send(retry(Duration.ofMillis(1)), request);
+
+        TestResponse unavailable = new TestResponse(request, 503, "busy", 4);
+        exchanges.get(0).complete(unavailable);
+        awaitExchanges(2);
+        TestResponse ok = TestResponse.ok(request, "done");
+        exchanges.get(1).complete(ok);
+
+        assertSame(ok, result.get(5, TimeUnit.SECONDS));
+        assertEquals(1, unavailable.closed());
+        assertEquals(1, request.getContext().getInt(RetryMiddleware.RETRY_COUNT));
+    }
+
+    @Test
+    void cancellingDuringAnAttemptCancelsTheExchange() {
+        CompletableFuture<HttpResponse<?>> result = send(retry(Duration.ofMillis(1)), TestRequest.get(URI));
+
+        result.cancel(true);
+
+        assertTrue(exchanges.get(0).isCancelled());
+        assertEquals(1, exchanges.size());
+    }
+
+    @Test
+    void cancellingDuringBackoffStopsTheRetry() throws Exception {
+        HttpRequest request = TestRequest.get(URI);
+        CompletableFuture<HttpResponse<?>> result = send(retry(Duration.ofMillis(100)), request);
+        exchanges.get(0).complete(new TestResponse(request, 503, "busy", 4));
+
+        result.cancel(true);
+        Thread.sleep(300);
+
+        assertEquals(1, exchanges.size());
+    }
+
+    @Test
+    void interruptedSleepReturnsAnIntactResponse() {
+        HttpRequest request = TestRequest.get(URI);
+        TestResponse unavailable = new TestResponse(request, 503, "busy", 4);
+
+        Thread.currentThread().interrupt();
+        HttpResponse<?> response;
+        try {
+            response = retry(Duration.ofSeconds(5)).process(request, next -> unavailable);
+        } finally {
+            assertTrue(Thread.interrupted());
+        }
+
+        assertSame(unavailable, response);
+        assertEquals(0, unavailable.closed());
+    }
+
+    private void awaitExchanges(int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (exchanges.size() < count && System.nanoTime() - deadline < 0) {
+            Thread.sleep(5);
+        }
+        assertEquals(count, exchanges.size());
+    }
+}
@@ -0,0 +1,87 @@
+package com.network.middleware.http;
+
+import com.network.api.http.HttpRequest;
+import com.network.api.http.HttpRequestContext;
+import com.network.api.http.HttpResponse;
+import com.network.serialization.StreamingJsonSerializer;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SingleFlightMiddlewareTest {
+
+    private static final String URI = "http://example.com/item";
+
+    private final SingleFlightMiddleware middleware = SingleFlightMiddleware.builder().build();
+    private final List<HttpRequest> sent = new CopyOnWriteArrayList<>();
+    private final List<CompletableFuture<HttpResponse<?>>> exchanges = new CopyOnWriteArrayList<>();
+
+    private CompletableFuture<HttpResponse<?>> send(HttpRequest request) {
+        return middleware.processAsync(request, next -> {
+            sent.add(next);
+            CompletableFuture<HttpResponse<?>> exchange = new CompletableFuture<>();
+            exchanges.add(exchange);
+            return exchange;
+        });
+    }
+
+    @Test
+    void identicalRequestsShareOneExchange() {
+        CompletableFuture<HttpResponse<?>> first = send(TestRequest.get(URI));
+        CompletableFuture<HttpResponse<?>> second = send(TestRequest.get(URI));
+        assertEquals(1, sent.size());
+
+        exchanges.get(0).complete(TestResponse.ok(sent.get(0), "shared"));
+        assertEquals("shared", first.join().getBodyAsString());
+        assertEquals("shared", second.join().getBodyAsString());
+        assertEquals(0, middleware.getInFlightCount());
+    }
+
+    @Test
+    void sharedBodyIsDecodedWithTheSerializerOfTheOriginalResponse() {
+        TestRequest leader = TestRequest.get(URI);
+        leader.getContext().set(HttpRequestContext.SERIALIZER, new StreamingJsonSerializer());
+        send(leader);
+        CompletableFuture<HttpResponse<?>> follower = send(TestRequest.get(URI));
+
+        exchanges.get(0).complete(TestResponse.ok(sent.get(0), "{\"count\": 2}", "Content-Type", "application/json"));
+        assertEquals(Map.of("count", 2L), follower.join().getBodyAs(Map.class));
+    }
+
+    @Test
+    void rangeRequestIsNotCoalesced() {
+        send(TestRequest.get(URI));
+        send(TestRequest.get(URI, "Range", "bytes=0-99"));
+        send(TestRequest.get(URI, "Range", "bytes=0-99"));
+        assertEquals(3, sent.size());
+    }
+
+    @Test
+    void conditionalRequestIsNotCoalesced() {
+        send(TestRequest.get(URI, "If-None-Match", "\"v1\""));
+        send(TestRequest.get(URI));
+        send(TestRequest.get(URI, "If-Modified-Since", "Mon, 12 Oct 2026 10:00:00 GMT"));
+        assertEquals(3, sent.size());
+    }
+
+    @Test
+    void proxyCredentialsAreNotShared() {
+        send(TestRequest.get(URI, "Proxy-Authorization", "Basic YTpi"));
+        send(TestRequest.get(URI, "Proxy-Authorization", "Basic Yzpk"));
+        assertEquals(2, sent.size());
+    }
+
+    @Test
+    void requestsWithDifferentCredentialsAreNotShared() {
+        send(TestRequest.get(URI, "Authorization", "Bearer a"));
+        send(TestRequest.get(URI, "Authorization", "Bearer b"));
+        send(TestRequest.get(URI, "Authorization", "Bearer a"));
+        assertEquals(2, sent.size());
+    }
+}
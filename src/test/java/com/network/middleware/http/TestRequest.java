@@ -0,0 +1,79 @@
+package com.network.middleware.http;
+
+import com.network.api.http.HttpHeaders;
+import com.network.api.http.HttpMethod;
+import com.network.api.http.HttpRequest;
+import com.network.api.http.HttpRequestContext;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Minimal request for middleware tests.
+ */
+public final class TestRequest implements HttpRequest {
+    private final URI uri;
+    private final HttpMethod method;
+    private final HttpHeaders headers;
+    private final HttpRequestContext context = new HttpRequestContext();
+
+    public TestRequest(HttpMethod method, String uri, String... headers) {
+        this.uri = URI.create(uri);
+        this.method = method;
+        HttpHeaders values = new HttpHeaders();
+        for (int i = 0; i < headers.length; i += 2) {
+            values.add(headers[i], headers[i + 1]);
+        }
+        this.headers = values.snapshot();
+    }
+
+    public static TestRequest get(String uri, String... headers) {
+        return new TestRequest(HttpMethod.GET, uri, headers);
+    }
+
+    @Override
+    public URI getUri() {
+        return uri;
+    }
+
+    @Override
+    public HttpMethod getMethod() {
+        return method;
+    }
+
+    @Override
+    public Map<String, String> getHeaders() {
+        return headers.asMap();
+    }
+
+    @Override
+    public HttpHeaders getHttpHeaders() {
+        return headers;
+    }
+
+    @Override
+    public String getHeader(String name) {
+        return headers.getCombined(name);
+    }
+
+    @Override
+    public boolean hasHeader(String name) {
+        return headers.contains(name);
+    }
+
+    @Override
+    public Duration getTimeout() {
+        return null;
+    }
+
+    @Override
+    public byte[] getBody() {
+        return null;
+    }
+
+    @Override
+    public HttpRequestContext getContext() {
+        return context;
+    }
+}
@@ -0,0 +1,206 @@
+package com.network.middleware.http;
+
+import com.network.api.http.HttpHeaders;
+import com.network.api.http.HttpRequest;
+import com.network.api.http.HttpResponse;
+import com.network.api.http.HttpResponseException;
+import com.network.api.http.HttpStatusCodes;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Response for middleware tests whose body is published in chunks, on
+ * demand, like a streamed body. It counts the bytes that were read.
+ */
+public final class TestResponse implements HttpResponse<Object> {
+    private final HttpRequest request;
+    private final int statusCode;
+    private final HttpHeaders headers;
+    private final byte[] body;
+    private final int chunkSize;
+    private final AtomicLong delivered = new AtomicLong();
+    private final AtomicInteger closed = new AtomicInteger();
+
+    public TestResponse(HttpRequest request, int statusCode, String body, int chunkSize, String... headers) {
+        this(request, statusCode, body.getBytes(StandardCharsets.UTF_8), chunkSize, headers);
+    }
+
+    public TestResponse(HttpRequest request, int statusCode, byte[] body, int chunkSize, String... headers) {
+        this.request = request;
+        this.statusCode = statusCode;
+        this.body = body;
+        this.chunkSize = chunkSize;
+        HttpHeaders values = new HttpHeaders();
+        for (int i = 0; i < headers.length; i += 2) {
+            values.add(headers[i], headers[i + 1]);
+        }
+        this.headers = values.snapshot();
+    }
+
+    public static TestResponse ok(HttpRequest request, String body, String... headers) {
+        return new TestResponse(request, 200, body, Math.max(1, body.length()), headers);
+    }
+
+    /**
+     * Gets how many bytes of the body were handed out.
+     */
+    public long delivered() {
+        return delivered.get();
+    }
+
+    /**
+     * Gets how many times the body stream was closed.
+     */
+    public int closed() {
+        return closed.get();
+    }
+
+    @Override
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    @Override
+    public String getStatusMessage() {
+        return HttpStatusCodes.getMessage(statusCode);
+    }
+
+    @Override
+    public HttpRequest getRequest() {
+        return request;
+    }
+
+    @Override
+    public URI getUri() {
+        return request.getUri();
+    }
+
+    @Override
+    public URI getRequestUri() {
+        return request.getUri();
+    }
+
+    @Override
+    public boolean isSuccess() {
+        return isSuccessful();
+    }
+
+    @Override
+    public boolean isSuccessful() {
+        return statusCode >= 200 && statusCode < 300;
+    }
+
+    @Override
+    public boolean isError() {
+        return statusCode >= 400;
+    }
+
+    @Override
+    public byte[] getBody() {
+        delivered.set(body.length);
+        return body.clone();
+    }
+
+    @Override
+    public Flow.Publisher<ByteBuffer> getBodyPublisher() {
+        return subscriber -> subscriber.onSubscribe(new Flow.Subscription() {
+            private int position;
+            private long demand;
+            private boolean emitting;
+            private boolean done;
+
+            @Override
+            public void request(long n) {
+                demand += n;
+                if (emitting) {
+                    return;
+                }
+                emitting = true;
+                while (demand > 0 && !done) {
+                    if (position == body.length) {
+                        done = true;
+                        subscriber.onComplete();
+                        break;
+                    }
+                    int length = Math.min(chunkSize, body.length - position);
+                    ByteBuffer chunk = ByteBuffer.wrap(body, position, length).slice();
+                    position += length;
+                    delivered.addAndGet(length);
+                    demand--;
+                    subscriber.onNext(chunk);
+                }
+                if (!done && position == body.length) {
+                    done = true;
+                    subscriber.onComplete();
+                }
+                emitting = false;
+            }
+
+            @Override
+            public void cancel() {
+                done = true;
+            }
+        });
+    }
+
+    @Override
+    public InputStream getBodyAsStream() {
+        return new ByteArrayInputStream(body) {
+            @Override
+            public void close() {
+                closed.incrementAndGet();
+            }
+        };
+    }
+
+    @Override
+    public Object getBodyAs() {
+        return null;
+    }
+
+    @Override
+    public String getBodyAsString() {
+        return new String(getBody(), StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public <R> R getBodyAs(Class<R> type) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public String getHeader(String name) {
+        return headers.getCombined(name);
+    }
+
+    @Override
+    public Map<String, String> getHeaders() {
+        return headers.asMap();
+    }
+
+    @Override
+    public HttpHeaders getHttpHeaders() {
+        return headers;
+    }
+
+    @Override
+    public String getContentType() {
+        return getHeader("Content-Type");
+    }
+
+    @Override
+    public HttpResponse<Object> throwIfNotSuccessful() throws HttpResponseException {
+        if (!isSuccessful()) {
+            throw new HttpResponseException(this);
+        }
+        return this;
+    }
+}
@@ -0,0 +1,140 @@
+package com.network.middleware.http.cache;
+
+import com.network.api.http.HttpHeaders;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class DiskStoreTest {
+
+    private static final long MAX_BYTES = 8L * 1024 * 1024;
+    private static final int KB = 1024;
+
+    @TempDir
+    Path directory;
+
+    private long clock = 1000;
+
+    private CacheEntry entry(String uri, int bodyBytes) {
+        byte[] body = new byte[bodyBytes];
+        Arrays.fill(body, (byte) uri.charAt(uri.length() - 1));
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("Content-Type", "text/plain");
+        long time = clock++;
+        return new CacheEntry(uri, 200, headers, ByteBuffer.wrap(body), time, time);
+    }
+
+    private static String bodyOf(CacheEntry entry) {
+        ByteBuffer body = entry.getBody().duplicate();
+        byte[] bytes = new byte[body.remaining()];
+        body.get(bytes);
+        return new String(bytes, StandardCharsets.ISO_8859_1);
+    }
+
+    @Test
+    void entriesSurviveReopening() throws IOException {
+        try (DiskStore store = new DiskStore(directory, MAX_BYTES)) {
+            store.put("a", entry("http://example.com/a", 10));
+            store.put("b", entry("http://example.com/b", 20));
+            store.put("a", entry("http://example.com/A", 30));
+            store.remove("b");
+        }
+        try (DiskStore store = new DiskStore(directory, MAX_BYTES)) {
+            CacheEntry a = store.get("a");
+            assertNotNull(a);
+            assertEquals("http://example.com/A", a.getUri());
+            assertEquals("text/plain", a.getHeaders().get("Content-Type"));
+            assertEquals("AAAAAAAAAAAAAAAAAAAAAAAAAAAAAA", bodyOf(a));
+            assertNull(store.get("b"));
+            assertEquals(1, store.keys().size());
+        }
+    }
+
+    @Test
+    void removedEntryStaysRemovedAfterCompaction() throws IOException {
+        try (DiskStore store = new DiskStore(directory, MAX_BYTES)) {
+            // The first segment stays alive, holding the record of a
+            store.put("a", entry("http://example.com/a", KB));
+            store.put("b", entry("http://example.com/b", 600 * KB));
+            // The second segment holds the tombstone of a and c, which is replaced in a third
+            store.put("c", entry("http://example.com/c", 600 * KB));
+            store.remove("a");
+            store.put("c", entry("http://example.com/c", 600 * KB));
+            // Rolling to a fourth compacts the second, which holds nothing but the tombstone
+            store.put("d", entry("http://example.com/d", 600 * KB));
+            assertNull(store.get("a"));
+        }
+        try (DiskStore store = new DiskStore(directory, MAX_BYTES)) {
+            assertNull(store.get("a"));
+            assertNotNull(store.get("b"));
+            assertNotNull(store.get("c"));
+            assertNotNull(store.get("d"));
+        }
+    }
+
+    @Test
+    void recordFitsAfterCompactionFillsTheNewSegment() throws IOException {
+        try (DiskStore store = new DiskStore(directory, MAX_BYTES)) {
+            store.put("a", entry("http://example.com/a", 250 * KB));
+            store.put("b", entry("http://example.com/b", 700 * KB));
+            store.put("b", entry("http://example.com/b", 700 * KB));
+            store.put("c", entry("http://example.com/c", 900 * KB));
+            assertNotNull(store.get("a"));
+            assertNotNull(store.get("b"));
+            assertEquals(900 * KB, store.get("c").getBody().remaining());
+        }
+        try (DiskStore store = new DiskStore(directory, MAX_BYTES)) {
+            assertNotNull(store.get("a"));
+            assertNotNull(store.get("b"));
+            assertNotNull(store.get("c"));
+        }
+    }
+
+    @Test
+    void tornRecordIsIgnoredAndOverwritten() throws IOException {
+        try (DiskStore store = new DiskStore(directory, MAX_BYTES)) {
+            store.put("a", entry("http://example.com/a", 100));
+            store.put("b", entry("http://example.com/b", 100));
+        }
+        Path segment;
+        try (Stream<Path> files = Files.list(directory)) {
+            segment = files.filter(file -> file.toString().endsWith(".seg")).findFirst().orElseThrow();
+        }
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // Flips the last byte of the body of b, as if the write was cut short
+            ByteBuffer content = ByteBuffer.allocate((int) channel.size());
+            channel.read(content, 0);
+            int end = 0;
+            for (int i = 0; i < content.capacity(); i++) {
+                if (content.get(i) == 'b') {
+                    end = i;
+                }
+            }
+            channel.write(ByteBuffer.wrap(new byte[] {'x'}), end);
+        }
+        try (DiskStore store = new DiskStore(directory, MAX_BYTES)) {
+            assertNotNull(store.get("a"));
+            assertNull(store.get("b"));
+            store.put("d", entry("http://example.com/d", 100));
+        }
+        try (DiskStore store = new DiskStore(directory, MAX_BYTES)) {
+            assertNotNull(store.get("a"));
+            assertNull(store.get("b"));
+            assertNotNull(store.get("d"));
+        }
+    }
+}
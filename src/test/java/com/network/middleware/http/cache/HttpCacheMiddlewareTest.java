@@ -0,0 +1,107 @@
+package com.network.middleware.http.cache;
+
+import com.network.api.http.HttpRequestContext;
+import com.network.api.http.HttpResponse;
+import com.network.middleware.http.TestRequest;
+import com.network.middleware.http.TestResponse;
+import com.network.serialization.StreamingJsonSerializer;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HttpCacheMiddlewareTest {
+
+    private static final String URI = "http://example.com/data";
+
+    private final AtomicInteger sent = new AtomicInteger();
+
+    private static String repeat(char c, int count) {
+        StringBuilder builder = new StringBuilder(count);
+        for (int i = 0; i < count; i++) {
+            builder.append(c);
+        }
+        return builder.toString();
+    }
+
+    @Test
+    void responseThatCouldNeverBeServedIsNotRead() {
+        HttpCacheMiddleware cache = HttpCacheMiddleware.builder().build();
+        TestResponse[] origin = new TestResponse[1];
+        HttpResponse<?> response = cache.processAsync(TestRequest.get(URI), request -> {
+            origin[0] = new TestResponse(request, 200, repeat('a', 1000), 10);
+            return CompletableFuture.completedFuture(origin[0]);
+        }).join();
+
+        assertSame(origin[0], response);
+        assertEquals(0, origin[0].delivered());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void bodyLargerThanTheEntryLimitIsPassedThrough() {
+        HttpCacheMiddleware cache = HttpCacheMiddleware.builder().maxEntryBytes(100).build();
+        String body = repeat('b', 1000);
+        TestResponse[] origin = new TestResponse[1];
+        HttpResponse<?> response = cache.processAsync(TestRequest.get(URI), request -> {
+            sent.incrementAndGet();
+            origin[0] = new TestResponse(request, 200, body, 10, "Cache-Control", "max-age=60");
+            return CompletableFuture.completedFuture(origin[0]);
+        }).join();
+
+        // Collection stopped at the limit; the rest is read by the caller
+        assertTrue(origin[0].delivered() <= 110, "read " + origin[0].delivered());
+        assertEquals(body, response.getBodyAsString());
+        assertEquals(1000, origin[0].delivered());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void bodyLargerThanTheEntryLimitIsPassedThroughSynchronously() {
+        HttpCacheMiddleware cache = HttpCacheMiddleware.builder().maxEntryBytes(100).build();
+        String body = repeat('c', 1000);
+        HttpResponse<?> response = cache.process(TestRequest.get(URI),
+            request -> new TestResponse(request, 200, body, 10, "ETag", "\"v1\""));
+
+        byte[] bytes = response.getBody();
+        assertEquals(1000, bytes.length);
+        assertEquals(body, new String(bytes, StandardCharsets.UTF_8));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void freshResponseIsStoredAndServed() {
+        HttpCacheMiddleware cache = HttpCacheMiddleware.builder().maxEntryBytes(100).build();
+        for (int i = 0; i < 2; i++) {
+            HttpResponse<?> response = cache.processAsync(TestRequest.get(URI), request -> {
+                sent.incrementAndGet();
+                return CompletableFuture.completedFuture(
+                    new TestResponse(request, 200, "fresh", 2, "Cache-Control", "max-age=60"));
+            }).join();
+            assertEquals("fresh", response.getBodyAsString());
+        }
+        assertEquals(1, sent.get());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void cachedBodyIsDecodedWithTheSerializerOfTheClient() {
+        HttpCacheMiddleware cache = HttpCacheMiddleware.builder().build();
+        for (int i = 0; i < 2; i++) {
+            TestRequest request = TestRequest.get(URI);
+            request.getContext().set(HttpRequestContext.SERIALIZER, new StreamingJsonSerializer());
+            HttpResponse<?> response = cache.process(request, next -> new TestResponse(next, 200, "{\"count\": 2}", 4,
+                "Content-Type", "application/json", "Cache-Control", "max-age=60"));
+
+            assertEquals(Map.of("count", 2L), response.getBodyAs(Map.class));
+        }
+        assertEquals(1, cache.size());
+    }
+}
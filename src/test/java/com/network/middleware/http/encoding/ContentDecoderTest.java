@@ -0,0 +1,147 @@
+package com.network.middleware.http.encoding;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipException;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ContentDecoderTest {
+
+    private static final byte[] TEXT = text();
+
+    private final ZipPool pool = new ZipPool(4, Deflater.DEFAULT_COMPRESSION);
+    private ContentDecoder decoder;
+
+    @AfterEach
+    void release() {
+        if (decoder != null) {
+            decoder.release();
+        }
+    }
+
+    @Test
+    void gzipFedInSmallPieces() throws IOException {
+        assertArrayEquals(TEXT, decode(true, gzip(TEXT), 7));
+    }
+
+    @Test
+    void concatenatedGzipMembersAreOneBody() throws IOException {
+        byte[] first = Arrays.copyOf(TEXT, 1000);
+        byte[] second = Arrays.copyOfRange(TEXT, 1000, TEXT.length);
+
+        assertArrayEquals(TEXT, decode(true, concat(gzip(first), gzip(second)), 4096));
+    }
+
+    @Test
+    void gzipHeaderWithFileNameAndComment() throws IOException {
+        ByteArrayOutputStream member = new ByteArrayOutputStream();
+        member.write(new byte[] {0x1f, (byte) 0x8b, 8, 8 | 16, 0, 0, 0, 0, 0, (byte) 0xff});
+        member.write("body.txt\0a comment\0".getBytes(StandardCharsets.ISO_8859_1));
+        member.write(deflate(TEXT, true));
+        CRC32 crc = new CRC32();
+        crc.update(TEXT);
+        writeIntLe(member, (int) crc.getValue());
+        writeIntLe(member, TEXT.length);
+
+        assertArrayEquals(TEXT, decode(true, member.toByteArray(), 3));
+    }
+
+    @Test
+    void deflateAcceptsZlibAndRawData() throws IOException {
+        assertArrayEquals(TEXT, decode(false, deflate(TEXT, false), 5));
+        decoder.release();
+        assertArrayEquals(TEXT, decode(false, deflate(TEXT, true), 5));
+    }
+
+    @Test
+    void emptyBodyIsNotTruncated() throws IOException {
+        assertEquals(0, decode(true, new byte[0], 1).length);
+    }
+
+    @Test
+    void truncatedBodyFails() {
+        byte[] gzip = gzip(TEXT);
+
+        assertThrows(EOFException.class, () -> decode(true, Arrays.copyOf(gzip, gzip.length - 4), 512));
+    }
+
+    @Test
+    void corruptedChecksumFails() {
+        byte[] gzip = gzip(TEXT);
+        gzip[gzip.length - 8] ^= 1;
+
+        assertThrows(ZipException.class, () -> decode(true, gzip, 512));
+    }
+
+    private byte[] decode(boolean gzip, byte[] body, int pieceSize) throws IOException {
+        decoder = new ContentDecoder(pool, gzip);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (int i = 0; i < body.length; i += pieceSize) {
+            decoder.update(ByteBuffer.wrap(body, i, Math.min(pieceSize, body.length - i)), buffer -> copy(buffer, out));
+        }
+        decoder.finish(buffer -> copy(buffer, out));
+        return out.toByteArray();
+    }
+
+    private static void copy(ByteBuffer buffer, ByteArrayOutputStream out) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    private static byte[] gzip(byte[] data) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(data);
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] deflate(byte[] data, boolean raw) {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, raw);
+        deflater.setInput(data);
+        deflater.finish();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        while (!deflater.finished()) {
+            out.write(buffer, 0, deflater.deflate(buffer));
+        }
+        deflater.end();
+        return out.toByteArray();
+    }
+
+    private static byte[] concat(byte[] first, byte[] second) {
+        byte[] result = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, result, first.length, second.length);
+        return result;
+    }
+
+    private static void writeIntLe(ByteArrayOutputStream out, int value) {
+        for (int i = 0; i < 4; i++) {
+            out.write(value >>> (8 * i));
+        }
+    }
+
+    private static byte[] text() {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            text.append("line ").append(i).append(": the quick brown fox\n");
+        }
+        return text.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,43 @@
+package com.network.middleware.http.encoding;
+
+import com.network.api.http.HttpRequestContext;
+import com.network.api.http.HttpResponse;
+import com.network.middleware.http.TestRequest;
+import com.network.middleware.http.TestResponse;
+import com.network.serialization.StreamingJsonSerializer;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ContentEncodingMiddlewareTest {
+
+    private static byte[] gzip(String text) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(text.getBytes(StandardCharsets.UTF_8));
+        }
+        return out.toByteArray();
+    }
+
+    @Test
+    void compressedBodyIsDecodedWithTheSerializerOfTheOriginalResponse() throws IOException {
+        ContentEncodingMiddleware middleware = ContentEncodingMiddleware.builder().build();
+        TestRequest request = TestRequest.get("http://example.com/data");
+        request.getContext().set(HttpRequestContext.SERIALIZER, new StreamingJsonSerializer());
+        byte[] body = gzip("{\"count\": 2}");
+
+        HttpResponse<?> response = middleware.process(request, next -> new TestResponse(next, 200, body, 8,
+            "Content-Type", "application/json", "Content-Encoding", "gzip", "Content-Length", "" + body.length));
+
+        assertNull(response.getHeader("Content-Encoding"));
+        assertEquals(Map.of("count", 2L), response.getBodyAs(Map.class));
+    }
+}
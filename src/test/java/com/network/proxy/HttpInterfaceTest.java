@@ -0,0 +1,182 @@
+package com.network.proxy;
+
+import com.network.api.http.HttpMethod;
+import com.network.api.http.HttpRequest;
+import com.network.api.http.HttpRequestContext;
+import com.network.api.http.HttpResponse;
+import com.network.api.http.HttpResponseException;
+import com.network.middleware.http.TestResponse;
+import com.network.serialization.StreamingJsonSerializer;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HttpInterfaceTest {
+
+    @Headers("Accept: application/json")
+    interface ItemApi {
+        @HttpCall("/items/{id}")
+        String get(@Path("id") String id, @Header("X-Trace") String trace);
+
+        @HttpCall("/items")
+        List<Item> search(@Query("tag") List<String> tags);
+
+        @HttpCall(method = HttpMethod.POST, value = "/items")
+        CompletableFuture<Item> create(@Body Item item);
+
+        @HttpCall("/items/{id}")
+        CompletableFuture<HttpResponse<Item>> fetch(@Path("id") long id);
+
+        default String getTraced(String id) {
+            return get(id, "default");
+        }
+    }
+
+    interface MissingBinding {
+        @HttpCall("/items")
+        String get(String id);
+    }
+
+    interface DuplicatePath {
+        @HttpCall("/items/{id}")
+        String get(@Path("id") String a, @Path("id") String b);
+    }
+
+    interface MissingCall {
+        String get();
+    }
+
+    static final class Item {
+        String name;
+        int count;
+    }
+
+    private final List<HttpRequest> sent = new CopyOnWriteArrayList<>();
+    private final List<CompletableFuture<HttpResponse<?>>> exchanges = new CopyOnWriteArrayList<>();
+    private int status = 200;
+    private String body = "";
+    private boolean pending;
+
+    private HttpInterface factory() {
+        return HttpInterface.builder()
+            .withBaseUri(URI.create("https://api.example.com/v1"))
+            .withSerializer(new StreamingJsonSerializer())
+            .withSender(request -> {
+                sent.add(request);
+                CompletableFuture<HttpResponse<?>> exchange = pending
+                    ? new CompletableFuture<>()
+                    : CompletableFuture.completedFuture(new TestResponse(request, status, body, 16,
+                                                                         "Content-Type", "application/json"));
+                exchanges.add(exchange);
+                return exchange;
+            })
+            .build();
+    }
+
+    @Test
+    void callIsMappedToARequest() {
+        body = "found";
+        ItemApi api = factory().create(ItemApi.class);
+
+        assertEquals("found", api.get("a b", "t-1"));
+
+        HttpRequest request = sent.get(0);
+        assertEquals(HttpMethod.GET, request.getMethod());
+        assertEquals(URI.create("https://api.example.com/v1/items/a%20b"), request.getUri());
+        assertEquals("application/json", request.getHeader("Accept"));
+        assertEquals("t-1", request.getHeader("X-Trace"));
+    }
+
+    @Test
+    void defaultMethodsRunAsWritten() {
+        ItemApi api = factory().create(ItemApi.class);
+
+        api.getTraced("x");
+
+        assertEquals("default", sent.get(0).getHeader("X-Trace"));
+    }
+
+    @Test
+    void genericResultIsDecodedWithTheSerializerOfTheFactory() {
+        body = "[{\"name\": \"a\", \"count\": 1}, {\"name\": \"b\", \"count\": 2}]";
+        ItemApi api = factory().create(ItemApi.class);
+
+        List<Item> items = api.search(List.of("x", "y"));
+
+        assertEquals(URI.create("https://api.example.com/v1/items?tag=x&tag=y"), sent.get(0).getUri());
+        assertEquals(2, items.size());
+        assertEquals("b", items.get(1).name);
+    }
+
+    @Test
+    void bodyIsSerializedAndTheResultTypeDeclared() {
+        body = "{\"name\": \"new\", \"count\": 3}";
+        ItemApi api = factory().create(ItemApi.class);
+        Item item = new Item();
+        item.name = "new";
+
+        api.create(item);
+
+        HttpRequest request = sent.get(0);
+        assertEquals(HttpMethod.POST, request.getMethod());
+        assertEquals("application/json", request.getHeader("Content-Type"));
+        assertEquals("{\"name\":\"new\",\"count\":0}",
+                     new String(request.getRequestBody().toByteArray(), StandardCharsets.UTF_8));
+        assertSame(Item.class, request.getContext().get(HttpRequestContext.RESPONSE_TYPE));
+    }
+
+    @Test
+    void unsuccessfulStatusFailsTheCall() {
+        status = 404;
+        ItemApi api = factory().create(ItemApi.class);
+
+        assertThrows(HttpResponseException.class, () -> api.get("x", null));
+    }
+
+    @Test
+    void responseResultIsReturnedWhateverItsStatus() {
+        status = 404;
+        ItemApi api = factory().create(ItemApi.class);
+
+        assertEquals(404, api.fetch(1).join().getStatusCode());
+        assertNull(sent.get(0).getHeader("X-Trace"));
+    }
+
+    @Test
+    void cancellingAnAsyncCallCancelsTheExchange() {
+        pending = true;
+        ItemApi api = factory().create(ItemApi.class);
+
+        api.create(new Item()).cancel(true);
+
+        assertTrue(exchanges.get(0).isCancelled());
+    }
+
+    @Test
+    void proxiesAreCachedPerInterface() {
+        HttpInterface factory = factory();
+
+        assertSame(factory.create(ItemApi.class), factory.create(ItemApi.class));
+    }
+
+    @Test
+    void mistakesInTheAnnotationsFailWhenTheInterfaceIsCreated() {
+        HttpInterface factory = factory();
+
+        assertThrows(IllegalArgumentException.class, () -> factory.create(MissingBinding.class));
+        assertThrows(IllegalArgumentException.class, () -> factory.create(DuplicatePath.class));
+        assertThrows(IllegalArgumentException.class, () -> factory.create(MissingCall.class));
+        assertThrows(IllegalArgumentException.class, () -> factory.create(Item.class));
+    }
+}
@@ -0,0 +1,80 @@
+package com.network.proxy;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class UriTemplateTest {
+
+    private static final URI BASE = URI.create("https://api.example.com/v1/");
+
+    private static Map<String, Integer> args(Object... namesAndIndexes) {
+        Map<String, Integer> args = new LinkedHashMap<>();
+        for (int i = 0; i < namesAndIndexes.length; i += 2) {
+            args.put((String) namesAndIndexes[i], (Integer) namesAndIndexes[i + 1]);
+        }
+        return args;
+    }
+
+    @Test
+    void expandsPathVariablesAndQueryParameters() {
+        UriTemplate template = new UriTemplate(BASE, "/users/{id}/items?sort=asc",
+                                               args("id", 0), args("tag", 1, "page size", 2));
+
+        assertEquals(URI.create("https://api.example.com/v1/users/42/items?sort=asc&tag=a&tag=b%20c&page%20size=10"),
+                     template.expand(new Object[] {42, List.of("a", "b c"), 10}));
+        assertEquals(URI.create("https://api.example.com/v1/users/7/items?sort=asc&tag=x&tag=y"),
+                     template.expand(new Object[] {7, new String[] {"x", "y"}, null}));
+    }
+
+    @Test
+    void templateWithoutArgumentsIsTheBaseAndPath() {
+        assertEquals(URI.create("https://api.example.com/v1/health"),
+                     new UriTemplate(BASE, "/health", Map.of(), Map.of()).expand(null));
+        assertEquals(URI.create("https://other.example.com/x"),
+                     new UriTemplate(null, "https://other.example.com/x", Map.of(), Map.of()).expand(null));
+    }
+
+    @Test
+    void pathValuesCannotChangeThePath() {
+        UriTemplate template = new UriTemplate(BASE, "/files/{name}/meta", args("name", 0), Map.of());
+
+        assertEquals("https://api.example.com/v1/files/a%2Fb%3Fc%23d/meta", expand(template, "a/b?c#d"));
+        assertEquals("https://api.example.com/v1/files/%2E%2E/meta", expand(template, ".."));
+        assertEquals("https://api.example.com/v1/files/%2E/meta", expand(template, "."));
+        assertEquals("https://api.example.com/v1/files/..a/meta", expand(template, "..a"));
+        assertEquals("https://api.example.com/v1/files/caf%C3%A9/meta", expand(template, "café"));
+    }
+
+    @Test
+    void queryValuesAreEncoded() {
+        UriTemplate template = new UriTemplate(BASE, "/search", Map.of(), args("q", 0));
+
+        assertEquals("https://api.example.com/v1/search?q=a%26b%3Dc", expand(template, "a&b=c"));
+        assertEquals("https://api.example.com/v1/search?q=..", expand(template, ".."));
+    }
+
+    @Test
+    void nullPathValueFails() {
+        UriTemplate template = new UriTemplate(BASE, "/users/{id}", args("id", 0), Map.of());
+
+        assertThrows(IllegalArgumentException.class, () -> template.expand(new Object[] {null}));
+    }
+
+    @Test
+    void mismatchedVariablesFail() {
+        assertThrows(IllegalArgumentException.class, () -> new UriTemplate(BASE, "/users/{id}", Map.of(), Map.of()));
+        assertThrows(IllegalArgumentException.class, () -> new UriTemplate(BASE, "/users", args("id", 0), Map.of()));
+        assertThrows(IllegalArgumentException.class, () -> new UriTemplate(BASE, "/users/{id", args("id", 0), Map.of()));
+    }
+
+    private static String expand(UriTemplate template, Object value) {
+        return template.expand(new Object[] {value}).toString();
+    }
+}
@@ -0,0 +1,135 @@
+package com.network.serialization;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CborReaderTest {
+
+    @Test
+    void readsIntegersAndFloats() {
+        try (JsonReader reader = reader(0x86, 0x18, 0x64, 0x39, 0x03, 0xe7,
+                                        0x1b, 0xff, 0xff, 0xff, 0xff, 0xff, 0xff, 0xff, 0xff,
+                                        0xf9, 0x3c, 0x00, 0xfb, 0x3f, 0xf1, 0x99, 0x99, 0x99, 0x99, 0x99, 0x9a,
+                                        0xf7)) {
+            reader.beginArray();
+            assertEquals(100, reader.nextInt());
+            assertEquals(-1000L, reader.nextLong());
+            assertEquals(new BigDecimal("18446744073709551615"), reader.nextBigDecimal());
+            assertEquals(1.0, reader.nextDouble());
+            assertEquals(1.1, reader.nextDouble());
+            // undefined reads as null
+            reader.nextNull();
+            reader.endArray();
+            reader.endDocument();
+        }
+    }
+
+    @Test
+    void readsIndefiniteLengthContainersAndStrings() {
+        // {_ "a": [_ 1, [2, 3]], "b": (_ "strea", "ming")}
+        try (JsonReader reader = reader(0xbf, 0x61, 'a', 0x9f, 0x01, 0x82, 0x02, 0x03, 0xff,
+                                        0x61, 'b', 0x7f, 0x65, 's', 't', 'r', 'e', 'a', 0x64, 'm', 'i', 'n', 'g', 0xff,
+                                        0xff)) {
+            reader.beginObject();
+            assertEquals("a", reader.nextName());
+            reader.beginArray();
+            assertEquals(1, reader.nextInt());
+            reader.beginArray();
+            assertEquals(2, reader.nextInt());
+            assertEquals(3, reader.nextInt());
+            assertFalse(reader.hasNext());
+            reader.endArray();
+            reader.endArray();
+            assertEquals("b", reader.nextName());
+            assertEquals("streaming", reader.nextString());
+            assertFalse(reader.hasNext());
+            reader.endObject();
+            reader.endDocument();
+        }
+    }
+
+    @Test
+    void readsTaggedNumbersAndByteStrings() {
+        // [2(h'010000000000000000'), 4([-2, 27315]), h'010203']
+        try (JsonReader reader = reader(0x83, 0xc2, 0x49, 0x01, 0, 0, 0, 0, 0, 0, 0, 0,
+                                        0xc4, 0x82, 0x21, 0x19, 0x6a, 0xb3,
+                                        0x43, 0x01, 0x02, 0x03)) {
+            reader.beginArray();
+            assertEquals(new BigDecimal("18446744073709551616"), reader.nextBigDecimal());
+            assertEquals(new BigDecimal("273.15"), reader.nextBigDecimal());
+            assertEquals("AQID", reader.nextString());
+            reader.endArray();
+        }
+    }
+
+    @Test
+    void skipsValues() {
+        // {"skip": [1, {"x": h'00'}], "keep": 7}
+        try (JsonReader reader = reader(0xa2, 0x64, 's', 'k', 'i', 'p', 0x82, 0x01, 0xa1, 0x61, 'x', 0x41, 0x00,
+                                        0x64, 'k', 'e', 'e', 'p', 0x07)) {
+            reader.beginObject();
+            assertEquals("skip", reader.nextName());
+            reader.skipValue();
+            assertEquals("keep", reader.nextName());
+            assertEquals(7, reader.nextInt());
+            reader.endObject();
+            reader.endDocument();
+        }
+    }
+
+    @Test
+    void malformedInputFails() {
+        // Truncated argument
+        assertThrows(JsonFormatException.class, () -> readAll(0x19, 0x01));
+        // Truncated array
+        assertThrows(JsonFormatException.class, () -> readAll(0x82, 0x01));
+        // Map with an integer key
+        assertThrows(JsonFormatException.class, () -> {
+            try (JsonReader reader = reader(0xa1, 0x01, 0x02)) {
+                reader.beginObject();
+                reader.nextName();
+            }
+        });
+        // Trailing data
+        assertThrows(JsonFormatException.class, () -> readAll(0x01, 0x02));
+    }
+
+    @Test
+    void serializerRoundTripsObjectsThroughAStream() {
+        CborSerializer serializer = new CborSerializer();
+        JsonReaderTest.Item item = new JsonReaderTest.Item();
+        item.name = "café";
+        item.count = -3;
+        item.tags = List.of("x", "y");
+
+        byte[] cbor = serializer.serialize(item);
+        JsonReaderTest.Item read = serializer.deserialize(new ByteArrayInputStream(cbor), JsonReaderTest.Item.class);
+
+        assertEquals("café", read.name);
+        assertEquals(-3, read.count);
+        assertEquals(List.of("x", "y"), read.tags);
+    }
+
+    private static JsonReader reader(int... bytes) {
+        byte[] data = new byte[bytes.length];
+        for (int i = 0; i < bytes.length; i++) {
+            data[i] = (byte) bytes[i];
+        }
+        return new CborReader(ByteBuffer.wrap(data));
+    }
+
+    private static void readAll(int... bytes) {
+        try (JsonReader reader = reader(bytes)) {
+            reader.skipValue();
+            reader.endDocument();
+        }
+    }
+}
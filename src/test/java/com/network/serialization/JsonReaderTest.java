@@ -0,0 +1,166 @@
+package com.network.serialization;
+
+import com.network.buffer.BufferPool;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JsonReaderTest {
+
+    @Test
+    void readsNestedDocument() {
+        try (JsonReader reader = reader("{\"name\": \"a\", \"tags\": [true, null, 3], \"next\": {}}")) {
+            reader.beginObject();
+            assertEquals("name", reader.nextName());
+            assertEquals("a", reader.nextString());
+            assertEquals("tags", reader.nextName());
+            reader.beginArray();
+            assertTrue(reader.nextBoolean());
+            assertEquals(JsonToken.NULL, reader.peek());
+            reader.nextNull();
+            assertEquals(3, reader.nextInt());
+            assertFalse(reader.hasNext());
+            reader.endArray();
+            assertEquals("next", reader.nextName());
+            reader.beginObject();
+            reader.endObject();
+            reader.endObject();
+            reader.endDocument();
+        }
+    }
+
+    @Test
+    void decodesEscapesAndMultiByteCharacters() {
+        try (JsonReader reader = reader("[\"tab\\tquote\\\"slash\\/\", \"\\u00e9t\\u00e9\", \"\\ud83d\\ude00\", \"café €\"]")) {
+            reader.beginArray();
+            assertEquals("tab\tquote\"slash/", reader.nextString());
+            assertEquals("été", reader.nextString());
+            assertEquals("😀", reader.nextString());
+            assertEquals("café €", reader.nextString());
+            reader.endArray();
+        }
+    }
+
+    @Test
+    void readsNumbers() {
+        try (JsonReader reader = reader("[-12, 9007199254740993, 1.5e3, 0.1, 12345678901234567890.5]")) {
+            reader.beginArray();
+            assertEquals(-12, reader.nextInt());
+            assertEquals(9007199254740993L, reader.nextLong());
+            assertEquals(1500.0, reader.nextDouble());
+            assertEquals(new BigDecimal("0.1"), reader.nextBigDecimal());
+            assertEquals(new BigDecimal("12345678901234567890.5"), reader.nextBigDecimal());
+            reader.endArray();
+        }
+    }
+
+    @Test
+    void tokensMaySpanBuffers() {
+        byte[] json = "{\"café\": [\"€€\", 123456, true]}".getBytes(StandardCharsets.UTF_8);
+        ByteBuffer[] buffers = new ByteBuffer[json.length];
+        for (int i = 0; i < json.length; i++) {
+            buffers[i] = ByteBuffer.wrap(json, i, 1).slice();
+        }
+
+        try (JsonReader reader = new JsonReader(buffers)) {
+            reader.beginObject();
+            assertEquals("café", reader.nextName());
+            reader.beginArray();
+            assertEquals("€€", reader.nextString());
+            assertEquals(123456, reader.nextInt());
+            assertTrue(reader.nextBoolean());
+            reader.endArray();
+            reader.endObject();
+            reader.endDocument();
+        }
+    }
+
+    @Test
+    void readsFromAStreamLargerThanTheReadBuffer() {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < 20000; i++) {
+            json.append(i > 0 ? "," : "").append("\"item-").append(i).append('"');
+        }
+        json.append(']');
+        ByteArrayInputStream in = new ByteArrayInputStream(json.toString().getBytes(StandardCharsets.UTF_8));
+
+        List<String> items = new ArrayList<>();
+        try (JsonReader reader = new JsonReader(in, BufferPool.shared())) {
+            reader.beginArray();
+            while (reader.hasNext()) {
+                items.add(reader.nextString());
+            }
+            reader.endArray();
+            reader.endDocument();
+        }
+        assertEquals(20000, items.size());
+        assertEquals("item-19999", items.get(19999));
+    }
+
+    @Test
+    void skipsValues() {
+        try (JsonReader reader = reader("{\"skip\": {\"a\": [1, {\"b\": \"]\"}]}, \"keep\": 7}")) {
+            reader.beginObject();
+            assertEquals("skip", reader.nextName());
+            reader.skipValue();
+            assertEquals("keep", reader.nextName());
+            assertEquals(7, reader.nextInt());
+            reader.endObject();
+        }
+    }
+
+    @Test
+    void malformedInputFails() {
+        assertThrows(JsonFormatException.class, () -> readAll("{\"a\" 1}"));
+        assertThrows(JsonFormatException.class, () -> readAll("[1, 2"));
+        assertThrows(JsonFormatException.class, () -> readAll("\"unterminated"));
+        assertThrows(JsonFormatException.class, () -> readAll("[1] [2]"));
+        assertThrows(JsonFormatException.class, () -> readAll("tru"));
+    }
+
+    @Test
+    void serializerRoundTripsObjects() {
+        StreamingJsonSerializer serializer = new StreamingJsonSerializer();
+        Item item = new Item();
+        item.name = "café";
+        item.count = 3;
+        item.tags = List.of("x", "y");
+
+        Item read = serializer.deserialize(serializer.serialize(item), Item.class);
+
+        assertEquals("café", read.name);
+        assertEquals(3, read.count);
+        assertEquals(List.of("x", "y"), read.tags);
+        assertEquals(Map.of("name", "café", "count", 3L, "tags", List.of("x", "y")),
+            serializer.deserialize(serializer.serialize(item), Map.class));
+    }
+
+    private static JsonReader reader(String json) {
+        return new JsonReader(ByteBuffer.wrap(json.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static void readAll(String json) {
+        try (JsonReader reader = reader(json)) {
+            reader.skipValue();
+            reader.endDocument();
+        }
+    }
+
+    static final class Item {
+        String name;
+        int count;
+        List<String> tags;
+    }
+}
@@ -0,0 +1,179 @@
+package com.network.serialization.processor;
+
+import com.network.serialization.JsonBinder;
+import com.network.serialization.JsonCodec;
+import com.network.serialization.StreamingJsonSerializer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JsonCodecProcessorTest {
+
+    @TempDir
+    Path directory;
+
+    private final DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+
+    @Test
+    void generatedBinderRoundTripsTheFixture() throws Exception {
+        boolean compiled = compile(
+            "fixture/Base.java",
+            "package fixture;\n"
+            + "public class Base {\n"
+            + "    public long id;\n"
+            + "}\n",
+            "fixture/Item.java",
+            "package fixture;\n"
+            + "import com.network.serialization.JsonCodec;\n"
+            + "import java.util.List;\n"
+            + "import java.util.Map;\n"
+            + "@JsonCodec\n"
+            + "public class Item extends Base {\n"
+            + "    public String name;\n"
+            + "    public int count;\n"
+            + "    public Boolean flag;\n"
+            + "    public List<String> tags;\n"
+            + "    public Map<String, Integer> scores;\n"
+            + "    public Part part;\n"
+            + "    public transient String ignored;\n"
+            + "    private double price;\n"
+            + "    public double getPrice() { return price; }\n"
+            + "    public void setPrice(double price) { this.price = price; }\n"
+            + "    @JsonCodec\n"
+            + "    public static class Part {\n"
+            + "        public String label;\n"
+            + "    }\n"
+            + "}\n");
+        assertTrue(compiled, diagnostics.getDiagnostics().toString());
+        assertTrue(Files.exists(directory.resolve("generated/fixture/Item_JsonBinder.java")));
+        assertTrue(Files.exists(directory.resolve("generated/fixture/Item_Part_JsonBinder.java")));
+
+        try (URLClassLoader loader = load()) {
+            Class<?> item = loader.loadClass("fixture.Item");
+            Class<?> binder = loader.loadClass("fixture.Item_JsonBinder");
+            assertSame(binder, JsonBinder.forClass(item).getClass());
+
+            StreamingJsonSerializer serializer = new StreamingJsonSerializer();
+            String json = "{\"id\": 7, \"name\": \"a\", \"count\": 2, \"flag\": null, \"tags\": [\"x\"],"
+                          + " \"scores\": {\"s\": 3}, \"part\": {\"label\": \"p\"}, \"price\": 1.5,"
+                          + " \"ignored\": \"i\", \"unknown\": [1]}";
+            Object value = serializer.deserialize(json.getBytes(StandardCharsets.UTF_8), item);
+
+            assertEquals(7L, item.getField("id").get(value));
+            assertEquals("a", item.getField("name").get(value));
+            assertEquals(2, item.getField("count").get(value));
+            assertNull(item.getField("flag").get(value));
+            assertEquals(List.of("x"), item.getField("tags").get(value));
+            assertEquals(Map.of("s", 3), item.getField("scores").get(value));
+            assertEquals(1.5, item.getMethod("getPrice").invoke(value));
+            assertNull(item.getField("ignored").get(value));
+            Object part = item.getField("part").get(value);
+            assertEquals("p", part.getClass().getField("label").get(part));
+
+            Object read = serializer.deserialize(serializer.serialize(value), item);
+            assertEquals("a", item.getField("name").get(read));
+            assertEquals(List.of("x"), item.getField("tags").get(read));
+            assertEquals(1.5, item.getMethod("getPrice").invoke(read));
+            assertFalse(new String(serializer.serialize(value), StandardCharsets.UTF_8).contains("ignored"));
+        }
+    }
+
+    @Test
+    void unsupportedClassesAreReported() throws Exception {
+        boolean compiled = compile(
+            "broken/Shape.java",
+            "package broken;\n"
+            + "@com.network.serialization.JsonCodec\n"
+            + "public abstract class Shape {\n"
+            + "}\n",
+            "broken/Hidden.java",
+            "package broken;\n"
+            + "@com.network.serialization.JsonCodec\n"
+            + "class Hidden {\n"
+            + "    private String secret;\n"
+            + "}\n",
+            "broken/Outer.java",
+            "package broken;\n"
+            + "public class Outer {\n"
+            + "    @com.network.serialization.JsonCodec\n"
+            + "    class Inner {\n"
+            + "    }\n"
+            + "}\n",
+            "broken/NoConstructor.java",
+            "package broken;\n"
+            + "@com.network.serialization.JsonCodec\n"
+            + "class NoConstructor {\n"
+            + "    NoConstructor(int value) {\n"
+            + "    }\n"
+            + "}\n");
+
+        assertFalse(compiled);
+        String errors = diagnostics.getDiagnostics().stream()
+            .filter(diagnostic -> diagnostic.getKind() == Diagnostic.Kind.ERROR)
+            .map(diagnostic -> diagnostic.getMessage(null))
+            .collect(Collectors.joining("\n"));
+        assertTrue(errors.contains("cannot be abstract"), errors);
+        assertTrue(errors.contains("Field secret is not accessible"), errors);
+        assertTrue(errors.contains("cannot be inner classes"), errors);
+        assertTrue(errors.contains("no-argument constructor"), errors);
+        assertFalse(Files.exists(directory.resolve("generated/broken/Hidden_JsonBinder.java")));
+    }
+
+    /**
+     * Compiles sources, given as pairs of path and content, with the processor.
+     */
+    private boolean compile(String... sources) throws Exception {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        Path sourceDirectory = Files.createDirectories(directory.resolve("src"));
+        List<File> files = new ArrayList<>();
+        for (int i = 0; i < sources.length; i += 2) {
+            Path file = sourceDirectory.resolve(sources[i]);
+            Files.createDirectories(file.getParent());
+            Files.writeString(file, sources[i + 1]);
+            files.add(file.toFile());
+        }
+        Files.createDirectories(directory.resolve("classes"));
+        Files.createDirectories(directory.resolve("generated"));
+        String classpath = Path.of(JsonCodec.class.getProtectionDomain().getCodeSource().getLocation().toURI())
+            .toString();
+
+        try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(diagnostics, null,
+                                                                                    StandardCharsets.UTF_8)) {
+            JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, diagnostics,
+                List.of("-classpath", classpath,
+                        "-d", directory.resolve("classes").toString(),
+                        "-s", directory.resolve("generated").toString()),
+                null, fileManager.getJavaFileObjectsFromFiles(files));
+            task.setProcessors(List.of(new JsonCodecProcessor()));
+            return task.call();
+        }
+    }
+
+    private URLClassLoader load() throws Exception {
+        return new URLClassLoader(new URL[] {directory.resolve("classes").toUri().toURL()},
+                                  JsonCodecProcessorTest.class.getClassLoader());
+    }
+}